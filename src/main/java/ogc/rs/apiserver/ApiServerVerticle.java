@@ -4,6 +4,8 @@ import io.vertx.core.AbstractVerticle;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
 import io.vertx.core.file.FileSystem;
 import io.vertx.core.http.*;
 import io.vertx.core.json.JsonArray;
@@ -13,17 +15,33 @@ import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.validation.RequestParameters;
 import io.vertx.ext.web.validation.ValidationHandler;
+import io.vertx.pgclient.PgConnectOptions;
+import io.vertx.pgclient.PgPool;
+import io.vertx.sqlclient.PoolOptions;
+import io.vertx.sqlclient.Tuple;
 import ogc.rs.apiserver.handlers.DxTokenAuthenticationHandler;
+import ogc.rs.apiserver.util.AuditBatchWriter;
 import ogc.rs.apiserver.util.AuthInfo.RoleEnum;
 import ogc.rs.apiserver.util.AuthInfo;
+import ogc.rs.apiserver.util.DynamicTileGenerator;
+import ogc.rs.apiserver.util.FeatureCollectionStreamer;
+import ogc.rs.apiserver.util.FeatureCursor;
 import ogc.rs.apiserver.util.Limits;
 import ogc.rs.apiserver.util.OgcException;
+import ogc.rs.apiserver.util.QuotaCounters;
 import ogc.rs.apiserver.util.StacItemSearchParams;
+import ogc.rs.apiserver.util.TileCache;
+import ogc.rs.apiserver.util.VectorTileOverzoom;
+import ogc.rs.apiserver.util.TileMatrixSetGrid;
 import ogc.rs.catalogue.CatalogueService;
 import ogc.rs.common.DataFromS3;
 import ogc.rs.common.S3BucketReadAccess;
 import ogc.rs.common.S3Config;
 import ogc.rs.common.S3ConfigsHolder;
+import ogc.rs.common.S3PreSigner;
+import ogc.rs.common.TileExistenceIndex;
+import ogc.rs.common.pmtiles.PMTilesArchive;
+import ogc.rs.common.pmtiles.PMTilesHeader;
 import ogc.rs.database.DatabaseService;
 import ogc.rs.jobs.JobsService;
 import ogc.rs.metering.MeteringService;
@@ -55,7 +73,10 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
 import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
@@ -93,15 +114,32 @@ public class ApiServerVerticle extends AbstractVerticle {
   private S3ConfigsHolder s3conf;
   CatalogueService catalogueService;
   MeteringService meteringService;
+  private AuditBatchWriter auditWriter;
   private Router router;
   private String ogcBasePath;
   private String hostName;
   private DatabaseService dbService;
   private Buffer ogcLandingPageBuf;
   private JsonObject stacMetaJson;
-  private HttpClient httpClient;
   private ProcessesRunnerService processService;
   private JobsService jobsService;
+  private FeatureCursor featureCursor;
+  private FeatureCollectionStreamer featureStreamer;
+  private DynamicTileGenerator dynamicTileGenerator;
+  private TileCache tileCache;
+  private int tileOverzoomMaxLevels;
+  private final Map<String, PMTilesArchive> pmtilesArchives =
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PMTilesArchive> eldest) {
+          return size() > PMTILES_ARCHIVES_CACHE_SIZE;
+        }
+      };
+  private final Map<String, S3PreSigner> s3PreSigners = new HashMap<>();
+  private final Map<String, Map.Entry<String, Future<TileExistenceIndex>>> tileIndexes =
+      new HashMap<>();
+  /** Routing context key of the size of an object sent as a redirect, to be metered. */
+  private static final String REDIRECTED_OBJECT_SIZE = "redirectedObjectSize";
 
   String tileMatrixSetUrl = "https://raw.githubusercontent.com/opengeospatial/2D-Tile-Matrix-Set/master/registry" +
       "/json/$.json";
@@ -124,11 +162,46 @@ public class ApiServerVerticle extends AbstractVerticle {
 
     catalogueService = new CatalogueService(vertx, config());
     meteringService = MeteringService.createProxy(vertx, METERING_SERVICE_ADDRESS);
+    auditWriter = AuditBatchWriter.shared(vertx, config());
 
     /* Initialize OGC landing page buffer - since configured hostname needs to be in it */
     String landingPageTemplate = vertx.fileSystem().readFileBlocking("docs/landingPage.json").toString();
     ogcLandingPageBuf = Buffer.buffer(landingPageTemplate.replace("$HOSTNAME", hostName));
 
+    featureCursor = new FeatureCursor(config().getString("featuresCursorSecret"));
+
+    /* Pool for queries run directly by the API server, shared by all verticle instances, connections
+     * are only opened when used */
+    PgPool pgPool = createPgPool(config());
+
+    /* Stream OGC Features responses from a DB cursor instead of building them in memory */
+    if (config().getBoolean("streamFeatures", false)) {
+      featureStreamer = new FeatureCollectionStreamer(pgPool,
+          config().getInteger("featuresStreamFetchSize", FEATURES_STREAM_DEFAULT_FETCH_SIZE));
+    }
+
+    /* Generate tiles of dynamic tilesets from the collection table */
+    dynamicTileGenerator = new DynamicTileGenerator(pgPool,
+        config().getInteger("dynamicTilesCacheSize", DYNAMIC_TILES_DEFAULT_CACHE_SIZE),
+        config().getLong("dynamicTilesCacheTtlSec", DYNAMIC_TILES_DEFAULT_CACHE_TTL_SEC));
+
+    /* Cache tiles fetched from S3, in memory and optionally on local disk */
+    tileCache = new TileCache(
+        config().getLong("tileCacheSizeMb", TILE_CACHE_DEFAULT_SIZE_MB) * 1024 * 1024,
+        TimeUnit.SECONDS.toMillis(config().getLong("tileCacheTtlSec", TILE_CACHE_DEFAULT_TTL_SEC)),
+        TimeUnit.SECONDS.toMillis(
+            config().getLong("tileCacheNotFoundTtlSec", TILE_CACHE_DEFAULT_NOT_FOUND_TTL_SEC)),
+        vertx.fileSystem(), config().getString("tileCacheDiskDir"),
+        config().getLong("tileCacheDiskSizeMb", TILE_CACHE_DEFAULT_DISK_SIZE_MB) * 1024 * 1024);
+    tileOverzoomMaxLevels =
+        config().getInteger("tileOverzoomMaxLevels", TILE_OVERZOOM_DEFAULT_MAX_LEVELS);
+
+    /* Warm up the tile cache on request of the TilesCacheWarmUp process. Tiles fetched by one
+       instance are added to the caches of the other instances in this JVM. */
+    vertx.eventBus().<JsonObject>consumer(TILE_CACHE_WARM_UP_ADDRESS, this::warmUpTileCache);
+    vertx.eventBus().<Buffer>localConsumer(TILE_CACHE_FILL_ADDRESS,
+        message -> tileCache.put(message.headers().get(TILE_KEY_HEADER), message.body()));
+
     /* Initialise STAC_metadata_object from filesystem */
     String stacMetaObject = vertx.fileSystem().readFileBlocking("docs/getStacLandingPage.json").toString();
     stacMetaJson = new JsonObject(stacMetaObject);
@@ -178,8 +251,32 @@ public class ApiServerVerticle extends AbstractVerticle {
         }
       }
     });
+  }
 
-    httpClient = vertx.createHttpClient();
+  @Override
+  public void stop(Promise<Void> stopPromise) {
+    s3PreSigners.values().forEach(S3PreSigner::close);
+    Future.join(tileCache.close(), auditWriter.close()).<Void>mapEmpty().onComplete(stopPromise);
+  }
+
+  private PgPool createPgPool(JsonObject config) {
+    PgConnectOptions connectOptions = new PgConnectOptions()
+        .setPort(config.getInteger("databasePort"))
+        .setHost(config.getString("databaseHost"))
+        .setDatabase(config.getString("databaseName"))
+        .setUser(config.getString("databaseUser"))
+        .setPassword(config.getString("databasePassword"))
+        .setReconnectAttempts(2)
+        .setReconnectInterval(1000L)
+        .setCachePreparedStatements(true)
+        .setPreparedStatementCacheMaxSize(
+            config.getInteger("preparedStatementCacheMaxSize", DEFAULT_PREPARED_STATEMENT_CACHE_SIZE));
+
+    PoolOptions poolOptions = new PoolOptions()
+        .setMaxSize(config.getInteger("apiServerPoolSize", API_SERVER_DEFAULT_POOL_SIZE))
+        .setShared(true)
+        .setName(API_SERVER_PG_POOL_NAME);
+    return PgPool.pool(vertx, connectOptions, poolOptions);
   }
 
   /**
@@ -397,6 +494,18 @@ public class ApiServerVerticle extends AbstractVerticle {
     LOGGER.debug("<APIServer> QP- {}", queryParamsMap);
     LOGGER.debug("<APIServer> Limits- {}", limits);
 
+    // a cursor from a previous page takes precedence over offset
+    String cursor = queryParamsMap.remove("cursor");
+    if (cursor != null) {
+      try {
+        long lastId = featureCursor.decode(cursor, queryParamsMap);
+        queryParamsMap.put("offset", String.valueOf(lastId + 1));
+      } catch (OgcException e) {
+        routingContext.fail(e);
+        return;
+      }
+    }
+
     Future<Map<String, Integer>> isCrsValid = dbService.isCrsValid(collectionId, queryParamsMap);
     isCrsValid
             .compose(datetimeCheck -> {
@@ -438,50 +547,116 @@ public class ApiServerVerticle extends AbstractVerticle {
               }
               return Future.succeededFuture();
             })
-            .compose(dbCall -> dbService.getFeatures(collectionId, queryParamsMap, limits, isCrsValid.result()))
-            .onSuccess(success -> {
-              success.put("links", new JsonArray());
-              int limit = Integer.parseInt(queryParamsMap.get("limit"));
-              String nextLink = "";
-              JsonArray features = success.getJsonArray("features");
-              if (!features.isEmpty()) {
-                int lastIdOffset = features.getJsonObject(features.size() - 1).getInteger("id") + 1;
-                queryParamsMap.put("offset", String.valueOf(lastIdOffset));
-                AtomicReference<String> requestPath = new AtomicReference<>(routingContext.request().path());
-                if (!queryParamsMap.isEmpty()) {
-                  requestPath.set(requestPath + "?");
-                  queryParamsMap.forEach((key, value) -> requestPath.set(requestPath + key + "=" + value + "&"));
-                }
-                nextLink = requestPath.toString().substring(0, requestPath.toString().length() - 1);
-                nextLink = nextLink.replace("[", "").replace("]","");
-                LOGGER.debug("**** nextLink- {}", nextLink);
-                if ( limit < success.getInteger("numberMatched")
-                        && (success.getInteger("numberMatched") > success.getInteger("numberReturned"))
-                        && success.getInteger("numberReturned") != 0 ) {
-                  success.getJsonArray("links")
-                          .add(new JsonObject()
-                                  .put("href",
-                                          hostName + nextLink)
-                                  .put("rel", "next")
-                                  .put("type", "application/geo+json" ));
-                }
+            .compose(dbCall -> {
+              if (featureStreamer != null) {
+                return streamFeatures(routingContext, collectionId, queryParamsMap, limits,
+                    isCrsValid.result());
               }
-              success.getJsonArray("links")
-                      .add(new JsonObject()
-                              .put("href", hostName + ogcBasePath + COLLECTIONS + "/" + collectionId + "/items")
-                              .put("rel", "self")
-                              .put("type", "application/geo+json"))
-                      .add(new JsonObject()
-                              .put("href", hostName + ogcBasePath  + COLLECTIONS + "/" + collectionId + "/items")
-                              .put("rel", "alternate")
-                              .put("type", "application/geo+json"));
-              success.put("timeStamp", Instant.now().toString());
-              routingContext.put("response",success.toString());
-              routingContext.put("statusCode", 200);
-              routingContext.put("crs", "<" + queryParamsMap.getOrDefault("crs", DEFAULT_SERVER_CRS) + ">");
-              routingContext.next();
+              return dbService.getFeatures(collectionId, queryParamsMap, limits, isCrsValid.result())
+                  .onSuccess(success -> {
+                    JsonArray features = success.getJsonArray("features");
+                    Long lastId = features.isEmpty() ? null
+                        : features.getJsonObject(features.size() - 1).getLong("id");
+                    success.put("links", buildFeaturesLinks(routingContext, collectionId, queryParamsMap,
+                        success.getInteger("numberReturned"), lastId));
+                    success.put("timeStamp", Instant.now().toString());
+                    routingContext.put("response",success.toString());
+                    routingContext.put("statusCode", 200);
+                    routingContext.put("crs", "<" + queryParamsMap.getOrDefault("crs", DEFAULT_SERVER_CRS) + ">");
+                    routingContext.next();
+                  })
+                  .<Void>mapEmpty();
             })
-            .onFailure(failed -> routingContext.fail(failed));
+            .onFailure(failed -> {
+              if (routingContext.response().headWritten()) {
+                LOGGER.error("Failed after features response was started - {}", failed.getMessage());
+              } else {
+                routingContext.fail(failed);
+              }
+            });
+  }
+
+  /**
+   * Stream the features for an OGC Features <code>/items</code> request directly from the database
+   * to the response using {@link FeatureCollectionStreamer}, instead of building the whole
+   * FeatureCollection in memory. The response is ended here, so the rest of the handler chain is not
+   * called.
+   *
+   * @param routingContext the routing context
+   * @param collectionId the collection ID
+   * @param queryParamsMap the validated query parameters
+   * @param limits limits from the token, if any
+   * @param crs map of CRS URI to SRID valid for the collection
+   * @return a Future that completes when the response has been ended
+   */
+  private Future<Void> streamFeatures(RoutingContext routingContext, String collectionId,
+      Map<String, String> queryParamsMap, Limits limits, Map<String, Integer> crs) {
+    return dbService.getFeaturesQuery(collectionId, queryParamsMap, limits, crs).compose(query -> {
+      routingContext.put("crs", "<" + queryParamsMap.getOrDefault("crs", DEFAULT_SERVER_CRS) + ">");
+      setCommonResponseHeaders(routingContext);
+      routingContext.response().setStatusCode(200);
+
+      return featureStreamer.stream(query.getString("sql"),
+          Tuple.tuple(query.getJsonArray("params").getList()),
+          routingContext, (numberReturned, lastId) -> {
+            JsonObject members = new JsonObject();
+            if (query.containsKey("numberMatched")) {
+              members.put("numberMatched", query.getInteger("numberMatched"));
+            }
+            if (query.containsKey("numberMatchedIsLowerBound")) {
+              members.put("numberMatchedIsLowerBound", query.getBoolean("numberMatchedIsLowerBound"));
+            }
+            return members.put("numberReturned", numberReturned)
+                .put("links", buildFeaturesLinks(routingContext, collectionId, queryParamsMap,
+                    numberReturned, lastId))
+                .put("timeStamp", Instant.now().toString());
+          });
+    });
+  }
+
+  /**
+   * Build the links for an OGC Features <code>/items</code> response. A <code>next</code> link
+   * with a {@link FeatureCursor} is added if a full page of features was returned.
+   *
+   * @param routingContext the routing context
+   * @param collectionId the collection ID
+   * @param queryParamsMap the validated query parameters
+   * @param numberReturned the number of features in the response
+   * @param lastId the id of the last feature in the response, <code>null</code> if there were none
+   * @return JSON array of links
+   */
+  private JsonArray buildFeaturesLinks(RoutingContext routingContext, String collectionId,
+      Map<String, String> queryParamsMap, int numberReturned, Long lastId) {
+    JsonArray links = new JsonArray();
+    int limit = Integer.parseInt(queryParamsMap.get("limit"));
+    // a full page means there may be more features after the last id
+    if (lastId != null && numberReturned == limit) {
+      queryParamsMap.remove("offset");
+      queryParamsMap.put("cursor", featureCursor.encode(lastId, queryParamsMap));
+      AtomicReference<String> requestPath = new AtomicReference<>(routingContext.request().path());
+      if (!queryParamsMap.isEmpty()) {
+        requestPath.set(requestPath + "?");
+        queryParamsMap.forEach((key, value) -> requestPath.set(requestPath + key + "=" + value + "&"));
+      }
+      String nextLink = requestPath.toString().substring(0, requestPath.toString().length() - 1);
+      nextLink = nextLink.replace("[", "").replace("]","");
+      LOGGER.debug("**** nextLink- {}", nextLink);
+      links.add(new JsonObject()
+              .put("href",
+                      hostName + nextLink)
+              .put("rel", "next")
+              .put("type", "application/geo+json" ));
+    }
+    links
+            .add(new JsonObject()
+                    .put("href", hostName + ogcBasePath + COLLECTIONS + "/" + collectionId + "/items")
+                    .put("rel", "self")
+                    .put("type", "application/geo+json"))
+            .add(new JsonObject()
+                    .put("href", hostName + ogcBasePath  + COLLECTIONS + "/" + collectionId + "/items")
+                    .put("rel", "alternate")
+                    .put("type", "application/geo+json"));
+    return links;
   }
 
   public void getProcesses(RoutingContext routingContext) {
@@ -690,12 +865,8 @@ public class ApiServerVerticle extends AbstractVerticle {
     String tileMatrixId = routingContext.pathParam("tileMatrix");
     String tileRow = routingContext.pathParam("tileRow");
     String tileCol = routingContext.pathParam("tileCol");
-    HttpServerResponse response = routingContext.response();
     StringBuilder tilesUrlString = new StringBuilder(
         collectionId + "/" + tileMatrixSetId + "/" + tileMatrixId + "/" + tileCol + "/" + tileRow);
-    // need to set chunked for streaming response because Content-Length cannot be determined
-    // beforehand.
-    response.setChunked(true);
 
     // determine tile format if it is a map (PNG image) or vector (MVT tile) using request header.
     String encodingType = getEncodingFromRequest(routingContext.request().getHeader("Accept"));
@@ -710,41 +881,415 @@ public class ApiServerVerticle extends AbstractVerticle {
       routingContext.next();
       return;
     }
+
+    //TODO: determine tile format using 'f' query parameter
+
+    String contentType;
     if (encodingType.equalsIgnoreCase("image/png") || encodingType.equalsIgnoreCase("*/*")) {
       tilesUrlString.append(".png");
-      response.putHeader("Content-Type", "image/png");
-    }
-    else if (encodingType.equalsIgnoreCase("application/vnd.mapbox-vector-tile")) {
+      contentType = "image/png";
+    } else {
       tilesUrlString.append(".pbf");
-      response.putHeader("Content-Type", "application/vnd.mapbox-vector-tile");
+      contentType = "application/vnd.mapbox-vector-tile";
     }
 
-    //TODO: determine tile format using 'f' query parameter
+    // the tileset is looked up first, as the tile cache is keyed by the version of the tileset
+    String tileKey = tilesUrlString.toString();
+    dbService.getTileSource(collectionId, tileMatrixSetId).compose(tileSource -> {
+      if (tileSource.getBoolean("dynamic")) {
+        // dynamic tilesets are generated as MVT only
+        if (encodingType.equalsIgnoreCase("image/png")) {
+          return Future.failedFuture(new OgcException(406, "Not Acceptable",
+              "Tiles of this tileset are only available as application/vnd.mapbox-vector-tile"));
+        }
+        Optional<TileMatrixSetGrid> grid = TileMatrixSetGrid.fromId(tileMatrixSetId);
+        if (grid.isEmpty() || tileSource.getInteger("storageSrid") == null) {
+          LOGGER.error("Cannot generate tiles of collection {} in TMS {}", collectionId, tileMatrixSetId);
+          return Future.failedFuture(new OgcException(500, "Internal Server Error",
+              "Tiles cannot be generated for this tileset"));
+        }
+
+        int tileMatrix;
+        try {
+          tileMatrix = Integer.parseInt(tileMatrixId);
+        } catch (NumberFormatException e) {
+          return Future.failedFuture(new OgcException(404, "Not Found",
+              "Tile matrix " + tileMatrixId + " does not exist in " + tileMatrixSetId));
+        }
+
+        return dynamicTileGenerator.getTile(collectionId, tileSource.getInteger("storageSrid"),
+                grid.get(), tileMatrix, Long.parseLong(tileRow), Long.parseLong(tileCol))
+            .onSuccess(tile ->
+                endWithTile(routingContext, "application/vnd.mapbox-vector-tile", tile))
+            .mapEmpty();
+      }
+
+      return getStoredTile(tileSource, collectionId, tileMatrixSetId, tileKey, contentType,
+          tileMatrixId, tileRow, tileCol)
+          .onSuccess(tile -> endWithTile(routingContext, contentType, tile))
+          .mapEmpty();
+    }).onFailure(routingContext::fail);
+  }
 
-    // TODO : maybe cache the bucket ID for particular collection ID + TMS, because querying DB everytime may not be great
-    // for performance
-    dbService.getTileS3BucketId(collectionId, tileMatrixSetId).compose(s3BucketId -> {
+  /**
+   * Get a tile of a tileset stored in S3, either as one object per tile or as a PMTiles archive,
+   * through the tile cache.
+   *
+   * @param tileSource the source of the tileset, see {@link DatabaseService#getTileSource}
+   * @param collectionId the collection ID
+   * @param tileMatrixSetId the tile matrix set ID
+   * @param tileKey key of the tile in the bucket, see {@link #tileCacheKey(String, JsonObject)}
+   *        for its key in the tile cache
+   * @param contentType the requested content type of the tile
+   * @param tileMatrixId the tile matrix (zoom level)
+   * @param tileRow the tile row
+   * @param tileCol the tile column
+   * @return Future of the tile, failed with an {@link OgcException}
+   */
+  private Future<Buffer> getStoredTile(JsonObject tileSource, String collectionId,
+      String tileMatrixSetId, String tileKey, String contentType, String tileMatrixId,
+      String tileRow, String tileCol) {
+    String s3BucketId = tileSource.getString("s3BucketId");
     Optional<S3Config> conf = s3conf.getConfigByIdentifier(s3BucketId);
 
     if (conf.isEmpty()) {
       LOGGER.error("Failed to get S3 config details - No S3Config object found for {}", s3BucketId);
-        return Future.failedFuture(new OgcException(403,
-            "Cannot fetch tile - failed to get details of bucket ID " + s3BucketId,
-            "Please contact OGC server RS Admin"));
-      }
+      return Future.failedFuture(new OgcException(403,
+          "Cannot fetch tile - failed to get details of bucket ID " + s3BucketId,
+          "Please contact OGC server RS Admin"));
+    }
+
+    String pmtilesArchive = tileSource.getString("pmtilesArchive");
+    if (pmtilesArchive != null) {
+      return getTileFromPMTiles(conf.get(), s3BucketId, pmtilesArchive, tileSource,
+          tileCacheKey(tileKey, tileSource), contentType, tileMatrixId, tileRow, tileCol);
+    }
 
-    DataFromS3 dataFromS3 =
-        new DataFromS3(httpClient, conf.get());
+    // tiles not in the index of the tileset, if it has one, but within the area it covers do not
+    // exist in S3 either. Others may have been added after the index was built.
+    String tileIndexMd5 = tileSource.getString("tileIndexMd5");
+    Future<TileExistenceIndex> tileIndex = getTileExistenceIndex(collectionId, tileMatrixSetId,
+        tileIndexMd5);
+    boolean overzoom = tileOverzoomMaxLevels > 0 && !contentType.equals("image/png");
+
+    return tileIndex.compose(index -> {
+      boolean covered = index != null && isTileInIndex(index, tileMatrixId, tileRow, tileCol, false);
+      if (covered && !isTileInIndex(index, tileMatrixId, tileRow, tileCol, true)) {
+        return Future.failedFuture(new OgcException(404, "Not Found", "Tile not found."));
+      }
+      Future<Buffer> tile = getTileFromS3(conf.get(), s3BucketId, tileKey, tileSource);
+      return overzoom && !covered
+          ? tile.recover(err -> isNotFound(err)
+              ? getOverzoomedTile(conf.get(), s3BucketId, index, tileSource, collectionId,
+                  tileMatrixSetId, tileKey, tileMatrixId, tileRow, tileCol)
+              : Future.failedFuture(err))
+          : tile;
+    });
+  }
 
-    String urlString =
-        dataFromS3.getFullyQualifiedUrlString(tilesUrlString.toString());
-    dataFromS3.setUrlFromString(urlString);
-    dataFromS3.setSignatureHeader(HttpMethod.GET);
-    return dataFromS3
-        .getDataFromS3(HttpMethod.GET);
+  /**
+   * Fetch a batch of tiles of a tileset stored in S3 into the tile cache, for the TilesCacheWarmUp
+   * process. The tiles are fetched in parallel, and those fetched are published to the other
+   * instances. Replies with the number of tiles <code>cached</code>, <code>notFound</code> and
+   * <code>failed</code>, or fails if the tileset does not exist or is dynamic.
+   *
+   * @param message batch with the <code>collectionId</code>, <code>tileMatrixSetId</code>,
+   *        <code>encoding</code> (MVT or PNG) and <code>tiles</code> as
+   *        <code>[tileMatrix, tileRow, tileCol]</code> arrays
+   */
+  private void warmUpTileCache(Message<JsonObject> message) {
+    JsonObject batch = message.body();
+    String collectionId = batch.getString("collectionId");
+    String tileMatrixSetId = batch.getString("tileMatrixSetId");
+    boolean png = "PNG".equalsIgnoreCase(batch.getString("encoding"));
+    String contentType = png ? "image/png" : "application/vnd.mapbox-vector-tile";
+    JsonArray tiles = batch.getJsonArray("tiles");
+
+    dbService.getTileSource(collectionId, tileMatrixSetId).compose(tileSource -> {
+      if (tileSource.getBoolean("dynamic")) {
+        return Future.failedFuture(new OgcException(400, "Bad Request",
+            "Tiles of dynamic tilesets are generated on request and cannot be warmed up"));
+      }
+      List<Future<Buffer>> fetches = new ArrayList<>();
+      for (int i = 0; i < tiles.size(); i++) {
+        JsonArray tile = tiles.getJsonArray(i);
+        String tileMatrixId = tile.getValue(0).toString();
+        String tileRow = tile.getValue(1).toString();
+        String tileCol = tile.getValue(2).toString();
+        String tileKey = collectionId + "/" + tileMatrixSetId + "/" + tileMatrixId + "/" + tileCol
+            + "/" + tileRow + (png ? ".png" : ".pbf");
+        fetches.add(getStoredTile(tileSource, collectionId, tileMatrixSetId, tileKey, contentType,
+            tileMatrixId, tileRow, tileCol)
+            .onSuccess(fetched -> vertx.eventBus().publish(TILE_CACHE_FILL_ADDRESS, fetched,
+                new DeliveryOptions().addHeader(TILE_KEY_HEADER,
+                    tileCacheKey(tileKey, tileSource)))));
+      }
+      return Future.join(fetches).otherwiseEmpty().map(done -> new JsonObject()
+          .put("cached", fetches.stream().filter(Future::succeeded).count())
+          .put("notFound", fetches.stream().filter(f -> f.failed() && isNotFound(f.cause())).count())
+          .put("failed", fetches.stream().filter(f -> f.failed() && !isNotFound(f.cause())).count()));
     })
-        .onSuccess(success -> success.pipeTo(response))
-        .onFailure(routingContext::fail);
+        .onSuccess(message::reply)
+        .onFailure(err -> {
+          LOGGER.error("Failed to warm up tiles of {}/{} - {}", collectionId, tileMatrixSetId,
+              err.getMessage());
+          message.fail(err instanceof OgcException ? ((OgcException) err).getStatusCode() : 500,
+              err.getMessage());
+        });
+  }
+
+  /**
+   * End the response with a tile, or with 304 (Not Modified) if the client has it already. Tiles
+   * are buffered and cached, so instead of relaying the <code>ETag</code> of S3 the entity tag is
+   * a checksum of the tile, the same on every server. <code>Range</code> is ignored for tiles, as
+   * they are small.
+   *
+   * @param routingContext the routing context of the request
+   * @param contentType content type of the tile
+   * @param tile the tile
+   */
+  private void endWithTile(RoutingContext routingContext, String contentType, Buffer tile) {
+    CRC32 crc = new CRC32();
+    crc.update(tile.getBytes());
+    String etag = "W/\"" + Long.toHexString(crc.getValue()) + "-" + tile.length() + "\"";
+
+    HttpServerResponse response = routingContext.response().putHeader("ETag", etag);
+    String ifNoneMatch = routingContext.request().getHeader("If-None-Match");
+    if (ifNoneMatch != null && (ifNoneMatch.trim().equals("*")
+        || Arrays.stream(ifNoneMatch.split(",")).map(String::trim)
+            .anyMatch(tag -> tag.equals(etag) || ("W/" + tag).equals(etag)))) {
+      response.setStatusCode(304).end();
+      return;
+    }
+    response.putHeader("Content-Type", contentType).end(tile);
+  }
+
+  /**
+   * Key of a tile in the tile cache, made of its key in the bucket and the version of the tileset,
+   * so that tiles of a tileset that was onboarded again or changed are fetched again.
+   *
+   * @param tileKey key of the tile in the bucket
+   * @param tileSource the source of the tileset, see {@link DatabaseService#getTileSource}
+   * @return the key of the tile in the tile cache
+   */
+  private static String tileCacheKey(String tileKey, JsonObject tileSource) {
+    return tileKey + "@" + tileSource.getLong("version");
+  }
+
+  /**
+   * Get a tile of a tileset stored as one object per tile in S3, through the tile cache.
+   *
+   * @param conf config of the bucket holding the tileset
+   * @param s3BucketId ID of the bucket
+   * @param tileKey key of the tile in the bucket
+   * @param tileSource the source of the tileset, see {@link DatabaseService#getTileSource}
+   * @return Future of the tile, failed with an {@link OgcException} (404) if there is no such tile
+   */
+  private Future<Buffer> getTileFromS3(S3Config conf, String s3BucketId, String tileKey,
+      JsonObject tileSource) {
+    return tileCache.get(tileCacheKey(tileKey, tileSource), () -> {
+      DataFromS3 dataFromS3 = new DataFromS3(s3conf.getHttpClient(vertx, s3BucketId), conf);
+      dataFromS3.setUrlFromString(dataFromS3.getFullyQualifiedUrlString(tileKey));
+      dataFromS3.setSignatureHeader(HttpMethod.GET);
+      return dataFromS3.getDataFromS3(HttpMethod.GET).compose(HttpClientResponse::body);
+    });
+  }
+
+  /**
+   * Derive a vector tile that is not in S3 from the nearest ancestor tile that is, for tilesets
+   * whose tiles stop at some zoom level, see {@link VectorTileOverzoom}. At most
+   * <code>tileOverzoomMaxLevels</code> levels are searched. Both the ancestor and the derived tile
+   * go through the tile cache. The derived tile is cached under its own key, so that the tile is
+   * served from S3 once it is uploaded and the 404 of the tile in the cache has expired.
+   *
+   * <p>
+   * Ancestors are fetched from S3 one level after the other, skipping those that the
+   * {@link TileExistenceIndex} of the tileset, if it has one, covers and does not contain.
+   *
+   * @param conf config of the bucket holding the tileset
+   * @param s3BucketId ID of the bucket
+   * @param index index of the tileset, <code>null</code> if it has none
+   * @param tileSource the source of the tileset, see {@link DatabaseService#getTileSource}
+   * @param collectionId the collection ID
+   * @param tileMatrixSetId the tile matrix set ID
+   * @param tileKey key of the requested tile in the bucket
+   * @param tileMatrixId the tile matrix (zoom level)
+   * @param tileRow the tile row
+   * @param tileCol the tile column
+   * @return Future of the tile, failed with an {@link OgcException} (404) if there is no ancestor
+   *         or no feature of the ancestor is within the tile
+   */
+  private Future<Buffer> getOverzoomedTile(S3Config conf, String s3BucketId,
+      TileExistenceIndex index, JsonObject tileSource, String collectionId, String tileMatrixSetId,
+      String tileKey, String tileMatrixId, String tileRow, String tileCol) {
+    int z;
+    long x;
+    long y;
+    try {
+      z = Integer.parseInt(tileMatrixId);
+      x = Long.parseLong(tileCol);
+      y = Long.parseLong(tileRow);
+    } catch (NumberFormatException e) {
+      return Future.failedFuture(new OgcException(404, "Not Found", "Tile not found."));
+    }
+
+    int minLevel = Math.max(0, z - tileOverzoomMaxLevels);
+    String extension = tileKey.substring(tileKey.lastIndexOf('.'));
+    String tilesetPrefix = collectionId + "/" + tileMatrixSetId + "/";
+
+    // try the nearest ancestor first, then the ones above it
+    Supplier<Future<Buffer>> getTile = () -> Future.failedFuture(
+        new OgcException(404, "Not Found", "Tile not found."));
+    for (int level = minLevel; level < z; level++) {
+      int levels = z - level;
+      long ancestorCol = x >> levels;
+      long ancestorRow = y >> levels;
+      if (index != null && index.covers(level, ancestorCol, ancestorRow)
+          && !index.contains(level, ancestorCol, ancestorRow)) {
+        continue;
+      }
+      String ancestorKey = tilesetPrefix + level + "/" + ancestorCol + "/" + ancestorRow + extension;
+      Supplier<Future<Buffer>> tryNextAncestor = getTile;
+      getTile = () -> getTileFromS3(conf, s3BucketId, ancestorKey, tileSource).compose(
+          ancestor -> overzoomTile(tileKey, ancestor, levels, x, y),
+          err -> isNotFound(err) ? tryNextAncestor.get() : Future.failedFuture(err));
+    }
+    return tileCache.get(tileCacheKey(tileKey, tileSource) + OVERZOOMED_TILE_KEY_SUFFIX, getTile);
+  }
+
+  private Future<Buffer> overzoomTile(String tileKey, Buffer ancestor, int levels, long tileCol,
+      long tileRow) {
+    Buffer tile;
+    try {
+      tile = VectorTileOverzoom.overzoom(ancestor, levels, tileCol, tileRow);
+    } catch (RuntimeException e) {
+      LOGGER.error("Failed to overzoom tile {} - {}", tileKey, e.getMessage());
+      return Future.failedFuture(
+          new OgcException(500, "Internal Server Error", "Internal Server Error"));
+    }
+    return tile == null
+        ? Future.failedFuture(new OgcException(404, "Not Found", "Tile not found."))
+        : Future.succeededFuture(tile);
+  }
+
+  private static boolean isNotFound(Throwable err) {
+    return err instanceof OgcException && ((OgcException) err).getStatusCode() == 404;
+  }
+
+  /**
+   * Get the {@link TileExistenceIndex} of a tileset stored in S3. Indexes are loaded once per
+   * version, identified by the MD5 of the serialized index, which changes if the tileset is
+   * onboarded again or its index is rebuilt. Only the current version of each tileset is kept.
+   *
+   * @param collectionId the collection ID
+   * @param tileMatrixSetId the tile matrix set ID
+   * @param tileIndexMd5 MD5 of the current index of the tileset, <code>null</code> if it has none
+   * @return Future of the index, or of <code>null</code> if the tileset has none or it could not
+   *         be loaded, in which case tiles are looked up in S3
+   */
+  private Future<TileExistenceIndex> getTileExistenceIndex(String collectionId,
+      String tileMatrixSetId, String tileIndexMd5) {
+    String tilesetKey = collectionId + "/" + tileMatrixSetId;
+    if (tileIndexMd5 == null) {
+      tileIndexes.remove(tilesetKey);
+      return Future.succeededFuture();
+    }
+    Map.Entry<String, Future<TileExistenceIndex>> entry = tileIndexes.get(tilesetKey);
+    if (entry == null || !entry.getKey().equals(tileIndexMd5)) {
+      Future<TileExistenceIndex> index = dbService.getTileExistenceIndex(collectionId, tileMatrixSetId)
+          .map(json -> TileExistenceIndex.fromBuffer(json.getBuffer("tileIndex")));
+      Map.Entry<String, Future<TileExistenceIndex>> loading =
+          new AbstractMap.SimpleImmutableEntry<>(tileIndexMd5, index);
+      // replaces the index of a previous version
+      tileIndexes.put(tilesetKey, loading);
+      index.onFailure(err -> {
+        LOGGER.error("Failed to load tile index of {} - {}", tilesetKey, err.getMessage());
+        tileIndexes.remove(tilesetKey, loading);
+      });
+      entry = loading;
+    }
+    return entry.getValue().otherwiseEmpty();
+  }
+
+  private static boolean isTileInIndex(TileExistenceIndex index, String tileMatrixId,
+      String tileRow, String tileCol, boolean contained) {
+    try {
+      int tileMatrix = Integer.parseInt(tileMatrixId);
+      long col = Long.parseLong(tileCol);
+      long row = Long.parseLong(tileRow);
+      return contained ? index.contains(tileMatrix, col, row) : index.covers(tileMatrix, col, row);
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Get a tile from the PMTiles archive of a tileset, through the tile cache. The header and
+   * directories of the most recently used archives are kept per version of the tileset. If the
+   * archive was overwritten in S3 since they were read, they are read again.
+   *
+   * @param conf config of the bucket holding the archive
+   * @param s3BucketId ID of the bucket
+   * @param archiveKey key of the archive in the bucket
+   * @param tileSource the source of the tileset, see {@link DatabaseService#getTileSource}
+   * @param tileKey key of the tile in the tile cache
+   * @param contentType the requested content type of the tile
+   * @param tileMatrixId the tile matrix (zoom level)
+   * @param tileRow the tile row
+   * @param tileCol the tile column
+   * @return Future of the tile, failed with an {@link OgcException} (404) if the archive does not
+   *         have it
+   */
+  private Future<Buffer> getTileFromPMTiles(S3Config conf, String s3BucketId, String archiveKey,
+      JsonObject tileSource, String tileKey, String contentType, String tileMatrixId,
+      String tileRow, String tileCol) {
+    int z;
+    long x;
+    long y;
+    try {
+      z = Integer.parseInt(tileMatrixId);
+      x = Long.parseLong(tileCol);
+      y = Long.parseLong(tileRow);
+    } catch (NumberFormatException e) {
+      return Future.failedFuture(new OgcException(404, "Not Found", "Tile not found."));
+    }
+
+    String archiveId = s3BucketId + "/" + archiveKey + "@" + tileSource.getLong("version");
+    int tileType = contentType.equals("image/png") ? PMTilesHeader.TILE_TYPE_PNG
+        : PMTilesHeader.TILE_TYPE_MVT;
+    Supplier<Future<Buffer>> readTile = () -> {
+      PMTilesArchive archive = pmtilesArchives.computeIfAbsent(archiveId,
+          key -> new PMTilesArchive(
+              DataFromS3.rangeReader(s3conf.getHttpClient(vertx, s3BucketId), conf, archiveKey),
+              PMTILES_LEAF_DIRECTORIES_CACHE_SIZE));
+      return archive.getHeader()
+          .compose(header -> header.getTileType() == tileType
+              ? archive.getTile(z, x, y)
+              : Future.<Buffer>succeededFuture())
+          .onFailure(err -> {
+            if (isArchiveChanged(err)) {
+              pmtilesArchives.remove(archiveId, archive);
+            }
+          });
+    };
+
+    return tileCache.get(tileKey, () -> readTile.get()
+        .recover(err -> isArchiveChanged(err) ? readTile.get() : Future.failedFuture(err))
+        .recover(err -> {
+          if (err instanceof OgcException) {
+            return Future.failedFuture(err);
+          }
+          LOGGER.error("Failed to read PMTiles archive {} - {}", archiveKey, err.getMessage());
+          return Future.failedFuture(
+              new OgcException(500, "Internal Server Error", "Internal Server Error"));
+        })
+        .compose(tile -> tile == null
+            ? Future.failedFuture(new OgcException(404, "Not Found", "Tile not found."))
+            : Future.succeededFuture(tile)));
+  }
+
+  private static boolean isArchiveChanged(Throwable err) {
+    return err instanceof OgcException && ((OgcException) err).getStatusCode() == 412;
   }
 
   public String getEncodingFromRequest(String acceptRequestHeaders) {
@@ -886,6 +1431,11 @@ public class ApiServerVerticle extends AbstractVerticle {
   }
 
   public void putCommonResponseHeaders(RoutingContext routingContext) {
+    setCommonResponseHeaders(routingContext);
+    routingContext.next();
+  }
+
+  private void setCommonResponseHeaders(RoutingContext routingContext) {
     routingContext.response()
         .putHeader(HEADER_CONTENT_TYPE, MIME_APPLICATION_JSON)
         .putHeader("Cache-Control", "no-cache, no-store,  must-revalidate,max-age=0")
@@ -903,7 +1453,6 @@ public class ApiServerVerticle extends AbstractVerticle {
     // include crs when features - /items api is accessed
     if (routingContext.data().containsKey("crs"))
       routingContext.response().putHeader("Content-Crs", (String) routingContext.get("crs"));
-    routingContext.next();
   }
 
   private JsonObject buildCollectionFeatureResult(List<JsonObject> success) {
@@ -1956,14 +2505,10 @@ public class ApiServerVerticle extends AbstractVerticle {
   public void getAssets(RoutingContext routingContext) {
     String assetId = routingContext.pathParam("assetId");
 
-    HttpServerResponse response = routingContext.response();
-    response.setChunked(true);
     dbService
         .getAssets(assetId)
         .compose(
             handler -> {
-              response.putHeader("Content-Type", handler.getString("type"));
-
               String s3BucketId = handler.getString("s3_bucket_id");
 
               Optional<S3Config> conf = s3conf.getConfigByIdentifier(s3BucketId);
@@ -1975,16 +2520,66 @@ public class ApiServerVerticle extends AbstractVerticle {
                     "Please contact OGC server RS Admin"));
               }
 
-              DataFromS3 dataFromS3 =
-                  new DataFromS3(httpClient, conf.get());
-              String urlString =
-                  dataFromS3.getFullyQualifiedUrlString(handler.getString("href"));
-              dataFromS3.setUrlFromString(urlString);
-              dataFromS3.setSignatureHeader(HttpMethod.GET);
-              return dataFromS3
-                  .getDataFromS3(HttpMethod.GET);
-            }).onSuccess(success -> success.pipeTo(response))
-                  .onFailure(routingContext::fail);
+              if (handler.getLong("size") != null) {
+                routingContext.put(REDIRECTED_OBJECT_SIZE, handler.getLong("size"));
+              }
+              return sendObjectFromS3(routingContext, s3BucketId, conf.get(),
+                  handler.getString("href"), handler.getString("type"));
+            })
+        .onFailure(routingContext::fail);
+  }
+
+  /**
+   * Sends an object in S3 as the response. The object is proxied, along with range and conditional
+   * request headers and the responses to them, unless the bucket is configured
+   * to redirect downloads, in which case the response is a redirect to a short-lived pre-signed URL
+   * of the object, and the object goes from S3 to the client directly.
+   *
+   * @param routingContext the routing context of the request
+   * @param s3BucketId identifier of the bucket config
+   * @param conf the bucket config
+   * @param objectKey key of the object in the bucket
+   * @param contentType content type of the object
+   * @return Future completed once the object is being sent
+   */
+  private Future<Void> sendObjectFromS3(RoutingContext routingContext, String s3BucketId,
+      S3Config conf, String objectKey, String contentType) {
+    HttpServerResponse response = routingContext.response();
+
+    if (conf.isRedirectDownloads()) {
+      String preSignedUrl;
+      try {
+        preSignedUrl = s3PreSigners.computeIfAbsent(s3BucketId, id -> new S3PreSigner(conf))
+            .preSignGet(objectKey, Duration.ofSeconds(PRESIGNED_DOWNLOAD_URL_EXPIRY_SEC));
+      } catch (RuntimeException e) {
+        LOGGER.error("Failed to generate pre-signed URL for {} in bucket {} - {}", objectKey,
+            s3BucketId, e.getMessage());
+        return Future.failedFuture(
+            new OgcException(500, "Internal Server Error", "Internal Server Error"));
+      }
+      return response.setStatusCode(307).putHeader("Location", preSignedUrl)
+          .putHeader("Cache-Control", "no-store").end();
+    }
+
+    DataFromS3 dataFromS3 = new DataFromS3(s3conf.getHttpClient(vertx, s3BucketId), conf);
+    try {
+      dataFromS3.setUrlFromString(dataFromS3.getFullyQualifiedUrlString(objectKey));
+    } catch (OgcException e) {
+      return Future.failedFuture(e);
+    }
+    // let S3 answer range and conditional requests, e.g. for COG readers reading a few blocks
+    dataFromS3.forwardRequestHeaders(routingContext.request().headers());
+    dataFromS3.setSignatureHeader(HttpMethod.GET);
+    return dataFromS3.getDataFromS3(HttpMethod.GET).map(s3Response -> {
+      DataFromS3.relayResponse(s3Response, response);
+      if (s3Response.statusCode() == 304) {
+        response.end();
+        return null;
+      }
+      response.putHeader(CONTENT_TYPE, contentType);
+      s3Response.pipeTo(response);
+      return null;
+    });
   }
 
 
@@ -2291,7 +2886,8 @@ public class ApiServerVerticle extends AbstractVerticle {
 
   private Future<Void> updateAuditTable(RoutingContext context) {
     LOGGER.debug("Audit logging initiated for incoming request...");
-    final List<Integer> STATUS_CODES_TO_AUDIT = List.of(200, 201);
+    // 206 is a range of a download, 307 a download redirected to a pre-signed URL
+    final List<Integer> STATUS_CODES_TO_AUDIT = List.of(200, 201, 206, 307);
 
     if(!STATUS_CODES_TO_AUDIT.contains(context.response().getStatusCode())) {
       return Future.succeededFuture();
@@ -2332,7 +2928,10 @@ public class ApiServerVerticle extends AbstractVerticle {
                 ZonedDateTime zst = ZonedDateTime.now(ZoneId.of("Asia/Kolkata"));
                 long epochTime = zst.toInstant().toEpochMilli();
                 String isoTime = zst.truncatedTo(ChronoUnit.SECONDS).toString();
-                long responseSize = context.response().bytesWritten();
+                // the object itself is not sent through the server when redirected
+                Long redirectedSize = context.get(REDIRECTED_OBJECT_SIZE);
+                long responseSize = context.response().getStatusCode() == 307 && redirectedSize != null
+                    ? redirectedSize : context.response().bytesWritten();
                 String apiPath = context.request().path();
 
                 request.put(RESOURCE_GROUP, resourceGroup);
@@ -2346,33 +2945,22 @@ public class ApiServerVerticle extends AbstractVerticle {
                 request.put(RESPONSE_SIZE, responseSize);
                 request.put(PROVIDER_ID, providerId);
 
-                // Insert into PostgreSQL metering table
-                JsonObject postgresAuditPayload = new JsonObject()
-                        .put("user_id", authInfo.getUserId().toString())
-                        .put("collection_id", authInfo.getResourceId().toString())
-                        .put("api_path", apiPath)
-                        .put("timestamp", isoTime)
-                        .put("resp_size", responseSize);
-
-                meteringService.insertIntoPostgresAuditTable(postgresAuditPayload)
-                        .onComplete(pgHandler -> {
-                          if (pgHandler.failed()) {
-                            LOGGER.error("Failed to insert into Postgres metering table: ", pgHandler.cause());
-                          } else {
-                            LOGGER.debug("Inserted audit record into Postgres metering table.");
-                          }
-
-                          // Publish to RabbitMQ
-                          meteringService.insertMeteringValuesInRmq(request)
-                                  .onComplete(rmqHandler -> {
-                                    if (rmqHandler.succeeded()) {
-                                      LOGGER.debug("Message published in RMQ.");
-                                    } else {
-                                      LOGGER.error("Failed to publish message in RMQ.");
-                                    }
-                                    promise.complete();
-                                  });
-                        });
+                // usage of token limits is checked against the shared quota counters, with the
+                // same user ID and path as TokenLimitsEnforcementHandler, i.e. of the delegator
+                QuotaCounters quotaCounters =
+                    vertx.sharedData().<String, QuotaCounters>getLocalMap(QUOTA_COUNTERS_MAP)
+                        .get(QUOTA_COUNTERS_MAP);
+                if (quotaCounters != null) {
+                  String quotaUserId = authInfo.getRole() == AuthInfo.RoleEnum.delegate
+                      ? authInfo.getDelegatorUserId().toString()
+                      : authInfo.getUserId().toString();
+                  quotaCounters.record(quotaUserId, authInfo.getResourceId().toString(),
+                      context.normalizedPath(), responseSize);
+                }
+
+                // written to the Postgres metering table and RMQ in batches
+                auditWriter.add(request.put(METERING_USER_ID, authInfo.getUserId().toString()));
+                promise.complete();
 
               } else {
                 LOGGER.debug("Item not found and failed to call metering service");
@@ -2627,14 +3215,10 @@ public class ApiServerVerticle extends AbstractVerticle {
     LOGGER.debug("Getting the coverages");
     String collectionId = routingContext.normalizedPath().split("/")[2];
 
-    HttpServerResponse response = routingContext.response();
-    response.setChunked(true);
     dbService
         .getCoverageDetails(collectionId)
         .compose(
             handler -> {
-              response.putHeader(CONTENT_TYPE, COLLECTION_COVERAGE_TYPE);
-
               String s3BucketId = handler.getString("s3_bucket_id");
 
               Optional<S3Config> conf = s3conf.getConfigByIdentifier(s3BucketId);
@@ -2646,16 +3230,10 @@ public class ApiServerVerticle extends AbstractVerticle {
                     "Please contact OGC server RS Admin"));
               }
 
-              DataFromS3 dataFromS3 =
-                  new DataFromS3(httpClient, conf.get());
-
-              String urlString = dataFromS3.getFullyQualifiedUrlString(handler.getString("href"));
-              dataFromS3.setUrlFromString(urlString);
-              dataFromS3.setSignatureHeader(HttpMethod.GET);
-              return dataFromS3
-                  .getDataFromS3(HttpMethod.GET);
-              }).onSuccess(success -> success.pipeTo(response))
-                  .onFailure(routingContext::fail);
+              return sendObjectFromS3(routingContext, s3BucketId, conf.get(),
+                  handler.getString("href"), COLLECTION_COVERAGE_TYPE);
+              })
+        .onFailure(routingContext::fail);
   }
 
   public void createStacItems(RoutingContext routingContext) {
@@ -13,6 +13,7 @@ import io.vertx.ext.web.client.WebClientOptions;
 import io.vertx.ext.web.handler.AuthenticationHandler;
 import ogc.rs.apiserver.util.OgcException;
 import ogc.rs.apiserver.util.AuthInfo;
+import ogc.rs.apiserver.util.VerifiedTokenCache;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -28,6 +29,7 @@ public class DxTokenAuthenticationHandler implements AuthenticationHandler {
   Vertx vertx;
   private WebClient webClient;
   private static JWTAuth jwtAuth;
+  private static VerifiedTokenCache tokenCache;
 
   static WebClient createWebClient(Vertx vertx, JsonObject config) {
     return createWebClient(vertx, config, false);
@@ -44,6 +46,12 @@ public class DxTokenAuthenticationHandler implements AuthenticationHandler {
 
   public DxTokenAuthenticationHandler(Vertx vertx, JsonObject config) {
     this.vertx = vertx;
+    synchronized (DxTokenAuthenticationHandler.class) {
+      if (tokenCache == null) {
+        tokenCache = new VerifiedTokenCache(
+            config.getInteger("jwtCacheSize", DEFAULT_JWT_CACHE_SIZE));
+      }
+    }
     getJwtPublicKey(vertx, config)
         .onSuccess(
             handler -> {
@@ -139,6 +147,13 @@ public class DxTokenAuthenticationHandler implements AuthenticationHandler {
     
     String token = parts[1];
 
+      AuthInfo cachedUser = tokenCache.get(token);
+      if (cachedUser != null) {
+          routingContext.put(USER_KEY, cachedUser);
+          routingContext.next();
+          return;
+      }
+
       jwtAuth.authenticate(
               new JsonObject().put("token", token),
               res -> {
@@ -148,6 +163,7 @@ public class DxTokenAuthenticationHandler implements AuthenticationHandler {
                       String accessToken = res.result().principal().getString("access_token");
                       tokenDetails.put("access_token", accessToken);
                       AuthInfo user = AuthInfo.createUser(tokenDetails);
+                      tokenCache.put(token, user);
                       routingContext.put(USER_KEY, user);
                       LOGGER.debug("the user key: " + routingContext.get(USER_KEY).toString());
                       routingContext.next();
@@ -12,6 +12,7 @@ import io.vertx.ext.web.client.WebClientOptions;
 import ogc.rs.apiserver.util.AuthInfo;
 import ogc.rs.apiserver.util.AuthInfo.RoleEnum;
 import ogc.rs.apiserver.util.OgcException;
+import ogc.rs.catalogue.CatalogueItemCache;
 import ogc.rs.database.DatabaseService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -35,6 +36,7 @@ public class OgcMapsAuthZHandler implements Handler<RoutingContext> {
   private final JsonObject config;
   private final DatabaseService databaseService;
   private final WebClient catItemWebClient;
+  private final CatalogueItemCache catItemCache;
 
   private static final Logger LOGGER = LogManager.getLogger(OgcMapsAuthZHandler.class);
 
@@ -45,6 +47,7 @@ public class OgcMapsAuthZHandler implements Handler<RoutingContext> {
         WebClient.create(
             vertx,
             new WebClientOptions().setSsl(true).setTrustAll(false).setVerifyHost(true));
+    this.catItemCache = CatalogueItemCache.shared(vertx, config);
   }
 
   /**
@@ -158,6 +161,25 @@ public class OgcMapsAuthZHandler implements Handler<RoutingContext> {
    * @return catalogue item JSON when present
    */
   private Future<JsonObject> catalogueItemExists(String collectionId) {
+    return catItemCache
+        .get("item:" + collectionId, () -> fetchCatalogueItem(collectionId))
+        .compose(
+            item -> {
+              if (item == null) {
+                LOGGER.error("{} collectionId={}", ITEM_NOT_PRESENT_ERROR, collectionId);
+                return Future.failedFuture(new OgcException(404, "Not Found", "Not Found"));
+              }
+              return Future.succeededFuture(item);
+            });
+  }
+
+  /**
+   * Fetches the collection item from the DX catalogue items API.
+   *
+   * @param collectionId collection resource id
+   * @return catalogue item JSON, <code>null</code> when the item is not present
+   */
+  private Future<JsonObject> fetchCatalogueItem(String collectionId) {
     Promise<JsonObject> promise = Promise.promise();
     String catHost = config.getString("catServerHost");
     int catPort = config.getInteger("catServerPort");
@@ -191,8 +213,7 @@ public class OgcMapsAuthZHandler implements Handler<RoutingContext> {
               }
               JsonArray results = body.getJsonArray("results");
               if (results == null || results.isEmpty()) {
-                LOGGER.error("{} collectionId={}", ITEM_NOT_PRESENT_ERROR, collectionId);
-                promise.fail(new OgcException(404, "Not Found", "Not Found"));
+                promise.complete(null);
                 return;
               }
               LOGGER.info("catalogueItemExists: ok collectionId={}", collectionId);
@@ -20,6 +20,8 @@ import java.util.regex.Matcher;
 import static ogc.rs.apiserver.handlers.DxTokenAuthenticationHandler.USER_KEY;
 import static ogc.rs.apiserver.util.Constants.*;
 import static ogc.rs.processes.auditLogsIngestion.Constants.AUDIT_LOGS_INGESTION_TITLE;
+import static ogc.rs.processes.tilesCacheWarmUp.Constants.TILES_CACHE_WARM_UP_TITLE;
+import static ogc.rs.processes.tilesIndexRebuild.Constants.TILES_INDEX_REBUILD_TITLE;
 import static ogc.rs.processes.echo.Constants.ECHO_PROCESS_TITLE;
 import static ogc.rs.processes.userDatasetUsageCheck.Constants.USER_DATASET_USAGE_TITLE;
 
@@ -133,10 +135,11 @@ public class ProcessAuthZHandler implements Handler<RoutingContext> {
     private void performAuthorization(
             RoutingContext routingContext, AuthInfo user, UUID iid, String processTitle) {
 
-        // Check if this is AuditLogsIngestion process - ONLY RS admin allowed
-        if (AUDIT_LOGS_INGESTION_TITLE.equals(processTitle)) {
+        // Check if this is AuditLogsIngestion, TilesCacheWarmUp or TilesIndexRebuild process - ONLY RS admin allowed
+        if (AUDIT_LOGS_INGESTION_TITLE.equals(processTitle) || TILES_CACHE_WARM_UP_TITLE.equals(processTitle)
+                || TILES_INDEX_REBUILD_TITLE.equals(processTitle)) {
             if (user.getRole() == AuthInfo.RoleEnum.admin && user.isRsToken()) {
-                LOGGER.debug("RS admin authorized for AuditLogsIngestion process");
+                LOGGER.debug("RS admin authorized for {} process", processTitle);
                 JsonObject results = new JsonObject();
                 results.put("userId", user.getUserId());
                 results.put("role", user.getRole());
@@ -144,15 +147,18 @@ public class ProcessAuthZHandler implements Handler<RoutingContext> {
                 routingContext.next();
             } else {
                 LOGGER.error(
-                        "Only RS admin is authorized to execute the AuditLogsIngestion process. " +
-                                "Unauthorized access to AuditLogsIngestion. Role: {}, isRsToken: {}",
+                        "Only RS admin is authorized to execute the {} process. " +
+                                "Unauthorized access to {}. Role: {}, isRsToken: {}",
+                        processTitle,
+                        processTitle,
                         user.getRole(),
                         user.isRsToken());
                 routingContext.fail(
                         new OgcException(
                                 401,
                                 "Not Authorized",
-                                "Only RS admin is authorized to execute the AuditLogsIngestion process. Please contact DX AAA"));
+                                "Only RS admin is authorized to execute the " + processTitle
+                                        + " process. Please contact DX AAA"));
             }
             return;
         }
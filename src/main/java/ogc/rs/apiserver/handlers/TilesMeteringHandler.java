@@ -3,8 +3,8 @@ package ogc.rs.apiserver.handlers;
 import static ogc.rs.common.Constants.*;
 
 import io.vertx.core.Handler;
-import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.shareddata.LocalMap;
 import io.vertx.ext.web.RoutingContext;
@@ -12,6 +12,7 @@ import java.util.Arrays;
 import java.util.List;
 import ogc.rs.apiserver.util.AuthInfo;
 import ogc.rs.apiserver.util.MeteringInfo;
+import ogc.rs.apiserver.util.TilesMeteringAggregator;
 import ogc.rs.catalogue.CatalogueService;
 import ogc.rs.metering.MeteringService;
 import org.apache.logging.log4j.LogManager;
@@ -21,10 +22,13 @@ public class TilesMeteringHandler implements Handler<Void> {
 
   private static final Logger LOGGER = LogManager.getLogger(TilesMeteringHandler.class);
 
+  private static final String AGGREGATOR_MAP = "TilesMeteringAggregator";
+
   private final CatalogueService catalogueService;
   private final MeteringService meteringService;
   private final Vertx vertx;
-  private final LocalMap<MeteringInfo, Integer> meteringDataMap;
+  private final TilesMeteringAggregator aggregator;
+  private boolean flushInProgress;
 
   /**
    * Constructs a TilesMeteringHandler instance.
@@ -33,55 +37,51 @@ public class TilesMeteringHandler implements Handler<Void> {
    * @param config a JsonObject containing configuration for initializing CatalogueService. This
    *     handler initializes: 1. A connection to the CatalogueService using the provided
    *     configuration. 2. A metering service proxy for publishing data to RMQ.
-   *     <p>A periodic task is scheduled every 2 seconds, which: - Retrieves the shared data map
-   *     (LocalMap) storing metering information. - Iterates through each entry in the map: -
-   *     Removes the entry after retrieving its value. - Logs the removed entry and its value. -
-   *     Publishes the metering data (converted to JSON) to RMQ. - Logs success or failure for each
-   *     message published to RMQ.
+   *     <p>Tile requests are aggregated per user, collection, tileset and minute in a {@link
+   *     TilesMeteringAggregator} shared by all handlers. The handler creating it schedules a
+   *     periodic task which drains the aggregates and sends them to the metering service in one
+   *     batch, to be inserted into Postgres and published to RMQ. A flush is skipped while the
+   *     previous one is still in progress, the aggregator then drops requests once full.
    */
   public TilesMeteringHandler(Vertx vertx, JsonObject config) {
     this.vertx = vertx;
     this.catalogueService = new CatalogueService(vertx, config);
     this.meteringService = MeteringService.createProxy(vertx, METERING_SERVICE_ADDRESS);
-    this.meteringDataMap = vertx.sharedData().getLocalMap("MeteringDataMap");
-
-    // Set up a periodic task to clean up the shared data map
-      vertx.setPeriodic(
-              METERING_UPDATE_PERIOD,
-              id -> {
-                  meteringDataMap
-                          .keySet()
-                          .forEach(key -> {
-                              Integer value = meteringDataMap.remove(key);
-                              if (value != null) {
-                                  JsonObject meteringJson = key.toJson(value);
-                                  LOGGER.debug(this + " removed " + meteringJson + " " + value);
-
-                                  // Reformat the JSON to insert into postgres metering table
-                                  JsonObject formattedJson = new JsonObject()
-                                          .put("user_id", meteringJson.getString("delegatorId"))
-                                          .put("collection_id", meteringJson.getString("id"))
-                                          .put("api_path", meteringJson.getString("api"))
-                                          .put("timestamp", meteringJson.getString("isoTime"))
-                                          .put("resp_size", meteringJson.getLong("response_size"));
-
-                                  // First insert into Postgres
-                                  meteringService
-                                          .insertIntoPostgresAuditTable(formattedJson)
-                                          .onSuccess(r -> LOGGER.debug("Inserted into Postgres metering table"))
-                                          .onFailure(e -> LOGGER.error("Failed to insert into Postgres metering table", e));
-
-                                  // Then publish to RMQ
-                                  meteringService
-                                          .insertMeteringValuesInRmq(meteringJson)
-                                          .onSuccess(r -> LOGGER.debug("Message published in RMQ"))
-                                          .onFailure(e -> LOGGER.error("Failed to publish message in RMQ", e));
-
-                              } else {
-                                  LOGGER.error(this + " NOT removed " + key);
-                              }
-                          });
-              });
+
+    // the router, and so this handler, is rebuilt on refresh, only the first one flushes
+    int maxEntries =
+        config.getInteger("tilesMeteringMaxEntries", TILES_METERING_DEFAULT_MAX_ENTRIES);
+    LocalMap<String, TilesMeteringAggregator> aggregatorMap =
+        vertx.sharedData().getLocalMap(AGGREGATOR_MAP);
+    TilesMeteringAggregator created = new TilesMeteringAggregator(maxEntries);
+    TilesMeteringAggregator existing = aggregatorMap.putIfAbsent(AGGREGATOR_MAP, created);
+    this.aggregator = existing != null ? existing : created;
+    if (existing == null) {
+      vertx.setPeriodic(METERING_UPDATE_PERIOD, id -> flush());
+    }
+  }
+
+  private void flush() {
+    long dropped = aggregator.getAndResetDropped();
+    if (dropped > 0) {
+      LOGGER.warn("Dropped {} tile requests from metering, metering backend too slow", dropped);
+    }
+    if (flushInProgress) {
+      LOGGER.debug("Previous tile metering flush still in progress");
+      return;
+    }
+
+    JsonArray records = aggregator.drain();
+    if (records.isEmpty()) {
+      return;
+    }
+    flushInProgress = true;
+    meteringService
+        .insertMeteringBatch(records)
+        .onSuccess(unpublished -> LOGGER.debug("Flushed {} tile metering records, {} not published to RMQ",
+            records.size(), unpublished.size()))
+        .onFailure(e -> LOGGER.error("Failed to flush tile metering records", e))
+        .onComplete(r -> flushInProgress = false);
   }
 
   /**
@@ -140,9 +140,7 @@ public class TilesMeteringHandler implements Handler<Void> {
                         routingContext.response().bytesWritten(),
                         reqBody);
 
-                meteringDataMap.compute(
-                    meteringInfo,
-                    (k, v) -> (v == null) ? meteringInfo.getSize() : v + meteringInfo.getSize());
+                aggregator.add(meteringInfo);
 
               } else {
                 LOGGER.debug("Item not found, metering service call failed");
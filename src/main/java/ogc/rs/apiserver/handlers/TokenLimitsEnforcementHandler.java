@@ -1,12 +1,16 @@
 package ogc.rs.apiserver.handlers;
 
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
 import io.vertx.ext.web.RoutingContext;
 import ogc.rs.apiserver.util.AuthInfo;
 import ogc.rs.apiserver.util.Limits;
 import ogc.rs.apiserver.util.OgcException;
+import ogc.rs.apiserver.util.QuotaCounters;
 import ogc.rs.database.DatabaseService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -17,6 +21,11 @@ import java.util.Map;
 import static ogc.rs.apiserver.handlers.DxTokenAuthenticationHandler.USER_KEY;
 import static ogc.rs.apiserver.util.Constants.*;
 import static ogc.rs.common.Constants.DATABASE_SERVICE_ADDRESS;
+import static ogc.rs.common.Constants.QUOTA_COUNTERS_CLEANUP_PERIOD;
+import static ogc.rs.common.Constants.QUOTA_COUNTERS_FLUSH_PERIOD;
+import static ogc.rs.common.Constants.QUOTA_COUNTERS_MAP;
+import static ogc.rs.common.Constants.QUOTA_COUNTERS_MAX_IDLE_MILLIS;
+import static ogc.rs.common.Constants.QUOTA_COUNTERS_RETENTION_MILLIS;
 
 /**
  * This HTTP request handler enforces data, API usage, feature and bbox limits per user and collection.
@@ -27,7 +36,14 @@ import static ogc.rs.common.Constants.DATABASE_SERVICE_ADDRESS;
  * - Bounding box limits (bbox constraints)
  * - Feature access limits (collectionId -> featureIds mapping)
  * <p>
- * The limits are applied from the policy issued-at timestamp (iat) defined in the token.
+ * The limits are applied from the policy issued-at timestamp (iat) defined in the token. All constraints of the
+ * token are evaluated together, once the usage and feature checks they need are gathered, and the request either
+ * fails with the first constraint violated or continues once.
+ * <p>
+ * Usage against the data usage and API hit limits is checked against {@link QuotaCounters} shared by all
+ * handlers, seeded from the database once per policy and incremented when requests are audited. The handler
+ * creating the counters schedules a periodic task which adds the usage recorded since the last run to the
+ * quota_counters table and takes over the totals, which include the usage recorded by other servers.
  */
 public class TokenLimitsEnforcementHandler implements Handler<RoutingContext> {
     private static final Logger LOGGER = LogManager.getLogger(TokenLimitsEnforcementHandler.class);
@@ -35,6 +51,8 @@ public class TokenLimitsEnforcementHandler implements Handler<RoutingContext> {
 
     Vertx vertx;
     private final DatabaseService databaseService;
+    private final QuotaCounters quotaCounters;
+    private boolean flushInProgress;
 
     /**
      * Constructs the handler with a Vert.x instance and initializes a proxy for DatabaseService.
@@ -44,6 +62,52 @@ public class TokenLimitsEnforcementHandler implements Handler<RoutingContext> {
     public TokenLimitsEnforcementHandler(Vertx vertx) {
         this.vertx = vertx;
         this.databaseService = DatabaseService.createProxy(vertx, DATABASE_SERVICE_ADDRESS);
+
+        // the router, and so this handler, is rebuilt on refresh, only the first one flushes
+        LocalMap<String, QuotaCounters> countersMap = vertx.sharedData().getLocalMap(QUOTA_COUNTERS_MAP);
+        QuotaCounters created = new QuotaCounters(QUOTA_COUNTERS_MAX_IDLE_MILLIS);
+        QuotaCounters existing = countersMap.putIfAbsent(QUOTA_COUNTERS_MAP, created);
+        this.quotaCounters = existing != null ? existing : created;
+        if (existing == null) {
+            vertx.setPeriodic(QUOTA_COUNTERS_FLUSH_PERIOD, id -> flush());
+            // counters of policies no server tracks any more, e.g. of paths requested once
+            vertx.setPeriodic(QUOTA_COUNTERS_CLEANUP_PERIOD,
+                    id -> databaseService.deleteIdleQuotaCounters(QUOTA_COUNTERS_RETENTION_MILLIS));
+        }
+    }
+
+    private void flush() {
+        if (flushInProgress) {
+            LOGGER.debug("Previous quota counters flush still in progress");
+            return;
+        }
+        JsonArray usage = quotaCounters.drain();
+        if (usage.isEmpty()) {
+            return;
+        }
+        flushInProgress = true;
+        databaseService.addQuotaUsage(usage)
+                .onSuccess(quotaCounters::reconcile)
+                .onFailure(fail -> {
+                    LOGGER.error("Failed to flush quota counters: {}", fail.getMessage());
+                    quotaCounters.drainFailed();
+                })
+                .onComplete(done -> flushInProgress = false);
+    }
+
+    /**
+     * Gets the usage of a policy from the shared counters, seeding them from the database if the policy is not
+     * tracked yet.
+     */
+    private Future<QuotaCounters.Usage> getQuotaUsage(String userId, String apiPath, String collectionId,
+                                                      long policyIssuedAt) {
+        QuotaCounters.Usage usage = quotaCounters.get(userId, collectionId, apiPath, policyIssuedAt);
+        if (usage != null) {
+            return Future.succeededFuture(usage);
+        }
+        return databaseService.getQuotaUsage(userId, apiPath, collectionId, policyIssuedAt)
+                .map(seed -> quotaCounters.seed(userId, collectionId, apiPath, policyIssuedAt,
+                        seed.getLong("apiHits"), seed.getLong("dataUsage")));
     }
 
     /**
@@ -84,110 +148,114 @@ public class TokenLimitsEnforcementHandler implements Handler<RoutingContext> {
         long policyIssuedAt = limits.getPolicyIssuedAt();
         LOGGER.info("policyIssuedAt: {}", policyIssuedAt);
 
-        boolean constraintHandled = false;
+        // Gather what all constraints need at once: the usage of the policy, from the shared counters, and the
+        // existence of the features of the feat limit, cached by the database service
+        boolean hasUsageLimits = limitsJson.containsKey("dataUsage") || limitsJson.containsKey("apiHits");
+        Future<QuotaCounters.Usage> usageFuture = hasUsageLimits
+                ? getQuotaUsage(userId, apiPath, collectionId, policyIssuedAt)
+                : Future.succeededFuture();
+        Map<String, List<String>> featLimits = limitsJson.containsKey("feat") ? limits.getFeatLimitAsMap() : null;
+        Future<Boolean> featFuture = featLimits != null && !featLimits.isEmpty()
+                ? checkFeatLimits(featLimits)
+                : Future.succeededFuture(true);
+
+        Future.all(usageFuture, featFuture)
+                .onSuccess(gathered -> {
+                    OgcException violation = evaluateConstraints(limitsJson, limits, usageFuture.result(),
+                            featFuture.result());
+                    if (violation != null) {
+                        routingContext.fail(violation);
+                    } else {
+                        routingContext.next();
+                    }
+                })
+                .onFailure(routingContext::fail);
+    }
+
+    /**
+     * Checks if the features of the feat limit exist.
+     *
+     * @param featLimits the feat limit, collection ID to feature IDs
+     * @return Future of <code>true</code> if all features exist, failed with an {@link OgcException}
+     */
+    private Future<Boolean> checkFeatLimits(Map<String, List<String>> featLimits) {
+        // Extract the collection ID from the feat limits
+        String collectionIdFromToken = featLimits.keySet().iterator().next();
+        LOGGER.debug("The collection Id from the token is: {}", collectionIdFromToken);
+
+        List<String> allowedFeatureIds = featLimits.get(collectionIdFromToken);
+        LOGGER.debug("The feature IDs in the token are: {}", allowedFeatureIds);
+
+        return databaseService.checkTokenCollectionAndFeatureIdsExist(collectionIdFromToken, allowedFeatureIds)
+                .recover(fail -> {
+                    if (fail instanceof OgcException) {
+                        OgcException ogcEx = (OgcException) fail;
+                        LOGGER.error("Failure: {} - {}", ogcEx.getStatusCode(), ogcEx.getMessage());
+                        return Future.failedFuture(ogcEx);
+                    }
+                    LOGGER.error("Unexpected error checking feature existence: {}", fail.getMessage());
+                    return Future.failedFuture(new OgcException(500, "Internal Server Error",
+                            "Unexpected error during feature existence check"));
+                });
+    }
 
+    /**
+     * Evaluates all constraints of the token in one pass, in the order of the token.
+     *
+     * @param limitsJson the limits of the token
+     * @param limits the validated limits
+     * @param usage the usage of the policy, <code>null</code> if the token has no usage limits
+     * @param featuresExist whether the features of the feat limit exist, <code>true</code> if there is none
+     * @return the first constraint violated, <code>null</code> if none is
+     */
+    private OgcException evaluateConstraints(JsonObject limitsJson, Limits limits, QuotaCounters.Usage usage,
+                                             boolean featuresExist) {
         for (String key : limitsJson.fieldNames()) {
             switch (key) {
                 case "dataUsage":
-                    long limitInBytes = limits.getDataUsageLimitInBytes();
-                    databaseService.getTotalDataUsage(userId, apiPath, collectionId, policyIssuedAt)
-                            .onSuccess(dataUsage -> {
-                                if (dataUsage > limitInBytes) {
-                                    routingContext.fail(new OgcException(429, TOO_MANY_REQUESTS, DATA_USAGE_LIMIT_EXCEEDED));
-                                } else {
-                                    routingContext.next();
-                                }
-                            }).onFailure(fail -> {
-                                LOGGER.error("Error checking data usage: {}", fail.getMessage());
-                                routingContext.fail(fail);
-                            });
-
-                    constraintHandled = true;
+                    if (usage.getDataUsage() > limits.getDataUsageLimitInBytes()) {
+                        return new OgcException(429, TOO_MANY_REQUESTS, DATA_USAGE_LIMIT_EXCEEDED);
+                    }
                     break;
 
                 case "apiHits":
-                    long apiHitsLimit = limits.getApiHitsLimit();
-                    databaseService.getTotalApiHits(userId, apiPath, collectionId, policyIssuedAt)
-                            .onSuccess(apiHits -> {
-                                if (apiHits > apiHitsLimit) {
-                                    routingContext.fail(new OgcException(429, TOO_MANY_REQUESTS, API_CALLS_LIMIT_EXCEEDED));
-                                } else {
-                                    routingContext.next();
-                                }
-                            }).onFailure(fail -> {
-                                LOGGER.error("Error checking API hits: {}", fail.getMessage());
-                                routingContext.fail(fail);
-                            });
-
-                    constraintHandled = true;
+                    if (usage.getApiHits() > limits.getApiHitsLimit()) {
+                        return new OgcException(429, TOO_MANY_REQUESTS, API_CALLS_LIMIT_EXCEEDED);
+                    }
                     break;
 
                 case "feat":
                     Map<String, List<String>> featLimits = limits.getFeatLimitAsMap();
-
-                    if (featLimits != null && !featLimits.isEmpty()) {
-                        // Extract the collection ID from the feat limits
-                        String collectionIdFromToken = featLimits.keySet().iterator().next();
-                        LOGGER.debug("The collection Id from the token is: {}", collectionIdFromToken);
-
-                        List<String> allowedFeatureIds = featLimits.get(collectionIdFromToken);
-                        LOGGER.debug("The feature IDs in the token are: {}", allowedFeatureIds);
-
-                        databaseService.checkTokenCollectionAndFeatureIdsExist(collectionIdFromToken, allowedFeatureIds)
-                                .onSuccess(exists -> {
-                                    if (!exists) {
-                                        routingContext.fail(new OgcException(403, "Forbidden", "One or more features in the token do not exist"));
-                                    } else {
-                                        LOGGER.debug("Feature limits validated successfully");
-                                        routingContext.next();
-                                    }
-                                }).onFailure(fail -> {
-                                    if (fail instanceof OgcException) {
-                                        OgcException ogcEx = (OgcException) fail;
-                                        LOGGER.error("Failure: {} - {}", ogcEx.getStatusCode(), ogcEx.getMessage());
-                                        routingContext.fail(ogcEx);
-                                    } else {
-                                        LOGGER.error("Unexpected error checking feature existence: {}", fail.getMessage());
-                                        routingContext.fail(new OgcException(500, "Internal Server Error", "Unexpected error during feature existence check"));
-                                    }
-                                });
-                    } else {
+                    if (featLimits == null || featLimits.isEmpty()) {
                         // feat key exists but no limits defined
                         LOGGER.warn("No feature limits defined");
-                        routingContext.next();
+                    } else if (!featuresExist) {
+                        return new OgcException(403, "Forbidden", "One or more features in the token do not exist");
+                    } else {
+                        LOGGER.debug("Feature limits validated successfully");
                     }
-
-                    constraintHandled = true;
                     break;
 
                 case "bbox":
                     List<Double> bboxLimits = limits.getBboxLimitAsList();
-
                     if (bboxLimits != null && !bboxLimits.isEmpty()) {
                         // Bbox limits are valid (already validated in Limits.fromJson())
                         LOGGER.debug("Bbox limits validated successfully: {}", bboxLimits);
-                        routingContext.next();
                     } else {
                         // bbox key exists but no limits defined
                         LOGGER.warn("No bbox limits defined");
-                        routingContext.next();
                     }
+                    break;
 
-                    constraintHandled = true;
+                case "iat":
                     break;
 
                 default:
                     LOGGER.warn("Unknown usage constraint key: {}", key);
                     break;
             }
-
-            if (constraintHandled) {
-                return;
-            }
         }
-
-        // If no known constraint keys handled, proceed
-        routingContext.next();
+        return null;
     }
 
     /**
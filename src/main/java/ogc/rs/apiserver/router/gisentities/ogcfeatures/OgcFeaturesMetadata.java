@@ -6,6 +6,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 import java.util.UUID;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -119,6 +120,10 @@ public class OgcFeaturesMetadata {
 
     parameters.add(limitParam);
     parameters.add(new JsonObject().put("$ref", "#/components/parameters/offset"));
+    parameters.add(new JsonObject().put("$ref", "#/components/parameters/cursor"));
+    parameters.add(new JsonObject().put("$ref", "#/components/parameters/numberMatched"));
+    parameters.add(generatePropertiesParam(attributes));
+    parameters.add(new JsonObject().put("$ref", "#/components/parameters/zoom"));
     
     parameters.addAll(generateOasParamsFromAttributes(attributes));
 
@@ -159,6 +164,27 @@ public class OgcFeaturesMetadata {
     return block;
   }
 
+  /**
+   * Generate the OpenAPI definition of the <code>properties</code> query param, which selects the
+   * attributes returned in the properties of each feature.
+   *
+   * @param attributes map of attributes.
+   * @return JSON object containing the OpenAPI query parameter definition
+   */
+  private JsonObject generatePropertiesParam(Map<String, OasTypes> attributes) {
+    JsonObject items = new JsonObject().put("type", "string");
+    // an empty enum is not valid OpenAPI
+    if (!attributes.isEmpty()) {
+      items.put("enum", new JsonArray(new ArrayList<>(new TreeSet<>(attributes.keySet()))));
+    }
+
+    return new JsonObject().put("in", "query").put("name", "properties").put("required", false)
+        .put("style", "form").put("explode", false)
+        .put("description", "Comma-separated list of the properties to be returned for each"
+            + " feature. If not present, all properties are returned.")
+        .put("schema", new JsonObject().put("type", "array").put("items", items));
+  }
+
   /**
    * Generate OpenAPI query param definitions for all the attributes of a collection based on the
    * type of the attribute reported by PostgreSQL.
@@ -170,6 +196,10 @@ public class OgcFeaturesMetadata {
     JsonArray obj = new JsonArray();
 
     attributes.forEach((name, attr) -> {
+      // the names are taken by the properties selection and zoom params
+      if ("properties".equals(name) || "zoom".equals(name)) {
+        return;
+      }
       JsonObject json = new JsonObject();
       json.put("in", "query").put("name", name).put("required", false).put("style", "form")
           .put("explode", false);
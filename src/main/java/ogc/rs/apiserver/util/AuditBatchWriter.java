@@ -0,0 +1,433 @@
+package ogc.rs.apiserver.util;
+
+import static ogc.rs.common.Constants.AUDIT_DEFAULT_BATCH_SIZE;
+import static ogc.rs.common.Constants.AUDIT_DEFAULT_BUFFER_SIZE;
+import static ogc.rs.common.Constants.AUDIT_DEFAULT_FLUSH_INTERVAL_MS;
+import static ogc.rs.common.Constants.METERING_SERVICE_ADDRESS;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import ogc.rs.metering.MeteringService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Writes the audit records of API requests to the metering table and RMQ in batches, off the
+ * response path, instead of one insert and one message per request. The writer is shared by all
+ * verticle instances, see {@link #shared(Vertx, JsonObject)}, and records are added from any of
+ * them.
+ *
+ * <p>
+ * Records are held in a bounded {@link AuditRingBuffer}. One of the verticle instances holding the
+ * writer, the owner, sends them to the metering service with
+ * {@link MeteringService#insertMeteringBatch(JsonArray)}, one batch at a time, when a batch is full
+ * and periodically. If the owner stops, another instance holding the writer takes over.
+ *
+ * <p>
+ * Records that do not fit in the buffer, batches that fail to be inserted, and records inserted but
+ * not published to RMQ, marked as such, are appended to a local spill file as JSON lines if
+ * <code>auditSpillFile</code> is set, and dropped otherwise. The spill file is replayed, also after
+ * a restart, once the buffer is empty, sending each record only to the sink it was not written to.
+ * The offset of the replay is kept, also across restarts, so a replay that fails is resumed from the
+ * batch that failed.
+ */
+public class AuditBatchWriter implements Shareable {
+
+  private static final Logger LOGGER = LogManager.getLogger(AuditBatchWriter.class);
+
+  private static final String WRITER_MAP = "AuditBatchWriter";
+  /** Marks spilled records that were inserted into the metering table, only to be published. */
+  private static final String PUBLISH_ONLY = "_publishOnly";
+
+  private final Vertx vertx;
+  private final MeteringService meteringService;
+  private final AuditRingBuffer buffer;
+  private final int batchSize;
+  private final long flushIntervalMillis;
+  private final Path spillFile;
+  private final Path replayFile;
+  private final Path replayOffsetFile;
+  private final AtomicBoolean flushScheduled = new AtomicBoolean();
+  private final AtomicBoolean spillScheduled = new AtomicBoolean();
+  private final AtomicLong dropped = new AtomicLong();
+  private final List<JsonObject> overflow = new ArrayList<>();
+  /** Contexts of the verticle instances holding the writer, the first is the owner. */
+  private final List<Context> holders = new ArrayList<>();
+
+  // the context of the owner, the rest only used on this context
+  private volatile Context context;
+  private long flushTimer = -1;
+  private boolean flushing;
+  private boolean replaying;
+  private boolean spillPending;
+  private long replayOffset;
+
+  private AuditBatchWriter(Vertx vertx, JsonObject config, MeteringService meteringService) {
+    this.vertx = vertx;
+    this.meteringService = meteringService;
+    this.buffer =
+        new AuditRingBuffer(config.getInteger("auditBufferSize", AUDIT_DEFAULT_BUFFER_SIZE));
+    this.batchSize = config.getInteger("auditBatchSize", AUDIT_DEFAULT_BATCH_SIZE);
+    this.flushIntervalMillis =
+        config.getLong("auditFlushIntervalMs", AUDIT_DEFAULT_FLUSH_INTERVAL_MS);
+    String spillPath = config.getString("auditSpillFile");
+    this.spillFile = spillPath != null ? Paths.get(spillPath) : null;
+    this.replayFile = spillPath != null ? Paths.get(spillPath + ".replay") : null;
+    this.replayOffsetFile = spillPath != null ? Paths.get(spillPath + ".replay.offset") : null;
+  }
+
+  /**
+   * Get the writer shared by all verticle instances of the JVM, created by the first caller. Each
+   * caller holds the writer until it calls {@link #close()}. The writer is flushed from the context
+   * of the owner, the first of the callers still holding it.
+   *
+   * @param vertx the Vert.x instance
+   * @param config configuration with the optional <code>auditBufferSize</code>,
+   *        <code>auditBatchSize</code>, <code>auditFlushIntervalMs</code> and
+   *        <code>auditSpillFile</code>
+   * @return the shared writer
+   */
+  public static AuditBatchWriter shared(Vertx vertx, JsonObject config) {
+    return shared(vertx, config, MeteringService.createProxy(vertx, METERING_SERVICE_ADDRESS));
+  }
+
+  static AuditBatchWriter shared(Vertx vertx, JsonObject config,
+      MeteringService meteringService) {
+    LocalMap<String, AuditBatchWriter> writers = vertx.sharedData().getLocalMap(WRITER_MAP);
+    synchronized (AuditBatchWriter.class) {
+      AuditBatchWriter writer = writers.get(WRITER_MAP);
+      if (writer == null) {
+        writer = new AuditBatchWriter(vertx, config, meteringService);
+        writer.start();
+        writers.put(WRITER_MAP, writer);
+      }
+      writer.holders.add(vertx.getOrCreateContext());
+      return writer;
+    }
+  }
+
+  private void start() {
+    context = vertx.getOrCreateContext();
+    if (spillFile != null) {
+      // records spilled before a restart, and how far their replay got
+      try {
+        spillPending = Files.exists(replayFile)
+            || Files.exists(spillFile) && Files.size(spillFile) > 0;
+        if (Files.exists(replayFile) && Files.exists(replayOffsetFile)) {
+          replayOffset = Long.parseLong(
+              new String(Files.readAllBytes(replayOffsetFile), StandardCharsets.UTF_8).trim());
+        }
+      } catch (IOException | NumberFormatException e) {
+        LOGGER.error("Failed to check audit spill file {}: {}", spillFile, e.getMessage());
+      }
+      LOGGER.info("Spilling audit records that cannot be written to {}", spillFile);
+    }
+    startFlushTimer();
+  }
+
+  /** Flush periodically, called on the context of the owner. */
+  private void startFlushTimer() {
+    flushTimer = vertx.setPeriodic(flushIntervalMillis, id -> {
+      long droppedRecords = dropped.getAndSet(0);
+      if (droppedRecords > 0) {
+        LOGGER.warn("Dropped {} audit records, audit buffer full or metering backend failing",
+            droppedRecords);
+      }
+      flush();
+    });
+  }
+
+  /**
+   * Add the audit record of a request, to be written with the next batch.
+   *
+   * @param record the record, in the format of the RMQ metering message, with the user ID of the
+   *        metering table in <code>metering_user_id</code> if it differs from the delegator ID
+   */
+  public void add(JsonObject record) {
+    if (!buffer.offer(record)) {
+      overflow(record);
+      return;
+    }
+    if (buffer.size() >= batchSize && flushScheduled.compareAndSet(false, true)) {
+      context.runOnContext(v -> {
+        flushScheduled.set(false);
+        flush();
+      });
+    }
+  }
+
+  /**
+   * Release the writer, called by each verticle instance holding it when it stops. If the owner
+   * releases it, another instance takes over flushing. Once the last instance releases it, the
+   * records still held are written, to the spill file if one is set, and the next call of
+   * {@link #shared(Vertx, JsonObject)} creates a new writer.
+   *
+   * @return Future completed once the records are written, never failed
+   */
+  public Future<Void> close() {
+    Context closing = vertx.getOrCreateContext();
+    synchronized (AuditBatchWriter.class) {
+      if (!holders.remove(closing)) {
+        return Future.succeededFuture();
+      }
+      if (!holders.isEmpty()) {
+        if (closing == context) {
+          Context owner = holders.get(0);
+          vertx.cancelTimer(flushTimer);
+          context = owner;
+          owner.runOnContext(v -> startFlushTimer());
+        }
+        return Future.succeededFuture();
+      }
+      vertx.cancelTimer(flushTimer);
+      vertx.sharedData().<String, AuditBatchWriter>getLocalMap(WRITER_MAP)
+          .removeIfPresent(WRITER_MAP, this);
+    }
+
+    List<JsonObject> remaining = toList(buffer.drain(Integer.MAX_VALUE));
+    synchronized (overflow) {
+      remaining.addAll(overflow);
+      overflow.clear();
+    }
+    if (remaining.isEmpty()) {
+      return Future.succeededFuture();
+    }
+    Future<Void> written = spillFile != null ? appendToSpillFile(remaining)
+        : meteringService.insertMeteringBatch(new JsonArray(remaining))
+            .compose(this::spillUnpublished);
+    return written.recover(err -> {
+      LOGGER.error("Failed to write {} audit records on close: {}", remaining.size(),
+          err.getMessage());
+      return Future.succeededFuture();
+    });
+  }
+
+  private void overflow(JsonObject record) {
+    if (spillFile == null) {
+      dropped.incrementAndGet();
+      return;
+    }
+    synchronized (overflow) {
+      overflow.add(record);
+    }
+    if (spillScheduled.compareAndSet(false, true)) {
+      context.runOnContext(v -> {
+        spillScheduled.set(false);
+        List<JsonObject> records;
+        synchronized (overflow) {
+          records = new ArrayList<>(overflow);
+          overflow.clear();
+        }
+        spill(records);
+      });
+    }
+  }
+
+  private void flush() {
+    if (flushing) {
+      return;
+    }
+    JsonArray batch = buffer.drain(batchSize);
+    if (batch.isEmpty()) {
+      replaySpilled();
+      return;
+    }
+    flushing = true;
+    meteringService.insertMeteringBatch(batch)
+        .compose(this::spillUnpublished, err -> {
+          LOGGER.error("Failed to write {} audit records: {}", batch.size(), err.getMessage());
+          if (spillFile == null) {
+            dropped.addAndGet(batch.size());
+            return Future.succeededFuture();
+          }
+          return spill(toList(batch));
+        })
+        .onComplete(done -> {
+          flushing = false;
+          if (buffer.size() >= batchSize) {
+            flush();
+          }
+        });
+  }
+
+  /**
+   * Spill records inserted into the metering table but not published to RMQ, to only be published
+   * by the replay.
+   */
+  private Future<Void> spillUnpublished(JsonArray unpublished) {
+    if (unpublished.isEmpty()) {
+      return Future.succeededFuture();
+    }
+    LOGGER.error("Failed to publish {} audit records to RMQ", unpublished.size());
+    if (spillFile == null) {
+      dropped.addAndGet(unpublished.size());
+      return Future.succeededFuture();
+    }
+    List<JsonObject> records = toList(unpublished);
+    records.replaceAll(record -> record.copy().put(PUBLISH_ONLY, true));
+    return spill(records);
+  }
+
+  /**
+   * Append records to the spill file, on the context of the writer so that appends are ordered with
+   * the rotation of the file for a replay.
+   */
+  private Future<Void> spill(List<JsonObject> records) {
+    spillPending = true;
+    return appendToSpillFile(records).recover(err -> {
+      LOGGER.error("Failed to spill {} audit records to {}: {}", records.size(), spillFile,
+          err.getMessage());
+      dropped.addAndGet(records.size());
+      return Future.succeededFuture();
+    });
+  }
+
+  private Future<Void> appendToSpillFile(List<JsonObject> records) {
+    StringBuilder lines = new StringBuilder();
+    records.forEach(record -> lines.append(record.encode()).append('\n'));
+    byte[] bytes = lines.toString().getBytes(StandardCharsets.UTF_8);
+    return vertx.executeBlocking(() -> {
+      Files.write(spillFile, bytes, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+      return null;
+    }, true);
+  }
+
+  /**
+   * Move the spill file aside, unless a previous replay left one, and write its records in
+   * batches, from the offset a previous replay got to.
+   */
+  private void replaySpilled() {
+    if (!spillPending || replaying) {
+      return;
+    }
+    replaying = true;
+    spillPending = false;
+    vertx.<Boolean>executeBlocking(() -> {
+      if (!Files.exists(replayFile)) {
+        if (!Files.exists(spillFile)) {
+          return false;
+        }
+        Files.deleteIfExists(replayOffsetFile);
+        Files.move(spillFile, replayFile);
+        replayOffset = 0;
+      }
+      return true;
+    }, true)
+        .compose(exists -> exists ? replay(0) : Future.<Void>succeededFuture())
+        .onFailure(err -> {
+          LOGGER.error("Failed to replay spilled audit records, retrying later: {}",
+              err.getMessage());
+          spillPending = true;
+        })
+        .onComplete(done -> replaying = false);
+  }
+
+  private Future<Void> replay(long replayed) {
+    return vertx.executeBlocking(() -> readSpilled(replayOffset), true)
+        .compose(chunk -> {
+          if (chunk.records.isEmpty()) {
+            return vertx.<Void>executeBlocking(() -> {
+              Files.delete(replayFile);
+              Files.deleteIfExists(replayOffsetFile);
+              replayOffset = 0;
+              return null;
+            }, true).onSuccess(v -> LOGGER.info("Replayed {} spilled audit records", replayed));
+          }
+          return replayChunk(chunk)
+              .compose(v -> vertx.<Void>executeBlocking(() -> {
+                Files.write(replayOffsetFile,
+                    Long.toString(chunk.nextOffset).getBytes(StandardCharsets.UTF_8));
+                return null;
+              }, true))
+              .compose(v -> {
+                replayOffset = chunk.nextOffset;
+                return replay(replayed + chunk.records.size());
+              });
+        });
+  }
+
+  /**
+   * Write the records of a chunk of the spill file to the sinks they were not written to. Fails,
+   * without writing any record, if the insert into the metering table fails.
+   */
+  private Future<Void> replayChunk(SpilledChunk chunk) {
+    JsonArray toInsert = new JsonArray();
+    JsonArray toPublish = new JsonArray();
+    for (int i = 0; i < chunk.records.size(); i++) {
+      JsonObject record = chunk.records.getJsonObject(i);
+      if (record.remove(PUBLISH_ONLY) != null) {
+        toPublish.add(record);
+      } else {
+        toInsert.add(record);
+      }
+    }
+    Future<JsonArray> inserted = toInsert.isEmpty() ? Future.succeededFuture(new JsonArray())
+        : meteringService.insertMeteringBatch(toInsert);
+    return inserted
+        .compose(unpublished -> toPublish.isEmpty() ? Future.succeededFuture(unpublished)
+            : meteringService.publishMeteringBatch(toPublish).map(unpublished::addAll))
+        .compose(this::spillUnpublished);
+  }
+
+  private SpilledChunk readSpilled(long offset) throws IOException {
+    JsonArray records = new JsonArray();
+    long nextOffset = offset;
+    try (FileChannel channel = FileChannel.open(replayFile, StandardOpenOption.READ)) {
+      channel.position(offset);
+      BufferedReader reader =
+          new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), -1));
+      String line;
+      while (records.size() < batchSize && (line = reader.readLine()) != null) {
+        nextOffset += line.getBytes(StandardCharsets.UTF_8).length + 1;
+        try {
+          records.add(new JsonObject(line));
+        } catch (DecodeException e) {
+          // e.g. a line partially written when the server crashed
+          LOGGER.warn("Skipping invalid spilled audit record");
+        }
+      }
+    }
+    if (records.isEmpty() && nextOffset > offset) {
+      // only invalid lines in this chunk, continue after them
+      return readSpilled(nextOffset);
+    }
+    return new SpilledChunk(records, nextOffset);
+  }
+
+  private static List<JsonObject> toList(JsonArray records) {
+    List<JsonObject> list = new ArrayList<>(records.size());
+    for (int i = 0; i < records.size(); i++) {
+      list.add(records.getJsonObject(i));
+    }
+    return list;
+  }
+
+  private static final class SpilledChunk {
+    private final JsonArray records;
+    private final long nextOffset;
+
+    private SpilledChunk(JsonArray records, long nextOffset) {
+      this.records = records;
+      this.nextOffset = nextOffset;
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package ogc.rs.apiserver.util;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Bounded FIFO buffer of audit records waiting to be written, backed by a fixed size array used as
+ * a ring. Records are added by all verticle instances, hence the buffer is thread safe.
+ */
+public class AuditRingBuffer {
+
+  private final JsonObject[] records;
+  private int head;
+  private int size;
+
+  /**
+   * Create an {@link AuditRingBuffer}.
+   *
+   * @param capacity maximum number of records held
+   */
+  public AuditRingBuffer(int capacity) {
+    this.records = new JsonObject[capacity];
+  }
+
+  /**
+   * Add a record, unless the buffer is full.
+   *
+   * @param record the record
+   * @return <code>false</code> if the buffer is full and the record was not added
+   */
+  public synchronized boolean offer(JsonObject record) {
+    if (size == records.length) {
+      return false;
+    }
+    records[(head + size) % records.length] = record;
+    size++;
+    return true;
+  }
+
+  /**
+   * Remove the oldest records.
+   *
+   * @param max maximum number of records to remove
+   * @return the removed records, oldest first
+   */
+  public synchronized JsonArray drain(int max) {
+    int count = Math.min(max, size);
+    JsonArray drained = new JsonArray();
+    for (int i = 0; i < count; i++) {
+      drained.add(records[head]);
+      records[head] = null;
+      head = (head + 1) % records.length;
+    }
+    size -= count;
+    return drained;
+  }
+
+  /**
+   * @return number of records held
+   */
+  public synchronized int size() {
+    return size;
+  }
+}
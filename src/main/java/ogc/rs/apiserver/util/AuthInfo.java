@@ -44,6 +44,26 @@ public class AuthInfo {
     return user;
   }
 
+  /**
+   * Copy of this user, so that an {@link AuthInfo} held across requests, e.g. by the cache of
+   * verified tokens, is not changed by {@link #setResourceId(UUID)}. The constraints are shared as
+   * they are only read.
+   *
+   * @return the copy
+   */
+  public AuthInfo copy() {
+    AuthInfo user = new AuthInfo();
+    user.userId = userId;
+    user.role = role;
+    user.constraints = constraints;
+    user.delegatorRole = delegatorRole;
+    user.delegatorUserId = delegatorUserId;
+    user.resourceId = resourceId;
+    user.isRsToken = isRsToken;
+    user.expiry = expiry;
+    return user;
+  }
+
   public UUID getUserId() {
     return userId;
   }
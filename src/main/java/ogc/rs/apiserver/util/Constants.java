@@ -99,6 +99,24 @@ public class Constants {
     public static final String STAC_ITEM_TRAN_INVALID_S3_BUCKET_IDS_ERR =
         "Failed to create STAC Items - some S3 bucket IDs for assets do not exist";
     public static final String STAC_ITEM_TRAN_INVALID_S3_BUCKET_IDS_DESC = "Following S3 bucket IDs in assets do not exist : ";
+    public static final String API_SERVER_PG_POOL_NAME = "ogc-rs-api-server-pool";
+    public static final int API_SERVER_DEFAULT_POOL_SIZE = 10;
+    public static final int FEATURES_STREAM_DEFAULT_FETCH_SIZE = 500;
+    public static final int DYNAMIC_TILES_DEFAULT_CACHE_SIZE = 1000;
+    public static final long DYNAMIC_TILES_DEFAULT_CACHE_TTL_SEC = 60;
+    public static final long TILE_CACHE_DEFAULT_SIZE_MB = 64;
+    public static final long TILE_CACHE_DEFAULT_DISK_SIZE_MB = 1024;
+    public static final long TILE_CACHE_DEFAULT_TTL_SEC = 600;
+    public static final long TILE_CACHE_DEFAULT_NOT_FOUND_TTL_SEC = 60;
+    /** Suffix of the tile cache keys of tiles derived from an ancestor tile. */
+    public static final String OVERZOOMED_TILE_KEY_SUFFIX = "#overzoom";
+    public static final int PMTILES_LEAF_DIRECTORIES_CACHE_SIZE = 256;
+    public static final int PMTILES_ARCHIVES_CACHE_SIZE = 64;
+    public static final int TILE_OVERZOOM_DEFAULT_MAX_LEVELS = 0;
+    public static final String TILE_CACHE_FILL_ADDRESS = "ogc.rs.tiles.cache.fill";
+    public static final String TILE_KEY_HEADER = "tileKey";
+    public static final int DEFAULT_JWT_CACHE_SIZE = 10000;
+    public static final int PRESIGNED_DOWNLOAD_URL_EXPIRY_SEC = 300;
 
 
 }
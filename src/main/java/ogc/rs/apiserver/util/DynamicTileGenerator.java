@@ -0,0 +1,143 @@
+package ogc.rs.apiserver.util;
+
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.pgclient.PgPool;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.Tuple;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import ogc.rs.database.util.FeatureQueryBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Generates Mapbox Vector Tiles on request from the table of a feature collection using PostGIS
+ * <code>ST_AsMVT</code>, for tilesets marked as dynamic in <code>tilematrixsets_relation</code>.
+ * Each tile has a single layer named after the collection ID, with the <code>id</code> of the
+ * feature as the feature ID and the other columns of the table as properties.
+ *
+ * <p>
+ * Generated tiles are held in an LRU cache of a fixed number of tiles. Since dynamic tilesets are
+ * meant for collections that are edited, cached tiles expire after a configured time. The
+ * {@link Future} of a tile is cached, so concurrent requests for the same tile share one query.
+ */
+public class DynamicTileGenerator {
+
+  private static final Logger LOGGER = LogManager.getLogger(DynamicTileGenerator.class);
+
+  /** Size of the tile in MVT coordinate space. */
+  private static final int EXTENT = 4096;
+  /** Size of the buffer around the tile in MVT coordinate space, to avoid clipping artefacts. */
+  private static final int BUFFER = 64;
+
+  private static final String TILE_QUERY =
+      "SELECT ST_AsMVT(tile, $1::text, " + EXTENT + ", 'geom', 'id') AS mvt FROM ("
+          + "SELECT ST_AsMVTGeom(ST_Transform(t.geom, %1$d), ST_MakeEnvelope($2, $3, $4, $5, %1$d), "
+          + EXTENT + ", " + BUFFER + ", true) AS geom, t.id, to_jsonb(t) - 'id' - 'geom'"
+          + " - '" + FeatureQueryBuilder.CRS84_GEOMETRY_COLUMN + "' AS properties"
+          + " FROM \"%3$s\" AS t"
+          + " WHERE t.geom && ST_Transform(ST_MakeEnvelope($6, $7, $8, $9, %1$d), %2$d)"
+          + ") AS tile WHERE tile.geom IS NOT NULL";
+
+  private final PgPool pool;
+  private final long ttlNanos;
+  private final Map<String, CachedTile> cache;
+
+  /**
+   * Create a {@link DynamicTileGenerator}.
+   *
+   * @param pool the pool to get connections from
+   * @param cacheSize maximum number of tiles cached, 0 to disable caching
+   * @param cacheTtlSec number of seconds a tile is cached for
+   */
+  public DynamicTileGenerator(PgPool pool, int cacheSize, long cacheTtlSec) {
+    this.pool = pool;
+    this.ttlNanos = TimeUnit.SECONDS.toNanos(cacheTtlSec);
+    this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, CachedTile> eldest) {
+        return size() > cacheSize;
+      }
+    };
+  }
+
+  /**
+   * Get a tile, generating it if it is not cached.
+   *
+   * @param collectionId the collection ID
+   * @param storageSrid SRID of the storage CRS of the collection
+   * @param grid the grid of the requested TileMatrixSet
+   * @param tileMatrix the tile matrix (zoom level)
+   * @param tileRow the tile row
+   * @param tileCol the tile column
+   * @return Future of the MVT, which is empty if no features intersect the tile. Fails with an
+   *         {@link OgcException} (404) if the tile is not part of the TileMatrixSet
+   */
+  public Future<Buffer> getTile(String collectionId, int storageSrid, TileMatrixSetGrid grid,
+      int tileMatrix, long tileRow, long tileCol) {
+    String key = collectionId + "/" + grid.getId() + "/" + tileMatrix + "/" + tileRow + "/" + tileCol;
+    long now = System.nanoTime();
+
+    synchronized (cache) {
+      CachedTile cached = cache.get(key);
+      if (cached != null && now - cached.createdAt < ttlNanos) {
+        return cached.tile;
+      }
+    }
+
+    Future<Buffer> tile;
+    try {
+      tile = generateTile(collectionId, storageSrid, grid, tileMatrix, tileRow, tileCol);
+    } catch (OgcException e) {
+      return Future.failedFuture(e);
+    }
+
+    CachedTile entry = new CachedTile(tile, now);
+    synchronized (cache) {
+      cache.put(key, entry);
+    }
+    tile.onFailure(err -> {
+      synchronized (cache) {
+        cache.remove(key, entry);
+      }
+    });
+    return tile;
+  }
+
+  private Future<Buffer> generateTile(String collectionId, int storageSrid, TileMatrixSetGrid grid,
+      int tileMatrix, long tileRow, long tileCol) {
+    double[] bounds = grid.getTileBounds(tileMatrix, tileRow, tileCol, 0);
+    double[] searchBounds =
+        grid.getTileBounds(tileMatrix, tileRow, tileCol, (double) BUFFER / EXTENT);
+
+    // the collection ID is used as the table name, make sure it is nothing else
+    String table = UUID.fromString(collectionId).toString();
+    String sql = String.format(TILE_QUERY, grid.getSrid(), storageSrid, table);
+
+    Tuple params = Tuple.of(collectionId, bounds[0], bounds[1], bounds[2], bounds[3])
+        .addDouble(searchBounds[0]).addDouble(searchBounds[1])
+        .addDouble(searchBounds[2]).addDouble(searchBounds[3]);
+
+    LOGGER.debug("Generating tile {}/{}/{}/{} of collection {}", grid.getId(), tileMatrix, tileRow,
+        tileCol, collectionId);
+
+    return pool.preparedQuery(sql).execute(params).map(rows -> {
+      Row row = rows.iterator().next();
+      Buffer mvt = row.getBuffer("mvt");
+      return mvt == null ? Buffer.buffer() : mvt;
+    });
+  }
+
+  private static class CachedTile {
+    private final Future<Buffer> tile;
+    private final long createdAt;
+
+    private CachedTile(Future<Buffer> tile, long createdAt) {
+      this.tile = tile;
+      this.createdAt = createdAt;
+    }
+  }
+}
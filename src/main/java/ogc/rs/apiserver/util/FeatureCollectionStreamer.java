@@ -0,0 +1,124 @@
+package ogc.rs.apiserver.util;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.pgclient.PgPool;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowStream;
+import io.vertx.sqlclient.Tuple;
+import java.util.function.BiFunction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Writes a GeoJSON FeatureCollection to a chunked {@link HttpServerResponse} while reading the
+ * features from PostgreSQL through a {@link RowStream} (i.e. a server-side cursor). Only one fetch
+ * of rows is held in memory at a time, independent of the page size requested. Back-pressure from
+ * the response is honoured by pausing the row stream when the write queue of the response is full.
+ *
+ * <p>
+ * Each row is expected to have the <code>id</code>, <code>type</code>, <code>geometry</code> and
+ * <code>properties</code> columns produced by the OGC Features query.
+ */
+public class FeatureCollectionStreamer {
+
+  private static final Logger LOGGER = LogManager.getLogger(FeatureCollectionStreamer.class);
+
+  private static final Buffer COLLECTION_START =
+      Buffer.buffer("{\"type\":\"FeatureCollection\",\"features\":[");
+  private static final Buffer FEATURE_SEPARATOR = Buffer.buffer(",");
+
+  private final PgPool pool;
+  private final int fetchSize;
+
+  /**
+   * Create a {@link FeatureCollectionStreamer}.
+   *
+   * @param pool the pool to get connections from
+   * @param fetchSize the number of rows fetched from the cursor at a time
+   */
+  public FeatureCollectionStreamer(PgPool pool, int fetchSize) {
+    this.pool = pool;
+    this.fetchSize = fetchSize;
+  }
+
+  /**
+   * Run the query and stream the FeatureCollection to the response. The response is ended once all
+   * rows are written. Response status and headers must be set before calling this method.
+   *
+   * <p>
+   * If the query fails before anything is written, the returned future fails and the response can
+   * still be used to send an error. If it fails midway, the response is reset since the status has
+   * already been sent.
+   *
+   * @param sql the features query
+   * @param params the query parameters
+   * @param routingContext the routing context of the request, whose response is written to
+   * @param trailer function taking the number of features written and the id of the last feature
+   *        (<code>null</code> if none), returning the members to be added to the FeatureCollection
+   *        after the features, e.g. <code>numberReturned</code> and <code>links</code>
+   * @return a Future that completes when the response has been ended
+   */
+  public Future<Void> stream(String sql, Tuple params, RoutingContext routingContext,
+      BiFunction<Integer, Long, JsonObject> trailer) {
+    HttpServerResponse response = routingContext.response();
+
+    return pool.getConnection().compose(conn -> conn.begin().compose(tx -> conn.prepare(sql)
+        .compose(preparedStatement -> {
+          Promise<Void> promise = Promise.promise();
+          RowStream<Row> stream = preparedStatement.createStream(fetchSize, params);
+
+          int[] numberReturned = {0};
+          Long[] lastId = {null};
+
+          response.setChunked(true);
+          // an end handler, unlike the close handler of the response, does not replace others
+          routingContext.addEndHandler(ended -> {
+            if (ended.failed()) {
+              LOGGER.debug("Client closed connection, closing feature stream");
+              stream.close();
+              promise.tryFail("Client closed connection");
+            }
+          });
+
+          stream.exceptionHandler(err -> {
+            LOGGER.error("Failed while streaming features - {}", err.getMessage());
+            if (response.headWritten()) {
+              response.reset();
+            }
+            promise.tryFail(err);
+          });
+
+          stream.endHandler(v -> {
+            if (numberReturned[0] == 0) {
+              response.write(COLLECTION_START);
+            }
+            String members = trailer.apply(numberReturned[0], lastId[0]).encode();
+            // members are appended to the open FeatureCollection object, so drop the leading '{'
+            response.end(Buffer.buffer("]").appendString(members.length() > 2 ? "," : "")
+                .appendString(members.substring(1)));
+            promise.tryComplete();
+          });
+
+          stream.handler(row -> {
+            response.write(numberReturned[0] == 0 ? COLLECTION_START : FEATURE_SEPARATOR);
+            response.write(row.toJson().toBuffer());
+            numberReturned[0]++;
+            lastId[0] = row.getLong("id");
+
+            if (response.writeQueueFull()) {
+              stream.pause();
+              response.drainHandler(drained -> stream.resume());
+            }
+          });
+
+          return promise.future();
+        })
+        .compose(v -> tx.commit(), err -> tx.rollback().transform(ar -> Future.failedFuture(err))))
+        .eventually(() -> conn.close()));
+  }
+}
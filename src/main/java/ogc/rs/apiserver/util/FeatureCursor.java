@@ -0,0 +1,170 @@
+package ogc.rs.apiserver.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Opaque, signed cursor used for keyset pagination of OGC Feature <code>/items</code> responses.
+ * <br>
+ * The cursor carries the <code>id</code> of the last feature returned in a page along with a hash
+ * of the filter-defining query parameters (bbox, datetime, attribute filters etc.) of the request
+ * that produced it. The pair is signed with HMAC-SHA256 so that clients cannot tamper with it, and
+ * a cursor can only be replayed against a request with the same filters. The next page is then
+ * fetched with an indexed range scan on <code>id</code>.
+ *
+ * <p>
+ * The signing secret is taken from the <code>featuresCursorSecret</code> key in the API server
+ * config. If it is not configured, a random secret is generated once per JVM - cursors will then
+ * not be valid across server restarts or across nodes.
+ */
+public class FeatureCursor {
+
+  private static final Logger LOGGER = LogManager.getLogger(FeatureCursor.class);
+
+  private static final String HMAC_ALGORITHM = "HmacSHA256";
+  private static final String HASH_ALGORITHM = "SHA-256";
+  private static final int HASH_BYTES = 16;
+  private static final int SIGNATURE_BYTES = 16;
+  private static final String SEPARATOR = ".";
+
+  /**
+   * Query parameters that do not change the set of features matched by a request and hence are not
+   * part of the filter hash.
+   */
+  public static final Set<String> NON_FILTER_QUERY_PARAMETERS =
+      Set.of("limit", "offset", "cursor", "numberMatched", "crs", "properties",
+          "zoom");
+
+  private static final byte[] JVM_LOCAL_SECRET = generateSecret();
+
+  private final SecretKeySpec key;
+
+  /**
+   * Create a {@link FeatureCursor} that signs with the given secret.
+   *
+   * @param secret the signing secret. If <code>null</code> or empty, a JVM-local random secret is
+   *        used
+   */
+  public FeatureCursor(String secret) {
+    byte[] secretBytes;
+    if (secret == null || secret.isEmpty()) {
+      LOGGER.warn("featuresCursorSecret not configured, using JVM-local secret to sign cursors");
+      secretBytes = JVM_LOCAL_SECRET;
+    } else {
+      secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+    }
+    this.key = new SecretKeySpec(secretBytes, HMAC_ALGORITHM);
+  }
+
+  /**
+   * Create a cursor pointing after the feature with id <code>lastId</code>.
+   *
+   * @param lastId id of the last feature returned in the current page
+   * @param queryParams query parameters of the current request
+   * @return URL-safe cursor string
+   */
+  public String encode(long lastId, Map<String, String> queryParams) {
+    String payload = lastId + SEPARATOR + filterHash(queryParams);
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString((payload + SEPARATOR + sign(payload)).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Verify a cursor and get the id of the last feature of the previous page.
+   *
+   * @param cursor the cursor string sent by the client
+   * @param queryParams query parameters of the current request
+   * @return the id of the last feature returned in the previous page
+   * @throws OgcException with status 400 if the cursor is malformed, has been tampered with or was
+   *         issued for a request with different filters
+   */
+  public long decode(String cursor, Map<String, String> queryParams) throws OgcException {
+    String[] parts;
+    try {
+      parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+          .split("\\" + SEPARATOR);
+    } catch (IllegalArgumentException e) {
+      throw invalidCursor();
+    }
+
+    if (parts.length != 3) {
+      throw invalidCursor();
+    }
+
+    String payload = parts[0] + SEPARATOR + parts[1];
+    if (!MessageDigest.isEqual(sign(payload).getBytes(StandardCharsets.UTF_8),
+        parts[2].getBytes(StandardCharsets.UTF_8))) {
+      LOGGER.debug("Cursor signature mismatch");
+      throw invalidCursor();
+    }
+
+    if (!parts[1].equals(filterHash(queryParams))) {
+      LOGGER.debug("Cursor filter hash does not match request filters");
+      throw new OgcException(400, "Bad Request",
+          "Cursor was issued for a request with different filter parameters");
+    }
+
+    try {
+      return Long.parseLong(parts[0]);
+    } catch (NumberFormatException e) {
+      throw invalidCursor();
+    }
+  }
+
+  /**
+   * Hash of all filter-defining query parameters, independent of parameter order.
+   *
+   * @param queryParams query parameters of a request
+   * @return URL-safe hash string
+   */
+  static String filterHash(Map<String, String> queryParams) {
+    StringBuilder canonical = new StringBuilder();
+    new TreeMap<>(queryParams).forEach((k, v) -> {
+      if (!NON_FILTER_QUERY_PARAMETERS.contains(k)) {
+        canonical.append(k).append('=').append(v).append('&');
+      }
+    });
+
+    try {
+      byte[] digest = MessageDigest.getInstance(HASH_ALGORITHM)
+          .digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+      return Base64.getUrlEncoder().withoutPadding()
+          .encodeToString(Arrays.copyOf(digest, HASH_BYTES));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Unable to hash cursor filters", e);
+    }
+  }
+
+  private String sign(String payload) {
+    try {
+      Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+      mac.init(key);
+      byte[] signature = mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+      return Base64.getUrlEncoder().withoutPadding()
+          .encodeToString(Arrays.copyOf(signature, SIGNATURE_BYTES));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Unable to sign cursor", e);
+    }
+  }
+
+  private static OgcException invalidCursor() {
+    return new OgcException(400, "Bad Request", "Invalid cursor");
+  }
+
+  private static byte[] generateSecret() {
+    byte[] secret = new byte[32];
+    new SecureRandom().nextBytes(secret);
+    return secret;
+  }
+}
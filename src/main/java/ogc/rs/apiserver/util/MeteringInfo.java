@@ -63,6 +63,22 @@ public class MeteringInfo implements Shareable {
     return (int) totalResponseSize;
   }
 
+  public String getUserId() {
+    return userId;
+  }
+
+  public String getResourceId() {
+    return resourceId;
+  }
+
+  public String getApi() {
+    return api;
+  }
+
+  public long getEpochTime() {
+    return epochTime;
+  }
+
   /**
    *
    * @return the structured Json Body
@@ -0,0 +1,251 @@
+package ogc.rs.apiserver.util;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+/**
+ * Usage counted against the <code>apiHits</code> and <code>dataUsage</code> limits of tokens, per
+ * user, collection, API path and policy, so that limits are checked without aggregating the
+ * metering table on every request. The counters are shared by all verticle instances, hence are
+ * {@link Shareable} and thread safe.
+ *
+ * <p>
+ * A policy is tracked once its counters are seeded from the <code>quota_counters</code> table,
+ * see {@link #seed(String, String, String, long, long, long)}. Usage recorded for it, see
+ * {@link #record(String, String, String, long)}, is held until it is drained and added to the
+ * table, which returns the totals including the usage recorded by other servers, see
+ * {@link #reconcile(JsonArray)}. Policies unused for a while are no longer tracked once their
+ * usage has been added to the table.
+ */
+public class QuotaCounters implements Shareable {
+
+  private final long maxIdleMillis;
+  private final LongSupplier clock;
+  private final Map<Key, Map<Long, Counter>> counters = new HashMap<>();
+
+  /**
+   * Create {@link QuotaCounters}.
+   *
+   * @param maxIdleMillis time after which a policy that is not used is no longer tracked
+   */
+  public QuotaCounters(long maxIdleMillis) {
+    this(maxIdleMillis, System::currentTimeMillis);
+  }
+
+  QuotaCounters(long maxIdleMillis, LongSupplier clock) {
+    this.maxIdleMillis = maxIdleMillis;
+    this.clock = clock;
+  }
+
+  /**
+   * Get the usage of a policy.
+   *
+   * @param userId the user ID
+   * @param collectionId the collection ID
+   * @param apiPath the API path
+   * @param policyIssuedAt the epoch time (in seconds) the policy was issued at
+   * @return the usage, <code>null</code> if the policy is not tracked
+   */
+  public synchronized Usage get(String userId, String collectionId, String apiPath,
+      long policyIssuedAt) {
+    Map<Long, Counter> policies = counters.get(new Key(userId, collectionId, apiPath));
+    Counter counter = policies == null ? null : policies.get(policyIssuedAt);
+    if (counter == null) {
+      return null;
+    }
+    counter.lastUsed = clock.getAsLong();
+    return counter.usage();
+  }
+
+  /**
+   * Start tracking a policy, unless it is already tracked.
+   *
+   * @param userId the user ID
+   * @param collectionId the collection ID
+   * @param apiPath the API path
+   * @param policyIssuedAt the epoch time (in seconds) the policy was issued at
+   * @param apiHits the number of API hits in the <code>quota_counters</code> table
+   * @param dataUsage the data usage in bytes in the <code>quota_counters</code> table
+   * @return the usage of the policy
+   */
+  public synchronized Usage seed(String userId, String collectionId, String apiPath,
+      long policyIssuedAt, long apiHits, long dataUsage) {
+    Counter counter = counters.computeIfAbsent(new Key(userId, collectionId, apiPath),
+        key -> new HashMap<>()).computeIfAbsent(policyIssuedAt, p -> new Counter(apiHits, dataUsage));
+    counter.lastUsed = clock.getAsLong();
+    return counter.usage();
+  }
+
+  /**
+   * Record a request for all tracked policies of the user, collection and API path. As in the
+   * metering table, a request counts as an API hit if it has a response.
+   *
+   * @param userId the user ID
+   * @param collectionId the collection ID
+   * @param apiPath the API path
+   * @param responseSize the size of the response in bytes
+   */
+  public synchronized void record(String userId, String collectionId, String apiPath,
+      long responseSize) {
+    Map<Long, Counter> policies = counters.get(new Key(userId, collectionId, apiPath));
+    if (policies == null) {
+      return;
+    }
+    for (Counter counter : policies.values()) {
+      counter.pendingApiHits += responseSize > 0 ? 1 : 0;
+      counter.pendingDataUsage += responseSize;
+    }
+  }
+
+  /**
+   * Drain the usage recorded since the previous drain, to be added to the
+   * <code>quota_counters</code> table, and stop tracking idle policies without such usage. The
+   * usage is held as in flight until {@link #reconcile(JsonArray)} or {@link #drainFailed()}.
+   *
+   * @return the usage per tracked policy, as expected by
+   *         {@link ogc.rs.database.DatabaseService#addQuotaUsage(JsonArray)}, including policies
+   *         without new usage so that the usage of other servers is reconciled
+   */
+  public synchronized JsonArray drain() {
+    long now = clock.getAsLong();
+    JsonArray usage = new JsonArray();
+    for (Iterator<Map.Entry<Key, Map<Long, Counter>>> keys = counters.entrySet().iterator();
+        keys.hasNext();) {
+      Map.Entry<Key, Map<Long, Counter>> entry = keys.next();
+      Key key = entry.getKey();
+      for (Iterator<Map.Entry<Long, Counter>> policies = entry.getValue().entrySet().iterator();
+          policies.hasNext();) {
+        Map.Entry<Long, Counter> policy = policies.next();
+        Counter counter = policy.getValue();
+        boolean idle = now - counter.lastUsed > maxIdleMillis;
+        if (idle && counter.pendingApiHits == 0 && counter.pendingDataUsage == 0) {
+          policies.remove();
+          continue;
+        }
+        counter.inFlightApiHits = counter.pendingApiHits;
+        counter.inFlightDataUsage = counter.pendingDataUsage;
+        counter.pendingApiHits = 0;
+        counter.pendingDataUsage = 0;
+        usage.add(new JsonObject()
+            .put("userId", key.userId)
+            .put("collectionId", key.collectionId)
+            .put("apiPath", key.apiPath)
+            .put("policyIssuedAt", policy.getKey())
+            .put("apiHits", counter.inFlightApiHits)
+            .put("dataUsage", counter.inFlightDataUsage));
+      }
+      if (entry.getValue().isEmpty()) {
+        keys.remove();
+      }
+    }
+    return usage;
+  }
+
+  /**
+   * Set the usage of policies to the totals returned by adding the drained usage to the
+   * <code>quota_counters</code> table.
+   *
+   * @param totals the totals, as returned by
+   *        {@link ogc.rs.database.DatabaseService#addQuotaUsage(JsonArray)}
+   */
+  public synchronized void reconcile(JsonArray totals) {
+    for (int i = 0; i < totals.size(); i++) {
+      JsonObject total = totals.getJsonObject(i);
+      Map<Long, Counter> policies = counters.get(new Key(total.getString("userId"),
+          total.getString("collectionId"), total.getString("apiPath")));
+      Counter counter = policies == null ? null : policies.get(total.getLong("policyIssuedAt"));
+      if (counter != null) {
+        counter.apiHits = total.getLong("apiHits");
+        counter.dataUsage = total.getLong("dataUsage");
+        counter.inFlightApiHits = 0;
+        counter.inFlightDataUsage = 0;
+      }
+    }
+  }
+
+  /**
+   * Keep the drained usage to be added to the <code>quota_counters</code> table with the next
+   * drain, as adding it failed.
+   */
+  public synchronized void drainFailed() {
+    counters.values().forEach(policies -> policies.values().forEach(counter -> {
+      counter.pendingApiHits += counter.inFlightApiHits;
+      counter.pendingDataUsage += counter.inFlightDataUsage;
+      counter.inFlightApiHits = 0;
+      counter.inFlightDataUsage = 0;
+    }));
+  }
+
+  /**
+   * Usage of a policy.
+   */
+  public static final class Usage {
+    private final long apiHits;
+    private final long dataUsage;
+
+    private Usage(long apiHits, long dataUsage) {
+      this.apiHits = apiHits;
+      this.dataUsage = dataUsage;
+    }
+
+    public long getApiHits() {
+      return apiHits;
+    }
+
+    public long getDataUsage() {
+      return dataUsage;
+    }
+  }
+
+  private static final class Counter {
+    private long apiHits;
+    private long dataUsage;
+    private long inFlightApiHits;
+    private long inFlightDataUsage;
+    private long pendingApiHits;
+    private long pendingDataUsage;
+    private long lastUsed;
+
+    private Counter(long apiHits, long dataUsage) {
+      this.apiHits = apiHits;
+      this.dataUsage = dataUsage;
+    }
+
+    private Usage usage() {
+      return new Usage(apiHits + inFlightApiHits + pendingApiHits,
+          dataUsage + inFlightDataUsage + pendingDataUsage);
+    }
+  }
+
+  private static final class Key {
+    private final String userId;
+    private final String collectionId;
+    private final String apiPath;
+
+    private Key(String userId, String collectionId, String apiPath) {
+      this.userId = userId;
+      this.collectionId = collectionId;
+      this.apiPath = apiPath;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Key)) return false;
+      Key that = (Key) o;
+      return Objects.equals(userId, that.userId) && Objects.equals(collectionId, that.collectionId)
+          && Objects.equals(apiPath, that.apiPath);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(userId, collectionId, apiPath);
+    }
+  }
+}
@@ -0,0 +1,298 @@
+package ogc.rs.apiserver.util;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.FileSystem;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Cache of tiles fetched from S3, so that frequently requested tiles (typically those of the lower
+ * tile matrices, which every map client requests) are served without a round trip to S3. Tiles are
+ * held in an LRU cache bounded by the total size of the tiles, optionally backed by a larger LRU
+ * cache on local disk. Tiles are cached for a TTL, after which they are fetched again, so that
+ * tiles changed in S3 are picked up. Keys include the version of the tileset, so tiles of a
+ * tileset that was onboarded again are not served from the cache.
+ *
+ * <p>
+ * Concurrent requests for a tile that is not cached share one fetch of the tile. A failed fetch is
+ * not cached, except that tiles that do not exist (fetches failed with a 404 {@link OgcException})
+ * are remembered in memory for a shorter TTL, so that repeated requests for missing tiles do not
+ * each go to S3.
+ */
+public class TileCache {
+
+  private static final Logger LOGGER = LogManager.getLogger(TileCache.class);
+  /** Maximum number of missing tiles remembered. */
+  private static final int MAX_NOT_FOUND_ENTRIES = 65536;
+
+  private final long maxBytes;
+  private final long ttlMillis;
+  private final long notFoundTtlMillis;
+  private final LongSupplier clock;
+  private long bytes;
+  private final Map<String, Entry> tiles = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<String, NotFoundEntry> notFound = new LinkedHashMap<>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, NotFoundEntry> eldest) {
+      return size() > MAX_NOT_FOUND_ENTRIES;
+    }
+  };
+  private final Map<String, Future<Buffer>> loading = new HashMap<>();
+
+  private final FileSystem fileSystem;
+  private final String diskDir;
+  private final long maxDiskBytes;
+  private long diskBytes;
+  private final Map<String, DiskEntry> diskTiles = new LinkedHashMap<>(16, 0.75f, true);
+
+  /**
+   * Create a {@link TileCache} held in memory only, which does not remember missing tiles.
+   *
+   * @param maxBytes maximum total size of the cached tiles, 0 to only share concurrent fetches
+   * @param ttlMillis time for which a tile is cached
+   */
+  public TileCache(long maxBytes, long ttlMillis) {
+    this(maxBytes, ttlMillis, 0, null, null, 0);
+  }
+
+  /**
+   * Create a {@link TileCache} backed by a cache on local disk. The disk cache is kept in a new
+   * directory under <code>diskBaseDir</code>, which is deleted by {@link #close()}.
+   *
+   * @param maxBytes maximum total size of the tiles cached in memory
+   * @param ttlMillis time for which a tile is cached
+   * @param notFoundTtlMillis time for which a missing tile is remembered, 0 to not remember them
+   * @param fileSystem the file system to write the disk cache to
+   * @param diskBaseDir the directory to create the disk cache directory in, <code>null</code> for
+   *        no disk cache
+   * @param maxDiskBytes maximum total size of the tiles cached on disk
+   */
+  public TileCache(long maxBytes, long ttlMillis, long notFoundTtlMillis, FileSystem fileSystem,
+      String diskBaseDir, long maxDiskBytes) {
+    this(maxBytes, ttlMillis, notFoundTtlMillis, fileSystem, diskBaseDir, maxDiskBytes,
+        System::currentTimeMillis);
+  }
+
+  TileCache(long maxBytes, long ttlMillis, long notFoundTtlMillis, FileSystem fileSystem,
+      String diskBaseDir, long maxDiskBytes, LongSupplier clock) {
+    this.maxBytes = maxBytes;
+    this.ttlMillis = ttlMillis;
+    this.notFoundTtlMillis = notFoundTtlMillis;
+    this.clock = clock;
+    this.fileSystem = fileSystem;
+    this.maxDiskBytes = maxDiskBytes;
+    if (diskBaseDir != null && maxDiskBytes > 0) {
+      fileSystem.mkdirsBlocking(diskBaseDir);
+      this.diskDir = fileSystem.createTempDirectoryBlocking(diskBaseDir, "tiles", null);
+      LOGGER.info("Caching tiles on disk in {}", diskDir);
+    } else {
+      this.diskDir = null;
+    }
+  }
+
+  /**
+   * Get a tile if it is cached in memory.
+   *
+   * @param key key of the tile, made of the collection ID, TileMatrixSet ID, tile matrix, row,
+   *        column and encoding of the tile, and the version of the tileset
+   * @return the tile, <code>null</code> if it is not cached in memory or has expired
+   */
+  public synchronized Buffer getIfPresent(String key) {
+    return getFromMemory(key);
+  }
+
+  /**
+   * Get a tile from the cache, or fetch it with the given loader if it is not cached. Only one fetch
+   * of a tile runs at a time.
+   *
+   * @param key key of the tile, see {@link #getIfPresent(String)}
+   * @param loader fetches the tile
+   * @return Future of the tile, failed if the fetch fails or the tile was recently not found
+   */
+  public Future<Buffer> get(String key, Supplier<Future<Buffer>> loader) {
+    Promise<Buffer> promise;
+    synchronized (this) {
+      Buffer tile = getFromMemory(key);
+      if (tile != null) {
+        return Future.succeededFuture(tile);
+      }
+      NotFoundEntry missing = notFound.get(key);
+      if (missing != null) {
+        if (missing.expiresAt > clock.getAsLong()) {
+          return Future.failedFuture(missing.error);
+        }
+        notFound.remove(key);
+      }
+      Future<Buffer> pending = loading.get(key);
+      if (pending != null) {
+        return pending;
+      }
+      promise = Promise.promise();
+      loading.put(key, promise.future());
+    }
+
+    readFromDisk(key)
+        .recover(notOnDisk -> loader.get().onSuccess(tile -> writeToDisk(key, tile)))
+        .onComplete(result -> {
+          synchronized (this) {
+            loading.remove(key);
+            if (result.succeeded()) {
+              putInMemory(key, result.result());
+            } else if (notFoundTtlMillis > 0 && isNotFound(result.cause())) {
+              notFound.put(key,
+                  new NotFoundEntry(result.cause(), clock.getAsLong() + notFoundTtlMillis));
+            }
+          }
+          promise.handle(result);
+        });
+    return promise.future();
+  }
+
+  /**
+   * Add a tile fetched elsewhere, e.g. by another verticle instance warming up its cache, unless it
+   * is cached in memory already.
+   *
+   * @param key key of the tile, see {@link #getIfPresent(String)}
+   * @param tile the tile
+   */
+  public void put(String key, Buffer tile) {
+    synchronized (this) {
+      if (getFromMemory(key) != null) {
+        return;
+      }
+      notFound.remove(key);
+      putInMemory(key, tile);
+    }
+    writeToDisk(key, tile);
+  }
+
+  /**
+   * Delete the disk cache, if any.
+   *
+   * @return Future that completes when the disk cache has been deleted
+   */
+  public Future<Void> close() {
+    if (diskDir == null) {
+      return Future.succeededFuture();
+    }
+    return fileSystem.deleteRecursive(diskDir, true);
+  }
+
+  private Buffer getFromMemory(String key) {
+    Entry entry = tiles.get(key);
+    if (entry == null) {
+      return null;
+    }
+    if (entry.expiresAt <= clock.getAsLong()) {
+      tiles.remove(key);
+      bytes -= entry.tile.length();
+      return null;
+    }
+    return entry.tile;
+  }
+
+  private static boolean isNotFound(Throwable err) {
+    return err instanceof OgcException && ((OgcException) err).getStatusCode() == 404;
+  }
+
+  private void putInMemory(String key, Buffer tile) {
+    if (tile.length() > maxBytes) {
+      return;
+    }
+    Entry old = tiles.put(key, new Entry(tile, clock.getAsLong() + ttlMillis));
+    bytes += tile.length() - (old == null ? 0 : old.tile.length());
+
+    Iterator<Entry> eldest = tiles.values().iterator();
+    while (bytes > maxBytes) {
+      bytes -= eldest.next().tile.length();
+      eldest.remove();
+    }
+  }
+
+  private Future<Buffer> readFromDisk(String key) {
+    synchronized (this) {
+      DiskEntry entry = diskDir == null ? null : diskTiles.get(key);
+      if (entry == null) {
+        return Future.failedFuture("Tile not cached on disk");
+      }
+      if (entry.expiresAt <= clock.getAsLong()) {
+        diskTiles.remove(key);
+        diskBytes -= entry.size;
+        fileSystem.delete(diskPath(key));
+        return Future.failedFuture("Tile cached on disk has expired");
+      }
+    }
+    return fileSystem.readFile(diskPath(key));
+  }
+
+  private void writeToDisk(String key, Buffer tile) {
+    if (diskDir == null || tile.length() > maxDiskBytes) {
+      return;
+    }
+    long expiresAt = clock.getAsLong() + ttlMillis;
+    fileSystem.writeFile(diskPath(key), tile)
+        .onSuccess(written -> {
+          synchronized (this) {
+            DiskEntry old = diskTiles.put(key, new DiskEntry(tile.length(), expiresAt));
+            diskBytes += tile.length() - (old == null ? 0 : old.size);
+
+            Iterator<Map.Entry<String, DiskEntry>> eldest = diskTiles.entrySet().iterator();
+            while (diskBytes > maxDiskBytes) {
+              Map.Entry<String, DiskEntry> evicted = eldest.next();
+              diskBytes -= evicted.getValue().size;
+              fileSystem.delete(diskPath(evicted.getKey()));
+              eldest.remove();
+            }
+          }
+        })
+        .onFailure(err -> LOGGER.warn("Failed to cache tile {} on disk - {}", key, err.getMessage()));
+  }
+
+  /**
+   * Path of the file of a tile on disk. The file name is derived from the key, so that the key does
+   * not have to be a valid file name.
+   */
+  private String diskPath(String key) {
+    return diskDir + "/" + UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static final class Entry {
+    private final Buffer tile;
+    private final long expiresAt;
+
+    private Entry(Buffer tile, long expiresAt) {
+      this.tile = tile;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  private static final class NotFoundEntry {
+    private final Throwable error;
+    private final long expiresAt;
+
+    private NotFoundEntry(Throwable error, long expiresAt) {
+      this.error = error;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  private static final class DiskEntry {
+    private final int size;
+    private final long expiresAt;
+
+    private DiskEntry(int size, long expiresAt) {
+      this.size = size;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
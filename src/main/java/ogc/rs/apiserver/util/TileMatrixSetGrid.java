@@ -0,0 +1,132 @@
+package ogc.rs.apiserver.util;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Geometry of the well-known OGC TileMatrixSets for which tiles can be generated on request. Each
+ * tile matrix halves the tile size of the previous one, starting from
+ * <code>matrixWidth x matrixHeight</code> tiles at tile matrix 0. Rows are counted from the top
+ * (<code>maxY</code>) and columns from the left (<code>minX</code>).
+ */
+public enum TileMatrixSetGrid {
+  WEB_MERCATOR_QUAD("WebMercatorQuad", 3857, -20037508.3427892, -20037508.3427892,
+      20037508.3427892, 20037508.3427892, 1, 1),
+  WORLD_CRS84_QUAD("WorldCRS84Quad", 4326, -180, -90, 180, 90, 2, 1);
+
+  /** Highest tile matrix served, beyond which tiles are too small to be of use. */
+  public static final int MAX_TILE_MATRIX = 24;
+  /** Latitude beyond which WebMercatorQuad has no tiles. */
+  private static final double WEB_MERCATOR_MAX_LATITUDE = 85.0511287798066;
+
+  private final String id;
+  private final int srid;
+  private final double minX;
+  private final double minY;
+  private final double maxX;
+  private final double maxY;
+  private final int matrixWidth;
+  private final int matrixHeight;
+
+  TileMatrixSetGrid(String id, int srid, double minX, double minY, double maxX, double maxY,
+      int matrixWidth, int matrixHeight) {
+    this.id = id;
+    this.srid = srid;
+    this.minX = minX;
+    this.minY = minY;
+    this.maxX = maxX;
+    this.maxY = maxY;
+    this.matrixWidth = matrixWidth;
+    this.matrixHeight = matrixHeight;
+  }
+
+  /**
+   * Find the grid of a TileMatrixSet.
+   *
+   * @param tileMatrixSetId the TileMatrixSet ID, e.g. <code>WebMercatorQuad</code>
+   * @return the grid, empty if the TileMatrixSet is not known
+   */
+  public static Optional<TileMatrixSetGrid> fromId(String tileMatrixSetId) {
+    return Arrays.stream(values()).filter(grid -> grid.id.equals(tileMatrixSetId)).findFirst();
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * @return SRID of the CRS of the TileMatrixSet
+   */
+  public int getSrid() {
+    return srid;
+  }
+
+  /**
+   * Get the bounds of a tile in the CRS of the TileMatrixSet, optionally grown on each side.
+   *
+   * @param tileMatrix the tile matrix (zoom level)
+   * @param tileRow the tile row
+   * @param tileCol the tile column
+   * @param margin fraction of the tile size to grow the bounds by on each side, e.g.
+   *        <code>64.0 / 4096</code> for the default MVT buffer
+   * @return <code>[minX, minY, maxX, maxY]</code> of the tile
+   * @throws OgcException (404) if the tile is not part of the TileMatrixSet
+   */
+  public double[] getTileBounds(int tileMatrix, long tileRow, long tileCol, double margin) {
+    if (tileMatrix < 0 || tileMatrix > MAX_TILE_MATRIX) {
+      throw new OgcException(404, "Not Found", "Tile matrix " + tileMatrix + " does not exist in " + id);
+    }
+    long cols = (long) matrixWidth << tileMatrix;
+    long rows = (long) matrixHeight << tileMatrix;
+    if (tileRow < 0 || tileRow >= rows || tileCol < 0 || tileCol >= cols) {
+      throw new OgcException(404, "Not Found",
+          "Tile " + tileMatrix + "/" + tileRow + "/" + tileCol + " does not exist in " + id);
+    }
+
+    double tileWidth = (maxX - minX) / cols;
+    double tileHeight = (maxY - minY) / rows;
+    double tileMinX = minX + tileCol * tileWidth;
+    double tileMaxY = maxY - tileRow * tileHeight;
+
+    return new double[] {tileMinX - margin * tileWidth, tileMaxY - tileHeight - margin * tileHeight,
+        tileMinX + tileWidth + margin * tileWidth, tileMaxY + margin * tileHeight};
+  }
+
+  /**
+   * Get the range of tiles of a tile matrix that intersect a bounding box in CRS84.
+   *
+   * @param tileMatrix the tile matrix (zoom level)
+   * @param bbox <code>[minLon, minLat, maxLon, maxLat]</code>
+   * @return <code>[minCol, minRow, maxCol, maxRow]</code>, inclusive
+   * @throws OgcException (404) if the tile matrix is not part of the TileMatrixSet
+   */
+  public long[] getTileRange(int tileMatrix, double[] bbox) {
+    if (tileMatrix < 0 || tileMatrix > MAX_TILE_MATRIX) {
+      throw new OgcException(404, "Not Found", "Tile matrix " + tileMatrix + " does not exist in " + id);
+    }
+    long cols = (long) matrixWidth << tileMatrix;
+    long rows = (long) matrixHeight << tileMatrix;
+    double[] min = fromCrs84(bbox[0], bbox[1]);
+    double[] max = fromCrs84(bbox[2], bbox[3]);
+
+    double tileWidth = (maxX - minX) / cols;
+    double tileHeight = (maxY - minY) / rows;
+    return new long[] {clamp((long) Math.floor((min[0] - minX) / tileWidth), cols),
+        clamp((long) Math.floor((maxY - max[1]) / tileHeight), rows),
+        clamp((long) Math.floor((max[0] - minX) / tileWidth), cols),
+        clamp((long) Math.floor((maxY - min[1]) / tileHeight), rows)};
+  }
+
+  private double[] fromCrs84(double lon, double lat) {
+    if (srid != 3857) {
+      return new double[] {lon, lat};
+    }
+    double clampedLat = Math.max(-WEB_MERCATOR_MAX_LATITUDE, Math.min(WEB_MERCATOR_MAX_LATITUDE, lat));
+    return new double[] {maxX * lon / 180,
+        maxY / Math.PI * Math.log(Math.tan(Math.PI / 4 + Math.toRadians(clampedLat) / 2))};
+  }
+
+  private static long clamp(long index, long count) {
+    return Math.max(0, Math.min(count - 1, index));
+  }
+}
@@ -0,0 +1,128 @@
+package ogc.rs.apiserver.util;
+
+import static ogc.rs.common.Constants.REQUEST_COUNT;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregates the number of tile requests and the bytes served per user, collection, tileset and
+ * minute, so that tile metering is written as a few rows per minute instead of one per request.
+ * The aggregator is shared by all verticle instances, hence is {@link Shareable} and thread safe.
+ *
+ * <p>
+ * The number of aggregates held is bounded. Requests that would need a new aggregate once the
+ * bound is reached, e.g. when flushing to the metering backend is slow, are dropped and counted.
+ */
+public class TilesMeteringAggregator implements Shareable {
+
+  private static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+  private final int maxEntries;
+  private Map<Key, Aggregate> aggregates = new HashMap<>();
+  private long dropped;
+
+  /**
+   * Create a {@link TilesMeteringAggregator}.
+   *
+   * @param maxEntries maximum number of aggregates held until the next {@link #drain()}
+   */
+  public TilesMeteringAggregator(int maxEntries) {
+    this.maxEntries = maxEntries;
+  }
+
+  /**
+   * Add a tile request.
+   *
+   * @param info metering info of the request
+   * @return <code>false</code> if the request was dropped
+   */
+  public synchronized boolean add(MeteringInfo info) {
+    Key key = new Key(info);
+    Aggregate aggregate = aggregates.get(key);
+    if (aggregate == null) {
+      if (aggregates.size() >= maxEntries) {
+        dropped++;
+        return false;
+      }
+      aggregate = new Aggregate(info);
+      aggregates.put(key, aggregate);
+    }
+    aggregate.requests++;
+    aggregate.bytes += info.getSize();
+    return true;
+  }
+
+  /**
+   * Remove all aggregates.
+   *
+   * @return the aggregates as metering JSON, see {@link MeteringInfo#toJson(int)}, with the number
+   *         of requests in <code>request_count</code>
+   */
+  public JsonArray drain() {
+    Map<Key, Aggregate> drained;
+    synchronized (this) {
+      drained = aggregates;
+      aggregates = new HashMap<>();
+    }
+
+    JsonArray records = new JsonArray();
+    drained.values().forEach(aggregate -> {
+      JsonObject record = aggregate.first.toJson((int) aggregate.bytes);
+      records.add(record.put(REQUEST_COUNT, aggregate.requests));
+    });
+    return records;
+  }
+
+  /**
+   * @return number of requests dropped since the last call
+   */
+  public synchronized long getAndResetDropped() {
+    long count = dropped;
+    dropped = 0;
+    return count;
+  }
+
+  private static final class Aggregate {
+    private final MeteringInfo first;
+    private long requests;
+    private long bytes;
+
+    private Aggregate(MeteringInfo first) {
+      this.first = first;
+    }
+  }
+
+  private static final class Key {
+    private final String userId;
+    private final String resourceId;
+    private final String api;
+    private final long minute;
+
+    private Key(MeteringInfo info) {
+      userId = info.getUserId();
+      resourceId = info.getResourceId();
+      api = info.getApi();
+      minute = info.getEpochTime() / MINUTE_MILLIS;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Key)) return false;
+      Key that = (Key) o;
+      return minute == that.minute && Objects.equals(userId, that.userId)
+          && Objects.equals(resourceId, that.resourceId) && Objects.equals(api, that.api);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(userId, resourceId, api, minute);
+    }
+  }
+}
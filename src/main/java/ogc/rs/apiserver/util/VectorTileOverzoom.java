@@ -0,0 +1,576 @@
+package ogc.rs.apiserver.util;
+
+import io.vertx.core.buffer.Buffer;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Derives a Mapbox Vector Tile of a higher tile matrix (zoom level) from a tile of a lower one, for
+ * tilesets whose tiles stop at some zoom level. The geometries of the ancestor tile are scaled to
+ * the extent of the requested tile and clipped to it, with a buffer around it as in
+ * {@link DynamicTileGenerator}. Layers, feature IDs and properties are kept as they are.
+ *
+ * <p>
+ * The tile is decoded and encoded as protobuf directly, like the PMTiles archive reader, so only
+ * the fields the MVT 2.1 spec defines are interpreted; other fields are copied. Polygons are
+ * clipped ring by ring (Sutherland-Hodgman), which keeps the winding order of the rings, lines are
+ * cut into the parts that are within the tile, and points outside it are dropped. Coordinates are
+ * scaled by a power of two, so detail below the resolution of the ancestor tile is not recovered.
+ */
+public final class VectorTileOverzoom {
+
+  private static final int DEFAULT_EXTENT = 4096;
+  /** Size of the buffer around the tile as a fraction of the extent, 64 in an extent of 4096. */
+  private static final int BUFFER_DIVISOR = 64;
+
+  private static final int TILE_LAYERS = 3;
+  private static final int LAYER_FEATURES = 2;
+  private static final int LAYER_EXTENT = 5;
+  private static final int FEATURE_TYPE = 3;
+  private static final int FEATURE_GEOMETRY = 4;
+
+  private static final int WIRE_VARINT = 0;
+  private static final int WIRE_64BIT = 1;
+  private static final int WIRE_LENGTH_DELIMITED = 2;
+  private static final int WIRE_32BIT = 5;
+
+  private static final int GEOM_POINT = 1;
+  private static final int GEOM_LINESTRING = 2;
+  private static final int GEOM_POLYGON = 3;
+
+  private static final int CMD_MOVE_TO = 1;
+  private static final int CMD_LINE_TO = 2;
+  private static final int CMD_CLOSE_PATH = 7;
+
+  private VectorTileOverzoom() {}
+
+  /**
+   * Derive a tile from a tile of an ancestor tile matrix.
+   *
+   * @param ancestorTile the ancestor tile, gzip compressed or not
+   * @param levels number of tile matrices between the ancestor and the tile, at least 1
+   * @param tileCol column of the tile
+   * @param tileRow row of the tile
+   * @return the uncompressed tile, <code>null</code> if no feature of the ancestor tile is within
+   *         it
+   * @throws IllegalArgumentException if the ancestor tile is not a valid vector tile
+   */
+  public static Buffer overzoom(Buffer ancestorTile, int levels, long tileCol, long tileRow) {
+    if (levels < 1 || levels > 24) {
+      throw new IllegalArgumentException("Cannot overzoom by " + levels + " levels");
+    }
+    Buffer tile = isGzip(ancestorTile) ? gunzip(ancestorTile) : ancestorTile;
+    long mask = (1L << levels) - 1;
+    long colInAncestor = tileCol & mask;
+    long rowInAncestor = tileRow & mask;
+
+    try {
+      Buffer result = Buffer.buffer();
+      boolean hasFeatures = false;
+      Reader reader = new Reader(tile, 0, tile.length());
+      while (reader.hasMore()) {
+        int key = (int) reader.varint();
+        if (key >>> 3 == TILE_LAYERS && (key & 7) == WIRE_LENGTH_DELIMITED) {
+          Buffer layer = overzoomLayer(reader.lengthDelimited(), levels, colInAncestor,
+              rowInAncestor);
+          if (layer != null) {
+            writeLengthDelimited(result, TILE_LAYERS, layer);
+            hasFeatures = true;
+          }
+        } else {
+          reader.skip(key & 7);
+        }
+      }
+      return hasFeatures ? result : null;
+    } catch (IndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("Truncated vector tile", e);
+    }
+  }
+
+  private static Buffer overzoomLayer(Reader layer, int levels, long colInAncestor,
+      long rowInAncestor) {
+    // the extent may come after the features
+    long extent = DEFAULT_EXTENT;
+    Reader scan = layer.copy();
+    while (scan.hasMore()) {
+      int key = (int) scan.varint();
+      if (key >>> 3 == LAYER_EXTENT && (key & 7) == WIRE_VARINT) {
+        extent = scan.varint();
+      } else {
+        scan.skip(key & 7);
+      }
+    }
+    Clipper clipper = new Clipper(levels, colInAncestor, rowInAncestor, extent);
+
+    Buffer result = Buffer.buffer();
+    boolean hasFeatures = false;
+    while (layer.hasMore()) {
+      int start = layer.pos;
+      int key = (int) layer.varint();
+      if (key >>> 3 == LAYER_FEATURES && (key & 7) == WIRE_LENGTH_DELIMITED) {
+        Buffer feature = overzoomFeature(layer.lengthDelimited(), clipper);
+        if (feature != null) {
+          writeLengthDelimited(result, LAYER_FEATURES, feature);
+          hasFeatures = true;
+        }
+      } else {
+        layer.skip(key & 7);
+        result.appendBuffer(layer.buf, start, layer.pos - start);
+      }
+    }
+    return hasFeatures ? result : null;
+  }
+
+  private static Buffer overzoomFeature(Reader feature, Clipper clipper) {
+    long type = 0;
+    Reader geometry = null;
+    Reader scan = feature.copy();
+    while (scan.hasMore()) {
+      int key = (int) scan.varint();
+      if (key >>> 3 == FEATURE_TYPE && (key & 7) == WIRE_VARINT) {
+        type = scan.varint();
+      } else if (key >>> 3 == FEATURE_GEOMETRY && (key & 7) == WIRE_LENGTH_DELIMITED) {
+        geometry = scan.lengthDelimited();
+      } else {
+        scan.skip(key & 7);
+      }
+    }
+    if (geometry == null) {
+      return null;
+    }
+
+    List<long[]> paths = decodeGeometry(geometry, clipper);
+    Buffer encoded;
+    if (type == GEOM_POINT) {
+      encoded = encodePoints(clipper.clipPoints(paths));
+    } else if (type == GEOM_LINESTRING) {
+      encoded = encodePaths(clipper.clipLines(paths), false);
+    } else if (type == GEOM_POLYGON) {
+      encoded = encodePaths(clipper.clipRings(paths), true);
+    } else {
+      return null;
+    }
+    if (encoded == null) {
+      return null;
+    }
+
+    Buffer result = Buffer.buffer();
+    while (feature.hasMore()) {
+      int start = feature.pos;
+      int key = (int) feature.varint();
+      feature.skip(key & 7);
+      if (key >>> 3 != FEATURE_GEOMETRY) {
+        result.appendBuffer(feature.buf, start, feature.pos - start);
+      }
+    }
+    writeLengthDelimited(result, FEATURE_GEOMETRY, encoded);
+    return result;
+  }
+
+  /**
+   * Decode the packed commands of a geometry into paths of x, y pairs, scaled to the coordinates
+   * of the tile. For points, each MoveTo is one path; rings are not closed.
+   */
+  private static List<long[]> decodeGeometry(Reader geometry, Clipper clipper) {
+    List<long[]> paths = new ArrayList<>();
+    long[] path = null;
+    int length = 0;
+    long x = 0;
+    long y = 0;
+    while (geometry.hasMore()) {
+      long command = geometry.varint();
+      int id = (int) (command & 7);
+      long count = command >>> 3;
+      if (id == CMD_CLOSE_PATH) {
+        continue;
+      }
+      if (id != CMD_MOVE_TO && id != CMD_LINE_TO) {
+        throw new IllegalArgumentException("Unknown geometry command " + id);
+      }
+      for (long i = 0; i < count; i++) {
+        x += zigZag(geometry.varint());
+        y += zigZag(geometry.varint());
+        if (id == CMD_MOVE_TO) {
+          if (path != null) {
+            paths.add(Arrays.copyOf(path, length));
+          }
+          path = new long[8];
+          length = 0;
+        } else if (path == null) {
+          throw new IllegalArgumentException("LineTo without MoveTo");
+        }
+        if (length + 2 > path.length) {
+          path = Arrays.copyOf(path, path.length * 2);
+        }
+        path[length++] = clipper.x(x);
+        path[length++] = clipper.y(y);
+      }
+    }
+    if (path != null) {
+      paths.add(Arrays.copyOf(path, length));
+    }
+    return paths;
+  }
+
+  private static Buffer encodePoints(List<long[]> points) {
+    if (points.isEmpty()) {
+      return null;
+    }
+    Buffer buf = Buffer.buffer();
+    writeVarint(buf, command(CMD_MOVE_TO, points.size()));
+    long[] cursor = new long[2];
+    points.forEach(point -> writePoint(buf, point, 0, cursor));
+    return buf;
+  }
+
+  private static Buffer encodePaths(List<long[]> paths, boolean rings) {
+    if (paths.isEmpty()) {
+      return null;
+    }
+    Buffer buf = Buffer.buffer();
+    long[] cursor = new long[2];
+    for (long[] path : paths) {
+      writeVarint(buf, command(CMD_MOVE_TO, 1));
+      writePoint(buf, path, 0, cursor);
+      writeVarint(buf, command(CMD_LINE_TO, path.length / 2 - 1));
+      for (int i = 2; i < path.length; i += 2) {
+        writePoint(buf, path, i, cursor);
+      }
+      if (rings) {
+        writeVarint(buf, command(CMD_CLOSE_PATH, 1));
+      }
+    }
+    return buf;
+  }
+
+  private static void writePoint(Buffer buf, long[] path, int i, long[] cursor) {
+    writeVarint(buf, zigZagEncode(path[i] - cursor[0]));
+    writeVarint(buf, zigZagEncode(path[i + 1] - cursor[1]));
+    cursor[0] = path[i];
+    cursor[1] = path[i + 1];
+  }
+
+  private static long command(int id, int count) {
+    return (long) count << 3 | id;
+  }
+
+  private static long zigZag(long n) {
+    return n >>> 1 ^ -(n & 1);
+  }
+
+  private static long zigZagEncode(long n) {
+    return n << 1 ^ n >> 63;
+  }
+
+  private static void writeVarint(Buffer buf, long value) {
+    while ((value & ~0x7fL) != 0) {
+      buf.appendByte((byte) (value & 0x7f | 0x80));
+      value >>>= 7;
+    }
+    buf.appendByte((byte) value);
+  }
+
+  private static void writeLengthDelimited(Buffer buf, int field, Buffer value) {
+    writeVarint(buf, field << 3 | WIRE_LENGTH_DELIMITED);
+    writeVarint(buf, value.length());
+    buf.appendBuffer(value);
+  }
+
+  private static boolean isGzip(Buffer tile) {
+    return tile.length() > 2 && tile.getByte(0) == (byte) 0x1f && tile.getByte(1) == (byte) 0x8b;
+  }
+
+  private static Buffer gunzip(Buffer tile) {
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(tile.getBytes()))) {
+      return Buffer.buffer(in.readAllBytes());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Scales coordinates of the ancestor tile to the tile, whose extent is the same, and clips paths
+   * to the tile and its buffer.
+   */
+  private static final class Clipper {
+    private final int levels;
+    private final long xOffset;
+    private final long yOffset;
+    private final long min;
+    private final long max;
+
+    private Clipper(int levels, long colInAncestor, long rowInAncestor, long extent) {
+      this.levels = levels;
+      this.xOffset = colInAncestor * extent;
+      this.yOffset = rowInAncestor * extent;
+      this.min = -extent / BUFFER_DIVISOR;
+      this.max = extent + extent / BUFFER_DIVISOR;
+    }
+
+    private long x(long x) {
+      return (x << levels) - xOffset;
+    }
+
+    private long y(long y) {
+      return (y << levels) - yOffset;
+    }
+
+    private boolean inside(long x, long y) {
+      return x >= min && x <= max && y >= min && y <= max;
+    }
+
+    private List<long[]> clipPoints(List<long[]> points) {
+      List<long[]> result = new ArrayList<>();
+      for (long[] point : points) {
+        if (inside(point[0], point[1])) {
+          result.add(point);
+        }
+      }
+      return result;
+    }
+
+    /** Cut lines into the parts within the clip box (Liang-Barsky per segment). */
+    private List<long[]> clipLines(List<long[]> lines) {
+      List<long[]> result = new ArrayList<>();
+      for (long[] line : lines) {
+        PathBuilder part = new PathBuilder();
+        for (int i = 2; i < line.length; i += 2) {
+          long x0 = line[i - 2];
+          long y0 = line[i - 1];
+          long x1 = line[i];
+          long y1 = line[i + 1];
+          double t0 = 0;
+          double t1 = 1;
+          double dx = x1 - x0;
+          double dy = y1 - y0;
+          double[] p = {-dx, dx, -dy, dy};
+          double[] q = {x0 - min, max - x0, y0 - min, max - y0};
+          boolean visible = true;
+          for (int k = 0; k < 4 && visible; k++) {
+            if (p[k] == 0) {
+              visible = q[k] >= 0;
+            } else if (p[k] < 0) {
+              t0 = Math.max(t0, q[k] / p[k]);
+            } else {
+              t1 = Math.min(t1, q[k] / p[k]);
+            }
+          }
+          if (!visible || t0 > t1) {
+            part.flushTo(result, 4);
+            continue;
+          }
+          if (t0 > 0) {
+            part.flushTo(result, 4);
+          }
+          if (part.isEmpty()) {
+            part.add(Math.round(x0 + t0 * dx), Math.round(y0 + t0 * dy));
+          }
+          part.add(Math.round(x0 + t1 * dx), Math.round(y0 + t1 * dy));
+          if (t1 < 1) {
+            part.flushTo(result, 4);
+          }
+        }
+        part.flushTo(result, 4);
+      }
+      return result;
+    }
+
+    /**
+     * Clip the rings of polygons (Sutherland-Hodgman). Exterior rings have a positive area as the
+     * MVT spec computes it; if an exterior ring is clipped away, so are its interior rings.
+     */
+    private List<long[]> clipRings(List<long[]> rings) {
+      List<long[]> result = new ArrayList<>();
+      boolean keepInterior = false;
+      for (long[] ring : rings) {
+        double area = area(ring);
+        if (area == 0) {
+          continue;
+        }
+        boolean exterior = area > 0;
+        if (!exterior && !keepInterior) {
+          continue;
+        }
+        long[] clipped = ring;
+        for (int edge = 0; edge < 4 && clipped.length >= 6; edge++) {
+          clipped = clipRing(clipped, edge);
+        }
+        boolean kept = clipped.length >= 6 && area(clipped) != 0;
+        if (kept) {
+          result.add(clipped);
+        }
+        if (exterior) {
+          keepInterior = kept;
+        }
+      }
+      return result;
+    }
+
+    private long[] clipRing(long[] ring, int edge) {
+      PathBuilder out = new PathBuilder();
+      int n = ring.length;
+      long px = ring[n - 2];
+      long py = ring[n - 1];
+      boolean pIn = insideEdge(px, py, edge);
+      for (int i = 0; i < n; i += 2) {
+        long cx = ring[i];
+        long cy = ring[i + 1];
+        boolean cIn = insideEdge(cx, cy, edge);
+        if (cIn != pIn) {
+          intersect(out, px, py, cx, cy, edge);
+        }
+        if (cIn) {
+          out.add(cx, cy);
+        }
+        px = cx;
+        py = cy;
+        pIn = cIn;
+      }
+      return out.toArray();
+    }
+
+    private boolean insideEdge(long x, long y, int edge) {
+      switch (edge) {
+        case 0:
+          return x >= min;
+        case 1:
+          return x <= max;
+        case 2:
+          return y >= min;
+        default:
+          return y <= max;
+      }
+    }
+
+    private void intersect(PathBuilder out, long x0, long y0, long x1, long y1, int edge) {
+      double bound = edge == 0 || edge == 2 ? min : max;
+      if (edge < 2) {
+        double t = (bound - x0) / (double) (x1 - x0);
+        out.add((long) bound, Math.round(y0 + t * (y1 - y0)));
+      } else {
+        double t = (bound - y0) / (double) (y1 - y0);
+        out.add(Math.round(x0 + t * (x1 - x0)), (long) bound);
+      }
+    }
+
+    private static double area(long[] ring) {
+      double sum = 0;
+      int n = ring.length;
+      for (int i = 0; i < n; i += 2) {
+        int j = (i + 2) % n;
+        sum += (double) ring[i] * ring[j + 1] - (double) ring[j] * ring[i + 1];
+      }
+      return sum / 2;
+    }
+  }
+
+  /** Collects the points of a path, skipping repeated points. */
+  private static final class PathBuilder {
+    private long[] coords = new long[16];
+    private int length;
+
+    private void add(long x, long y) {
+      if (length > 0 && coords[length - 2] == x && coords[length - 1] == y) {
+        return;
+      }
+      if (length + 2 > coords.length) {
+        coords = Arrays.copyOf(coords, coords.length * 2);
+      }
+      coords[length++] = x;
+      coords[length++] = y;
+    }
+
+    private boolean isEmpty() {
+      return length == 0;
+    }
+
+    private long[] toArray() {
+      // a ring may end at its first point
+      int n = length;
+      if (n >= 4 && coords[0] == coords[n - 2] && coords[1] == coords[n - 1]) {
+        n -= 2;
+      }
+      return Arrays.copyOf(coords, n);
+    }
+
+    private void flushTo(List<long[]> paths, int minLength) {
+      if (length >= minLength) {
+        paths.add(Arrays.copyOf(coords, length));
+      }
+      length = 0;
+    }
+  }
+
+  /** Reads protobuf fields from a part of a buffer. */
+  private static final class Reader {
+    private final Buffer buf;
+    private final int end;
+    private int pos;
+
+    private Reader(Buffer buf, int pos, int end) {
+      this.buf = buf;
+      this.pos = pos;
+      this.end = end;
+    }
+
+    private Reader copy() {
+      return new Reader(buf, pos, end);
+    }
+
+    private boolean hasMore() {
+      return pos < end;
+    }
+
+    private long varint() {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        if (pos >= end) {
+          throw new IndexOutOfBoundsException("Truncated varint");
+        }
+        byte b = buf.getByte(pos++);
+        value |= (long) (b & 0x7f) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IllegalArgumentException("Invalid varint");
+    }
+
+    private Reader lengthDelimited() {
+      int length = (int) varint();
+      if (length < 0 || pos + length > end) {
+        throw new IndexOutOfBoundsException("Truncated field");
+      }
+      Reader field = new Reader(buf, pos, pos + length);
+      pos += length;
+      return field;
+    }
+
+    private void skip(int wireType) {
+      switch (wireType) {
+        case WIRE_VARINT:
+          varint();
+          break;
+        case WIRE_64BIT:
+          pos += 8;
+          break;
+        case WIRE_LENGTH_DELIMITED:
+          lengthDelimited();
+          break;
+        case WIRE_32BIT:
+          pos += 4;
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported wire type " + wireType);
+      }
+      if (pos > end) {
+        throw new IndexOutOfBoundsException("Truncated field");
+      }
+    }
+  }
+}
@@ -0,0 +1,165 @@
+package ogc.rs.apiserver.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.micrometer.backends.BackendRegistries;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache of the users of tokens whose signature has been verified, so that clients sending the same
+ * token with every request, e.g. map clients fetching tiles, do not cost a signature verification
+ * and claims parsing per request. The cache is shared by all verticle instances, hence is thread
+ * safe.
+ *
+ * <p>
+ * Tokens are held by their SHA-256 hash in an LRU cache bounded by the number of tokens. A token is
+ * cached until its <code>exp</code> claim and at most {@value #MAX_TTL_SECONDS} seconds. Tokens
+ * that fail verification are not cached.
+ *
+ * <p>
+ * Micrometer metrics, recorded on the registry set up by the Deployer if metrics are enabled:
+ * <ul>
+ * <li><code>ogc.auth.token.cache</code> - lookups, tagged with the result, <code>hit</code> or
+ * <code>miss</code></li>
+ * <li><code>ogc.auth.token.cache.size</code> - number of cached tokens</li>
+ * </ul>
+ */
+public class VerifiedTokenCache {
+
+  static final long MAX_TTL_SECONDS = 300;
+
+  private static final String LOOKUPS = "ogc.auth.token.cache";
+  private static final String SIZE = "ogc.auth.token.cache.size";
+
+  private final int maxEntries;
+  private final LongSupplier clock;
+  private final Map<String, Entry> tokens;
+  private final Counter hits;
+  private final Counter misses;
+
+  /**
+   * Create a {@link VerifiedTokenCache}.
+   *
+   * @param maxEntries maximum number of cached tokens, 0 to disable caching
+   */
+  public VerifiedTokenCache(int maxEntries) {
+    this(maxEntries, System::currentTimeMillis);
+  }
+
+  VerifiedTokenCache(int maxEntries, LongSupplier clock) {
+    this.maxEntries = maxEntries;
+    this.clock = clock;
+    this.tokens = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > VerifiedTokenCache.this.maxEntries;
+      }
+    };
+
+    MeterRegistry registry = BackendRegistries.getDefaultNow();
+    if (registry != null && maxEntries > 0) {
+      hits = Counter.builder(LOOKUPS).tags("result", "hit").register(registry);
+      misses = Counter.builder(LOOKUPS).tags("result", "miss").register(registry);
+      Gauge.builder(SIZE, this, VerifiedTokenCache::size).register(registry);
+    } else {
+      hits = null;
+      misses = null;
+    }
+  }
+
+  /**
+   * Get the user of a verified token.
+   *
+   * @param token the token
+   * @return a copy of the user, see {@link AuthInfo#copy()}, <code>null</code> if the token is not
+   *         cached or has expired
+   */
+  public AuthInfo get(String token) {
+    if (maxEntries <= 0) {
+      return null;
+    }
+    String key = hash(token);
+    long now = clock.getAsLong();
+    Entry entry;
+    synchronized (this) {
+      entry = tokens.get(key);
+      if (entry != null && entry.expiresAt <= now) {
+        tokens.remove(key);
+        entry = null;
+      }
+    }
+    if (entry == null) {
+      increment(misses);
+      return null;
+    }
+    increment(hits);
+    return entry.user.copy();
+  }
+
+  /**
+   * Cache the user of a token whose signature and claims have been verified.
+   *
+   * @param token the token
+   * @param user the user created from the claims of the token
+   */
+  public void put(String token, AuthInfo user) {
+    if (maxEntries <= 0) {
+      return;
+    }
+    long now = clock.getAsLong();
+    long expiresAt = now + TimeUnit.SECONDS.toMillis(MAX_TTL_SECONDS);
+    if (user.getExpiry() > 0) {
+      expiresAt = Math.min(expiresAt, TimeUnit.SECONDS.toMillis(user.getExpiry()));
+    }
+    if (expiresAt <= now) {
+      return;
+    }
+    Entry entry = new Entry(user.copy(), expiresAt);
+    String key = hash(token);
+    synchronized (this) {
+      tokens.put(key, entry);
+    }
+  }
+
+  /**
+   * @return number of cached tokens, including expired tokens not yet removed
+   */
+  public synchronized int size() {
+    return tokens.size();
+  }
+
+  private static void increment(Counter counter) {
+    if (counter != null) {
+      counter.increment();
+    }
+  }
+
+  private static String hash(String token) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return Base64.getEncoder()
+          .encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform has SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static final class Entry {
+    private final AuthInfo user;
+    private final long expiresAt;
+
+    private Entry(AuthInfo user, long expiresAt) {
+      this.user = user;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
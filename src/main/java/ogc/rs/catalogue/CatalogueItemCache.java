@@ -0,0 +1,232 @@
+package ogc.rs.catalogue;
+
+import static ogc.rs.common.Constants.CAT_ITEM_CACHE_DEFAULT_LOAD_TIMEOUT_SEC;
+import static ogc.rs.common.Constants.CAT_ITEM_CACHE_DEFAULT_MAX_STALE_SEC;
+import static ogc.rs.common.Constants.CAT_ITEM_CACHE_DEFAULT_NEGATIVE_TTL_SEC;
+import static ogc.rs.common.Constants.CAT_ITEM_CACHE_DEFAULT_SIZE;
+import static ogc.rs.common.Constants.CAT_ITEM_CACHE_DEFAULT_TTL_SEC;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Cache of items fetched from the DX catalogue, which almost never change, so that the catalogue
+ * is called once per item and TTL instead of with every audited or authorized request. The cache
+ * is shared by all verticle instances, see {@link #shared(JsonObject)}, hence is thread safe.
+ *
+ * <p>
+ * Items are held in an LRU cache bounded by the number of items. Items that do not exist in the
+ * catalogue are cached too, for a shorter TTL. Concurrent lookups of an item that is not cached
+ * share one call to the catalogue. Once the TTL of an item has passed, the item is still returned
+ * for up to the maximum staleness while it is fetched again in the background, so a slow or
+ * unavailable catalogue does not hold up requests. A failed call is not cached, and a call that
+ * does not complete within the load timeout is failed, so that lookups of the item do not wait on
+ * it forever.
+ */
+public class CatalogueItemCache {
+
+  private static final Logger LOGGER = LogManager.getLogger(CatalogueItemCache.class);
+
+  private static CatalogueItemCache shared;
+
+  private final int maxEntries;
+  private final long ttlMillis;
+  private final long negativeTtlMillis;
+  private final long maxStaleMillis;
+  private final long loadTimeoutMillis;
+  private final Vertx vertx;
+  private final LongSupplier clock;
+  private final Map<String, Entry> items;
+  private final Map<String, Future<JsonObject>> loading = new HashMap<>();
+
+  /**
+   * Create a {@link CatalogueItemCache}.
+   *
+   * @param vertx the Vert.x instance, used to time out calls to the catalogue
+   * @param maxEntries maximum number of cached items, 0 to disable caching
+   * @param ttlSeconds number of seconds an item is cached for
+   * @param negativeTtlSeconds number of seconds an item that does not exist is cached for
+   * @param maxStaleSeconds number of seconds after its TTL an item is returned while it is fetched
+   *        again
+   * @param loadTimeoutSeconds number of seconds after which a call to the catalogue is failed
+   */
+  public CatalogueItemCache(Vertx vertx, int maxEntries, long ttlSeconds, long negativeTtlSeconds,
+      long maxStaleSeconds, long loadTimeoutSeconds) {
+    this(vertx, maxEntries, ttlSeconds, negativeTtlSeconds, maxStaleSeconds,
+        TimeUnit.SECONDS.toMillis(loadTimeoutSeconds), System::currentTimeMillis);
+  }
+
+  CatalogueItemCache(Vertx vertx, int maxEntries, long ttlSeconds, long negativeTtlSeconds,
+      long maxStaleSeconds, long loadTimeoutMillis, LongSupplier clock) {
+    this.vertx = vertx;
+    this.loadTimeoutMillis = loadTimeoutMillis;
+    this.maxEntries = maxEntries;
+    this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+    this.negativeTtlMillis = TimeUnit.SECONDS.toMillis(negativeTtlSeconds);
+    this.maxStaleMillis = TimeUnit.SECONDS.toMillis(maxStaleSeconds);
+    this.clock = clock;
+    this.items = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > CatalogueItemCache.this.maxEntries;
+      }
+    };
+  }
+
+  /**
+   * Get the cache shared by all verticle instances of the JVM, created from the configuration of
+   * the first caller.
+   *
+   * @param vertx the Vert.x instance
+   * @param config configuration with the optional <code>catItemCacheSize</code>,
+   *        <code>catItemCacheTtlSec</code>, <code>catItemCacheNegativeTtlSec</code>,
+   *        <code>catItemCacheMaxStaleSec</code> and <code>catItemCacheLoadTimeoutSec</code>
+   * @return the shared cache
+   */
+  public static synchronized CatalogueItemCache shared(Vertx vertx, JsonObject config) {
+    if (shared == null) {
+      shared = new CatalogueItemCache(vertx,
+          config.getInteger("catItemCacheSize", CAT_ITEM_CACHE_DEFAULT_SIZE),
+          config.getLong("catItemCacheTtlSec", CAT_ITEM_CACHE_DEFAULT_TTL_SEC),
+          config.getLong("catItemCacheNegativeTtlSec", CAT_ITEM_CACHE_DEFAULT_NEGATIVE_TTL_SEC),
+          config.getLong("catItemCacheMaxStaleSec", CAT_ITEM_CACHE_DEFAULT_MAX_STALE_SEC),
+          config.getLong("catItemCacheLoadTimeoutSec", CAT_ITEM_CACHE_DEFAULT_LOAD_TIMEOUT_SEC));
+    }
+    return shared;
+  }
+
+  /**
+   * Get an item, fetching it from the catalogue if it is not cached. The returned future completes
+   * on the context of the caller.
+   *
+   * @param key key of the item, made of the ID of the item and the kind of lookup, as different
+   *        catalogue APIs return different fields of an item
+   * @param loader fetches the item from the catalogue, succeeding with <code>null</code> if the
+   *        item does not exist
+   * @return Future of a copy of the item, <code>null</code> if the item does not exist
+   */
+  public Future<JsonObject> get(String key, Supplier<Future<JsonObject>> loader) {
+    if (maxEntries <= 0) {
+      return loader.get();
+    }
+
+    long now = clock.getAsLong();
+    Entry entry;
+    Future<JsonObject> pending;
+    Promise<JsonObject> load = null;
+    synchronized (this) {
+      entry = items.get(key);
+      if (entry != null && entry.staleUntil <= now) {
+        items.remove(key);
+        entry = null;
+      }
+      pending = loading.get(key);
+      if (pending == null && (entry == null || entry.freshUntil <= now)) {
+        load = Promise.promise();
+        pending = load.future();
+        loading.put(key, pending);
+      }
+    }
+
+    if (load != null) {
+      if (entry != null) {
+        LOGGER.debug("Refreshing stale catalogue item {}", key);
+      }
+      load(key, loader, load);
+    }
+    if (entry != null) {
+      return Future.succeededFuture(copy(entry.item));
+    }
+    return onCallerContext(pending.map(CatalogueItemCache::copy));
+  }
+
+  /**
+   * @return number of cached items, including expired items not yet removed
+   */
+  public synchronized int size() {
+    return items.size();
+  }
+
+  private void load(String key, Supplier<Future<JsonObject>> loader, Promise<JsonObject> load) {
+    Future<JsonObject> fetched;
+    try {
+      fetched = loader.get();
+    } catch (RuntimeException e) {
+      fetched = Future.failedFuture(e);
+    }
+    long timer = vertx.setTimer(loadTimeoutMillis, id -> {
+      synchronized (this) {
+        if (!loading.remove(key, load.future())) {
+          return;
+        }
+      }
+      LOGGER.warn("Catalogue call for item {} timed out after {} ms", key, loadTimeoutMillis);
+      load.tryFail("catalogue call timed out");
+    });
+    fetched.onComplete(ar -> {
+      vertx.cancelTimer(timer);
+      synchronized (this) {
+        // unless it timed out, and possibly is loaded again since
+        loading.remove(key, load.future());
+        if (ar.succeeded()) {
+          long now = clock.getAsLong();
+          JsonObject item = ar.result();
+          long freshUntil = now + (item == null ? negativeTtlMillis : ttlMillis);
+          long staleUntil = item == null ? freshUntil : freshUntil + maxStaleMillis;
+          items.put(key, new Entry(item, freshUntil, staleUntil));
+        }
+      }
+      if (ar.failed()) {
+        LOGGER.debug("Failed to fetch catalogue item {}: {}", key, ar.cause().getMessage());
+      }
+      if (ar.succeeded()) {
+        load.tryComplete(ar.result());
+      } else {
+        load.tryFail(ar.cause());
+      }
+    });
+  }
+
+  private static <T> Future<T> onCallerContext(Future<T> future) {
+    Context context = Vertx.currentContext();
+    if (context == null || future.isComplete()) {
+      return future;
+    }
+    Promise<T> promise = Promise.promise();
+    future.onComplete(ar -> {
+      if (Vertx.currentContext() == context) {
+        promise.handle(ar);
+      } else {
+        context.runOnContext(v -> promise.handle(ar));
+      }
+    });
+    return promise.future();
+  }
+
+  private static JsonObject copy(JsonObject item) {
+    return item == null ? null : item.copy();
+  }
+
+  private static final class Entry {
+    private final JsonObject item;
+    private final long freshUntil;
+    private final long staleUntil;
+
+    private Entry(JsonObject item, long freshUntil, long staleUntil) {
+      this.item = item;
+      this.freshUntil = freshUntil;
+      this.staleUntil = staleUntil;
+    }
+  }
+}
@@ -21,6 +21,7 @@ public class CatalogueService {
   final int port;
   final String catBasePath;
   final String path;
+  private final CatalogueItemCache itemCache;
 
   public CatalogueService(Vertx vertx, JsonObject config) {
     WebClientOptions options = new WebClientOptions();
@@ -30,9 +31,22 @@ public class CatalogueService {
     port = config.getInteger("catServerPort");
     this.catBasePath = config.getString("dxCatalogueBasePath");
     this.path = catBasePath + CAT_SEARCH_PATH;
+    this.itemCache = CatalogueItemCache.shared(vertx, config);
   }
 
+  /**
+   * Get an item from the catalogue, cached, see {@link CatalogueItemCache}.
+   *
+   * @param id the ID of the item
+   * @return Future of the item, failed if the item does not exist or the catalogue call failed
+   */
   public Future<JsonObject> getCatItem(String id) {
+    return itemCache.get("search:" + id, () -> searchCatItem(id))
+        .compose(item -> item != null ? Future.succeededFuture(item)
+            : Future.failedFuture("catalogue call search api failed"));
+  }
+
+  private Future<JsonObject> searchCatItem(String id) {
     LOGGER.debug("get item for id: {} ", id);
     Promise<JsonObject> promise = Promise.promise();
 
@@ -46,17 +60,20 @@ public class CatalogueService {
         .expect(ResponsePredicate.JSON)
         .send(
             relHandler -> {
-              if (relHandler.succeeded()
-                  && relHandler.result().bodyAsJsonObject().getInteger("totalHits") > 0) {
-                LOGGER.debug(
-                    "catalogue call search api succeeded "
-                        + relHandler.result().bodyAsJsonObject().getInteger("totalHits"));
+              Integer totalHits = relHandler.succeeded()
+                  ? getTotalHits(relHandler.result().bodyAsJsonObject()) : null;
+              if (totalHits != null && totalHits > 0) {
+                LOGGER.debug("catalogue call search api succeeded " + totalHits);
                 JsonArray resultArray =
                     relHandler.result().bodyAsJsonObject().getJsonArray("results");
                 JsonObject response = resultArray.getJsonObject(0);
                 promise.complete(response);
+              } else if (totalHits != null) {
+                LOGGER.debug("Item {} doesn't exist in catalogue", id);
+                promise.complete(null);
               } else {
-                LOGGER.debug("catalogue call search api failed: " + relHandler.cause());
+                LOGGER.debug("catalogue call search api failed: "
+                    + (relHandler.succeeded() ? "no totalHits in response" : relHandler.cause()));
                 promise.fail("catalogue call search api failed");
               }
             });
@@ -78,11 +95,11 @@ public class CatalogueService {
                 .expect(ResponsePredicate.JSON)
                 .send(
                         relHandler -> {
-                            if (relHandler.succeeded()) {
-                                LOGGER.debug(
-                                        "catalogue call search api succeeded "
-                                                + relHandler.result().bodyAsJsonObject().getInteger("totalHits"));
-                                if (relHandler.result().bodyAsJsonObject().getInteger("totalHits") == 0) {
+                            Integer totalHits = relHandler.succeeded()
+                  ? getTotalHits(relHandler.result().bodyAsJsonObject()) : null;
+                            if (totalHits != null) {
+                                LOGGER.debug("catalogue call search api succeeded " + totalHits);
+                                if (totalHits == 0) {
                                     LOGGER.debug("Item " +id+" doesn't exist in catalogue");
                                     promise.fail(new OgcException(404, "Item Not Found", "Item doesn't exist in catalogue"));
                                     return;
@@ -101,4 +118,14 @@ public class CatalogueService {
 
         return promise.future();
     }
+
+    /**
+     * Get the number of items found by a catalogue search.
+     *
+     * @param response the response of the search API
+     * @return the number of items, <code>null</code> if the response has none, e.g. an error
+     */
+    private static Integer getTotalHits(JsonObject response) {
+        return response == null ? null : response.getInteger("totalHits");
+    }
 }
@@ -14,10 +14,21 @@ public class Constants {
     public static final String METERING_SERVICE_ADDRESS = "ogc.rs.metering.service";
     public static final String PROCESSING_SERVICE_ADDRESS = "ogc.rs.processes.service";
     public static final String JOBS_SERVICE_ADDRESS = "ogc.rs.jobs.service";
+    public static final String TILE_CACHE_WARM_UP_ADDRESS = "ogc.rs.tiles.cache.warmup";
     public static final String DEFAULT_SERVER_CRS = "http://www.opengis.net/def/crs/OGC/1.3/CRS84";
     public static final Integer DEFAULT_CRS_SRID = 4326;
     public static final Set<String> WELL_KNOWN_QUERY_PARAMETERS =
-        Set.of("limit", "bbox", "datetime", "offset", "bbox-crs", "crs");
+        Set.of("limit", "bbox", "datetime", "offset", "bbox-crs", "crs", "cursor", "numberMatched",
+            "properties", "zoom");
+    /* values of the numberMatched query parameter for OGC Features */
+    public static final String NUMBER_MATCHED_EXACT = "exact";
+    public static final String NUMBER_MATCHED_ESTIMATE = "estimate";
+    public static final String NUMBER_MATCHED_NONE = "none";
+    /* per-connection cache of prepared statements, keyed by SQL text */
+    public static final int DEFAULT_PREPARED_STATEMENT_CACHE_SIZE = 256;
+    public static final int DEFAULT_METADATA_CACHE_MAX_TTL_ENTRIES = 10000;
+    /* seconds the geometry and checks of token feature limits are cached for */
+    public static final long DEFAULT_FEAT_LIMITS_CACHE_TTL_SEC = 300;
     public static final String UUID_REGEX = "^[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}$";
 
     public static final String OAS_BEARER_SECURITY_SCHEME = "DX-AAA-Token";
@@ -36,6 +47,8 @@ public class Constants {
     public static final String RESOURCE_GROUP = "resourceGroup";
     public static final String USER_ID = "userid";
     public static final String DELEGATOR_ID = "delegatorId";
+    public static final String REQUEST_COUNT = "request_count";
+    public static final String METERING_USER_ID = "metering_user_id";
     public static final String ROLE = "role";
     public static final String DRL = "drl";
     public static final String DID = "did";
@@ -45,6 +58,11 @@ public class Constants {
     public static final String CODE_KEY="code";
     public static final String REQUEST_JSON = "request_json";
     public static String CAT_SEARCH_PATH = "/search";
+    public static final int CAT_ITEM_CACHE_DEFAULT_SIZE = 1000;
+    public static final long CAT_ITEM_CACHE_DEFAULT_TTL_SEC = 300;
+    public static final long CAT_ITEM_CACHE_DEFAULT_NEGATIVE_TTL_SEC = 30;
+    public static final long CAT_ITEM_CACHE_DEFAULT_MAX_STALE_SEC = 3600;
+    public static final long CAT_ITEM_CACHE_DEFAULT_LOAD_TIMEOUT_SEC = 10;
   public static final String NOT_FOUND = "Not Found";
   public static final String RESOURCE_NOT_FOUND = "Resource Not Found";
   public static final ProcessException processException404 =
@@ -54,4 +72,13 @@ public class Constants {
       new ProcessException(500, INTERNAL_SERVER_ERROR, INTERNAL_SERVER_ERROR);
   public static final String INVALID_ENDPOINT_ERROR = "API / Collection not found";
   public static final int METERING_UPDATE_PERIOD = 60000;
+  public static final int TILES_METERING_DEFAULT_MAX_ENTRIES = 10000;
+  public static final String QUOTA_COUNTERS_MAP = "QuotaCounters";
+  public static final int QUOTA_COUNTERS_FLUSH_PERIOD = 10000;
+  public static final long QUOTA_COUNTERS_MAX_IDLE_MILLIS = 3600000;
+  public static final long QUOTA_COUNTERS_RETENTION_MILLIS = 86400000;
+  public static final long QUOTA_COUNTERS_CLEANUP_PERIOD = 3600000;
+  public static final int AUDIT_DEFAULT_BATCH_SIZE = 500;
+  public static final int AUDIT_DEFAULT_BUFFER_SIZE = 20000;
+  public static final long AUDIT_DEFAULT_FLUSH_INTERVAL_MS = 1000;
 }
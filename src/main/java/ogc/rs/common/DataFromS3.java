@@ -6,62 +6,119 @@ import io.vertx.core.Promise;
 import io.vertx.core.http.HttpClient;
 import io.vertx.core.http.HttpClientResponse;
 import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.http.RequestOptions;
 import ogc.rs.apiserver.util.OgcException;
 import ogc.rs.common.awss3.AWS4SignerBase;
 import ogc.rs.common.awss3.AWS4SignerForAuthorizationHeader;
+import ogc.rs.common.pmtiles.PMTilesArchive;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class DataFromS3 {
 
   private static final Logger LOGGER = LogManager.getLogger(DataFromS3.class);
-  private static HttpClient client;
+  /** Request headers forwarded to S3, for S3 to answer range and conditional requests. */
+  private static final List<String> FORWARDED_REQUEST_HEADERS =
+      List.of("Range", "If-Range", "If-None-Match", "If-Modified-Since");
+  /** Response headers of S3 relayed to the client. */
+  private static final List<String> RELAYED_RESPONSE_HEADERS =
+      List.of("ETag", "Last-Modified", "Accept-Ranges", "Content-Range", "Content-Length");
+  private final HttpClient client;
 
   private String s3Url;
-  static String S3_BUCKET;
-  static String S3_REGION;
-  static String S3_ACCESS_KEY;
-  static String S3_SECRET_KEY;
+  private final String s3Bucket;
+  private final String s3Region;
+  private final String s3AccessKey;
+  private final String s3SecretKey;
   private final Map<String, String> headers;
   private URL url;
 
   public DataFromS3(HttpClient client, S3Config config) {
-    S3_BUCKET = config.getBucket();
-    S3_REGION = config.getRegion();
-    S3_ACCESS_KEY = config.getAccessKey();
-    S3_SECRET_KEY = config.getSecretKey();
+    s3Bucket = config.getBucket();
+    s3Region = config.getRegion();
+    s3AccessKey = config.getAccessKey();
+    s3SecretKey = config.getSecretKey();
     
     if (config.isPathBasedAccess()) {
-      this.s3Url = config.getEndpoint() + "/" + S3_BUCKET + "/";
+      this.s3Url = config.getEndpoint() + "/" + s3Bucket + "/";
     } else {
-      this.s3Url = (config.isHttps() ? "https://" : "http://") + S3_BUCKET + "."
+      this.s3Url = (config.isHttps() ? "https://" : "http://") + s3Bucket + "."
           + config.getEndpoint().replaceFirst("https?://", "") + "/";
     }
     
-    DataFromS3.client = client;
+    this.client = client;
     this.headers = new HashMap<>();
   }
 
+  /**
+   * Create a {@link PMTilesArchive.RangeReader} that reads ranges of an object with one signed GET
+   * request each. The reads after the first are conditional on the <code>ETag</code> of the first,
+   * so that ranges of an object that was overwritten are not mixed with those of the object read
+   * before: they fail with an {@link OgcException} (412) instead.
+   *
+   * @param client the HTTP client to make the requests with
+   * @param config config of the bucket
+   * @param key key of the object in the bucket
+   * @return the range reader
+   */
+  public static PMTilesArchive.RangeReader rangeReader(HttpClient client, S3Config config,
+      String key) {
+    AtomicReference<String> etag = new AtomicReference<>();
+    return (offset, length) -> {
+      DataFromS3 dataFromS3 = new DataFromS3(client, config);
+      dataFromS3.setUrlFromString(dataFromS3.getFullyQualifiedUrlString(key));
+      dataFromS3.setRange(offset, length);
+      String ifMatch = etag.get();
+      if (ifMatch != null) {
+        dataFromS3.headers.put("If-Match", ifMatch);
+      }
+      dataFromS3.setSignatureHeader(HttpMethod.GET);
+      return dataFromS3.getDataFromS3(HttpMethod.GET).compose(res -> {
+        String responseEtag = res.getHeader("ETag");
+        if (responseEtag != null) {
+          etag.compareAndSet(null, responseEtag);
+        }
+        return res.body();
+      });
+    };
+  }
+
   public Future<HttpClientResponse> getDataFromS3(HttpMethod httpMethod) {
     Promise <HttpClientResponse> response  = Promise.promise();
 
     RequestOptions options = new RequestOptions().setAbsoluteURI(url).setMethod(httpMethod)
         .setHeaders(MultiMap.caseInsensitiveMultiMap().addAll(headers));
 
+    long start = S3ClientMetrics.requestStarted(s3Bucket);
+    long[] sent = {0};
     client.request(options)
-        .compose(req -> req.send())
+        .compose(req -> {
+          sent[0] = S3ClientMetrics.connectionAcquired(s3Bucket, start);
+          return req.send();
+        })
+        .onComplete(res -> S3ClientMetrics.requestEnded(s3Bucket, sent[0], httpMethod.name(),
+            res.succeeded() ? res.result().statusCode() : 0))
         .onSuccess(res -> {
           if (res.statusCode() == 404) {
             LOGGER.error("FILE not found {}",url.toString());
             response.fail(new OgcException(404, "Not Found", "File not found."));
-          } else if (res.statusCode() == 200) {
+          } else if (res.statusCode() == 200 || res.statusCode() == 206
+              || res.statusCode() == 304) {
             response.complete(res);
+          } else if (res.statusCode() == 412) {
+            response.fail(new OgcException(412, "Precondition Failed",
+                "The object has changed."));
+          } else if (res.statusCode() == 416) {
+            response.fail(new OgcException(416, "Range Not Satisfiable",
+                "The requested range is not satisfiable."));
           } else {
             LOGGER.error("Internal Server Error, Something went wrong here. {},{},{},{}",res.statusCode(),httpMethod,url.toString(),res.body().result().toString());
             response.fail(new OgcException(500, "Internal Server Error", "Internal Server Error"));
@@ -81,13 +138,63 @@ public class DataFromS3 {
   public void setSignatureHeader (HttpMethod httpMethod) {
     headers.put("x-amz-content-sha256", AWS4SignerBase.EMPTY_BODY_SHA256);
     AWS4SignerForAuthorizationHeader signer =
-        new AWS4SignerForAuthorizationHeader(url, httpMethod.name(), "s3", S3_REGION);
+        new AWS4SignerForAuthorizationHeader(url, httpMethod.name(), "s3", s3Region);
     String signedAuthorizationHeader = signer.computeSignature(headers, null, // no query parameters
-        AWS4SignerBase.EMPTY_BODY_SHA256, S3_ACCESS_KEY, S3_SECRET_KEY);
+        AWS4SignerBase.EMPTY_BODY_SHA256, s3AccessKey, s3SecretKey);
 
     headers.put("Authorization", signedAuthorizationHeader);
   }
 
+  /**
+   * Forward the range and conditional headers of a client request, i.e. <code>Range</code>,
+   * <code>If-Range</code>, <code>If-None-Match</code> and <code>If-Modified-Since</code>, so that S3
+   * may answer with 206 (Partial Content) or 304 (Not Modified). Must be called before
+   * {@link #setSignatureHeader(HttpMethod)}.
+   *
+   * @param requestHeaders headers of the client request
+   */
+  public void forwardRequestHeaders(MultiMap requestHeaders) {
+    FORWARDED_REQUEST_HEADERS.forEach(name -> {
+      String value = requestHeaders.get(name);
+      if (value != null) {
+        headers.put(name, value);
+      }
+    });
+  }
+
+  /**
+   * Relay the status and the <code>ETag</code>, <code>Last-Modified</code>,
+   * <code>Accept-Ranges</code>, <code>Content-Range</code> and <code>Content-Length</code> headers of
+   * an S3 response to the client. The client response is chunked if S3 sent content without its
+   * length.
+   *
+   * @param s3Response the response of S3
+   * @param response the response to the client
+   */
+  public static void relayResponse(HttpClientResponse s3Response, HttpServerResponse response) {
+    response.setStatusCode(s3Response.statusCode());
+    RELAYED_RESPONSE_HEADERS.forEach(name -> {
+      String value = s3Response.getHeader(name);
+      if (value != null) {
+        response.putHeader(name, value);
+      }
+    });
+    if (s3Response.statusCode() != 304) {
+      response.setChunked(s3Response.getHeader("Content-Length") == null);
+    }
+  }
+
+  /**
+   * Request only a range of bytes of the object. Must be called before
+   * {@link #setSignatureHeader(HttpMethod)}.
+   *
+   * @param offset offset of the first byte
+   * @param length number of bytes
+   */
+  public void setRange(long offset, long length) {
+    headers.put("Range", "bytes=" + offset + "-" + (offset + length - 1));
+  }
+
   public void setUrlFromString(String strUrl) throws OgcException {
     try {
       this.url = new URL(strUrl);
@@ -0,0 +1,91 @@
+package ogc.rs.common;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.vertx.micrometer.backends.BackendRegistries;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Micrometer metrics of requests to S3, per bucket, recorded on the registry set up by the
+ * Deployer. Nothing is recorded if metrics are not enabled.
+ * <ul>
+ * <li><code>ogc.s3.pool.wait</code> - time from making a request to getting a connection for it
+ * from the pool, including connecting if a new connection is needed</li>
+ * <li><code>ogc.s3.requests.active</code> - requests waiting for or holding a connection</li>
+ * <li><code>ogc.s3.request.latency</code> - time from sending a request to the response headers,
+ * tagged with the method and status code</li>
+ * </ul>
+ */
+public final class S3ClientMetrics {
+
+  private static final String POOL_WAIT = "ogc.s3.pool.wait";
+  private static final String ACTIVE_REQUESTS = "ogc.s3.requests.active";
+  private static final String REQUEST_LATENCY = "ogc.s3.request.latency";
+  private static final String BUCKET_TAG = "bucket";
+
+  private static final Map<String, AtomicInteger> activeRequests = new ConcurrentHashMap<>();
+
+  private S3ClientMetrics() {}
+
+  /**
+   * Record the start of a request.
+   *
+   * @param bucket the bucket the request is to
+   * @return start time of the request to pass to the other methods
+   */
+  public static long requestStarted(String bucket) {
+    MeterRegistry registry = BackendRegistries.getDefaultNow();
+    if (registry != null) {
+      activeRequests.computeIfAbsent(bucket,
+          key -> registry.gauge(ACTIVE_REQUESTS, Tags.of(BUCKET_TAG, key), new AtomicInteger()))
+          .incrementAndGet();
+    }
+    return System.nanoTime();
+  }
+
+  /**
+   * Record that a connection was got for a request.
+   *
+   * @param bucket the bucket the request is to
+   * @param startNanos start time from {@link #requestStarted(String)}
+   * @return time the request is sent, to pass to {@link #requestEnded(String, long, String, int)}
+   */
+  public static long connectionAcquired(String bucket, long startNanos) {
+    long now = System.nanoTime();
+    MeterRegistry registry = BackendRegistries.getDefaultNow();
+    if (registry != null) {
+      Timer.builder(POOL_WAIT).tags(BUCKET_TAG, bucket).register(registry)
+          .record(now - startNanos, TimeUnit.NANOSECONDS);
+    }
+    return now;
+  }
+
+  /**
+   * Record the end of a request, i.e. the response headers or a failure.
+   *
+   * @param bucket the bucket the request is to
+   * @param sentNanos time the request was sent, from {@link #connectionAcquired(String, long)}, or
+   *        0 if no connection was got
+   * @param method the request method
+   * @param statusCode status code of the response, 0 if the request failed
+   */
+  public static void requestEnded(String bucket, long sentNanos, String method, int statusCode) {
+    MeterRegistry registry = BackendRegistries.getDefaultNow();
+    if (registry == null) {
+      return;
+    }
+    AtomicInteger active = activeRequests.get(bucket);
+    if (active != null) {
+      active.decrementAndGet();
+    }
+    if (sentNanos != 0) {
+      Timer.builder(REQUEST_LATENCY)
+          .tags(BUCKET_TAG, bucket, "method", method, "code", Integer.toString(statusCode))
+          .register(registry).record(System.nanoTime() - sentNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+}
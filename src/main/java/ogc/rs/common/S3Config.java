@@ -26,6 +26,8 @@ public class S3Config {
   private S3BucketReadAccess readAccess;
 
   private Boolean pathBasedAccess;
+
+  private Boolean redirectDownloads;
   
   /**
    * Returns the configured bucket name.
@@ -95,6 +97,25 @@ public class S3Config {
     return endpoint.startsWith("https://");
   }
 
+  /**
+   * Returns whether downloads of assets and coverages from the bucket are redirected to a
+   * short-lived pre-signed URL of the object, instead of the server proxying the object. Optional,
+   * not redirected by default.
+   * 
+   * @return if downloads are redirected to pre-signed URLs
+   */
+  public Boolean isRedirectDownloads() {
+    return Boolean.TRUE.equals(redirectDownloads);
+  }
+
+  public Boolean getRedirectDownloads() {
+    return redirectDownloads;
+  }
+
+  public void setRedirectDownloads(Boolean redirectDownloads) {
+    this.redirectDownloads = redirectDownloads;
+  }
+
   public Boolean getPathBasedAccess() {
     return pathBasedAccess;
   }
@@ -4,10 +4,17 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import io.vertx.codegen.annotations.DataObject;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.http.PoolOptions;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 
@@ -28,6 +35,13 @@ public class S3ConfigsHolder {
   private static final String SECRET_KEY_CONF_OP = "secretKey";
   private static final String READ_ACCESS_CONF_OP = "readAccess";
   private static final String PATH_BASED_ACC_CONF_OP = "pathBasedAccess";
+  private static final String REDIRECT_DOWNLOADS_CONF_OP = "redirectDownloads";
+  private static final String HTTP_CLIENT_CONF_OP = "httpClient";
+
+  private static final int DEFAULT_MAX_POOL_SIZE = 32;
+  private static final int DEFAULT_KEEP_ALIVE_TIMEOUT_SEC = 60;
+  private static final int DEFAULT_CONNECT_TIMEOUT_MS = 5000;
+  private static final int DEFAULT_IDLE_TIMEOUT_SEC = 60;
 
   private JsonObject configs;
   /**
@@ -35,6 +49,11 @@ public class S3ConfigsHolder {
    */
   private JsonArray identifierAndReadAccess;
 
+  /**
+   * HTTP clients for requests to the buckets, by bucket identifier.
+   */
+  private final Map<String, HttpClient> httpClients = new ConcurrentHashMap<>();
+
   /**
    * Form {@link S3ConfigsHolder} object from JSON object. Each key in the object would represent a
    * different bucket. If forming it from server config, use
@@ -107,6 +126,62 @@ public class S3ConfigsHolder {
     return Optional.empty();
   }
 
+  /**
+   * Get the HTTP client for requests to an S3 bucket, creating it the first time. The client keeps
+   * a pool of keep-alive connections to the bucket endpoint, shared by all verticles, and is tuned
+   * with the optional <code>httpClient</code> block of the bucket config:
+   * <ul>
+   * <li><code>maxPoolSize</code> - maximum number of HTTP/1.x connections, default
+   * {@value #DEFAULT_MAX_POOL_SIZE}</li>
+   * <li><code>maxWaitQueueSize</code> - maximum number of requests waiting for a connection,
+   * unbounded by default</li>
+   * <li><code>keepAliveTimeoutSec</code> - how long an unused connection is kept, default
+   * {@value #DEFAULT_KEEP_ALIVE_TIMEOUT_SEC}</li>
+   * <li><code>pipelining</code> - whether to pipeline HTTP/1.1 requests, default false</li>
+   * <li><code>http2</code> - whether to use HTTP/2, default false</li>
+   * <li><code>connectTimeoutMs</code> - connect timeout, default
+   * {@value #DEFAULT_CONNECT_TIMEOUT_MS}</li>
+   * <li><code>idleTimeoutSec</code> - how long a connection may be idle while in use, default
+   * {@value #DEFAULT_IDLE_TIMEOUT_SEC}</li>
+   * </ul>
+   *
+   * @param vertx the Vert.x instance
+   * @param identifier the bucket identifier
+   * @return the HTTP client
+   * @throws IllegalArgumentException if there is no config for the identifier
+   */
+  public HttpClient getHttpClient(Vertx vertx, String identifier) throws IllegalArgumentException {
+    if (!configs.containsKey(identifier)) {
+      throw new IllegalArgumentException("No S3 config for identifier '" + identifier + "'");
+    }
+
+    return httpClients.computeIfAbsent(identifier, id -> {
+      JsonObject conf = configs.getJsonObject(id).getJsonObject(HTTP_CLIENT_CONF_OP, new JsonObject());
+      boolean http2 = conf.getBoolean("http2", false);
+
+      HttpClientOptions options = new HttpClientOptions()
+          .setShared(true)
+          .setName("s3-" + id)
+          .setMetricsName("s3-" + id)
+          .setKeepAlive(true)
+          .setKeepAliveTimeout(conf.getInteger("keepAliveTimeoutSec", DEFAULT_KEEP_ALIVE_TIMEOUT_SEC))
+          .setHttp2KeepAliveTimeout(conf.getInteger("keepAliveTimeoutSec", DEFAULT_KEEP_ALIVE_TIMEOUT_SEC))
+          .setPipelining(conf.getBoolean("pipelining", false))
+          .setConnectTimeout(conf.getInteger("connectTimeoutMs", DEFAULT_CONNECT_TIMEOUT_MS))
+          .setIdleTimeout(conf.getInteger("idleTimeoutSec", DEFAULT_IDLE_TIMEOUT_SEC));
+      if (http2) {
+        options.setProtocolVersion(HttpVersion.HTTP_2)
+            .setUseAlpn(new S3Config(configs.getJsonObject(id)).isHttps())
+            .setHttp2ClearTextUpgrade(false);
+      }
+
+      PoolOptions poolOptions = new PoolOptions()
+          .setHttp1MaxSize(conf.getInteger("maxPoolSize", DEFAULT_MAX_POOL_SIZE))
+          .setMaxWaitQueueSize(conf.getInteger("maxWaitQueueSize", -1));
+      return vertx.createHttpClient(options, poolOptions);
+    });
+  }
+
   /**
    * Validate an S3 config JSON to make sure all required fields are present.
    * 
@@ -141,6 +216,18 @@ public class S3ConfigsHolder {
           + identifier + "' : " + PATH_BASED_ACC_CONF_OP + " is not a boolean");
     }
 
+    if (obj.containsKey(HTTP_CLIENT_CONF_OP)
+        && !(obj.getValue(HTTP_CLIENT_CONF_OP) instanceof JsonObject)) {
+      throw new IllegalArgumentException("Failed to initialize S3 config for identifier '"
+          + identifier + "' : " + HTTP_CLIENT_CONF_OP + " is not a JSON object");
+    }
+
+    if (obj.containsKey(REDIRECT_DOWNLOADS_CONF_OP)
+        && !(obj.getValue(REDIRECT_DOWNLOADS_CONF_OP) instanceof Boolean)) {
+      throw new IllegalArgumentException("Failed to initialize S3 config for identifier '"
+          + identifier + "' : " + REDIRECT_DOWNLOADS_CONF_OP + " is not a boolean");
+    }
+
     try {
       S3BucketReadAccess.valueOf(obj.getString(READ_ACCESS_CONF_OP));
     } catch (IllegalArgumentException e) {
@@ -0,0 +1,82 @@
+package ogc.rs.common;
+
+import java.net.URI;
+import java.time.Duration;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
+
+/**
+ * Generates pre-signed URLs for objects in an S3 bucket. Pre-signing needs no request to S3, and
+ * an instance can be kept and used by several threads to generate any number of URLs.
+ */
+public class S3PreSigner implements AutoCloseable {
+
+  private final S3Presigner preSigner;
+  private final String bucket;
+
+  /**
+   * Create an {@link S3PreSigner} for a bucket.
+   *
+   * @param s3conf the config of the bucket
+   */
+  public S3PreSigner(S3Config s3conf) {
+    AwsBasicCredentials awsCredentials =
+        AwsBasicCredentials.create(s3conf.getAccessKey(), s3conf.getSecretKey());
+
+    this.bucket = s3conf.getBucket();
+    this.preSigner = S3Presigner.builder()
+        .region(Region.of(s3conf.getRegion()))
+        .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
+        .endpointOverride(URI.create(s3conf.getEndpoint()))
+        .serviceConfiguration(S3Configuration.builder()
+            .pathStyleAccessEnabled(s3conf.isPathBasedAccess())
+            .build())
+        .build();
+  }
+
+  /**
+   * Generate a pre-signed URL to upload an object.
+   *
+   * @param objectKey key of the object in the bucket
+   * @param expiry how long the URL is valid for
+   * @return the URL
+   */
+  public String preSignPut(String objectKey, Duration expiry) {
+    PutObjectRequest objectRequest =
+        PutObjectRequest.builder().bucket(bucket).key(objectKey).build();
+    PutObjectPresignRequest preSignRequest = PutObjectPresignRequest.builder()
+        .signatureDuration(expiry)
+        .putObjectRequest(objectRequest)
+        .build();
+    return preSigner.presignPutObject(preSignRequest).url().toString();
+  }
+
+  /**
+   * Generate a pre-signed URL to download an object.
+   *
+   * @param objectKey key of the object in the bucket
+   * @param expiry how long the URL is valid for
+   * @return the URL
+   */
+  public String preSignGet(String objectKey, Duration expiry) {
+    GetObjectRequest objectRequest =
+        GetObjectRequest.builder().bucket(bucket).key(objectKey).build();
+    GetObjectPresignRequest preSignRequest = GetObjectPresignRequest.builder()
+        .signatureDuration(expiry)
+        .getObjectRequest(objectRequest)
+        .build();
+    return preSigner.presignGetObject(preSignRequest).url().toString();
+  }
+
+  @Override
+  public void close() {
+    preSigner.close();
+  }
+}
@@ -0,0 +1,297 @@
+package ogc.rs.common;
+
+import io.vertx.core.buffer.Buffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Exact index of the tiles that exist in a tileset stored as one object per tile in S3, built when
+ * the tileset is onboarded. Requests for tiles that are not in the index, but within the area it
+ * covers, are answered without going to S3, which matters for sparse tilesets where most tiles of
+ * a zoom level do not exist. Tiles added to the tileset later, at other zoom levels or outside
+ * that area, are still looked up in S3, see {@link #covers(int, long, long)}.
+ *
+ * <p>
+ * Per tile matrix (zoom level), the tiles are held as runs of consecutive columns in a row, sorted
+ * by row and column, so a lookup is a binary search and dense areas take little space. The
+ * serialized form, see {@link #toBuffer()}, stores the runs as unsigned LEB128 varints: the gap
+ * from the end of the previous run and the length of the run.
+ */
+public final class TileExistenceIndex {
+
+  private static final byte FORMAT_VERSION = 1;
+  private static final long MAX_INDEX = 1L << 31;
+
+  /** Per tile matrix, the positions of the first tiles of the runs, in increasing order. */
+  private final Map<Integer, long[]> runStarts;
+  /** Per tile matrix, the number of tiles in each run. */
+  private final Map<Integer, long[]> runLengths;
+
+  /** Per tile matrix, the minimum and maximum column and row of its tiles. */
+  private final Map<Integer, long[]> bounds = new TreeMap<>();
+
+  private TileExistenceIndex(Map<Integer, long[]> runStarts, Map<Integer, long[]> runLengths) {
+    this.runStarts = runStarts;
+    this.runLengths = runLengths;
+    runStarts.forEach((tileMatrix, starts) -> {
+      if (starts.length == 0) {
+        return;
+      }
+      long[] lengths = runLengths.get(tileMatrix);
+      long minCol = Long.MAX_VALUE;
+      long maxCol = -1;
+      for (int i = 0; i < starts.length; i++) {
+        minCol = Math.min(minCol, col(starts[i]));
+        // runs do not span rows
+        maxCol = Math.max(maxCol, col(starts[i]) + lengths[i] - 1);
+      }
+      bounds.put(tileMatrix,
+          new long[] {minCol, maxCol, row(starts[0]), row(starts[starts.length - 1])});
+    });
+  }
+
+  /**
+   * Check if a tile exists.
+   *
+   * @param tileMatrix the tile matrix (zoom level)
+   * @param tileCol the tile column
+   * @param tileRow the tile row
+   * @return <code>true</code> if the tileset has the tile
+   */
+  public boolean contains(int tileMatrix, long tileCol, long tileRow) {
+    long[] starts = runStarts.get(tileMatrix);
+    if (starts == null || tileCol < 0 || tileRow < 0 || tileCol >= MAX_INDEX
+        || tileRow >= MAX_INDEX) {
+      return false;
+    }
+    long position = position(tileCol, tileRow);
+    int i = Arrays.binarySearch(starts, position);
+    if (i >= 0) {
+      return true;
+    }
+    // the run starting before the position, if any
+    int run = -i - 2;
+    return run >= 0 && position < starts[run] + runLengths.get(tileMatrix)[run];
+  }
+
+  /**
+   * Check if a tile is within the area covered by the index, i.e. the tile matrix has tiles in the
+   * index and the tile is within the columns and rows they span. A tile that is covered and not
+   * {@link #contains(int, long, long) contained} does not exist, others may have been added to the
+   * tileset after the index was built.
+   *
+   * @param tileMatrix the tile matrix (zoom level)
+   * @param tileCol the tile column
+   * @param tileRow the tile row
+   * @return <code>true</code> if the index covers the tile
+   */
+  public boolean covers(int tileMatrix, long tileCol, long tileRow) {
+    long[] bbox = bounds.get(tileMatrix);
+    return bbox != null && tileCol >= bbox[0] && tileCol <= bbox[1] && tileRow >= bbox[2]
+        && tileRow <= bbox[3];
+  }
+
+  /**
+   * @return the highest tile matrix (zoom level) with tiles, -1 if the index is empty
+   */
+  public int getMaxTileMatrix() {
+    return runStarts.isEmpty() ? -1 : Collections.max(runStarts.keySet());
+  }
+
+  /**
+   * @return number of tiles in the index
+   */
+  public long size() {
+    return runLengths.values().stream().flatMapToLong(Arrays::stream).sum();
+  }
+
+  /**
+   * Serialize the index, to be read by {@link #fromBuffer(Buffer)}.
+   *
+   * @return the serialized index
+   */
+  public Buffer toBuffer() {
+    Buffer buf = Buffer.buffer().appendByte(FORMAT_VERSION);
+    writeVarint(buf, runStarts.size());
+    runStarts.forEach((tileMatrix, starts) -> {
+      long[] lengths = runLengths.get(tileMatrix);
+      writeVarint(buf, tileMatrix);
+      writeVarint(buf, starts.length);
+      long end = 0;
+      for (int i = 0; i < starts.length; i++) {
+        writeVarint(buf, starts[i] - end);
+        writeVarint(buf, lengths[i]);
+        end = starts[i] + lengths[i];
+      }
+    });
+    return buf;
+  }
+
+  /**
+   * Read an index serialized by {@link #toBuffer()}.
+   *
+   * @param buf the serialized index
+   * @return the index
+   * @throws IllegalArgumentException if the buffer is not a serialized index
+   */
+  public static TileExistenceIndex fromBuffer(Buffer buf) {
+    try {
+      if (buf.getByte(0) != FORMAT_VERSION) {
+        throw new IllegalArgumentException("Unknown tile index format " + buf.getByte(0));
+      }
+      int[] pos = {1};
+      Map<Integer, long[]> runStarts = new TreeMap<>();
+      Map<Integer, long[]> runLengths = new TreeMap<>();
+      long tileMatrices = readVarint(buf, pos);
+      for (long m = 0; m < tileMatrices; m++) {
+        int tileMatrix = (int) readVarint(buf, pos);
+        int runs = (int) readVarint(buf, pos);
+        long[] starts = new long[runs];
+        long[] lengths = new long[runs];
+        long end = 0;
+        for (int i = 0; i < runs; i++) {
+          starts[i] = end + readVarint(buf, pos);
+          lengths[i] = readVarint(buf, pos);
+          end = starts[i] + lengths[i];
+        }
+        runStarts.put(tileMatrix, starts);
+        runLengths.put(tileMatrix, lengths);
+      }
+      return new TileExistenceIndex(runStarts, runLengths);
+    } catch (IndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("Truncated tile index", e);
+    }
+  }
+
+  /**
+   * @return a builder of an index
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private static long position(long tileCol, long tileRow) {
+    return tileRow << 32 | tileCol;
+  }
+
+  private static long col(long position) {
+    return position & 0xffffffffL;
+  }
+
+  private static long row(long position) {
+    return position >>> 32;
+  }
+
+  private static void writeVarint(Buffer buf, long value) {
+    while ((value & ~0x7fL) != 0) {
+      buf.appendByte((byte) (value & 0x7f | 0x80));
+      value >>>= 7;
+    }
+    buf.appendByte((byte) value);
+  }
+
+  private static long readVarint(Buffer buf, int[] pos) {
+    long value = 0;
+    for (int shift = 0; ; shift += 7) {
+      byte b = buf.getByte(pos[0]++);
+      value |= (long) (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+  }
+
+  /**
+   * Builds a {@link TileExistenceIndex} from tiles added in any order.
+   */
+  public static final class Builder {
+
+    private final Map<Integer, long[]> positions = new TreeMap<>();
+    private final Map<Integer, Integer> counts = new TreeMap<>();
+
+    private Builder() {}
+
+    /**
+     * Add a tile.
+     *
+     * @param tileMatrix the tile matrix (zoom level)
+     * @param tileCol the tile column
+     * @param tileRow the tile row
+     * @return this builder
+     * @throws IllegalArgumentException if the column or row is negative or too large
+     */
+    public Builder add(int tileMatrix, long tileCol, long tileRow) {
+      if (tileCol < 0 || tileRow < 0 || tileCol >= MAX_INDEX || tileRow >= MAX_INDEX) {
+        throw new IllegalArgumentException(
+            "Invalid tile " + tileMatrix + "/" + tileCol + "/" + tileRow);
+      }
+      int count = counts.getOrDefault(tileMatrix, 0);
+      long[] tiles = positions.computeIfAbsent(tileMatrix, m -> new long[16]);
+      if (count == tiles.length) {
+        tiles = Arrays.copyOf(tiles, count * 2);
+        positions.put(tileMatrix, tiles);
+      }
+      tiles[count] = position(tileCol, tileRow);
+      counts.put(tileMatrix, count + 1);
+      return this;
+    }
+
+    /**
+     * Add the tile of an S3 object, given the key of the object relative to the tileset, i.e.
+     * <code>{tileMatrix}/{tileCol}/{tileRow}.{extension}</code>, the layout of tilesets in S3.
+     * Keys of other objects, e.g. metadata files, are ignored.
+     *
+     * @param relativeKey the object key without the prefix of the tileset
+     * @return <code>true</code> if the key is of a tile
+     */
+    public boolean addObjectKey(String relativeKey) {
+      String[] parts = relativeKey.split("/");
+      if (parts.length != 3) {
+        return false;
+      }
+      String rowPart = parts[2];
+      int dot = rowPart.indexOf('.');
+      try {
+        int tileMatrix = Integer.parseInt(parts[0]);
+        long tileCol = Long.parseLong(parts[1]);
+        long tileRow = Long.parseLong(dot < 0 ? rowPart : rowPart.substring(0, dot));
+        add(tileMatrix, tileCol, tileRow);
+        return true;
+      } catch (IllegalArgumentException e) {
+        return false;
+      }
+    }
+
+    /**
+     * @return the index of the tiles added
+     */
+    public TileExistenceIndex build() {
+      Map<Integer, long[]> runStarts = new TreeMap<>();
+      Map<Integer, long[]> runLengths = new TreeMap<>();
+      positions.forEach((tileMatrix, tiles) -> {
+        long[] sorted = Arrays.copyOf(tiles, counts.get(tileMatrix));
+        Arrays.sort(sorted);
+
+        long[] starts = new long[sorted.length];
+        long[] lengths = new long[sorted.length];
+        int runs = 0;
+        for (long position : sorted) {
+          if (runs > 0 && position < starts[runs - 1] + lengths[runs - 1]) {
+            continue; // duplicate
+          }
+          if (runs > 0 && position == starts[runs - 1] + lengths[runs - 1]) {
+            lengths[runs - 1]++;
+          } else {
+            starts[runs] = position;
+            lengths[runs++] = 1;
+          }
+        }
+        runStarts.put(tileMatrix, Arrays.copyOf(starts, runs));
+        runLengths.put(tileMatrix, Arrays.copyOf(lengths, runs));
+      });
+      return new TileExistenceIndex(runStarts, runLengths);
+    }
+  }
+}
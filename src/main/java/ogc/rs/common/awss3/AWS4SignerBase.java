@@ -3,16 +3,24 @@ package ogc.rs.common.awss3;
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
-import java.text.SimpleDateFormat;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  *
  * <b>CODE COPIED FROM <a href=
  * "https://docs.aws.amazon.com/AmazonS3/latest/API/sig-v4-examples-using-sdks.html#sig-v4-examples-using-sdk-java">https://docs.aws.amazon.com/AmazonS3/latest/API/sig-v4-examples-using-sdks.html#sig-v4-examples-using-sdk-java</a></b>.</br>
  * </br>
- * Common methods and properties for all AWS4 signer variants.
+ * Common methods and properties for all AWS4 signer variants.</br>
+ * </br>
+ * Changed from the original to derive the signing key once per secret key, region, service and
+ * day, to reuse {@link Mac} and {@link MessageDigest} instances per thread, and to canonicalize
+ * headers without regular expressions.
  */
 public abstract class AWS4SignerBase {
 
@@ -29,14 +37,26 @@ public abstract class AWS4SignerBase {
   public static final String ISO8601BasicFormat = "yyyyMMdd'T'HHmmss'Z'";
   public static final String DateStringFormat = "yyyyMMdd";
 
+  public static final String HMAC_SHA256 = "HmacSHA256";
+
+  protected static final DateTimeFormatter dateTimeFormat =
+      DateTimeFormatter.ofPattern(ISO8601BasicFormat).withZone(ZoneOffset.UTC);
+  protected static final DateTimeFormatter dateStampFormat =
+      DateTimeFormatter.ofPattern(DateStringFormat).withZone(ZoneOffset.UTC);
+
+  private static final ThreadLocal<Mac> HMAC_SHA256_MAC =
+      ThreadLocal.withInitial(() -> newInstance(() -> Mac.getInstance(HMAC_SHA256)));
+  private static final ThreadLocal<MessageDigest> SHA256_DIGEST =
+      ThreadLocal.withInitial(() -> newInstance(() -> MessageDigest.getInstance("SHA-256")));
+
+  /** Signing keys by secret key, region and service, along with the day they are for. */
+  private static final Map<String, SigningKey> signingKeys = new ConcurrentHashMap<>();
+
   protected URL endpointUrl;
   protected String httpMethod;
   protected String serviceName;
   protected String regionName;
 
-  protected final SimpleDateFormat dateTimeFormat;
-  protected final SimpleDateFormat dateStampFormat;
-
   /**
    * Create a new AWS V4 signer.
    *
@@ -51,11 +71,16 @@ public abstract class AWS4SignerBase {
     this.httpMethod = httpMethod;
     this.serviceName = serviceName;
     this.regionName = regionName;
+  }
 
-    dateTimeFormat = new SimpleDateFormat(ISO8601BasicFormat);
-    dateTimeFormat.setTimeZone(new SimpleTimeZone(0, "UTC"));
-    dateStampFormat = new SimpleDateFormat(DateStringFormat);
-    dateStampFormat.setTimeZone(new SimpleTimeZone(0, "UTC"));
+  /**
+   * Returns the header names sorted in case-insensitive order, the order in which they go into the
+   * signature.
+   */
+  protected static List<String> getSortedHeaderNames(Map<String, String> headers) {
+    List<String> sortedHeaders = new ArrayList<String>(headers.keySet());
+    sortedHeaders.sort(String.CASE_INSENSITIVE_ORDER);
+    return sortedHeaders;
   }
 
   /**
@@ -63,15 +88,15 @@ public abstract class AWS4SignerBase {
    * AWS4, all header names must be included in the process in sorted canonicalized order.
    */
   protected static String getCanonicalizeHeaderNames(Map<String, String> headers) {
-    List<String> sortedHeaders = new ArrayList<String>();
-    sortedHeaders.addAll(headers.keySet());
-    Collections.sort(sortedHeaders, String.CASE_INSENSITIVE_ORDER);
+    return getCanonicalizeHeaderNames(getSortedHeaderNames(headers));
+  }
 
+  protected static String getCanonicalizeHeaderNames(List<String> sortedHeaders) {
     StringBuilder buffer = new StringBuilder();
     for (String header : sortedHeaders) {
       if (buffer.length() > 0)
         buffer.append(";");
-      buffer.append(header.toLowerCase());
+      buffer.append(header.toLowerCase(Locale.ROOT));
     }
 
     return buffer.toString();
@@ -85,25 +110,43 @@ public abstract class AWS4SignerBase {
     if (headers == null || headers.isEmpty()) {
       return "";
     }
+    return getCanonicalizedHeaderString(headers, getSortedHeaderNames(headers));
+  }
 
-    // step1: sort the headers by case-insensitive order
-    List<String> sortedHeaders = new ArrayList<String>();
-    sortedHeaders.addAll(headers.keySet());
-    Collections.sort(sortedHeaders, String.CASE_INSENSITIVE_ORDER);
-
-    // step2: form the canonical header:value entries in sorted order.
+  protected static String getCanonicalizedHeaderString(Map<String, String> headers,
+                                                       List<String> sortedHeaders) {
+    // form the canonical header:value entries in sorted order.
     // Multiple white spaces in the values should be compressed to a single
     // space.
     StringBuilder buffer = new StringBuilder();
     for (String key : sortedHeaders) {
-      buffer.append(key.toLowerCase().replaceAll("\\s+", " ") + ":"
-          + headers.get(key).replaceAll("\\s+", " "));
-      buffer.append("\n");
+      appendCompressingWhitespace(buffer, key.toLowerCase(Locale.ROOT));
+      buffer.append(':');
+      appendCompressingWhitespace(buffer, headers.get(key));
+      buffer.append('\n');
     }
 
     return buffer.toString();
   }
 
+  /**
+   * Appends the string replacing each run of white space with a single space, the same as
+   * <code>replaceAll("\\s+", " ")</code>.
+   */
+  private static void appendCompressingWhitespace(StringBuilder buffer, String value) {
+    boolean inWhitespace = false;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      boolean whitespace = c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+      if (!whitespace) {
+        buffer.append(c);
+      } else if (!inWhitespace) {
+        buffer.append(' ');
+      }
+      inWhitespace = whitespace;
+    }
+  }
+
   /**
    * Returns the canonical request string to go into the signer process; this consists of several
    * canonical sub-parts.
@@ -187,42 +230,78 @@ public abstract class AWS4SignerBase {
     return stringToSign;
   }
 
+  /**
+   * Returns the signing key for a day, derived from the secret key with four chained HMACs. The key
+   * only changes with the day, so it is derived once and kept for the rest of the day.
+   *
+   * @param awsSecretKey The user's AWS Secret Key.
+   * @param dateStamp The day, in {@value #DateStringFormat} format.
+   * @param regionName The system name of the AWS region.
+   * @param serviceName The signing name of the service.
+   */
+  public static byte[] getSigningKey(String awsSecretKey, String dateStamp, String regionName,
+                                     String serviceName) {
+    String cacheKey = regionName + "/" + serviceName + "/" + awsSecretKey;
+    SigningKey cached = signingKeys.get(cacheKey);
+    if (cached != null && cached.dateStamp.equals(dateStamp)) {
+      return cached.key;
+    }
+
+    byte[] kSecret = (SCHEME + awsSecretKey).getBytes(StandardCharsets.UTF_8);
+    byte[] kDate = sign(dateStamp, kSecret, HMAC_SHA256);
+    byte[] kRegion = sign(regionName, kDate, HMAC_SHA256);
+    byte[] kService = sign(serviceName, kRegion, HMAC_SHA256);
+    byte[] kSigning = sign(TERMINATOR, kService, HMAC_SHA256);
+    signingKeys.put(cacheKey, new SigningKey(dateStamp, kSigning));
+    return kSigning;
+  }
+
   /**
    * Hashes the string contents (assumed to be UTF-8) using the SHA-256 algorithm.
    */
   public static byte[] hash(String text) {
-    try {
-      MessageDigest md = MessageDigest.getInstance("SHA-256");
-      md.update(text.getBytes("UTF-8"));
-      return md.digest();
-    } catch (Exception e) {
-      throw new RuntimeException("Unable to compute hash while signing request: " + e.getMessage(),
-          e);
-    }
+    return hash(text.getBytes(StandardCharsets.UTF_8));
   }
 
   /**
    * Hashes the byte array using the SHA-256 algorithm.
    */
   public static byte[] hash(byte[] data) {
-    try {
-      MessageDigest md = MessageDigest.getInstance("SHA-256");
-      md.update(data);
-      return md.digest();
-    } catch (Exception e) {
-      throw new RuntimeException("Unable to compute hash while signing request: " + e.getMessage(),
-          e);
-    }
+    MessageDigest md = SHA256_DIGEST.get();
+    md.reset();
+    return md.digest(data);
   }
 
   protected static byte[] sign(String stringData, byte[] key, String algorithm) {
     try {
-      byte[] data = stringData.getBytes("UTF-8");
-      Mac mac = Mac.getInstance(algorithm);
+      byte[] data = stringData.getBytes(StandardCharsets.UTF_8);
+      Mac mac = HMAC_SHA256.equals(algorithm) ? HMAC_SHA256_MAC.get() : Mac.getInstance(algorithm);
       mac.init(new SecretKeySpec(key, algorithm));
       return mac.doFinal(data);
     } catch (Exception e) {
       throw new RuntimeException("Unable to calculate a request signature: " + e.getMessage(), e);
     }
   }
+
+  private interface Factory<T> {
+    T create() throws GeneralSecurityException;
+  }
+
+  private static <T> T newInstance(Factory<T> factory) {
+    try {
+      return factory.create();
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Unable to sign requests: " + e.getMessage(), e);
+    }
+  }
+
+  private static final class SigningKey {
+    private final String dateStamp;
+    private final byte[] key;
+
+    private SigningKey(String dateStamp, byte[] key) {
+      this.dateStamp = dateStamp;
+      this.key = key;
+    }
+  }
 }
@@ -2,7 +2,8 @@ package ogc.rs.common.awss3;
 
 
 import java.net.URL;
-import java.util.Date;
+import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -34,9 +35,18 @@ public class AWS4SignerForAuthorizationHeader extends AWS4SignerBase {
    */
   public String computeSignature(Map<String, String> headers, Map<String, String> queryParameters,
                                  String bodyHash, String awsAccessKey, String awsSecretKey) {
+    return computeSignature(headers, queryParameters, bodyHash, awsAccessKey, awsSecretKey,
+        Instant.now());
+  }
+
+  /**
+   * Computes an AWS4 signature for a request made at the given time, see
+   * {@link #computeSignature(Map, Map, String, String, String)}.
+   */
+  String computeSignature(Map<String, String> headers, Map<String, String> queryParameters,
+                          String bodyHash, String awsAccessKey, String awsSecretKey, Instant now) {
     // first get the date and time for the subsequent request, and convert
     // to ISO 8601 format for use in signature generation
-    Date now = new Date();
     String dateTimeStamp = dateTimeFormat.format(now);
 
     // update the headers with required 'x-amz-date' and 'host' values
@@ -51,8 +61,9 @@ public class AWS4SignerForAuthorizationHeader extends AWS4SignerBase {
 
     // canonicalize the headers; we need the set of header names as well as the
     // names and values to go into the signature process
-    String canonicalizedHeaderNames = getCanonicalizeHeaderNames(headers);
-    String canonicalizedHeaders = getCanonicalizedHeaderString(headers);
+    List<String> sortedHeaders = getSortedHeaderNames(headers);
+    String canonicalizedHeaderNames = getCanonicalizeHeaderNames(sortedHeaders);
+    String canonicalizedHeaders = getCanonicalizedHeaderString(headers, sortedHeaders);
 
     // if any query string parameters have been supplied, canonicalize them
     String canonicalizedQueryParameters = getCanonicalizedQueryString(queryParameters);
@@ -67,13 +78,9 @@ public class AWS4SignerForAuthorizationHeader extends AWS4SignerBase {
     String stringToSign =
         getStringToSign(SCHEME, ALGORITHM, dateTimeStamp, scope, canonicalRequest);
 
-    // compute the signing key
-    byte[] kSecret = (SCHEME + awsSecretKey).getBytes();
-    byte[] kDate = sign(dateStamp, kSecret, "HmacSHA256");
-    byte[] kRegion = sign(regionName, kDate, "HmacSHA256");
-    byte[] kService = sign(serviceName, kRegion, "HmacSHA256");
-    byte[] kSigning = sign(TERMINATOR, kService, "HmacSHA256");
-    byte[] signature = sign(stringToSign, kSigning, "HmacSHA256");
+    // get the signing key, derived once a day
+    byte[] kSigning = getSigningKey(awsSecretKey, dateStamp, regionName, serviceName);
+    byte[] signature = sign(stringToSign, kSigning, HMAC_SHA256);
 
     String credentialsAuthorizationHeader = "Credential=" + awsAccessKey + "/" + scope;
     String signedHeadersAuthorizationHeader = "SignedHeaders=" + canonicalizedHeaderNames;
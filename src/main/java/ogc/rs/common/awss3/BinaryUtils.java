@@ -1,8 +1,6 @@
 package ogc.rs.common.awss3;
 
 
-import java.util.Locale;
-
 /**
  * <b>CODE COPIED FROM <a href=
  * "https://docs.aws.amazon.com/AmazonS3/latest/API/sig-v4-examples-using-sdks.html#sig-v4-examples-using-sdk-java">https://docs.aws.amazon.com/AmazonS3/latest/API/sig-v4-examples-using-sdks.html#sig-v4-examples-using-sdk-java</a></b>.</br>
@@ -10,6 +8,8 @@ import java.util.Locale;
  * Utilities for encoding and decoding binary data to and from different forms.
  */
 public class BinaryUtils {
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
   /**
    * Converts byte data to a Hex-encoded string.
    *
@@ -18,19 +18,12 @@ public class BinaryUtils {
    * @return hex-encoded string.
    */
   public static String toHex(byte[] data) {
-    StringBuilder sb = new StringBuilder(data.length * 2);
+    char[] hex = new char[data.length * 2];
     for (int i = 0; i < data.length; i++) {
-      String hex = Integer.toHexString(data[i]);
-      if (hex.length() == 1) {
-        // Append leading zero.
-        sb.append("0");
-      } else if (hex.length() == 8) {
-        // Remove ff prefix from negative numbers.
-        hex = hex.substring(6);
-      }
-      sb.append(hex);
+      hex[2 * i] = HEX_DIGITS[(data[i] >> 4) & 0xf];
+      hex[2 * i + 1] = HEX_DIGITS[data[i] & 0xf];
     }
-    return sb.toString().toLowerCase(Locale.getDefault());
+    return new String(hex);
   }
 
   /**
@@ -0,0 +1,182 @@
+package ogc.rs.common.pmtiles;
+
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads tiles from a PMTiles (version 3) archive with byte-range reads, so that a tileset can be
+ * stored as a single object in S3. The header and the root directory are read with one read of the
+ * start of the archive, and are kept in memory along with the most recently used leaf directories.
+ * A tile then takes one read, or more the first time a leaf directory is needed.
+ *
+ * <p>
+ * Only archives with uncompressed or gzip compressed directories and tiles are supported. Tiles
+ * are returned uncompressed.
+ */
+public class PMTilesArchive {
+
+  /** Length of the first read, which holds the header and root directory in a valid archive. */
+  private static final int HEADER_AND_ROOT_DIRECTORY_LENGTH = 16384;
+  /** Maximum depth of leaf directories. */
+  private static final int MAX_DIRECTORY_DEPTH = 3;
+
+  /**
+   * Reads a range of bytes of the archive.
+   */
+  @FunctionalInterface
+  public interface RangeReader {
+    /**
+     * @param offset offset of the first byte
+     * @param length number of bytes, fewer are returned if the archive ends before
+     * @return Future of the bytes
+     */
+    Future<Buffer> read(long offset, long length);
+  }
+
+  private final RangeReader reader;
+  private Future<PMTilesHeader> header;
+  private Future<PMTilesDirectory> rootDirectory;
+  private final Map<Long, Future<PMTilesDirectory>> leafDirectories;
+
+  /**
+   * Create a {@link PMTilesArchive}.
+   *
+   * @param reader reads ranges of the archive
+   * @param maxLeafDirectories number of leaf directories kept in memory
+   */
+  public PMTilesArchive(RangeReader reader, int maxLeafDirectories) {
+    this.reader = reader;
+    this.leafDirectories = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, Future<PMTilesDirectory>> eldest) {
+        return size() > maxLeafDirectories;
+      }
+    };
+  }
+
+  /**
+   * Get the header of the archive, reading it if it has not been read yet.
+   *
+   * @return Future of the header, failed with an {@link IllegalArgumentException} if the archive is
+   *         not a supported PMTiles archive
+   */
+  public synchronized Future<PMTilesHeader> getHeader() {
+    if (header == null) {
+      Future<Buffer> start = reader.read(0, HEADER_AND_ROOT_DIRECTORY_LENGTH);
+      header = start.map(buf -> {
+        PMTilesHeader parsed = PMTilesHeader.parse(buf);
+        if (!isSupportedCompression(parsed.getInternalCompression())
+            || !isSupportedCompression(parsed.getTileCompression())) {
+          throw new IllegalArgumentException(
+              "Only uncompressed or gzip compressed PMTiles archives are supported");
+        }
+        return parsed;
+      });
+      rootDirectory = header.compose(parsed -> {
+        long end = parsed.getRootDirectoryOffset() + parsed.getRootDirectoryLength();
+        Future<Buffer> root = end <= start.result().length()
+            ? Future.succeededFuture(
+                start.result().slice((int) parsed.getRootDirectoryOffset(), (int) end))
+            : reader.read(parsed.getRootDirectoryOffset(), parsed.getRootDirectoryLength());
+        return root.map(buf -> parseDirectory(parsed, buf));
+      });
+      // read again on the next request if the read failed
+      Future<PMTilesHeader> current = header;
+      rootDirectory.onFailure(err -> {
+        synchronized (this) {
+          if (header == current) {
+            header = null;
+          }
+        }
+      });
+    }
+    return header;
+  }
+
+  /**
+   * Get a tile.
+   *
+   * @param z the zoom level
+   * @param x the column, from the left
+   * @param y the row, from the top
+   * @return Future of the uncompressed tile, <code>null</code> if the archive does not have it
+   */
+  public Future<Buffer> getTile(int z, long x, long y) {
+    long tileId;
+    try {
+      tileId = PMTilesDirectory.tileId(z, x, y);
+    } catch (IllegalArgumentException e) {
+      return Future.succeededFuture();
+    }
+
+    Future<PMTilesHeader> parsed;
+    Future<PMTilesDirectory> root;
+    synchronized (this) {
+      parsed = getHeader();
+      root = rootDirectory;
+    }
+    // the root directory is only read once the header is
+    return root.compose(dir -> getTile(parsed.result(), dir, tileId, 0));
+  }
+
+  private Future<Buffer> getTile(PMTilesHeader header, PMTilesDirectory dir, long tileId, int depth) {
+    int entry = dir.find(tileId);
+    if (entry < 0) {
+      return Future.succeededFuture();
+    }
+
+    if (!dir.isLeafDirectory(entry)) {
+      return reader.read(header.getTileDataOffset() + dir.getOffset(entry), dir.getLength(entry))
+          .map(tile -> decompress(header.getTileCompression(), tile));
+    }
+
+    if (depth >= MAX_DIRECTORY_DEPTH) {
+      return Future.failedFuture(new IllegalArgumentException("PMTiles directories are too deep"));
+    }
+    return getLeafDirectory(header, dir.getOffset(entry), dir.getLength(entry))
+        .compose(leaf -> getTile(header, leaf, tileId, depth + 1));
+  }
+
+  private synchronized Future<PMTilesDirectory> getLeafDirectory(PMTilesHeader header, long offset,
+      long length) {
+    Future<PMTilesDirectory> leaf = leafDirectories.get(offset);
+    if (leaf == null) {
+      leaf = reader.read(header.getLeafDirectoriesOffset() + offset, length)
+          .map(buf -> parseDirectory(header, buf));
+      leafDirectories.put(offset, leaf);
+      Future<PMTilesDirectory> current = leaf;
+      leaf.onFailure(err -> {
+        synchronized (this) {
+          leafDirectories.remove(offset, current);
+        }
+      });
+    }
+    return leaf;
+  }
+
+  private static PMTilesDirectory parseDirectory(PMTilesHeader header, Buffer buf) {
+    return PMTilesDirectory.parse(decompress(header.getInternalCompression(), buf));
+  }
+
+  private static boolean isSupportedCompression(int compression) {
+    return compression == PMTilesHeader.COMPRESSION_NONE
+        || compression == PMTilesHeader.COMPRESSION_GZIP;
+  }
+
+  private static Buffer decompress(int compression, Buffer buf) {
+    if (compression != PMTilesHeader.COMPRESSION_GZIP) {
+      return buf;
+    }
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(buf.getBytes()))) {
+      return Buffer.buffer(in.readAllBytes());
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Invalid gzip data in PMTiles archive", e);
+    }
+  }
+}
@@ -0,0 +1,155 @@
+package ogc.rs.common.pmtiles;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * A directory of a PMTiles archive, i.e. a list of entries sorted by tile ID. An entry either
+ * points to the data of a run of tiles with consecutive tile IDs, or, if its run length is 0, to a
+ * leaf directory holding the entries from its tile ID on.
+ */
+public class PMTilesDirectory {
+
+  private final long[] tileIds;
+  private final long[] runLengths;
+  private final long[] offsets;
+  private final long[] lengths;
+
+  private PMTilesDirectory(int size) {
+    tileIds = new long[size];
+    runLengths = new long[size];
+    offsets = new long[size];
+    lengths = new long[size];
+  }
+
+  /**
+   * Parse an uncompressed directory.
+   *
+   * @param buf the directory
+   * @return the directory
+   * @throws IllegalArgumentException if the directory is truncated
+   */
+  public static PMTilesDirectory parse(Buffer buf) {
+    int[] pos = {0};
+    long size = readVarint(buf, pos);
+    if (size > buf.length()) {
+      throw new IllegalArgumentException("Invalid PMTiles directory");
+    }
+
+    PMTilesDirectory dir = new PMTilesDirectory((int) size);
+    long tileId = 0;
+    for (int i = 0; i < size; i++) {
+      tileId += readVarint(buf, pos);
+      dir.tileIds[i] = tileId;
+    }
+    for (int i = 0; i < size; i++) {
+      dir.runLengths[i] = readVarint(buf, pos);
+    }
+    for (int i = 0; i < size; i++) {
+      dir.lengths[i] = readVarint(buf, pos);
+    }
+    for (int i = 0; i < size; i++) {
+      long offset = readVarint(buf, pos);
+      // 0 means the data directly follows that of the previous entry
+      dir.offsets[i] = offset == 0 && i > 0 ? dir.offsets[i - 1] + dir.lengths[i - 1] : offset - 1;
+    }
+    return dir;
+  }
+
+  private static long readVarint(Buffer buf, int[] pos) {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      if (pos[0] >= buf.length()) {
+        throw new IllegalArgumentException("Truncated PMTiles directory");
+      }
+      byte b = buf.getByte(pos[0]++);
+      value |= (long) (b & 0x7f) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Invalid varint in PMTiles directory");
+  }
+
+  /**
+   * Find the entry for a tile.
+   *
+   * @param tileId the tile ID, see {@link #tileId(int, long, long)}
+   * @return index of the entry holding the tile or pointing to the leaf directory that may hold
+   *         it, -1 if the archive does not have the tile
+   */
+  public int find(long tileId) {
+    int low = 0;
+    int high = tileIds.length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (tileIds[mid] < tileId) {
+        low = mid + 1;
+      } else if (tileIds[mid] > tileId) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+
+    // high is now the last entry before the tile
+    if (high >= 0 && (runLengths[high] == 0 || tileId - tileIds[high] < runLengths[high])) {
+      return high;
+    }
+    return -1;
+  }
+
+  /**
+   * @return whether the entry points to a leaf directory instead of tile data
+   */
+  public boolean isLeafDirectory(int entry) {
+    return runLengths[entry] == 0;
+  }
+
+  /**
+   * @return offset of the data of the entry, from the start of the tile data or leaf directories
+   */
+  public long getOffset(int entry) {
+    return offsets[entry];
+  }
+
+  public long getLength(int entry) {
+    return lengths[entry];
+  }
+
+  /**
+   * Tile ID of a tile, its position on a Hilbert curve over all tiles of all zoom levels up to it.
+   *
+   * @param z the zoom level
+   * @param x the column, from the left
+   * @param y the row, from the top
+   * @return the tile ID
+   * @throws IllegalArgumentException if the tile does not exist at the zoom level
+   */
+  public static long tileId(int z, long x, long y) {
+    if (z < 0 || z > 26) {
+      throw new IllegalArgumentException("Zoom level must be between 0 and 26");
+    }
+    long n = 1L << z;
+    if (x < 0 || y < 0 || x >= n || y >= n) {
+      throw new IllegalArgumentException("Tile " + z + "/" + x + "/" + y + " does not exist");
+    }
+
+    // number of tiles in all lower zoom levels
+    long id = ((1L << (2 * z)) - 1) / 3;
+    for (long s = n / 2; s > 0; s /= 2) {
+      long rx = (x & s) > 0 ? 1 : 0;
+      long ry = (y & s) > 0 ? 1 : 0;
+      id += s * s * ((3 * rx) ^ ry);
+      if (ry == 0) {
+        if (rx == 1) {
+          x = n - 1 - x;
+          y = n - 1 - y;
+        }
+        long t = x;
+        x = y;
+        y = t;
+      }
+    }
+    return id;
+  }
+}
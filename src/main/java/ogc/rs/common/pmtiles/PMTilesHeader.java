@@ -0,0 +1,111 @@
+package ogc.rs.common.pmtiles;
+
+import io.vertx.core.buffer.Buffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The fixed size header of a PMTiles (version 3) archive, which locates the root directory, the
+ * leaf directories and the tile data in the archive.
+ *
+ * @see <a href="https://github.com/protomaps/PMTiles/blob/main/spec/v3/spec.md">PMTiles v3</a>
+ */
+public class PMTilesHeader {
+
+  /** Length of the header in bytes. */
+  public static final int LENGTH = 127;
+
+  public static final int COMPRESSION_NONE = 1;
+  public static final int COMPRESSION_GZIP = 2;
+  public static final int TILE_TYPE_MVT = 1;
+  public static final int TILE_TYPE_PNG = 2;
+
+  private static final String MAGIC = "PMTiles";
+  private static final int VERSION = 3;
+
+  private final long rootDirectoryOffset;
+  private final long rootDirectoryLength;
+  private final long leafDirectoriesOffset;
+  private final long tileDataOffset;
+  private final int internalCompression;
+  private final int tileCompression;
+  private final int tileType;
+  private final int minZoom;
+  private final int maxZoom;
+
+  private PMTilesHeader(Buffer buf) {
+    rootDirectoryOffset = buf.getLongLE(8);
+    rootDirectoryLength = buf.getLongLE(16);
+    leafDirectoriesOffset = buf.getLongLE(40);
+    tileDataOffset = buf.getLongLE(56);
+    internalCompression = buf.getUnsignedByte(97);
+    tileCompression = buf.getUnsignedByte(98);
+    tileType = buf.getUnsignedByte(99);
+    minZoom = buf.getUnsignedByte(100);
+    maxZoom = buf.getUnsignedByte(101);
+  }
+
+  /**
+   * Parse the header at the start of an archive.
+   *
+   * @param buf the first bytes of the archive, at least {@value #LENGTH}
+   * @return the header
+   * @throws IllegalArgumentException if the bytes are not the header of a PMTiles v3 archive
+   */
+  public static PMTilesHeader parse(Buffer buf) {
+    if (buf.length() < LENGTH
+        || !MAGIC.equals(buf.getString(0, MAGIC.length(), StandardCharsets.US_ASCII.name()))) {
+      throw new IllegalArgumentException("Not a PMTiles archive");
+    }
+    if (buf.getUnsignedByte(7) != VERSION) {
+      throw new IllegalArgumentException(
+          "Unsupported PMTiles version " + buf.getUnsignedByte(7) + ", only version 3 is supported");
+    }
+    return new PMTilesHeader(buf);
+  }
+
+  public long getRootDirectoryOffset() {
+    return rootDirectoryOffset;
+  }
+
+  public long getRootDirectoryLength() {
+    return rootDirectoryLength;
+  }
+
+  public long getLeafDirectoriesOffset() {
+    return leafDirectoriesOffset;
+  }
+
+  public long getTileDataOffset() {
+    return tileDataOffset;
+  }
+
+  /**
+   * @return compression of the directories, one of the <code>COMPRESSION_*</code> constants if
+   *         supported
+   */
+  public int getInternalCompression() {
+    return internalCompression;
+  }
+
+  /**
+   * @return compression of the tiles, one of the <code>COMPRESSION_*</code> constants if supported
+   */
+  public int getTileCompression() {
+    return tileCompression;
+  }
+
+  /**
+   * @return type of the tiles, one of the <code>TILE_TYPE_*</code> constants if supported
+   */
+  public int getTileType() {
+    return tileType;
+  }
+
+  public int getMinZoom() {
+    return minZoom;
+  }
+
+  public int getMaxZoom() {
+    return maxZoom;
+  }
+}
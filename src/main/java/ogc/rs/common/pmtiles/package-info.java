@@ -0,0 +1 @@
+package ogc.rs.common.pmtiles;
@@ -37,7 +37,22 @@ public interface DatabaseService {
 
     Future<JsonObject> getFeatures(String collectionId, Map<String, String> queryParams, Limits limits, Map<String, Integer> crs);
 
-    Future<JsonObject> getFeature(String collectionId, Integer featureId, Map<String, String> queryParams, Limits limits, Map<String, Integer> crs);
+    /**
+     * Build the SQL query for an OGC Features <code>/items</code> request without running it, so
+     * that the caller can stream the result rows itself. The query is built exactly as in
+     * {@link #getFeatures(String, Map, Limits, Map)}, including all token limits.
+     *
+     * @param collectionId the collection ID
+     * @param queryParams the validated query parameters
+     * @param limits limits from the token, if any
+     * @param crs map of CRS URI to SRID valid for the collection
+     * @return JSON object with the query in <code>sql</code>, its bind parameters in
+     *         <code>params</code> and, unless disabled by the <code>numberMatched</code> query
+     *         parameter, the count in <code>numberMatched</code>
+     */
+    Future<JsonObject> getFeaturesQuery(String collectionId, Map<String, String> queryParams, Limits limits, Map<String, Integer> crs);
+
+    Future<JsonObject> getFeature(String collectionId, Integer featureId,Map<String, String> queryParams, Limits limits, Map<String, Integer> crs);
 
     Future<Map<String, Integer>> isCrsValid(String collectionId, Map<String, String> queryParams);
 
@@ -68,6 +83,40 @@ public interface DatabaseService {
     // Get data usage (sum of resp_size) based on user_id, api_path, and collection_id within the time window
     Future<Long> getTotalDataUsage(String userId, String apiPath, String collectionId, long policyIssuedAt);
 
+    /**
+     * Get the usage counted against the limits of a policy from the <code>quota_counters</code> table, seeding
+     * it from the metering table if the policy has no counters yet. Nothing is written if the policy has no
+     * usage in the metering table, the counters are then added by {@link #addQuotaUsage(JsonArray)}.
+     *
+     * @param userId the user ID
+     * @param apiPath the API path
+     * @param collectionId the collection ID
+     * @param policyIssuedAt the epoch time (in seconds) the policy was issued at
+     * @return JsonObject with the number of API hits in <code>apiHits</code> and the data usage in bytes in
+     *         <code>dataUsage</code>
+     */
+    Future<JsonObject> getQuotaUsage(String userId, String apiPath, String collectionId, long policyIssuedAt);
+
+    /**
+     * Add usage to the <code>quota_counters</code> table.
+     *
+     * @param usage JsonObjects with <code>userId</code>, <code>collectionId</code>, <code>apiPath</code>,
+     *        <code>policyIssuedAt</code> and the usage to add in <code>apiHits</code> and <code>dataUsage</code>,
+     *        at most one per policy
+     * @return the same JsonObjects with the total usage, including that added by other servers
+     */
+    Future<JsonArray> addQuotaUsage(JsonArray usage);
+
+    /**
+     * Delete the counters of the <code>quota_counters</code> table not updated for a while. Counters are
+     * updated regularly while an API server tracks their policy, and seeded again from the metering table once
+     * deleted, so only counters that no server uses are deleted.
+     *
+     * @param retentionMillis time after its last update a counter is deleted
+     * @return the number of counters deleted
+     */
+    Future<Integer> deleteIdleQuotaCounters(long retentionMillis);
+
     /**
      * Checks if all specified feature IDs exist in the given collection table.
      *
@@ -191,14 +240,32 @@ public interface DatabaseService {
     Future<JsonObject> getOgcRecordItem (String catalogId, String recordId);
 
     /**
-     * Get S3 bucket ID for tiles for a particular collection ID and TMS. The ID can be used to find
-     * the S3 config for the particular bucket.
-     * 
+     * Get the source of tiles for a particular collection ID and TMS. The source is either an S3
+     * bucket, whose ID can be used to find the S3 config for the particular bucket, or the collection
+     * table itself for dynamic tilesets.
+     *
+     * @param collectionId the collection ID
+     * @param tileMatrixSetId the tile matrix set ID
+     * @return JsonObject with <code>dynamic</code> set to true and the <code>storageSrid</code> of
+     *         the collection if tiles are to be generated from the collection, else with the
+     *         <code>s3BucketId</code> and the <code>pmtilesArchive</code> key in the bucket if the
+     *         tiles are in a PMTiles archive, the <code>tileIndexMd5</code> of the tile index
+     *         of the tileset if it has one, and the <code>version</code> of the tileset, which
+     *         changes when the tileset is onboarded again or changed
+     */
+    Future<JsonObject> getTileSource(String collectionId, String tileMatrixSetId);
+
+    /**
+     * Get the index of the tiles that exist in a tileset stored in S3, see
+     * {@link ogc.rs.common.TileExistenceIndex}.
+     *
      * @param collectionId the collection ID
      * @param tileMatrixSetId the tile matrix set ID
-     * @return String the S3 bucket ID
+     * @return JsonObject with the serialized index in <code>tileIndex</code> and its MD5 in
+     *         <code>tileIndexMd5</code>, failed with an {@link ogc.rs.apiserver.util.OgcException}
+     *         (404) if the tileset has no index
      */
-    Future<String> getTileS3BucketId(String collectionId, String tileMatrixSetId);
+    Future<JsonObject> getTileExistenceIndex(String collectionId, String tileMatrixSetId);
 
     Future<List<JsonObject>> deleteStacItem(String collectionId, String itemId);
 
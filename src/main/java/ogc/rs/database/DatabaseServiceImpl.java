@@ -10,6 +10,9 @@ import io.vertx.core.json.JsonObject;
 import io.vertx.pgclient.PgPool;
 import io.vertx.sqlclient.*;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
 import ogc.rs.apiserver.router.RouterManager;
@@ -17,6 +20,8 @@ import ogc.rs.apiserver.util.Limits;
 import ogc.rs.apiserver.util.OgcException;
 import ogc.rs.apiserver.util.ProcessException;
 import ogc.rs.apiserver.util.StacItemSearchParams;
+import ogc.rs.database.util.CollectionMetadata;
+import ogc.rs.database.util.CollectionMetadataCache;
 import ogc.rs.database.util.FeatureQueryBuilder;
 import ogc.rs.database.util.RecordQueryBuilder;
 import ogc.rs.database.util.MulticornErrorHandler;
@@ -33,8 +38,25 @@ public class DatabaseServiceImpl implements DatabaseService{
 
     private final PgPool client;
     private final JsonObject config;
+    private final CollectionMetadataCache metadataCache;
+    // run the numberMatched count and the data query concurrently on separate connections
+    private final boolean parallelCountQuery;
+    // stop counting matched features/records past this number, 0 for no limit
+    private final int numberMatchedLimit;
+    // how long the geometry and checks of token feature limits are cached for
+    private final long featLimitsCacheTtlMillis;
     public DatabaseServiceImpl(final PgPool pgClient,JsonObject config) {
+        this(pgClient, config, new CollectionMetadataCache());
+    }
+
+    public DatabaseServiceImpl(final PgPool pgClient, JsonObject config,
+                               CollectionMetadataCache metadataCache) {
         this.client = pgClient;this.config=config;
+        this.metadataCache = metadataCache;
+        this.parallelCountQuery = config.getBoolean("parallelCountQuery", false);
+        this.numberMatchedLimit = config.getInteger("numberMatchedLimit", 0);
+        this.featLimitsCacheTtlMillis = TimeUnit.SECONDS.toMillis(
+                config.getLong("featLimitsCacheTtlSec", DEFAULT_FEAT_LIMITS_CACHE_TTL_SEC));
     }
 
     @Override
@@ -137,10 +159,79 @@ public class DatabaseServiceImpl implements DatabaseService{
         LOGGER.info("getFeatures");
         Promise<JsonObject> result = Promise.promise();
 
-        Collector<Row, ? , Map<String, Integer>> collectorT = Collectors.toMap(row -> row.getColumnName(0),
-                row -> row.getInteger("count"));
         Collector<Row, ? , List<JsonObject>> collector = Collectors.mapping(Row::toJson, Collectors.toList());
 
+        String numberMatchedMode =
+                queryParams.getOrDefault("numberMatched", NUMBER_MATCHED_ESTIMATE);
+
+        prepareFeatureQuery(collectionId, queryParams, limits, crs)
+                .compose(featureQuery -> {
+                    Tuple tuple = Tuple.tuple();
+                    String featuresQuery = featureQuery.buildSqlString(tuple);
+                    LOGGER.debug("<DBService> Sql query- {} ",  featuresQuery);
+
+                    Function<SqlConnection, Future<List<JsonObject>>> dataQuery = conn ->
+                            conn.preparedQuery(featuresQuery)
+                                    .collecting(collector).execute(tuple)
+                                    .map(SqlResult::value);
+
+                    return runCountAndDataQueries(
+                            conn -> getNumberMatched(conn, featureQuery, numberMatchedMode),
+                            dataQuery, !NUMBER_MATCHED_NONE.equals(numberMatchedMode));
+                })
+                .onSuccess(jsonResult -> {
+                    LOGGER.debug("getFeatures completed successfully");
+                    result.complete(jsonResult);
+                })
+                .onFailure(err -> {
+                    LOGGER.error("Failed at getFeatures - {}", err.getMessage());
+                    result.fail(MulticornErrorHandler.handle(err));
+                });
+
+        return result.future();
+    }
+
+    @Override
+    public Future<JsonObject> getFeaturesQuery(String collectionId, Map<String, String> queryParams,
+                                               Limits limits, Map<String, Integer> crs) {
+        LOGGER.info("getFeaturesQuery");
+        Promise<JsonObject> result = Promise.promise();
+
+        String numberMatchedMode =
+                queryParams.getOrDefault("numberMatched", NUMBER_MATCHED_ESTIMATE);
+
+        prepareFeatureQuery(collectionId, queryParams, limits, crs)
+                .compose(featureQuery -> client.withConnection(conn ->
+                        getNumberMatched(conn, featureQuery, numberMatchedMode)
+                                .map(numberMatched -> {
+                                    Tuple tuple = Tuple.tuple();
+                                    return numberMatched
+                                            .put("sql", featureQuery.buildSqlString(tuple))
+                                            .put("params", tupleToJsonArray(tuple));
+                                })))
+                .onSuccess(result::complete)
+                .onFailure(err -> {
+                    LOGGER.error("Failed at getFeaturesQuery - {}", err.getMessage());
+                    result.fail(MulticornErrorHandler.handle(err));
+                });
+
+        return result.future();
+    }
+
+    /**
+     * Build the {@link FeatureQueryBuilder} for an OGC Features <code>/items</code> request. This
+     * resolves the storage CRS of the collection, checks bbox and feature limits from the token
+     * against the request and sets the datetime filter if the collection has a datetime key.
+     *
+     * @param collectionId the collection ID
+     * @param queryParams the validated query parameters
+     * @param limits limits from the token, if any
+     * @param crs map of CRS URI to SRID valid for the collection
+     * @return a Future of the {@link FeatureQueryBuilder} with all filters set
+     */
+    private Future<FeatureQueryBuilder> prepareFeatureQuery(String collectionId,
+                                                            Map<String, String> queryParams,
+                                                            Limits limits, Map<String, Integer> crs) {
         String datetimeValue = queryParams.getOrDefault("datetime", null);
 
         FeatureQueryBuilder featureQuery = new FeatureQueryBuilder(collectionId);
@@ -149,17 +240,53 @@ public class DatabaseServiceImpl implements DatabaseService{
         featureQuery.setOffset(Integer.parseInt(queryParams.get("offset")));
         featureQuery.setCrs(String.valueOf(crs.get(queryParams.get("crs"))));
         featureQuery.setBboxCrsSrid(String.valueOf(crs.get(queryParams.get("bbox-crs"))));
+        if (queryParams.containsKey("zoom")) {
+            int zoom = Integer.parseInt(queryParams.get("zoom"));
+            if (zoom < 0 || zoom > FeatureQueryBuilder.MAX_ZOOM) {
+                return Future.failedFuture(new OgcException(400, "Bad Request",
+                        "zoom must be between 0 and " + FeatureQueryBuilder.MAX_ZOOM));
+            }
+            featureQuery.setZoom(zoom);
+        }
 
         // Filter logic
         Map<String, String> filteredParams = new HashMap<>(queryParams);
         filteredParams.keySet().removeAll(WELL_KNOWN_QUERY_PARAMETERS);
-        if (!filteredParams.isEmpty()) {
-             featureQuery.setFilter(filteredParams);
+
+        List<String> propertyNames = parsePropertyNames(queryParams.get("properties"));
+
+        // filters are set first, so that their bind parameters are always numbered the same way
+        Future<String> sridOfStorageCrs;
+        if (!filteredParams.isEmpty() || propertyNames != null) {
+            sridOfStorageCrs = getColumnTypes(collectionId)
+                    .compose(columnTypes -> {
+                        if (propertyNames != null) {
+                            List<String> unknown = propertyNames.stream()
+                                    .filter(name -> !columnTypes.containsKey(name))
+                                    .collect(Collectors.toList());
+                            if (!unknown.isEmpty()) {
+                                return Future.failedFuture(new OgcException(400, "Bad Request",
+                                        "Unknown properties " + unknown));
+                            }
+                            featureQuery.setProperties(propertyNames);
+                        }
+                        if (!filteredParams.isEmpty()) {
+                            featureQuery.setFilter(filteredParams, columnTypes);
+                        }
+                        return getSridOfStorageCrs(collectionId);
+                    });
+        } else {
+            sridOfStorageCrs = getSridOfStorageCrs(collectionId);
         }
 
-        Future<String> sridOfStorageCrs = getSridOfStorageCrs(collectionId);
+        // the bbox condition depends on whether the table has a copy of its geometry in CRS84
+        Future<String> crs84GeometrySet = sridOfStorageCrs.compose(srid ->
+                getCollectionMetadata(collectionId).map(metadata -> {
+                    featureQuery.setCrs84Geometry(metadata.hasCrs84Geometry());
+                    return srid;
+                }));
 
-        Future<Void> bboxFuture = sridOfStorageCrs.compose(srid -> {
+        Future<Void> bboxFuture = crs84GeometrySet.compose(srid -> {
             LOGGER.debug("srid is: {}", srid);
             String queryBbox = queryParams.get("bbox");
             // Check for bbox limits from token
@@ -186,12 +313,16 @@ public class DatabaseServiceImpl implements DatabaseService{
                 if (queryBbox != null && tokenBbox != null) {
                     // Use PostGIS to check bbox intersection
                     String sql = "SELECT ST_Intersects(" +
-                            "ST_Transform(ST_MakeEnvelope(" + queryBbox + ", " + srid + "), 4326), " +
-                            "ST_MakeEnvelope(" + tokenBbox + ", 4326)" +
+                            "ST_Transform(ST_MakeEnvelope($1, $2, $3, $4, " + srid + "), 4326), " +
+                            "ST_MakeEnvelope($5, $6, $7, $8, 4326)" +
                             ")";
                     String finalQueryBbox = queryBbox;
                     String finalTokenBbox = tokenBbox;
-                    client.query(sql).execute()
+                    Tuple bboxTuple = Tuple.tuple();
+                    for (String coordinate : (queryBbox + "," + tokenBbox).split(",")) {
+                        bboxTuple.addDouble(Double.valueOf(coordinate.trim()));
+                    }
+                    client.preparedQuery(sql).execute(bboxTuple)
                             .onSuccess(rows -> {
                                 if (rows.iterator().hasNext()) {
                                     Row row = rows.iterator().next();
@@ -234,126 +365,276 @@ public class DatabaseServiceImpl implements DatabaseService{
                 Map<String, List<String>> featLimits = limits.getFeatLimitAsMap();
                 String tokenFeatCollectionId = featLimits.keySet().iterator().next();
                 List<String> tokenFeatureIds = featLimits.get(tokenFeatCollectionId);
-                String tokenFeatIds = String.join(",", tokenFeatureIds);
 
                 LOGGER.debug("Processing feature limits from token - Collection: {}, Feature IDs: {}",
-                        tokenFeatCollectionId, tokenFeatIds);
-
-                Promise<Void> featLimitsPromise = Promise.promise();
-
-                // Check if there's any intersection between request collection and token feature geometries
-                String intersectionCheckSql =
-                        "SELECT EXISTS(" +
-                                "SELECT 1 FROM \"" + collectionId + "\" request_feature " +
-                                "JOIN \"" + tokenFeatCollectionId + "\" token_feature " +
-                                "ON ST_Intersects(request_feature.geom, token_feature.geom) " +
-                                "WHERE token_feature.id IN (" + tokenFeatIds + ")" +
-                                ")";
-
-                LOGGER.debug("Feature intersection check SQL: {}", intersectionCheckSql);
-
-                client.query(intersectionCheckSql).execute()
-                        .onSuccess(rows -> {
-                            if (rows.iterator().hasNext()) {
-                                Row row = rows.iterator().next();
-                                boolean hasIntersection = row.getBoolean(0);
-                                if (hasIntersection) {
-                                    LOGGER.debug("Feature intersection found, proceeding with feature limits enforcement");
-                                    // Set feature limits in the query builder
-                                    featureQuery.setFeatLimits(tokenFeatCollectionId, tokenFeatIds);
-                                    featLimitsPromise.complete();
-                                } else {
-                                    LOGGER.debug("No intersection found between request collection and token feature boundaries");
-                                    featLimitsPromise.fail(new OgcException(403, "Forbidden",
-                                            "Feature not found within the allowed feature boundaries"));
-                                }
-                            } else {
-                                featLimitsPromise.fail("No result from feature intersection check.");
-                            }
-                        })
-                        .onFailure(err -> {
-                            LOGGER.error("Feature intersection check failed: {}", err.getMessage());
-                            featLimitsPromise.fail(err);
-                        });
-
-                return featLimitsPromise.future();
+                        tokenFeatCollectionId, tokenFeatureIds);
+
+                return sridOfStorageCrs.compose(srid ->
+                        getFeatLimitGeometry(tokenFeatCollectionId, tokenFeatureIds)
+                                .compose(featLimitGeometry ->
+                                        checkFeatLimitIntersects(collectionId, srid, tokenFeatCollectionId,
+                                                tokenFeatureIds, featLimitGeometry)
+                                                .compose(hasIntersection -> {
+                                                    if (!hasIntersection) {
+                                                        LOGGER.debug("No intersection found between request collection and token feature boundaries");
+                                                        return Future.failedFuture(new OgcException(403, "Forbidden",
+                                                                "Feature not found within the allowed feature boundaries"));
+                                                    }
+                                                    LOGGER.debug("Feature intersection found, proceeding with feature limits enforcement");
+                                                    featureQuery.setFeatLimits(featLimitGeometry, srid);
+                                                    return Future.succeededFuture();
+                                                })));
             } else {
                 return Future.succeededFuture();
             }
         });
 
         // Continue only after both bboxFuture and featLimitsFuture complete
-        featLimitsFuture.compose(v -> sridOfStorageCrs.compose(srid ->
-                        client.withConnection(conn ->
-                                conn.preparedQuery("select datetime_key from collections_details where id = $1::uuid")
-                                        .collecting(collector)
-                                        .execute(Tuple.of(UUID.fromString(collectionId)))
-                                        .compose(conn1 -> {
-                                            if (conn1.value().get(0).getString("datetime_key") != null && datetimeValue != null ){
-                                                String datetimeKey = conn1.value().get(0).getString("datetime_key");
-                                                featureQuery.setDatetimeKey(datetimeKey);
-                                                featureQuery.setDatetime(datetimeValue);
-                                            }
-                                            LOGGER.debug("datetime_key: {}",conn1.value().get(0).getString("datetime_key"));
-                                            LOGGER.debug("<DBService> Sql query- {} ",  featureQuery.buildSqlString());
-                                            LOGGER.debug("Count Query- {}", featureQuery.buildSqlString("count"));
-
-                                            JsonObject resultJson = new JsonObject();
-                                            return conn.preparedQuery(featureQuery.buildSqlString("count"))
-                                                    .collecting(collectorT).execute()
-                                                    .compose(count -> {
-                                                        LOGGER.debug("Feature Count- {}", count.value().get("count"));
-                                                        int totalCount = count.value().get("count");
-                                                        resultJson.put("numberMatched", totalCount);
-
-                                                        return conn.preparedQuery(featureQuery.buildSqlString())
-                                                                .collecting(collector).execute()
-                                                                .map(SqlResult::value)
-                                                                .compose(success -> {
-                                                                    if (!success.isEmpty())
-                                                                        resultJson
-                                                                                .put("features", new JsonArray(success))
-                                                                                .put("numberReturned", success.size());
-                                                                    else
-                                                                        resultJson
-                                                                                .put("features", new JsonArray())
-                                                                                .put("numberReturned", 0);
-                                                                    resultJson.put("type", "FeatureCollection");
-                                                                    return Future.succeededFuture(resultJson);
-                                                                });
-                                                    });
-                                        }))))
-                .onSuccess(jsonResult -> {
-                    LOGGER.debug("getFeatures completed successfully");
-                    result.complete(jsonResult);
-                })
-                .onFailure(err -> {
-                    LOGGER.error("Failed at getFeatures - {}", err.getMessage());
-                    result.fail(MulticornErrorHandler.handle(err));
+        return featLimitsFuture.compose(v ->
+                getCollectionMetadata(collectionId)
+                        .map(metadata -> {
+                            String datetimeKey = metadata.getDatetimeKey();
+                            if (datetimeKey != null && datetimeValue != null) {
+                                featureQuery.setDatetimeKey(datetimeKey);
+                                featureQuery.setDatetime(datetimeValue);
+                            }
+                            LOGGER.debug("datetime_key: {}", datetimeKey);
+                            return featureQuery;
+                        }));
+    }
+
+    /**
+     * Get <code>numberMatched</code> for a features query based on the requested mode.
+     * <ul>
+     * <li>{@value ogc.rs.common.Constants#NUMBER_MATCHED_EXACT} runs a <code>count</code> over all
+     * matching rows, up to <code>numberMatchedLimit</code> rows if configured</li>
+     * <li>{@value ogc.rs.common.Constants#NUMBER_MATCHED_ESTIMATE} uses the row estimate of the
+     * query planner, which does not scan the table</li>
+     * <li>{@value ogc.rs.common.Constants#NUMBER_MATCHED_NONE} skips computing it</li>
+     * </ul>
+     *
+     * @param conn the connection to run the query on
+     * @param featureQuery the {@link FeatureQueryBuilder} with all filters set
+     * @param mode one of the above modes
+     * @return JSON object with the exact or estimated count in <code>numberMatched</code>, empty if
+     *         it is not to be computed. See {@link #numberMatchedJson(int)} for counts past the limit.
+     */
+    private Future<JsonObject> getNumberMatched(SqlConnection conn, FeatureQueryBuilder featureQuery,
+                                                String mode) {
+        if (NUMBER_MATCHED_NONE.equals(mode)) {
+            return Future.succeededFuture(new JsonObject());
+        }
+
+        Tuple tuple = Tuple.tuple();
+        if (NUMBER_MATCHED_EXACT.equals(mode)) {
+            String countQuery = featureQuery.buildCountSqlString(tuple, numberMatchedLimit);
+            LOGGER.debug("Count Query- {}", countQuery);
+            return conn.preparedQuery(countQuery).execute(tuple)
+                    .map(rows -> {
+                        int count = rows.iterator().next().getInteger(0);
+                        LOGGER.debug("Feature Count- {}", count);
+                        return numberMatchedJson(count);
+                    });
+        }
+
+        String estimateQuery = featureQuery.buildEstimateSqlString(tuple);
+        LOGGER.debug("Estimate Query- {}", estimateQuery);
+        return conn.preparedQuery(estimateQuery).execute(tuple)
+                .map(rows -> {
+                    JsonArray plan = new JsonArray(rows.iterator().next().getValue(0).toString());
+                    long estimate = plan.getJsonObject(0).getJsonObject("Plan").getLong("Plan Rows", 0L);
+                    LOGGER.debug("Estimated Feature Count- {}", estimate);
+                    return new JsonObject().put("numberMatched", (int) Math.min(estimate, Integer.MAX_VALUE));
                 });
+    }
 
-        return result.future();
+    /**
+     * Build the <code>numberMatched</code> members for a count that was run with
+     * <code>numberMatchedLimit</code>. If the count went past the limit, <code>numberMatched</code> is
+     * the limit and <code>numberMatchedIsLowerBound</code> is set to <code>true</code>.
+     *
+     * @param count the count returned by the count query
+     * @return JSON object with the <code>numberMatched</code> members
+     */
+    private JsonObject numberMatchedJson(int count) {
+        JsonObject json = new JsonObject();
+        if (numberMatchedLimit > 0 && count > numberMatchedLimit) {
+            return json.put("numberMatched", numberMatchedLimit).put("numberMatchedIsLowerBound", true);
+        }
+        return json.put("numberMatched", count);
+    }
+
+    /**
+     * Run the count query and the data query of an <code>/items</code> request and build the
+     * FeatureCollection. If <code>parallelCountQuery</code> is configured, the two queries are run
+     * concurrently on separate connections from the pool, otherwise one after the other on one
+     * connection.
+     *
+     * @param countQuery runs the count query, returning the <code>numberMatched</code> members
+     * @param dataQuery runs the data query, returning the features
+     * @param countNeeded if <code>false</code>, the count query is not run concurrently since it
+     *        does not hit the database
+     * @return the FeatureCollection without links
+     */
+    private Future<JsonObject> runCountAndDataQueries(
+            Function<SqlConnection, Future<JsonObject>> countQuery,
+            Function<SqlConnection, Future<List<JsonObject>>> dataQuery, boolean countNeeded) {
+
+        BiFunction<JsonObject, List<JsonObject>, JsonObject> toFeatureCollection =
+                (numberMatched, features) -> numberMatched.copy()
+                        .put("features", new JsonArray(features))
+                        .put("numberReturned", features.size())
+                        .put("type", "FeatureCollection");
+
+        if (parallelCountQuery && countNeeded) {
+            Future<JsonObject> count = client.withConnection(countQuery);
+            Future<List<JsonObject>> data = client.withConnection(dataQuery);
+            return Future.all(count, data)
+                    .map(v -> toFeatureCollection.apply(count.result(), data.result()));
+        }
+
+        return client.withConnection(conn -> countQuery.apply(conn)
+                .compose(count -> dataQuery.apply(conn)
+                        .map(features -> toFeatureCollection.apply(count, features))));
+    }
+
+    /**
+     * Get the SQL types of the columns of a collection table, used to cast attribute filter values.
+     *
+     * @param collectionId the collection ID
+     * @return map of column name to type as given by <code>format_type</code>
+     */
+    private Future<Map<String, String>> getColumnTypes(String collectionId) {
+        Collector<Row, ?, Map<String, String>> collector =
+                Collectors.toMap(row -> row.getString("attname"), row -> row.getString("type"));
+        return metadataCache.get(collectionId, "columnTypes", () ->
+                client.preparedQuery("SELECT attname, format_type(atttypid, atttypmod) AS type"
+                                + " FROM pg_attribute WHERE attrelid = quote_ident($1::text)::regclass"
+                                + " AND attnum > 0 AND NOT attisdropped")
+                        .collecting(collector)
+                        .execute(Tuple.of(collectionId))
+                        .map(SqlResult::value));
+    }
+
+    /**
+     * Key identifying the features allowed by a token within its feature collection.
+     */
+    private static String featLimitKey(List<String> featureIds) {
+        return new TreeSet<>(featureIds).toString();
+    }
+
+    /**
+     * Get the union of the geometries of the features allowed by a token, from the
+     * {@link CollectionMetadataCache} of the token's feature collection. The same token is used for
+     * many requests, so this avoids joining against the token's collection on every request. Since
+     * edits to features are not notified, the union is only cached for
+     * <code>featLimitsCacheTtlSec</code>.
+     *
+     * @param tokenCollectionId the collection the allowed features belong to
+     * @param featureIds the IDs of the allowed features
+     * @return the union as hex-encoded EWKB, or a failed Future with an {@link OgcException} (403)
+     *         if none of the features exist
+     */
+    private Future<String> getFeatLimitGeometry(String tokenCollectionId, List<String> featureIds) {
+        String table = UUID.fromString(tokenCollectionId).toString();
+        return metadataCache.get(tokenCollectionId, "featLimitGeometry/" + featLimitKey(featureIds),
+                featLimitsCacheTtlMillis, () ->
+                client.preparedQuery("SELECT encode(ST_AsEWKB(ST_Union(geom)), 'hex') AS geom FROM \""
+                                + table + "\" WHERE id = ANY($1::text::bigint[])")
+                        .execute(Tuple.of("{" + String.join(",", featureIds) + "}"))
+                        .compose(rows -> {
+                            String geom = rows.iterator().next().getString("geom");
+                            if (geom == null) {
+                                return Future.failedFuture(new OgcException(403, "Forbidden",
+                                        "Feature not found within the allowed feature boundaries"));
+                            }
+                            return Future.succeededFuture(geom);
+                        }));
+    }
+
+    /**
+     * Check whether any feature of a collection intersects the features allowed by a token. The
+     * result is cached like {@link #getFeatLimitGeometry(String, List)}.
+     */
+    private Future<Boolean> checkFeatLimitIntersects(String collectionId, String srid,
+                                                     String tokenCollectionId, List<String> featureIds,
+                                                     String featLimitGeometry) {
+        return metadataCache.get(collectionId,
+                "featLimitIntersects/" + tokenCollectionId + "/" + featLimitKey(featureIds),
+                featLimitsCacheTtlMillis, () ->
+                client.preparedQuery("SELECT EXISTS(SELECT 1 FROM \"" + collectionId + "\""
+                                + " WHERE ST_Intersects(geom, ST_Transform($1::text::geometry, " + srid + ")))")
+                        .execute(Tuple.of(featLimitGeometry))
+                        .map(rows -> rows.iterator().next().getBoolean(0)));
+    }
+
+    /**
+     * Parse the value of the <code>properties</code> query parameter. The validated value is a
+     * JSON array of names, but a plain comma-separated list is accepted as well.
+     *
+     * @param properties the parameter value
+     * @return the property names, <code>null</code> if the parameter is not present
+     */
+    private static List<String> parsePropertyNames(String properties) {
+        if (properties == null) {
+            return null;
+        }
+        if (properties.startsWith("[")) {
+            return new JsonArray(properties).stream().map(String::valueOf).collect(Collectors.toList());
+        }
+        return Arrays.stream(properties.split(",")).map(String::trim).filter(name -> !name.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Get the {@link CollectionMetadata} of a collection from the {@link CollectionMetadataCache},
+     * loading it if not cached.
+     *
+     * @param collectionId the collection ID
+     * @return the metadata, or a failed Future with an {@link OgcException} (404) if the collection
+     *         does not exist
+     */
+    private Future<CollectionMetadata> getCollectionMetadata(String collectionId) {
+        return metadataCache.get(collectionId, "metadata", () ->
+                client.preparedQuery(CollectionMetadata.LOAD_COLLECTION_METADATA)
+                        .execute(Tuple.of(UUID.fromString(collectionId)))
+                        .compose(rows -> {
+                            if (rows.rowCount() == 0) {
+                                return Future.failedFuture(
+                                        new OgcException(404, "Not found", "Collection not found"));
+                            }
+                            return Future.succeededFuture(new CollectionMetadata(rows.iterator().next()));
+                        }));
+    }
+
+    /**
+     * Convert query params in a {@link Tuple} to a {@link JsonArray} so that they can be sent over
+     * the event bus. All params set by {@link FeatureQueryBuilder} are JSON types.
+     */
+    private static JsonArray tupleToJsonArray(Tuple tuple) {
+        JsonArray params = new JsonArray();
+        for (int i = 0; i < tuple.size(); i++) {
+            params.add(tuple.getValue(i));
+        }
+        return params;
     }
 
     private Future<String> getSridOfStorageCrs(String collectionId) {
     LOGGER.info("getSridOfStorageCrs");
     Promise<String> result = Promise.promise();
-    Collector<Row, ? , Map<String, Integer>> collector = Collectors.toMap(row -> row.getColumnName(0),
-        row -> row.getInteger("srid"));
-    client.withConnection(conn ->
-        conn.preparedQuery("select srid from collections_details join crs_to_srid on collections_details.crs = " +
-                " crs_to_srid.crs and collections_details.id = $1::uuid")
-            .collecting(collector)
-            .execute(Tuple.of(UUID.fromString(collectionId)))
-            .onSuccess(success -> {
-              LOGGER.debug("Srid of Storage Crs- {}",success.value().get("srid"));
-              int srid = success.value().get("srid");
-              result.complete(String.valueOf(srid));
-            })
-            .onFailure(fail -> {
-              LOGGER.error("Something went wrong, {}", fail.getMessage());
-              result.fail(new OgcException(500, "Internal Server Error", "Internal Server Error"));
-            }));
+    getCollectionMetadata(collectionId)
+        .onSuccess(metadata -> {
+          LOGGER.debug("Srid of Storage Crs- {}", metadata.getStorageSrid());
+          if (metadata.getStorageSrid() == null) {
+            result.fail(new OgcException(500, "Internal Server Error", "Internal Server Error"));
+            return;
+          }
+          result.complete(String.valueOf(metadata.getStorageSrid()));
+        })
+        .onFailure(fail -> {
+          LOGGER.error("Something went wrong, {}", fail.getMessage());
+          result.fail(new OgcException(500, "Internal Server Error", "Internal Server Error"));
+        });
     return result.future();
   }
 
@@ -369,29 +650,23 @@ public class DatabaseServiceImpl implements DatabaseService{
       return result.future();
     }
 
-    Collector<Row, ?, Map<String, Integer>> crsCollector = Collectors.toMap(row -> row.getString("crs"),
-        row -> row.getInteger("srid"));
-    client.withConnection(conn ->
-      conn.preparedQuery("Select crs, srid from collection_supported_crs as colcrs join crs_to_srid as crsrid on " +
-              "colcrs.crs_id = crsrid.id and colcrs.collection_id = $1::uuid")
-          .collecting(crsCollector)
-          .execute(Tuple.of(UUID.fromString(collectionId)))
-          .onSuccess(success -> {
-            LOGGER.debug("CRS:SRID-\n{}",success.value() );
-            if (!success.value().containsKey(requestCrs)) {
+    getCollectionMetadata(collectionId)
+          .onSuccess(metadata -> {
+            Map<String, Integer> supportedCrs = new HashMap<>(metadata.getSupportedCrs());
+            LOGGER.debug("CRS:SRID-\n{}", supportedCrs);
+            if (!supportedCrs.containsKey(requestCrs)) {
               result.fail(new OgcException(400, "Bad Request", "Collection does not support this crs"));
             }
-            if (!success.value().containsKey(bboxCrs)) {
-              result.fail(new OgcException(400, "Bad Request", "Collection does not support this bbox-crs"));
+            if (!supportedCrs.containsKey(bboxCrs)) {
+              result.tryFail(new OgcException(400, "Bad Request", "Collection does not support this bbox-crs"));
             }
-            success.value().put(DEFAULT_SERVER_CRS, DEFAULT_CRS_SRID);
-            result.complete(success.value());
+            supportedCrs.put(DEFAULT_SERVER_CRS, DEFAULT_CRS_SRID);
+            result.tryComplete(supportedCrs);
           })
           .onFailure(failed -> {
             LOGGER.error("Error: {}", failed.getMessage());
             result.fail(new OgcException(500, "Internal Server Error", "Internal Server Error"));
-          })
-    );
+          });
     return result.future();
   }
 
@@ -440,7 +715,8 @@ public class DatabaseServiceImpl implements DatabaseService{
                 .append("cast(st_asgeojson(st_transform(request_feature.geom,")
                 .append(geoColumn.substring(geoColumn.indexOf(",") + 1))
                 .append(" as geometry, ")
-                .append("(row_to_json(request_feature)::jsonb - 'id' - 'geom') as properties ");
+                .append("(row_to_json(request_feature)::jsonb - 'id' - 'geom' - '")
+                .append(FeatureQueryBuilder.CRS84_GEOMETRY_COLUMN).append("') as properties ");
 
         // Check if we have feature limits
         boolean hasFeatLimit = limits != null && limits.getFeatLimitAsMap() != null && !limits.getFeatLimitAsMap().isEmpty();
@@ -448,18 +724,22 @@ public class DatabaseServiceImpl implements DatabaseService{
         // Check if we have bbox limits
         boolean hasBboxLimit = limits != null && limits.getBboxLimitAsList() != null && !limits.getBboxLimitAsList().isEmpty();
 
+        Future<Tuple> params = Future.succeededFuture(Tuple.of(featureId));
+
         if (hasFeatLimit) {
-            // Use spatial intersection with boundary collection
+            // Use spatial intersection with the cached union of the allowed boundaries
             Map<String, List<String>> featLimits = limits.getFeatLimitAsMap();
             String boundaryCollectionId = featLimits.keySet().iterator().next();
             List<String> allowedFeatureIds = featLimits.get(boundaryCollectionId);
-            String featLimit = String.join(",", allowedFeatureIds);
 
-            sqlBuilder.append("FROM \"").append(collectionId).append("\" AS request_feature ")
-                    .append("JOIN \"").append(boundaryCollectionId).append("\" AS token_feature ")
-                    .append("ON ST_Intersects(request_feature.geom, token_feature.geom) ")
-                    .append("WHERE request_feature.id = $1::int ")
-                    .append("AND token_feature.id IN (").append(featLimit).append(")");
+            params = getSridOfStorageCrs(collectionId).compose(storageSrid -> {
+                sqlBuilder.append("FROM \"").append(collectionId).append("\" AS request_feature ")
+                        .append("WHERE request_feature.id = $1::int ")
+                        .append("AND ST_Intersects(request_feature.geom, ST_Transform($2::text::geometry, ")
+                        .append(storageSrid).append("))");
+                return getFeatLimitGeometry(boundaryCollectionId, allowedFeatureIds)
+                        .map(featLimitGeometry -> Tuple.of(featureId, featLimitGeometry));
+            });
         } else if (hasBboxLimit) {
             // Only bbox filter
             List<Double> bboxList = limits.getBboxLimitAsList();
@@ -477,13 +757,14 @@ public class DatabaseServiceImpl implements DatabaseService{
                     .append("WHERE request_feature.id = $1::int");
         }
 
-        String finalSql = sqlBuilder.toString();
-        LOGGER.debug("Executing query: {}", finalSql);
-
-        return conn.preparedQuery(finalSql)
-                .collecting(collector)
-                .execute(Tuple.of(featureId))
-                .map(SqlResult::value)
+        return params.compose(tuple -> {
+            String finalSql = sqlBuilder.toString();
+            LOGGER.debug("Executing query: {}", finalSql);
+            return conn.preparedQuery(finalSql)
+                    .collecting(collector)
+                    .execute(tuple)
+                    .map(SqlResult::value);
+        })
                 .compose(features -> {
                     if (features.isEmpty()) {
                         if (hasFeatLimit) {
@@ -503,14 +784,20 @@ public class DatabaseServiceImpl implements DatabaseService{
 
     @Override
     public Future<Boolean> checkTokenCollectionAndFeatureIdsExist(String collectionId, List<String> featureIds) {
-        LOGGER.debug("Checking if the Collection and Feature Ids in the token exist in the DB...");
-        Promise<Boolean> result = Promise.promise();
-
         if (featureIds == null || featureIds.isEmpty()) {
-            result.complete(false);
-            return result.future();
+            return Future.succeededFuture(false);
         }
 
+        // checked for every request made with the token, so the result is cached like the feature
+        // limit geometry
+        return metadataCache.get(collectionId, "featIdsExist/" + featLimitKey(featureIds),
+                featLimitsCacheTtlMillis, () -> loadTokenCollectionAndFeatureIdsExist(collectionId, featureIds));
+    }
+
+    private Future<Boolean> loadTokenCollectionAndFeatureIdsExist(String collectionId, List<String> featureIds) {
+        LOGGER.debug("Checking if the Collection and Feature Ids in the token exist in the DB...");
+        Promise<Boolean> result = Promise.promise();
+
         // Step 1: Check if table (collection) exists
         String tableCheckSql = "SELECT to_regclass($1) IS NOT NULL AS exists";
         client.preparedQuery(tableCheckSql)
@@ -1249,45 +1536,29 @@ public class DatabaseServiceImpl implements DatabaseService{
         }
 
         // Prepare SQL queries
-        String countQuery = recordQueryBuilder.buildItemCountSqlString();
+        String countQuery = recordQueryBuilder.buildItemCountSqlString(numberMatchedLimit);
         String dataQuery = recordQueryBuilder.buildItemSearchSqlString();
         LOGGER.debug("Count Query: {}", countQuery);
         LOGGER.debug("Data Query: {}", dataQuery);
 
-        JsonObject resultJson = new JsonObject();
-
         Collector<Row, ?, Map<String, Integer>> countCollector =
                 Collectors.toMap(row -> row.getColumnName(0), row -> row.getInteger("count"));
         Collector<Row, ?, List<JsonObject>> dataCollector =
                 Collectors.mapping(Row::toJson, Collectors.toList());
 
-        client.withConnection(conn ->
-                        conn.query(countQuery)
-                                .collecting(countCollector)
-                                .execute())
-                .onSuccess(count -> {
-                    int totalCount = count.value().getOrDefault("count", 0);
-                    resultJson.put("numberMatched", totalCount);
-
-                    client.withConnection(conn2 ->
-                                    conn2.query(dataQuery)
-                                            .collecting(dataCollector)
-                                            .execute()
-                                            .map(SqlResult::value))
-                            .onSuccess(records -> {
-                                resultJson.put("features", new JsonArray(records));
-                                resultJson.put("numberReturned", records.size());
-                                resultJson.put("type", "FeatureCollection");
-                                result.complete(resultJson);
-                            })
-                            .onFailure(dataFail -> {
-                                LOGGER.error("Failed to fetch record data: {}", dataFail.getMessage());
-                                result.fail(dataFail);
-                            });
-                })
-                .onFailure(countFail -> {
-                    LOGGER.error("Failed to execute count query: {}", countFail.getMessage());
-                    result.fail(countFail);
+        runCountAndDataQueries(
+                conn -> conn.query(countQuery)
+                        .collecting(countCollector)
+                        .execute()
+                        .map(count -> numberMatchedJson(count.value().getOrDefault("count", 0))),
+                conn -> conn.query(dataQuery)
+                        .collecting(dataCollector)
+                        .execute()
+                        .map(SqlResult::value), true)
+                .onSuccess(result::complete)
+                .onFailure(fail -> {
+                    LOGGER.error("Failed to fetch records: {}", fail.getMessage());
+                    result.fail(fail);
                 });
 
         return result.future();
@@ -1595,23 +1866,68 @@ public class DatabaseServiceImpl implements DatabaseService{
   }
 
   @Override
-  public Future<String> getTileS3BucketId(String collectionId, String tileMatrixSetId) {
-    Promise<String> result = Promise.promise();
-    client.withConnection(conn ->
-              conn.preparedQuery("SELECT s3_bucket_id FROM tilematrixsets_relation AS tmsr join tms_metadata AS tms_meta" +
+  public Future<JsonObject> getTileSource(String collectionId, String tileMatrixSetId) {
+    Promise<JsonObject> result = Promise.promise();
+    metadataCache.get(collectionId, "tileSource/" + tileMatrixSetId, () ->
+            client.withConnection(conn ->
+              conn.preparedQuery("SELECT s3_bucket_id, is_dynamic, pmtiles_archive, md5(tile_index) AS tile_index_md5," +
+                      " (extract(epoch FROM tmsr.updated_at) * 1000)::bigint AS version FROM tilematrixsets_relation AS tmsr join tms_metadata AS tms_meta" +
                       " ON tmsr.tms_id = tms_meta.id WHERE collection_id = $1::uuid AND tms_meta.title = $2::text")
                 .execute(Tuple.of(collectionId, tileMatrixSetId))
-                .map(SqlResult::value))
-        .onSuccess(success -> {
-          if (success.rowCount() == 0) {
-            result.fail(new OgcException(404, "Failed to get tile", "Could not get S3 bucket id for collection + TMS"));
+                .map(rows -> rows.rowCount() == 0 ? null : rows.iterator().next().toJson())))
+        .compose(tileSet -> {
+          if (tileSet == null) {
+            return Future.failedFuture(new OgcException(404, "Failed to get tile",
+                "Could not get tile source for collection + TMS"));
+          }
+          if (!tileSet.getBoolean("is_dynamic", false)) {
+            return Future.succeededFuture(
+                new JsonObject().put("dynamic", false).put("s3BucketId", tileSet.getString("s3_bucket_id"))
+                    .put("pmtilesArchive", tileSet.getString("pmtiles_archive"))
+                    .put("tileIndexMd5", tileSet.getString("tile_index_md5"))
+                    .put("version", tileSet.getLong("version")));
+          }
+          return getCollectionMetadata(collectionId).map(metadata -> new JsonObject()
+              .put("dynamic", true).put("storageSrid", metadata.getStorageSrid()));
+        })
+        .onSuccess(result::complete)
+        .onFailure(fail -> {
+          LOGGER.error("Failed to get tile source for collection + TMS! - {}", fail.getMessage());
+          if (fail instanceof OgcException) {
+            result.fail(fail);
           } else {
-            result.complete(success.iterator().next().getString("s3_bucket_id"));
+            result.fail("Error!");
+          }
+        });
+    return result.future();
+  }
+
+  @Override
+  public Future<JsonObject> getTileExistenceIndex(String collectionId, String tileMatrixSetId) {
+    Promise<JsonObject> result = Promise.promise();
+    client.withConnection(conn ->
+            conn.preparedQuery("SELECT tile_index, md5(tile_index) AS tile_index_md5 FROM tilematrixsets_relation AS tmsr" +
+                    " JOIN tms_metadata AS tms_meta ON tmsr.tms_id = tms_meta.id WHERE collection_id = $1::uuid" +
+                    " AND tms_meta.title = $2::text AND tile_index IS NOT NULL")
+                .execute(Tuple.of(collectionId, tileMatrixSetId)))
+        .compose(rows -> {
+          if (rows.rowCount() == 0) {
+            return Future.failedFuture(new OgcException(404, "Not Found",
+                "Tileset has no tile index"));
           }
+          Row row = rows.iterator().next();
+          return Future.succeededFuture(new JsonObject()
+              .put("tileIndex", row.getBuffer("tile_index"))
+              .put("tileIndexMd5", row.getString("tile_index_md5")));
         })
+        .onSuccess(result::complete)
         .onFailure(fail -> {
-          LOGGER.error("Failed S3 bucket id for collection + TMS! - {}", fail.getMessage());
-          result.fail("Error!");
+          LOGGER.error("Failed to get tile index of collection + TMS! - {}", fail.getMessage());
+          if (fail instanceof OgcException) {
+            result.fail(fail);
+          } else {
+            result.fail("Error!");
+          }
         });
     return result.future();
   }
@@ -1827,7 +2143,8 @@ public class DatabaseServiceImpl implements DatabaseService{
         Promise<Long> result = Promise.promise();
 
         // Query to count API hits for the given user, api_path, and collection_id within the time window
-        String query = "SELECT COUNT(*) FROM metering WHERE user_id = $1 AND api_path = $2 AND collection_id = $3 " +
+        // rows of aggregated (tile) metering stand for request_count requests
+        String query = "SELECT COALESCE(SUM(request_count), 0) FROM metering WHERE user_id = $1 AND api_path = $2 AND collection_id = $3 " +
                 "AND timestamp > to_timestamp($4) AND resp_size > 0";
 
         client.preparedQuery(query)
@@ -1878,6 +2195,111 @@ public class DatabaseServiceImpl implements DatabaseService{
         return result.future();
     }
 
+    @Override
+    public Future<JsonObject> getQuotaUsage(String userId, String apiPath, String collectionId, long policyIssuedAt) {
+        Promise<JsonObject> result = Promise.promise();
+
+        // The existing counters, else counters seeded from the metering table as in getTotalApiHits and
+        // getTotalDataUsage, only if there is usage so that paths requested once, e.g. tiles, are not written. If
+        // another server seeds the counters concurrently, the no-op update returns them. Counters not updated for
+        // the idle window, which no server tracks, are touched so that they are not deleted as idle meanwhile.
+        String query = "WITH touched AS (UPDATE quota_counters SET updated_at = now() WHERE user_id = $1::uuid" +
+                " AND api_path = $2::text AND collection_id = $3::uuid AND policy_issued_at = $4::bigint" +
+                " AND updated_at < now() - $5::bigint * interval '1 millisecond' RETURNING api_hits, data_usage)," +
+                " existing AS (SELECT api_hits, data_usage FROM quota_counters WHERE user_id = $1::uuid" +
+                " AND api_path = $2::text AND collection_id = $3::uuid AND policy_issued_at = $4::bigint" +
+                " AND updated_at >= now() - $5::bigint * interval '1 millisecond'" +
+                " UNION ALL SELECT api_hits, data_usage FROM touched)," +
+                " seeded AS (INSERT INTO quota_counters (user_id, api_path, collection_id, policy_issued_at, api_hits," +
+                " data_usage) SELECT $1::uuid, $2::text, $3::uuid, $4::bigint," +
+                " COALESCE(SUM(request_count) FILTER (WHERE resp_size > 0), 0), COALESCE(SUM(resp_size), 0)" +
+                " FROM metering WHERE user_id = $1::uuid AND api_path = $2::text AND collection_id = $3::uuid" +
+                " AND timestamp > to_timestamp($4::bigint) HAVING NOT EXISTS (SELECT 1 FROM existing)" +
+                " AND COALESCE(SUM(resp_size), 0) > 0" +
+                " ON CONFLICT (user_id, collection_id, api_path, policy_issued_at)" +
+                " DO UPDATE SET api_hits = quota_counters.api_hits RETURNING api_hits, data_usage)" +
+                " SELECT api_hits, data_usage FROM existing UNION ALL SELECT api_hits, data_usage FROM seeded";
+
+        client.preparedQuery(query)
+                .execute(Tuple.of(userId, apiPath, collectionId, policyIssuedAt, QUOTA_COUNTERS_MAX_IDLE_MILLIS))
+                .onSuccess(success -> {
+                    if (success.rowCount() == 0) {
+                        // no usage yet
+                        result.complete(new JsonObject().put("apiHits", 0L).put("dataUsage", 0L));
+                        return;
+                    }
+                    Row row = success.iterator().next();
+                    result.complete(new JsonObject()
+                            .put("apiHits", row.getLong("api_hits"))
+                            .put("dataUsage", row.getLong("data_usage")));
+                })
+                .onFailure(fail -> {
+                    LOGGER.error("Failed to get quota usage: {} - {}", fail.getMessage(), fail);
+                    result.fail(new OgcException(500, "Internal Server Error", "Failed to check usage: " + fail.getMessage()));
+                });
+
+        return result.future();
+    }
+
+    @Override
+    public Future<JsonArray> addQuotaUsage(JsonArray usage) {
+        Promise<JsonArray> result = Promise.promise();
+
+        int size = usage.size();
+        UUID[] userIds = new UUID[size];
+        UUID[] collectionIds = new UUID[size];
+        String[] apiPaths = new String[size];
+        Long[] policiesIssuedAt = new Long[size];
+        Long[] apiHits = new Long[size];
+        Long[] dataUsage = new Long[size];
+        for (int i = 0; i < size; i++) {
+            JsonObject counter = usage.getJsonObject(i);
+            userIds[i] = UUID.fromString(counter.getString("userId"));
+            collectionIds[i] = UUID.fromString(counter.getString("collectionId"));
+            apiPaths[i] = counter.getString("apiPath");
+            policiesIssuedAt[i] = counter.getLong("policyIssuedAt");
+            apiHits[i] = counter.getLong("apiHits", 0L);
+            dataUsage[i] = counter.getLong("dataUsage", 0L);
+        }
+
+        String query = "INSERT INTO quota_counters (user_id, collection_id, api_path, policy_issued_at, api_hits," +
+                " data_usage) SELECT * FROM unnest($1::uuid[], $2::uuid[], $3::text[], $4::bigint[], $5::bigint[]," +
+                " $6::bigint[]) ON CONFLICT (user_id, collection_id, api_path, policy_issued_at) DO UPDATE SET" +
+                " api_hits = quota_counters.api_hits + EXCLUDED.api_hits," +
+                " data_usage = quota_counters.data_usage + EXCLUDED.data_usage, updated_at = now()" +
+                " RETURNING user_id, collection_id, api_path, policy_issued_at, api_hits, data_usage";
+
+        client.preparedQuery(query)
+                .execute(Tuple.of(userIds, collectionIds, apiPaths, policiesIssuedAt, apiHits, dataUsage))
+                .onSuccess(rows -> {
+                    JsonArray totals = new JsonArray();
+                    rows.forEach(row -> totals.add(new JsonObject()
+                            .put("userId", row.getUUID("user_id").toString())
+                            .put("collectionId", row.getUUID("collection_id").toString())
+                            .put("apiPath", row.getString("api_path"))
+                            .put("policyIssuedAt", row.getLong("policy_issued_at"))
+                            .put("apiHits", row.getLong("api_hits"))
+                            .put("dataUsage", row.getLong("data_usage"))));
+                    result.complete(totals);
+                })
+                .onFailure(fail -> {
+                    LOGGER.error("Failed to add quota usage: {}", fail.getMessage());
+                    result.fail(new OgcException(500, "Internal Server Error", "Failed to add usage: " + fail.getMessage()));
+                });
+
+        return result.future();
+    }
+
+    @Override
+    public Future<Integer> deleteIdleQuotaCounters(long retentionMillis) {
+        return client.preparedQuery("DELETE FROM quota_counters" +
+                        " WHERE updated_at < now() - $1::bigint * interval '1 millisecond'")
+                .execute(Tuple.of(retentionMillis))
+                .map(SqlResult::rowCount)
+                .onSuccess(deleted -> LOGGER.debug("Deleted {} idle quota counters", deleted))
+                .onFailure(fail -> LOGGER.error("Failed to delete idle quota counters: {}", fail.getMessage()));
+    }
+
   @Override
   public Future<List<JsonObject>> getOgcFeatureCollectionMetadataForOasSpec(
       List<String> existingCollectionUuidIds) {
@@ -1899,7 +2321,8 @@ public class DatabaseServiceImpl implements DatabaseService{
             + " JOIN crs_to_srid ON collection_supported_crs.crs_id = crs_to_srid.id"
             + " WHERE collection_id != ALL($1::UUID[]) GROUP BY collection_id)"
             + ", geom_info AS (SELECT type AS geometry_type, f_table_name::text AS collection_id"
-            + " FROM geometry_columns WHERE f_table_name != ALL($2::text[]))"
+            + " FROM geometry_columns WHERE f_table_name != ALL($2::text[])"
+            + " AND f_geometry_column != '" + FeatureQueryBuilder.CRS84_GEOMETRY_COLUMN + "')"
             + " SELECT collections_details.id, title, description, datetime_key, crs, bbox, temporal, supported_crs"
             + ", geometry_type FROM collections_details"
             + " JOIN crs_info ON crs_info.collection_id = collections_details.id"
@@ -1910,7 +2333,8 @@ public class DatabaseServiceImpl implements DatabaseService{
     final String GET_COLLECTION_ATTRIBUTE_INFO =
         "SELECT table_name AS collection_id, json_object_agg(column_name, data_type) AS attributes"
             + " FROM information_schema.columns WHERE table_name = ANY($1::text[])"
-            + " AND column_name != ALL('{\"id\",\"geom\"}') GROUP BY table_name";
+            + " AND column_name != ALL('{\"id\",\"geom\",\"" + FeatureQueryBuilder.CRS84_GEOMETRY_COLUMN
+            + "\"}') GROUP BY table_name";
 
     Future<List<JsonObject>> newCollectionsJson =
         client.withConnection(conn -> conn.preparedQuery(GET_COLLECTION_INFO).collecting(collector)
@@ -2016,29 +2440,22 @@ public class DatabaseServiceImpl implements DatabaseService{
   @Override
   public Future<Boolean> getAccess(String id) {
         Promise<Boolean> promise = Promise.promise();
-        String sqlString = "select access from ri_details where id = $1::uuid";
-        Collector<Row, ? , List<JsonObject>> collector = Collectors.mapping(Row::toJson, Collectors.toList());
 
-        client.withConnection(conn ->
-                        conn.preparedQuery(sqlString)
-                                .collecting(collector)
-                                .execute(Tuple.of(UUID.fromString(id)))
-                                .map(SqlResult::value))
-                .onSuccess(success -> {
-                    if (success.isEmpty()){
+        getCollectionMetadata(id)
+                .onSuccess(metadata -> {
+                    String access = metadata.getAccess();
+                    if (access == null){
                         promise.fail(new OgcException(404,"Not found", "Collection not found"));
                     }
                     else {
-                        String access = success.get(0).getString("access");
-                        if (access.equalsIgnoreCase("secure")) {
-                            promise.complete(false);
-                        }
-                        else if (access.equalsIgnoreCase("open")){
-                            promise.complete(true);
-                        }
+                        promise.complete(access.equalsIgnoreCase("open"));
                     }
                 })
                 .onFailure(fail -> {
+                    if (fail instanceof OgcException) {
+                        promise.fail(fail);
+                        return;
+                    }
                     LOGGER.error("Something went wrong at isOpenResource: {}", fail.getMessage() );
                     promise.fail(new OgcException(500, "Internal Server Error","Internal Server Error"));
                 });
@@ -8,6 +8,7 @@ import io.vertx.pgclient.PgConnectOptions;
 import io.vertx.pgclient.PgPool;
 import io.vertx.serviceproxy.ServiceBinder;
 import io.vertx.sqlclient.PoolOptions;
+import ogc.rs.database.util.CollectionMetadataCache;
 import static ogc.rs.common.Constants.*;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -46,12 +47,19 @@ public class DatabaseVerticle extends AbstractVerticle {
                         .setUser(databaseUserName)
                         .setPassword(databasePassword)
                         .setReconnectAttempts(2)
-                        .setReconnectInterval(1000L);
+                        .setReconnectInterval(1000L)
+                        .setCachePreparedStatements(true)
+                        .setPreparedStatementCacheMaxSize(config().getInteger(
+                                "preparedStatementCacheMaxSize", DEFAULT_PREPARED_STATEMENT_CACHE_SIZE));
 
         this.poolOptions = new PoolOptions().setMaxSize(poolSize);
         this.pool = PgPool.pool(vertx, connectOptions, poolOptions);
 
-        dbService = new DatabaseServiceImpl(this.pool,this.config());
+        CollectionMetadataCache metadataCache = new CollectionMetadataCache(config().getInteger(
+                "metadataCacheMaxTtlEntries", DEFAULT_METADATA_CACHE_MAX_TTL_ENTRIES));
+        metadataCache.listen(vertx, connectOptions);
+
+        dbService = new DatabaseServiceImpl(this.pool,this.config(), metadataCache);
 
         binder = new ServiceBinder(vertx);
         consumer = binder.setAddress(DATABASE_SERVICE_ADDRESS).register(DatabaseService.class, dbService);
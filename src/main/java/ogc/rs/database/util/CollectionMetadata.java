@@ -0,0 +1,110 @@
+package ogc.rs.database.util;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.sqlclient.Row;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-collection metadata that is needed on most requests to a collection and only changes when
+ * the collection is onboarded or updated. Loaded with {@link #LOAD_COLLECTION_METADATA} and held in
+ * the {@link CollectionMetadataCache}.
+ */
+public class CollectionMetadata {
+
+  /**
+   * Query to load the metadata of a collection. Takes the collection ID as the only parameter.
+   */
+  public static final String LOAD_COLLECTION_METADATA =
+      "SELECT collections_details.datetime_key, storage_crs.srid AS storage_srid,"
+          + " ri_details.access::text AS access,"
+          + " (SELECT json_object_agg(crs_to_srid.crs, crs_to_srid.srid)"
+          + " FROM collection_supported_crs JOIN crs_to_srid"
+          + " ON collection_supported_crs.crs_id = crs_to_srid.id"
+          + " WHERE collection_supported_crs.collection_id = collections_details.id) AS supported_crs,"
+          + " (SELECT type FROM geometry_columns"
+          + " WHERE f_table_name = collections_details.id::text"
+          + " AND f_geometry_column != '" + FeatureQueryBuilder.CRS84_GEOMETRY_COLUMN + "' LIMIT 1)"
+          + " AS geometry_type,"
+          + " EXISTS (SELECT 1 FROM geometry_columns"
+          + " WHERE f_table_name = collections_details.id::text"
+          + " AND f_geometry_column = '" + FeatureQueryBuilder.CRS84_GEOMETRY_COLUMN + "')"
+          + " AS has_crs84_geometry"
+          + " FROM collections_details"
+          + " LEFT JOIN crs_to_srid AS storage_crs ON collections_details.crs = storage_crs.crs"
+          + " LEFT JOIN ri_details ON ri_details.id = collections_details.id"
+          + " WHERE collections_details.id = $1::uuid";
+
+  private final Integer storageSrid;
+  private final String datetimeKey;
+  private final String access;
+  private final Map<String, Integer> supportedCrs;
+  private final String geometryType;
+  private final boolean crs84Geometry;
+
+  /**
+   * Create {@link CollectionMetadata} from a row returned by {@link #LOAD_COLLECTION_METADATA}.
+   *
+   * @param row the row
+   */
+  public CollectionMetadata(Row row) {
+    this.storageSrid = row.getInteger("storage_srid");
+    this.datetimeKey = row.getString("datetime_key");
+    this.access = row.getString("access");
+    this.geometryType = row.getString("geometry_type");
+    this.crs84Geometry = Boolean.TRUE.equals(row.getBoolean("has_crs84_geometry"));
+
+    Map<String, Integer> crs = new HashMap<>();
+    Object supportedCrsJson = row.getValue("supported_crs");
+    if (supportedCrsJson instanceof JsonObject) {
+      ((JsonObject) supportedCrsJson).forEach(e -> crs.put(e.getKey(), ((Number) e.getValue()).intValue()));
+    }
+    this.supportedCrs = Collections.unmodifiableMap(crs);
+  }
+
+  /**
+   * @return SRID of the storage CRS of the collection, <code>null</code> if not known
+   */
+  public Integer getStorageSrid() {
+    return storageSrid;
+  }
+
+  /**
+   * @return the datetime key of the collection, <code>null</code> if it has none
+   */
+  public String getDatetimeKey() {
+    return datetimeKey;
+  }
+
+  /**
+   * @return the access policy (<code>OPEN</code> or <code>SECURE</code>), <code>null</code> if the
+   *         collection has no resource details
+   */
+  public String getAccess() {
+    return access;
+  }
+
+  /**
+   * @return unmodifiable map of supported CRS URI to SRID
+   */
+  public Map<String, Integer> getSupportedCrs() {
+    return supportedCrs;
+  }
+
+  /**
+   * @return the PostGIS geometry type of the collection table, <code>null</code> if it is not a
+   *         feature collection
+   */
+  public String getGeometryType() {
+    return geometryType;
+  }
+
+  /**
+   * @return <code>true</code> if the collection table keeps a copy of its geometry in CRS84 in the
+   *         {@value FeatureQueryBuilder#CRS84_GEOMETRY_COLUMN} column
+   */
+  public boolean hasCrs84Geometry() {
+    return crs84Geometry;
+  }
+}
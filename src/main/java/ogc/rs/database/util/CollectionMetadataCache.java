@@ -0,0 +1,220 @@
+package ogc.rs.database.util;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.pgclient.PgConnectOptions;
+import io.vertx.pgclient.pubsub.PgSubscriber;
+import static ogc.rs.common.Constants.DEFAULT_METADATA_CACHE_MAX_TTL_ENTRIES;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * In-memory cache of collection metadata (storage SRID, datetime key, access policy, supported CRS,
+ * S3 bucket IDs, column types etc.) for one {@link ogc.rs.database.DatabaseVerticle} instance.
+ *
+ * <p>
+ * Values are cached per collection ID and key. The {@link Future} of a load is cached, so concurrent
+ * requests for an uncached value share one query. Failed loads are not cached. Values derived from
+ * the features of a collection, e.g. the geometry of token feature limits, are cached with a TTL,
+ * in an LRU cache bounded by the number of values across all collections, since their keys, e.g.
+ * the feature IDs of a token, are not bounded.
+ *
+ * <p>
+ * The cache is invalidated using Postgres LISTEN/NOTIFY:
+ * <ul>
+ * <li>on {@value #COLLECTION_METADATA_PG_CHANNEL}, which the collection metadata tables notify with
+ * the collection ID when they are modified, the entries of that collection are dropped</li>
+ * <li>on the channel used by {@link ogc.rs.apiserver.router.RouterManager}, which is notified when
+ * collections are onboarded, all entries are dropped</li>
+ * </ul>
+ * While the LISTEN connection is down, nothing is cached, since notifications could be missed.
+ */
+public class CollectionMetadataCache {
+
+  private static final Logger LOGGER = LogManager.getLogger(CollectionMetadataCache.class);
+
+  public static final String COLLECTION_METADATA_PG_CHANNEL = "collection_metadata_changed";
+  private static final String SPEC_AND_ROUTER_UPDATE_PG_CHANNEL = "update_spec_and_routes_now";
+  private static final String ALL_COLLECTIONS = "*";
+  private static final String TTL_KEY_SEPARATOR = " ";
+  private static final long PG_CHANNEL_CONN_INTERVAL_MS = 5000;
+
+  private final Map<String, Map<String, CachedValue>> cache = new ConcurrentHashMap<>();
+  /** Values cached with a TTL, keyed by collection ID and key, see {@link #ttlKey}. */
+  private final Map<String, CachedValue> ttlCache;
+  private volatile boolean listening = false;
+
+  /**
+   * Create a {@link CollectionMetadataCache} holding at most
+   * {@value ogc.rs.common.Constants#DEFAULT_METADATA_CACHE_MAX_TTL_ENTRIES} values with a TTL.
+   */
+  public CollectionMetadataCache() {
+    this(DEFAULT_METADATA_CACHE_MAX_TTL_ENTRIES);
+  }
+
+  /**
+   * Create a {@link CollectionMetadataCache}.
+   *
+   * @param maxTtlEntries maximum number of values cached with a TTL, the least recently used are
+   *        dropped beyond it
+   */
+  public CollectionMetadataCache(int maxTtlEntries) {
+    this.ttlCache = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, CachedValue> eldest) {
+        return size() > maxTtlEntries;
+      }
+    };
+  }
+
+  /**
+   * Get a cached value, loading it if not present.
+   *
+   * @param collectionId the collection ID
+   * @param key name of the value, unique within a collection
+   * @param loader supplies a Future loading the value from the database
+   * @return Future of the cached or loaded value
+   */
+  public <T> Future<T> get(String collectionId, String key, Supplier<Future<T>> loader) {
+    return get(collectionId, key, 0, loader);
+  }
+
+  /**
+   * Get a cached value, loading it if not present or older than <code>ttlMillis</code>. Meant for
+   * values that depend on data whose changes are not notified, e.g. the features of a collection.
+   *
+   * @param collectionId the collection ID
+   * @param key name of the value, unique within a collection
+   * @param ttlMillis time after which the value is loaded again, <code>0</code> to keep it until
+   *        the collection is invalidated
+   * @param loader supplies a Future loading the value from the database
+   * @return Future of the cached or loaded value
+   */
+  @SuppressWarnings("unchecked")
+  public <T> Future<T> get(String collectionId, String key, long ttlMillis,
+      Supplier<Future<T>> loader) {
+    if (!listening) {
+      return loader.get();
+    }
+    if (ttlMillis > 0) {
+      return getWithTtl(ttlKey(collectionId, key), ttlMillis, loader);
+    }
+
+    Map<String, CachedValue> entries =
+        cache.computeIfAbsent(collectionId, id -> new ConcurrentHashMap<>());
+
+    CachedValue cached = entries.get(key);
+    if (cached != null) {
+      return (Future<T>) cached.value;
+    }
+
+    Future<T> loaded = loader.get();
+    CachedValue entry = new CachedValue(loaded, Long.MAX_VALUE);
+    entries.put(key, entry);
+    loaded.onFailure(err -> entries.remove(key, entry));
+    return loaded;
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> Future<T> getWithTtl(String ttlKey, long ttlMillis, Supplier<Future<T>> loader) {
+    long now = System.currentTimeMillis();
+    synchronized (ttlCache) {
+      CachedValue cached = ttlCache.get(ttlKey);
+      if (cached != null && now < cached.expiresAt) {
+        return (Future<T>) cached.value;
+      }
+    }
+
+    Future<T> loaded = loader.get();
+    CachedValue entry = new CachedValue(loaded, now + ttlMillis);
+    synchronized (ttlCache) {
+      ttlCache.put(ttlKey, entry);
+    }
+    loaded.onFailure(err -> {
+      synchronized (ttlCache) {
+        ttlCache.remove(ttlKey, entry);
+      }
+    });
+    return loaded;
+  }
+
+  private static String ttlKey(String collectionId, String key) {
+    return collectionId + TTL_KEY_SEPARATOR + key;
+  }
+
+  /**
+   * Drop all cached values of a collection.
+   *
+   * @param collectionId the collection ID, or <code>*</code> to drop values of all collections
+   */
+  public void invalidate(String collectionId) {
+    if (collectionId == null || collectionId.isEmpty() || ALL_COLLECTIONS.equals(collectionId)) {
+      LOGGER.debug("Invalidating metadata cache of all collections");
+      cache.clear();
+      synchronized (ttlCache) {
+        ttlCache.clear();
+      }
+    } else {
+      LOGGER.debug("Invalidating metadata cache of collection {}", collectionId);
+      cache.remove(collectionId);
+      String prefix = ttlKey(collectionId, "");
+      synchronized (ttlCache) {
+        ttlCache.keySet().removeIf(ttlKey -> ttlKey.startsWith(prefix));
+      }
+    }
+  }
+
+  /**
+   * Start listening to the Postgres channels that invalidate the cache. Values are cached only
+   * after the LISTEN connection is up.
+   *
+   * @param vertx the Vert.x instance
+   * @param connectOptions options to connect to Postgres
+   */
+  public void listen(Vertx vertx, PgConnectOptions connectOptions) {
+    PgSubscriber subscriber = PgSubscriber.subscriber(vertx, connectOptions);
+
+    subscriber.channel(SPEC_AND_ROUTER_UPDATE_PG_CHANNEL)
+        .handler(payload -> invalidate(ALL_COLLECTIONS));
+
+    // called each time the channels are LISTENed to, i.e. on connect and after a reconnect
+    subscriber.channel(COLLECTION_METADATA_PG_CHANNEL)
+        .subscribeHandler(v -> {
+          LOGGER.info("Listening on Postgres channel '{}', collection metadata cache enabled",
+              COLLECTION_METADATA_PG_CHANNEL);
+          listening = true;
+        })
+        .handler(this::invalidate);
+
+    // called when the connection is lost, notifications may be missed until reconnected
+    subscriber.reconnectPolicy(retries -> {
+      if (listening) {
+        LOGGER.warn("Lost connection to Postgres channel '{}', disabling collection metadata cache",
+            COLLECTION_METADATA_PG_CHANNEL);
+        listening = false;
+        invalidate(ALL_COLLECTIONS);
+      }
+      return PG_CHANNEL_CONN_INTERVAL_MS;
+    });
+
+    subscriber.connect().onFailure(err -> {
+      LOGGER.error("Failed to connect to Postgres channel '{}', collection metadata will not be cached : {}",
+          COLLECTION_METADATA_PG_CHANNEL, err.getMessage());
+    });
+  }
+
+  private static class CachedValue {
+    private final Future<?> value;
+    private final long expiresAt;
+
+    private CachedValue(Future<?> value, long expiresAt) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
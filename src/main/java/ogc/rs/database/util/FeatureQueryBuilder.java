@@ -5,25 +5,46 @@ import io.vertx.sqlclient.Tuple;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 import static ogc.rs.common.Constants.DEFAULT_CRS_SRID;
 import static ogc.rs.database.util.Constants.STAC_ITEMS_DATETIME_KEY;
 
+/**
+ * Builds the SQL queries for OGC Features <code>/items</code> and STAC Item Search requests.
+ *
+ * <p>
+ * No value coming from a request or a token is written into the SQL text. Values are collected as
+ * bind parameters while the filters are set and are added to the {@link Tuple} passed to the
+ * <code>build*</code> methods, so requests with the same set of filters produce the same SQL text
+ * and can reuse one server-side prepared statement. Only identifiers (table and column names),
+ * SRIDs and column types from the catalog are part of the SQL text.
+ */
 public class FeatureQueryBuilder {
   private static final Logger LOGGER = LogManager.getLogger(FeatureQueryBuilder.class);
 
+  /** Highest zoom level geometry can be generalised for. */
+  public static final int MAX_ZOOM = 24;
+  /**
+   * Column that some collection tables not stored in CRS84 keep a copy of their geometry in, see
+   * the <code>add_crs84_geometry</code> database function.
+   */
+  public static final String CRS84_GEOMETRY_COLUMN = "geom_4326";
+
   private String tableName;
   private String[] stacCollectionIds = {};
   private int limit;
   private String bbox;
   private String featLimits;
-  private String tokenFeatCollectionId;
-  private String tokenFeatIds;
   private String datetime;
   private String filter;
-  private String additionalParams;
   private String sqlString;
   private int offset;
   private String defaultCrsSrid;
@@ -32,6 +53,16 @@ public class FeatureQueryBuilder {
   private String datetimeKey;
   private String[] stacItemIds = {};
   private String stacIntersectsGeom;
+  // columns returned in the properties of features, null for all columns
+  private List<String> properties;
+  // SRID of the CRS the geometry is returned in
+  private String crs;
+  // map zoom level the geometry is generalised for, null for full resolution
+  private Integer zoom;
+  // whether the table has the CRS84_GEOMETRY_COLUMN
+  private boolean crs84Geometry;
+  // values for the $n placeholders in the filter conditions, in placeholder order
+  private final List<Object> params = new ArrayList<>();
 
   public FeatureQueryBuilder(String tableName) {
     this.tableName = tableName;
@@ -41,9 +72,6 @@ public class FeatureQueryBuilder {
     datetime = "";
     filter = "";
     featLimits = "";
-    tokenFeatCollectionId = "";
-    tokenFeatIds = "";
-    additionalParams = "";
     sqlString = "";
     datetimeKey = "";
     defaultCrsSrid = String.valueOf(DEFAULT_CRS_SRID);
@@ -57,7 +85,6 @@ public class FeatureQueryBuilder {
   public FeatureQueryBuilder() {
     bbox = "";
     datetime = "";
-    additionalParams = "";
     sqlString = "";
     datetimeKey = "datetime";
     defaultCrsSrid = String.valueOf(DEFAULT_CRS_SRID);
@@ -79,17 +106,18 @@ public class FeatureQueryBuilder {
   }
 
   public void setBbox(String coordinates, String storageCrs) {
+    String envelope;
     if (!bboxCrsSrid.isEmpty() && !bboxCrsSrid.equalsIgnoreCase(defaultCrsSrid))
-      coordinates = coordinates.concat(",").concat(bboxCrsSrid);
+      envelope = makeEnvelope(coordinates, bboxCrsSrid);
     else
-      coordinates = coordinates.concat(",").concat(defaultCrsSrid);
+      envelope = makeEnvelope(coordinates, defaultCrsSrid);
 
     if (bboxCrsSrid.equalsIgnoreCase(storageCrs))
-      this.bbox = "st_intersects(geom, st_makeenvelope(" + coordinates + "))";
+      this.bbox = "st_intersects(geom, " + envelope + ")";
+    else if (crs84Geometry && (bboxCrsSrid.isEmpty() || bboxCrsSrid.equalsIgnoreCase(defaultCrsSrid)))
+      this.bbox = "st_intersects(" + CRS84_GEOMETRY_COLUMN + ", " + envelope + ")";
     else
-      this.bbox = "st_intersects(geom, st_transform(st_makeenvelope(" + coordinates + "),"+ storageCrs +"))";
-
-    this.additionalParams = "where";
+      this.bbox = "st_intersects(geom, st_transform(" + envelope + ","+ storageCrs +"))";
   }
 
   public void setBboxWhenTokenBboxExists(String queryBbox, String tokenBbox, String storageCrs) {
@@ -100,25 +128,25 @@ public class FeatureQueryBuilder {
 
     // Prepare query bbox condition if provided
     if (queryBbox != null && !queryBbox.isEmpty()) {
-      String queryCoordinates = queryBbox + "," +
+      String queryEnvelope = makeEnvelope(queryBbox,
               (bboxCrsSrid != null && !bboxCrsSrid.equalsIgnoreCase(defaultCrsSrid)
                       ? bboxCrsSrid
-                      : defaultCrsSrid);
+                      : defaultCrsSrid));
 
       queryBboxCondition = bboxCrsSrid != null && bboxCrsSrid.equalsIgnoreCase(storageCrs)
-              ? "ST_Intersects(geom, ST_MakeEnvelope(" + queryCoordinates + "))"
-              : "ST_Intersects(ST_Transform(geom, " + defaultCrsSrid + "), ST_Transform(ST_MakeEnvelope(" + queryCoordinates + "), " + defaultCrsSrid + "))";
+              ? "ST_Intersects(geom, " + queryEnvelope + ")"
+              : "ST_Intersects(" + crs84Geometry("geom") + ", ST_Transform(" + queryEnvelope + ", " + defaultCrsSrid + "))";
     }
 
     LOGGER.debug("query bbox condition is : {}", queryBboxCondition);
 
     // Prepare token bbox condition if provided
     if (tokenBbox != null && !tokenBbox.isEmpty()) {
-      String tokenCoordinates = tokenBbox + "," + defaultCrsSrid;
+      String tokenEnvelope = makeEnvelope(tokenBbox, defaultCrsSrid);
 
       tokenBboxCondition = storageCrs != null && storageCrs.equalsIgnoreCase(defaultCrsSrid)
-              ? "ST_Intersects(geom, ST_MakeEnvelope(" + tokenCoordinates + "))"
-              : "ST_Intersects(ST_Transform(geom, " + defaultCrsSrid + "), ST_MakeEnvelope(" + tokenCoordinates + "))";
+              ? "ST_Intersects(geom, " + tokenEnvelope + ")"
+              : "ST_Intersects(" + crs84Geometry("geom") + ", " + tokenEnvelope + ")";
     }
 
     LOGGER.debug("token bbox condition is: {}", tokenBboxCondition);
@@ -131,13 +159,10 @@ public class FeatureQueryBuilder {
     } else if (!tokenBboxCondition.isEmpty()) {
       this.bbox = tokenBboxCondition;
     }
-
-    if (this.bbox != null && !this.bbox.isEmpty()) {
-      this.additionalParams = "WHERE";
-    }
   }
 
   public void setCrs (String crs) {
+    this.crs = crs;
     // st_asgeojson(geometry, maxdecimaldigits, options); options = 0 means no extra options
     geoColumn = "cast(st_asgeojson(st_transform(geom," + crs + "), 9,0) as json)";
   }
@@ -146,42 +171,54 @@ public class FeatureQueryBuilder {
     if (datetimeKey.isEmpty()) {
       return;
     }
-    this.additionalParams = "where";
 
     String datetimeFormat = "'yyyy-mm-dd\"T\"HH24:MI:SS\"Z\"'";
 
-    // to_timestamp(datetimeKey, 'datetimeFormat') 'operator' 'datetime' (from request);
+    // to_timestamp(datetimeKey, 'datetimeFormat') 'operator' $n (datetime from request);
     String concatString =
             " to_timestamp(" .concat(datetimeKey).concat(",").concat(datetimeFormat).concat(") ");
 
     if (!datetime.contains("/")) {
-      this.datetime = concatString.concat("= '").concat(datetime).concat("'");
+      this.datetime = concatString.concat("= ").concat(bindTimestamp(datetime));
       return;
     }
     String[] dateTimeArr = datetime.split("/");
     if (dateTimeArr[0].equals("..")) { // -- before
-      this.datetime = concatString.concat("<'").concat(dateTimeArr[1]).concat("'");
+      this.datetime = concatString.concat("< ").concat(bindTimestamp(dateTimeArr[1]));
     }
     else if (dateTimeArr[1].equals("..")) { // -- after
-      this.datetime = concatString.concat(">'").concat(dateTimeArr[0]).concat("'");
+      this.datetime = concatString.concat("> ").concat(bindTimestamp(dateTimeArr[0]));
     }
     else {
-      this.datetime = concatString.concat(" between '").concat(dateTimeArr[0]).concat("' and '")
-              .concat(dateTimeArr[1]).concat("'");
+      this.datetime = concatString.concat(" between ").concat(bindTimestamp(dateTimeArr[0]))
+              .concat(" and ").concat(bindTimestamp(dateTimeArr[1]));
     }
   }
 
-  public void setFilter(Map<String, String> params) {
-    Iterator<Map.Entry<String, String>> iterator = params.entrySet().iterator();
+  /**
+   * Add attribute filters of the form <code>column = value</code>. Values are bound as text and
+   * cast to the type of the column, which is what PostgreSQL does with a quoted literal. Columns
+   * with no known type are compared as text.
+   *
+   * @param params map of column name to value
+   * @param columnTypes map of column name to SQL type of the column, as returned by
+   *        <code>format_type</code>
+   */
+  public void setFilter(Map<String, String> params, Map<String, String> columnTypes) {
+    // sorted so that the same set of filters always gives the same SQL text
+    Iterator<Map.Entry<String, String>> iterator = new TreeMap<>(params).entrySet().iterator();
     while (iterator.hasNext()) {
       Map.Entry<String, String> entry = iterator.next();
       String columnName = entry.getKey();
-      String value = entry.getValue();
-      this.filter +=  "\"" + columnName + "\"='" + value + "'";
+      String columnType = columnTypes.get(columnName);
+      String placeholder = bind(entry.getValue());
+      if (columnType != null)
+        this.filter += "\"" + columnName + "\" = " + placeholder + "::text::" + columnType;
+      else
+        this.filter += "\"" + columnName + "\"::text = " + placeholder;
       if (iterator.hasNext())
         this.filter += " and ";
     }
-    this.additionalParams = "where";
   }
   public void setDatetimeKey(String datetimeKey) {
     this.datetimeKey = datetimeKey;
@@ -197,272 +234,292 @@ public class FeatureQueryBuilder {
     }
   }
 
-  public void setFeatLimits(String tokenCollectionId, String tokenFeatureIds) {
-    this.tokenFeatCollectionId = tokenCollectionId;
-    this.tokenFeatIds = tokenFeatureIds;
-
-    // Build the feature limits condition using JOIN with individual geometries from token collection
-    String[] featureIds = tokenFeatureIds.split(",");
-    StringBuilder featCondition = new StringBuilder();
-
-    featCondition.append("ST_Intersects(request_feature.geom, token_feature.geom)");
-
-    this.featLimits = featCondition.toString();
-    this.additionalParams = "where";
-
+  /**
+   * Restrict features to those intersecting the features allowed by a token. The allowed features
+   * are passed as the union of their geometries, bound as a single parameter, so the query does not
+   * join against the token collection.
+   *
+   * @param featLimitGeometry union of the allowed features as hex-encoded EWKB
+   * @param storageCrs SRID of the storage CRS of the collection
+   */
+  public void setFeatLimits(String featLimitGeometry, String storageCrs) {
+    this.featLimits = "st_intersects(geom, st_transform(" + bind(featLimitGeometry)
+        + "::text::geometry, " + storageCrs + "))";
     LOGGER.debug("Feature limits condition: {}", this.featLimits);
   }
 
-  public void setStacItemIds(String[] itemIds) {
-    this.stacItemIds = itemIds;
+  /**
+   * Tell the builder that the table keeps a copy of its geometry in CRS84 in the
+   * {@value #CRS84_GEOMETRY_COLUMN} column, which is then read instead of transforming the
+   * <code>geom</code> column to CRS84. Must be set before the bbox.
+   *
+   * @param crs84Geometry whether the table has the column
+   */
+  public void setCrs84Geometry(boolean crs84Geometry) {
+    this.crs84Geometry = crs84Geometry;
   }
 
-  public void setStacCollectionIds(String[] collectionIds) {
-    this.stacCollectionIds = collectionIds;
+  /**
+   * The geometry column in CRS84, read from the {@value #CRS84_GEOMETRY_COLUMN} column if the
+   * table has one.
+   *
+   * @param geom the geometry column, qualified with the table name or alias if needed
+   */
+  private String crs84Geometry(String geom) {
+    if (crs84Geometry) {
+      return geom.replace("geom", CRS84_GEOMETRY_COLUMN);
+    }
+    return "st_transform(" + geom + "," + defaultCrsSrid + ")";
   }
 
-  public void setStacIntersectsGeom(JsonObject geometry) {
-    // this is a geojson geometry
-    this.stacIntersectsGeom =
-            "st_intersects(geom, st_geomfromgeojson('" + geometry.toString() + "'))";
+  /**
+   * Generalise the returned geometry for display on a web map at the given zoom level. The geometry
+   * is simplified with <code>ST_SimplifyPreserveTopology</code>, with a tolerance of one pixel of a
+   * 256 pixel wide tile at that zoom level, and coordinates in CRS84 are rounded to the number of
+   * decimal digits that resolve a pixel.
+   *
+   * @param zoom the zoom level, from <code>0</code> to {@value #MAX_ZOOM}
+   */
+  public void setZoom(int zoom) {
+    this.zoom = zoom;
   }
 
   /**
-   * Builds a SQL query to retrieve features from the requested collection table that spatially
-   * intersect with features from the token's feature collection. The result includes feature `id`,
-   * `geometry`, and a properties object excluding `id` and `geom`. The method applies additional
-   * filters such as bounding box, datetime range, custom attribute filters, and supports pagination
-   * via offset and limit.
+   * The expression for the <code>geometry</code> column of a feature. Bind parameters of the
+   * expression, if any, are added to the tuple.
    *
-   * @return A SQL SELECT query string that fetches intersecting features with optional filters and pagination.
-   * <p>
-   * The generated SQL query structure:
-   * SELECT request_feature.id, 'Feature' AS type, request_feature.geom AS geometry,
-   * (row_to_json(request_feature)::jsonb - 'id' - 'geom') AS properties
-   * FROM "<requested_table>" request_feature
-   * JOIN "<token_table>" token_feature
-   * ON ST_Intersects(request_feature.geom, token_feature.geom)
-   * WHERE token_feature.id IN (...)
-   *   [AND bbox filter]
-   *   [AND datetime filter]
-   *   [AND attribute filters]
-   *   [AND pagination offset]
-   * ORDER BY request_feature.id
-   * LIMIT <limit>;
+   * @param geom the geometry column, qualified with the table name or alias if needed
+   * @param tup the tuple to add the bind parameters to
    */
-  private String buildJoinQuery() {
-    // Build the JOIN query for feature limits
-    String geoColumnForJoin = geoColumn.replace("geom", "request_feature.geom");
-
-    StringBuilder query = new StringBuilder();
-    query.append("SELECT request_feature.id, 'Feature' AS type, ")
-            .append(geoColumnForJoin)
-            .append(" AS geometry, (row_to_json(request_feature)::jsonb - 'id' - 'geom') AS properties ")
-            .append("FROM \"").append(tableName).append("\" request_feature ")
-            .append("JOIN \"").append(tokenFeatCollectionId).append("\" token_feature ")
-            .append("ON ST_Intersects(request_feature.geom, token_feature.geom) ");
-
-    // Build WHERE conditions
-    StringBuilder whereConditions = new StringBuilder();
-    // Add token feature ID filter
-    whereConditions.append("token_feature.id IN (").append(tokenFeatIds).append(")");
-
-    // Add other conditions with request_feature prefix
-
-    //bounding box filter is not necessary as of now.
-    if (!bbox.isEmpty()) {
-      whereConditions.append(" AND ").append(bbox.replace("geom", "request_feature.geom"));
+  private String geometryColumn(String geom, Tuple tup) {
+    boolean crs84 = crs == null || crs.equals(defaultCrsSrid);
+    if (zoom == null) {
+      if (crs84Geometry && crs84) {
+        return "cast(st_asgeojson(" + crs84Geometry(geom) + (crs == null ? "" : ", 9,0")
+            + ") as json)";
+      }
+      return geoColumn.replace("geom", geom);
     }
 
-    //datetime range
-    if (!datetime.isEmpty()) {
-      whereConditions.append(" AND ").append(datetime.replace(datetimeKey, "request_feature." + datetimeKey));
-    }
-
-    // custom attribute filter
-    if (!filter.isEmpty()) {
-      whereConditions.append(" AND ").append(filter.replace("\"", "request_feature.\""));
-    }
+    double tolerance = 360.0 / (256L << zoom);
+    tup.addDouble(tolerance);
+    // simplified in CRS84, so that the tolerance is in degrees whatever the requested CRS
+    String simplified = "ST_SimplifyPreserveTopology(" + crs84Geometry(geom) + ", $" + tup.size()
+        + ")";
 
-    // Add offset condition
-    if (offset > 0) {
-      whereConditions.append(" AND request_feature.id > ").append(offset);
+    if (!crs84) {
+      return "cast(st_asgeojson(st_transform(" + simplified + "," + crs + "), 9,0) as json)";
     }
 
-    query.append("WHERE ").append(whereConditions.toString());
-    query.append(" ORDER BY request_feature.id LIMIT ").append(limit);
-
-    return query.toString();
+    tup.addInteger(Math.min(9, Math.max(0, (int) Math.ceil(-Math.log10(tolerance)))));
+    return "cast(st_asgeojson(" + simplified + ", $" + tup.size() + "::int, 0) as json)";
   }
 
   /**
-   * Builds a SQL query to count the number of features from the requested collection table that
-   * spatially intersect with features from the token's feature collection. This method applies
-   * the same filtering conditions as {@link #buildJoinQuery()}, but returns only the count instead
-   * of actual feature data.
+   * Return only the given columns in the <code>properties</code> of each feature, instead of all
+   * columns of the table. Only the selected columns are read and serialised by the database.
    *
-   * @return A SQL COUNT query string that counts intersecting features with optional filters.
-   * <p>
-   * The generated SQL query structure:
-   * SELECT COUNT(request_feature.id)
-   * FROM "<requested_table>" request_feature
-   * JOIN "<token_table>" token_feature
-   * ON ST_Intersects(request_feature.geom, token_feature.geom)
-   * WHERE token_feature.id IN (...)
-   *   [AND bbox filter]
-   *   [AND datetime filter]
-   *   [AND attribute filters];
+   * @param propertyNames names of the columns, which must be columns of the table
    */
-  private String buildJoinCountQuery() {
-    // Build the JOIN count query for feature limits
-    StringBuilder query = new StringBuilder();
-    query.append("SELECT COUNT(request_feature.id) ")
-            .append("FROM \"").append(tableName).append("\" request_feature ")
-            .append("JOIN \"").append(tokenFeatCollectionId).append("\" token_feature ")
-            .append("ON ST_Intersects(request_feature.geom, token_feature.geom) ");
-
-    // Build WHERE conditions
-    StringBuilder whereConditions = new StringBuilder();
-
-    // Add token feature ID filter
-    whereConditions.append("token_feature.id IN (").append(tokenFeatIds).append(")");
-
-    // Add other conditions with request_feature prefix
-
-    // bounding box filter is not necessary as of now.
-    if (!bbox.isEmpty()) {
-      whereConditions.append(" AND ").append(bbox.replace("geom", "request_feature.geom"));
-    }
-
-    // datetime range
-    if (!datetime.isEmpty()) {
-      whereConditions.append(" AND ").append(datetime.replace(datetimeKey, "request_feature." + datetimeKey));
-    }
-
-    // custom attribute filter
-    if (!filter.isEmpty()) {
-      whereConditions.append(" AND ").append(filter.replace("\"", "request_feature.\""));
-    }
+  public void setProperties(Collection<String> propertyNames) {
+    // sorted so that the same selection always gives the same SQL text
+    this.properties = new ArrayList<>(new TreeSet<>(propertyNames));
+    this.properties.remove("id");
+    this.properties.remove("geom");
+    this.properties.remove(CRS84_GEOMETRY_COLUMN);
+  }
 
-    query.append("WHERE ").append(whereConditions.toString());
+  /**
+   * The expression for the <code>properties</code> column of a feature.
+   *
+   * @param table the table name or alias the columns belong to
+   */
+  private String propertiesColumn(String table) {
+    if (properties == null) {
+      return "(row_to_json(" + table + ")::jsonb - 'id' - 'geom' - '" + CRS84_GEOMETRY_COLUMN
+          + "')";
+    }
+    if (properties.isEmpty()) {
+      return "'{}'::jsonb";
+    }
+
+    // jsonb_build_object takes at most 100 arguments, i.e. 50 properties
+    StringJoiner objects = new StringJoiner(" || ", "(", ")");
+    for (int i = 0; i < properties.size(); i += 50) {
+      StringJoiner object = new StringJoiner(", ", "jsonb_build_object(", ")");
+      for (String name : properties.subList(i, Math.min(i + 50, properties.size()))) {
+        object.add("'" + name.replace("'", "''") + "'")
+            .add(table + ".\"" + name.replace("\"", "\"\"") + "\"");
+      }
+      objects.add(object.toString());
+    }
+    return objects.toString();
+  }
 
-    return query.toString();
+  public void setStacItemIds(String[] itemIds) {
+    this.stacItemIds = itemIds;
   }
 
-  public String buildSqlString() {
-    // Check if we need to use JOIN approach (only when featLimits is present)
-    if (!featLimits.isEmpty()) {
-      return buildJoinQuery();
-    }
+  public void setStacCollectionIds(String[] collectionIds) {
+    this.stacCollectionIds = collectionIds;
+  }
 
-    // Original query building logic for non-feature-limit cases
-    //TODO: refactor to build the sql query
-    this.sqlString = String.format("select id, 'Feature' as type, %4$s as geometry, (row_to_json(\"%1$s\")::jsonb - " +
-                    " 'id' - 'geom') as properties from \"%1$s\" where id > %3$d ORDER BY id limit %2$d"
-            , this.tableName, this.limit, this.offset, this.geoColumn);
+  public void setStacIntersectsGeom(JsonObject geometry) {
+    // this is a geojson geometry
+    this.stacIntersectsGeom =
+            "st_intersects(geom, st_geomfromgeojson(" + bind(geometry.toString()) + "::text))";
+  }
 
-    if (!bbox.isEmpty()) {
-      this.sqlString = String.format("select id, 'Feature' as type, %6$s as geometry, (row_to_json(\"%1$s\")::jsonb - " +
-                      " 'id' - 'geom') as properties from \"%1$s\" %3$s %4$s and id > %5$d ORDER BY id limit %2$d"
-              ,this.tableName,this.limit, this.additionalParams, this.bbox, this.offset, this.geoColumn);
-    }
+  /**
+   * Add a bind parameter.
+   *
+   * @param value the value
+   * @return the placeholder for the value
+   */
+  private String bind(Object value) {
+    params.add(value);
+    return "$" + params.size();
+  }
 
-    if(!datetime.isEmpty() ){
-      this.sqlString = String.format("select id, 'Feature' as type, %6$s as geometry, (row_to_json(\"%1$s\")::jsonb - " +
-                      "'id' - 'geom') as properties from \"%1$s\" %3$s %4$s and id > %5$d ORDER BY id limit %2$d"
-              ,this.tableName,this.limit, this.additionalParams, this.datetime, this.offset, this.geoColumn);
-    }
+  /**
+   * Bind a datetime string from the request. The parameter is typed as text and then cast, since the
+   * client can only send a {@link String} for a parameter PostgreSQL infers as text.
+   */
+  private String bindTimestamp(String value) {
+    return bind(value) + "::text::timestamptz";
+  }
 
-    if (!filter.isEmpty()) {
-      this.sqlString = String.format("select id, 'Feature' as type, %6$s as geometry, (row_to_json(\"%1$s\")::jsonb - " +
-                      " 'id' - 'geom') as properties from \"%1$s\" %3$s %4$s and id > %5$d ORDER BY id limit %2$d"
-              ,this.tableName,this.limit, this.additionalParams, this.filter, this.offset, this.geoColumn);
+  /**
+   * Build a <code>st_makeenvelope</code> call with the coordinates as bind parameters.
+   *
+   * @param coordinates comma-separated <code>minx,miny,maxx,maxy</code>
+   * @param srid SRID of the coordinates
+   * @return the SQL expression
+   */
+  private String makeEnvelope(String coordinates, String srid) {
+    StringJoiner envelope = new StringJoiner(",", "st_makeenvelope(", "," + srid + ")");
+    for (String coordinate : coordinates.split(",")) {
+      envelope.add(bind(Double.valueOf(coordinate.trim())));
     }
+    return envelope.toString();
+  }
 
-    if (!bbox.isEmpty() && !filter.isEmpty()) {
-      this.sqlString = String.format("select id, 'Feature' as type, %7$s as geometry, (row_to_json(\"%1$s\")::jsonb - " +
-                      "'id' - 'geom') as properties from \"%1$s\" %3$s %4$s and %5$s and id > %6$d ORDER BY id limit %2$d"
-              ,this.tableName,this.limit, this.additionalParams, this.bbox, this.filter, this.offset, this.geoColumn);
-    }
+  /**
+   * Add the bind parameters of all filter conditions to the tuple. Must be called before any
+   * parameter specific to a query (e.g. offset, limit) is added.
+   */
+  private void addFilterParams(Tuple tup) {
+    params.forEach(tup::addValue);
+  }
 
-    if (!bbox.isEmpty() && !datetime.isEmpty()) {
-      this.sqlString = String.format("select id, 'Feature' as type, %7$s as geometry, (row_to_json(\"%1$s\")::jsonb - " +
-                      " 'id' - 'geom') as properties from \"%1$s\" %3$s %4$s and %5$s and %6$d ORDER BY id limit %2$d"
-              ,this.tableName,this.limit, this.additionalParams, this.bbox, this.datetime, this.offset, this.geoColumn);
-    }
+  /**
+   * Build the query for a page of features. The bind parameters of the filters, followed by those
+   * for the offset and limit, are added to the passed-in tuple.
+   *
+   * @param tup empty tuple to which the query params are added
+   * @return the formed query which must be run with the passed-in tuple
+   */
+  public String buildSqlString(Tuple tup) {
+    addFilterParams(tup);
+    StringBuilder query = new StringBuilder()
+        .append("select id, 'Feature' as type, ").append(geometryColumn("geom", tup))
+        .append(" as geometry, ").append(propertiesColumn("\"" + this.tableName + "\""))
+        .append(" as properties from \"").append(this.tableName)
+        .append("\" where ");
 
-    if (!datetime.isEmpty() && !filter.isEmpty()) {
-      this.sqlString = String.format("select id, 'Feature' as type, %7$s as geometry, (row_to_json(\"%1$s\")::jsonb - " +
-                      " 'id' - 'geom') as properties from \"%1$s\" %3$s %4$s and %5$s and id > %6$d ORDER BY id limit %2$d"
-              ,this.tableName,this.limit, this.additionalParams, this.datetime, this.filter, this.offset, this.geoColumn);
+    String conditions = filterConditions();
+    if (!conditions.isEmpty()) {
+      query.append(conditions).append(" and ");
     }
 
-    if (!bbox.isEmpty() && !filter.isEmpty() && !datetime.isEmpty()) {
-      this.sqlString = String.format("select id, 'Feature' as type, %8$s as geometry, (row_to_json(\"%1$s\")::jsonb - " +
-                      " 'id' - 'geom') as properties from \"%1$s\" %3$s %4$s and %5$s and %7$s and id > %6$d ORDER BY id limit %2$d"
-              ,this.tableName,this.limit, this.additionalParams, this.bbox, this.filter, this.offset, this.datetime,
-              this.geoColumn);
-    }
+    tup.addLong((long) this.offset);
+    query.append("id > $").append(tup.size());
+    tup.addInteger(this.limit);
+    query.append(" ORDER BY id limit $").append(tup.size());
 
+    this.sqlString = query.toString();
     LOGGER.debug("<builder>Sql query- {}", sqlString);
     return sqlString;
   }
 
-  public String buildSqlString(String isCountQuery) {
-    // Check if we need to use JOIN approach (only when featLimits is present)
-    if (!featLimits.isEmpty()) {
-      return buildJoinCountQuery();
-    }
-
-    // Original count query building logic for non-feature-limit cases
-    this.sqlString = String.format("select count(id) from \"%1$s\" "
-            , this.tableName);
-
-    if (!bbox.isEmpty()) {
-      this.sqlString = String.format("select count(id) from \"%1$s\" %2$s %3$s"
-              ,this.tableName, this.additionalParams, this.bbox);
-    }
-
-    if(!datetime.isEmpty() ){
-      this.sqlString = String.format("select count(id) from \"%1$s\" %2$s %3$s"
-              ,this.tableName, this.additionalParams, this.datetime);
-    }
+  /**
+   * Build the query counting all features matched by the filters. The bind parameters of the
+   * filters are added to the passed-in tuple.
+   *
+   * @param tup empty tuple to which the query params are added
+   * @return the formed query which must be run with the passed-in tuple
+   */
+  public String buildCountSqlString(Tuple tup) {
+    addFilterParams(tup);
+    return buildMatchingSqlString("count(id)");
+  }
 
-    if (!filter.isEmpty()) {
-      this.sqlString = String.format("select count(id) from \"%1$s\" %2$s %3$s"
-              ,this.tableName, this.additionalParams, this.filter);
+  /**
+   * Build the query counting the features matched by the filters, stopping once
+   * <code>countLimit + 1</code> features have been counted. A count greater than
+   * <code>countLimit</code> hence means that at least <code>countLimit</code> features match.
+   *
+   * @param tup empty tuple to which the query params are added
+   * @param countLimit the limit, or <code>0</code> to count all features
+   * @return the formed query which must be run with the passed-in tuple
+   */
+  public String buildCountSqlString(Tuple tup, int countLimit) {
+    if (countLimit <= 0) {
+      return buildCountSqlString(tup);
     }
 
-    // Handle combinations
-    if (!bbox.isEmpty() && !filter.isEmpty()) {
-      this.sqlString = String.format("select count(id) from \"%1$s\" %2$s %3$s and %4$s"
-              ,this.tableName, this.additionalParams, this.bbox, this.filter);
-    }
+    addFilterParams(tup);
+    String matchingQuery = buildMatchingSqlString("1");
+    tup.addInteger(countLimit + 1);
+    return "select count(*) from (" + matchingQuery + " limit $" + tup.size() + ") as matched";
+  }
 
-    if (!bbox.isEmpty() && !datetime.isEmpty()) {
-      this.sqlString = String.format("select count(id) from \"%1$s\" %2$s %3$s and %4$s"
-              ,this.tableName, this.additionalParams, this.bbox, this.datetime);
-    }
+  /**
+   * Builds an <code>EXPLAIN (FORMAT JSON)</code> query over the features matched by the current
+   * filters. The <em>Plan Rows</em> value of the top-level plan node is the planner's estimate of
+   * <code>numberMatched</code>, which is obtained without scanning the table.
+   *
+   * @param tup empty tuple to which the query params are added
+   * @return an EXPLAIN query string which must be run with the passed-in tuple
+   */
+  public String buildEstimateSqlString(Tuple tup) {
+    addFilterParams(tup);
+    return "EXPLAIN (FORMAT JSON) " + buildMatchingSqlString("1");
+  }
 
-    if (!datetime.isEmpty() && !filter.isEmpty()) {
-      this.sqlString = String.format("select count(id) from \"%1$s\" %2$s %3$s and %4$s"
-              ,this.tableName, this.additionalParams, this.datetime, this.filter);
-    }
+  private String buildMatchingSqlString(String selectList) {
+    StringBuilder query = new StringBuilder()
+        .append("select ").append(selectList).append(" from \"").append(this.tableName)
+        .append("\"");
 
-    // Handle three conditions
-    if (!bbox.isEmpty() && !filter.isEmpty() && !datetime.isEmpty()) {
-      this.sqlString = String.format("select count(id) from \"%1$s\" %2$s %3$s and %4$s and %5$s"
-              ,this.tableName, this.additionalParams, this.bbox, this.filter, this.datetime);
+    String conditions = filterConditions();
+    if (!conditions.isEmpty()) {
+      query.append(" where ").append(conditions);
     }
 
+    this.sqlString = query.toString();
     LOGGER.debug("<builder>Count query- {}", sqlString);
     return sqlString;
   }
 
+  /**
+   * The bbox, attribute, datetime and feature limit conditions that are set, joined with
+   * <code>and</code>.
+   */
+  private String filterConditions() {
+    StringJoiner conditions = new StringJoiner(" and ");
+    for (String condition : new String[] {bbox, filter, datetime, featLimits}) {
+      if (!condition.isEmpty()) {
+        conditions.add(condition);
+      }
+    }
+    return conditions.toString();
+  }
+
   /**
    * Build query string needed for STAC Item Search. An empty {@link Tuple} is passed in as a
-   * parameter. Query params are added to tuple when a safe-query string formed by appending cannot
-   * be created. The returned query must be executed with the tuple.
+   * parameter and all query params are added to it. The returned query must be executed with the
+   * tuple.
    *
    * STAC Item Search uses PostgreSQL table partitioning. A partitioned table called
    * <em>stac_collections_part</em> is queried instead of querying individual STAC collection
@@ -479,8 +536,8 @@ public class FeatureQueryBuilder {
             "SELECT scp.id AS id, 'Feature' AS type, collection_id AS collection, " + this.geoColumn
                     + " AS geometry, properties, p_id FROM stac_collections_part scp WHERE 1=1");
 
-    // integer that stores the parameter index as params are added to the tuple
-    int parameterIndex = 0;
+    // bbox, datetime and intersects geometry params come first, the rest are numbered after them
+    addFilterParams(tup);
 
     if (!bbox.isEmpty()) {
       stacPartitionTableQuery.append(" AND ").append(this.bbox);
@@ -496,26 +553,26 @@ public class FeatureQueryBuilder {
 
     // need to use tuple here otherwise need to do a lot of work to create the collection ID string
     if (stacCollectionIds.length != 0) {
-      parameterIndex++;
-      stacPartitionTableQuery
-              .append(" AND collection_id::text = ANY($" + parameterIndex + ")");
       tup.addArrayOfString(stacCollectionIds);
+      stacPartitionTableQuery
+              .append(" AND collection_id::text = ANY($" + tup.size() + ")");
     }
 
     // need to use tuple here since anything can be passed in as item ID, so chance of SQL injection
     // (?)
     if (stacItemIds.length != 0) {
-      parameterIndex++;
-      stacPartitionTableQuery.append(" AND id = ANY($" + parameterIndex + ")");
       tup.addArrayOfString(stacItemIds);
+      stacPartitionTableQuery.append(" AND id = ANY($" + tup.size() + ")");
     }
 
     if (offset != 0) {
-      stacPartitionTableQuery.append(" AND p_id > ").append(offset);
+      tup.addLong((long) offset);
+      stacPartitionTableQuery.append(" AND p_id > $").append(tup.size());
     }
 
     // limit always added
-    stacPartitionTableQuery.append(" LIMIT ").append(this.limit);
+    tup.addInteger(this.limit);
+    stacPartitionTableQuery.append(" LIMIT $").append(tup.size());
 
     // forming CTE with the stac_collections_part query to get required data from stac_items_assets
     // and then joining the result
@@ -180,11 +180,31 @@ public class RecordQueryBuilder {
   }
 
 
+  /**
+   * Build the record count query, stopping once <code>countLimit + 1</code> records have been
+   * counted.
+   *
+   * @param countLimit the limit, or <code>0</code> to count all records
+   * @return the count query
+   */
+  public String buildItemCountSqlString(int countLimit) {
+    if (countLimit <= 0) {
+      return buildItemCountSqlString();
+    }
+
+    String matchingQuery = buildItemMatchingSqlString("1");
+    return "SELECT COUNT(*) FROM (" + matchingQuery + " LIMIT " + (countLimit + 1) + ") AS matched";
+  }
+
   public String buildItemCountSqlString() {
+    return buildItemMatchingSqlString("COUNT(id)");
+  }
+
+  private String buildItemMatchingSqlString(String selectList) {
 
     String catalogTableName = "public.\"" + tableName + "\"";
     StringBuilder query =
-        new StringBuilder(String.format("SELECT COUNT(id) FROM %s", catalogTableName));
+        new StringBuilder(String.format("SELECT %s FROM %s", selectList, catalogTableName));
 
     List<String> conditions = new ArrayList<>();
 
@@ -8,6 +8,7 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 
 @ProxyGen
@@ -24,6 +25,30 @@ public interface MeteringService {
 
     Future<JsonObject> insertMeteringValuesInRmq(JsonObject request);
 
+    /**
+     * Inserts aggregated metering records into the Postgres metering table with a single statement
+     * and, once they are inserted, publishes each of them to RMQ.
+     *
+     * @param records metering JSON as published to RMQ, each with the number of requests it
+     *     aggregates in <code>request_count</code> (1 if absent) and optionally the user ID of the
+     *     metering table in <code>metering_user_id</code>, if it differs from the delegator ID
+     * @return A {@link Future} of the records that could not be published to RMQ, empty if all
+     *     were, which completes once the records are inserted and published. Failed if the insert
+     *     fails, in which case no record is published. Records that cannot be inserted, e.g. with
+     *     an invalid ID, are logged and skipped.
+     */
+    Future<JsonArray> insertMeteringBatch(JsonArray records);
+
+    /**
+     * Publishes metering records to RMQ only, e.g. records inserted by
+     * {@link #insertMeteringBatch(JsonArray)} that could not be published then.
+     *
+     * @param records metering JSON as given to {@link #insertMeteringBatch(JsonArray)}
+     * @return A {@link Future} of the records that could not be published to RMQ, empty if all
+     *     were, which completes once the records are published
+     */
+    Future<JsonArray> publishMeteringBatch(JsonArray records);
+
     Future<JsonObject> monthlyOverview(JsonObject request);
 
     Future<JsonObject> summaryOverview(JsonObject request);
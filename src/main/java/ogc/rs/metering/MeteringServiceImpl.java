@@ -1,5 +1,12 @@
 package ogc.rs.metering;
 
+import static ogc.rs.common.Constants.API;
+import static ogc.rs.common.Constants.DELEGATOR_ID;
+import static ogc.rs.common.Constants.ID;
+import static ogc.rs.common.Constants.ISO_TIME;
+import static ogc.rs.common.Constants.METERING_USER_ID;
+import static ogc.rs.common.Constants.REQUEST_COUNT;
+import static ogc.rs.common.Constants.RESPONSE_SIZE;
 import static ogc.rs.metering.util.MeteringConstant.*;
 
 import io.vertx.core.*;
@@ -205,6 +212,87 @@ public class MeteringServiceImpl implements MeteringService {
         return promise.future();
     }
 
+    @Override
+    public Future<JsonArray> insertMeteringBatch(JsonArray records) {
+        List<UUID> userIds = new ArrayList<>(records.size());
+        List<UUID> collectionIds = new ArrayList<>(records.size());
+        List<String> apiPaths = new ArrayList<>(records.size());
+        List<LocalDateTime> timestamps = new ArrayList<>(records.size());
+        List<Long> respSizes = new ArrayList<>(records.size());
+        List<Integer> requestCounts = new ArrayList<>(records.size());
+        JsonArray inserted = new JsonArray();
+
+        for (int i = 0; i < records.size(); i++) {
+            JsonObject record = records.getJsonObject(i);
+            try {
+                // the user ID of the metering table differs from the delegator ID for delegates
+                UUID userId = UUID.fromString(record.getString(METERING_USER_ID, record.getString(DELEGATOR_ID)));
+                UUID collectionId = UUID.fromString(record.getString(ID));
+                LocalDateTime timestamp = ZonedDateTime.parse(record.getString(ISO_TIME)).toLocalDateTime();
+                userIds.add(userId);
+                collectionIds.add(collectionId);
+                timestamps.add(timestamp);
+            } catch (RuntimeException e) {
+                // a record that can never be inserted must not fail the records batched with it
+                LOGGER.error("Skipping invalid metering record {}: {}", record, e.getMessage());
+                continue;
+            }
+            apiPaths.add(record.getString(API));
+            respSizes.add(record.getLong(RESPONSE_SIZE));
+            requestCounts.add(record.getInteger(REQUEST_COUNT, 1));
+            inserted.add(record);
+        }
+        if (inserted.isEmpty()) {
+            return Future.succeededFuture(new JsonArray());
+        }
+
+        // one multi-row insert, instead of one per record
+        String sql = "INSERT INTO metering (user_id, collection_id, api_path, timestamp, resp_size, request_count) " +
+                "SELECT * FROM UNNEST($1::uuid[], $2::uuid[], $3::text[], $4::timestamp[], $5::bigint[], $6::int[])";
+        int size = inserted.size();
+
+        // records are published only once inserted, so that a batch whose insert failed can be
+        // retried without publishing its records twice
+        return ogcPgClient.preparedQuery(sql)
+                .execute(Tuple.of(userIds.toArray(new UUID[0]), collectionIds.toArray(new UUID[0]),
+                        apiPaths.toArray(new String[0]), timestamps.toArray(new LocalDateTime[0]),
+                        respSizes.toArray(new Long[0]), requestCounts.toArray(new Integer[0])))
+                .onSuccess(res -> LOGGER.debug("Inserted {} records into Postgres metering table", size))
+                .onFailure(err -> LOGGER.error("Failed to insert into Postgres metering table", err))
+                .compose(res -> publishMeteringRecords(inserted));
+    }
+
+    @Override
+    public Future<JsonArray> publishMeteringBatch(JsonArray records) {
+        return publishMeteringRecords(records);
+    }
+
+    /**
+     * Publishes metering records to RMQ one after the other, as the audit consumer expects one
+     * record per message.
+     *
+     * @param records the records as given to the service
+     * @return Future of the records that could not be published
+     */
+    private Future<JsonArray> publishMeteringRecords(JsonArray records) {
+        JsonArray unpublished = new JsonArray();
+        Future<Void> published = Future.succeededFuture();
+        for (int i = 0; i < records.size(); i++) {
+            JsonObject record = records.getJsonObject(i);
+            JsonObject message = record.copy();
+            message.remove(REQUEST_COUNT);
+            message.remove(METERING_USER_ID);
+            published = published.compose(v -> dataBrokerService
+                    .publishMessage(EXCHANGE_NAME, ROUTING_KEY, queryBuilder.buildMessageForRmq(message))
+                    .recover(err -> {
+                        LOGGER.error("Failed to publish metering record in RMQ: {}", err.getMessage());
+                        unpublished.add(record);
+                        return Future.succeededFuture();
+                    }));
+        }
+        return published.map(unpublished);
+    }
+
     @Override
   public Future<JsonObject> insertMeteringValuesInRmq(JsonObject request) {
     Promise<JsonObject> promise = Promise.promise();
@@ -21,6 +21,8 @@ import ogc.rs.processes.s3MultiPartUploadForStacOnboarding.S3CompleteMultiPartUp
 import ogc.rs.processes.s3MultiPartUploadForStacOnboarding.S3InitiateMultiPartUploadProcess;
 import ogc.rs.processes.auditLogsIngestion.AuditLogsIngestionProcess;
 import ogc.rs.processes.mapCollectionOnboarding.MapCollectionOnboardingProcess;
+import ogc.rs.processes.tilesCacheWarmUp.TilesCacheWarmUpProcess;
+import ogc.rs.processes.tilesIndexRebuild.TilesIndexRebuildProcess;
 import ogc.rs.processes.tilesMetaDataOnboarding.TilesMetaDataOnboardingProcess;
 import ogc.rs.processes.s3PreSignedURLGeneration.S3PreSignedURLGenerationProcess;
 import ogc.rs.processes.tilesOnboardingFromExistingFeature.TilesOnboardingFromExistingFeatureProcess;
@@ -169,6 +171,12 @@ public class ProcessesRunnerImpl implements ProcessesRunnerService {
         case "TilesMetaDataOnboarding":
           processService = new TilesMetaDataOnboardingProcess(pgPool, webClient, config, processSpecificS3Conf, vertx);
           break;
+        case "TilesCacheWarmUp":
+          processService = new TilesCacheWarmUpProcess(pgPool, vertx);
+          break;
+        case "TilesIndexRebuild":
+          processService = new TilesIndexRebuildProcess(pgPool, processSpecificS3Conf, vertx);
+          break;
         case "MapCollectionOnboarding":
           processService =
               new MapCollectionOnboardingProcess(pgPool, webClient, config, processSpecificS3Conf, vertx);
@@ -1,10 +1,13 @@
 package ogc.rs.processes.featureCollectionAppending;
 
+import ogc.rs.database.util.FeatureQueryBuilder;
+
 public class Constants {
     public static final String COLLECTIONS_DETAILS_SELECT_QUERY =
             "SELECT * FROM collections_details WHERE id = $1";
     public static final String DB_SCHEMA_CHECK_QUERY =
-            "SELECT column_name FROM information_schema.columns WHERE table_name = $1;";
+            "SELECT column_name FROM information_schema.columns WHERE table_name = $1"
+                    + " AND column_name != '" + FeatureQueryBuilder.CRS84_GEOMETRY_COLUMN + "';";
     public static final String MERGE_TEMP_TABLE_QUERY =
             "INSERT INTO \"%s\" (%s) SELECT %s FROM \"%s\"";
     public static final String DELETE_TEMP_TABLE_QUERY =
@@ -7,6 +7,8 @@ public class Constants {
   public static final String COLLECTION_TYPE = "application/geopackage+sqlite3";
   public static final String GRANT_QUERY =
       "GRANT SELECT, INSERT ON  \"collections_details_id\" TO databaseUser";
+  // adds a CRS84 copy of the geometry if the table is not stored in EPSG:4326, see migration V40
+  public static final String ADD_CRS84_GEOMETRY_QUERY = "SELECT add_crs84_geometry($1)";
   public static final String STAC_COLLECTION_ENCLOSURE_INSERT_QUERY =
       "INSERT INTO collections_enclosure (collections_id,title,href,type,size,s3_bucket_id) VALUES ($1::UUID, $2, $3, $4, $5, $6) returning id;";
 
@@ -495,7 +495,9 @@ public class FeatureCollectionOnboardingProcess implements ProcessService {
                 Tuple.of(collectionsDetailsTableName, title, fileName, COLLECTION_TYPE, fileSize,
                     input.getString(ProcessesRunnerImpl.S3_BUCKET_IDENTIFIER_PROCESS_INPUT_KEY))))
         .compose(stacCollectionResult -> ogr2ogrCmd(input))
-        .compose(onBoardingSuccess -> sqlClient.query(grantQuery).execute())
+        .compose(onBoardingSuccess -> sqlClient.preparedQuery(ADD_CRS84_GEOMETRY_QUERY)
+            .execute(Tuple.of(collectionsDetailsTableName)))
+        .compose(crs84GeometryResult -> sqlClient.query(grantQuery).execute())
             .compose(getRecordTable->sqlClient.query(FIND_RECORD_COLLECTION).execute())
             .compose(getRecordTableRes -> {
               List<String> ids = new ArrayList<>();
@@ -8,22 +8,14 @@ import io.vertx.pgclient.PgPool;
 import io.vertx.sqlclient.Row;
 import io.vertx.sqlclient.Tuple;
 import ogc.rs.common.S3Config;
+import ogc.rs.common.S3PreSigner;
 import ogc.rs.processes.ProcessService;
 import ogc.rs.processes.util.Status;
 import ogc.rs.apiserver.util.OgcException;
 import ogc.rs.processes.util.UtilClass;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
-import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
-import software.amazon.awssdk.regions.Region;
-import software.amazon.awssdk.services.s3.S3Configuration;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
-import software.amazon.awssdk.services.s3.presigner.S3Presigner;
-import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
-import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
-
-import java.net.URI;
+
 import java.time.Duration;
 import java.util.Map;
 
@@ -267,41 +259,15 @@ public class S3PreSignedURLGenerationProcess implements ProcessService {
      */
     private Future<JsonObject> generatePreSignedUrl(JsonObject requestInput) {
         Promise<JsonObject> promise = Promise.promise();
-        try {
-            // Create AWS credentials and presigner
-            Region region = Region.of(s3conf.getRegion());
-            AwsBasicCredentials awsCredentials = AwsBasicCredentials.create(s3conf.getAccessKey(), s3conf.getSecretKey());
-
-            try (S3Presigner preSigner = S3Presigner.builder()
-                    .region(region)
-                    .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
-                    .endpointOverride(URI.create(s3conf.getEndpoint()))
-                    .serviceConfiguration(S3Configuration.builder()
-                        .pathStyleAccessEnabled(s3conf.isPathBasedAccess())
-                        .build())
-                    .build()) {
-
-                // Create the S3 PutObjectRequest
-                PutObjectRequest objectRequest = PutObjectRequest.builder()
-                        .bucket(s3conf.getBucket())
-                        .key(requestInput.getString("objectKeyName"))
-                        .build();
-
-                // Create the S3 Pre-Signed URL request
-                PutObjectPresignRequest preSignRequest = PutObjectPresignRequest.builder()
-                        .signatureDuration(Duration.ofMinutes(5)) // Set URL expiration time
-                        .putObjectRequest(objectRequest)
-                        .build();
-
-                // Generate the Pre-Signed URL
-                PresignedPutObjectRequest preSignedRequest = preSigner.presignPutObject(preSignRequest);
-                String preSignedUrl = preSignedRequest.url().toString();
-
-                // Log and return the generated Pre-Signed URL
-                JsonObject result = new JsonObject().put("preSignedUrl", preSignedUrl);
-                LOGGER.debug("Generated pre-signed URL: {}", preSignedUrl);
-                promise.complete(result);
-            }
+        try (S3PreSigner preSigner = new S3PreSigner(s3conf)) {
+            // Generate the Pre-Signed URL, valid for 5 minutes
+            String preSignedUrl =
+                    preSigner.preSignPut(requestInput.getString("objectKeyName"), Duration.ofMinutes(5));
+
+            // Log and return the generated Pre-Signed URL
+            JsonObject result = new JsonObject().put("preSignedUrl", preSignedUrl);
+            LOGGER.debug("Generated pre-signed URL: {}", preSignedUrl);
+            promise.complete(result);
         } catch (Exception e) {
             LOGGER.error(S3_PRE_SIGNED_URL_GENERATOR_FAILURE_MESSAGE +  e);
             promise.fail(new OgcException(500, "Internal Server Error", S3_PRE_SIGNED_URL_GENERATOR_FAILURE_MESSAGE));
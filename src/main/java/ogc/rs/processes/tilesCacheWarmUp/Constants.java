@@ -0,0 +1,25 @@
+package ogc.rs.processes.tilesCacheWarmUp;
+
+public class Constants {
+    public static final String TILES_CACHE_WARM_UP_TITLE = "TilesCacheWarmUp"; // Process title for authorization
+
+    // Number of tiles fetched in parallel by the API server for one request of the process
+    public static final int TILES_PER_BATCH = 16;
+    // Number of batches in flight at a time, i.e. at most TILES_PER_BATCH * MAX_BATCHES_IN_FLIGHT tiles are fetched at once
+    public static final int MAX_BATCHES_IN_FLIGHT = 2;
+    public static final long BATCH_TIMEOUT_MS = 60000;
+    public static final long MAX_TILES = 100000;
+
+    //Message Constants
+    public static final String START_TILES_CACHE_WARM_UP_MESSAGE = "Starting tiles cache warm up process";
+    public static final String INVALID_INPUT_MESSAGE = "Invalid input";
+    public static final String UNSUPPORTED_TILE_MATRIX_SET_MESSAGE =
+            "Tiles of a bounding box can only be listed for WebMercatorQuad and WorldCRS84Quad";
+    public static final String TOO_MANY_TILES_MESSAGE = "Too many tiles to warm up, the maximum is " + MAX_TILES
+            + ". Reduce the tile matrix range or the bounding box.";
+    public static final String TILES_CACHE_WARM_UP_PROGRESS_MESSAGE = "Warmed up %d of %d tiles";
+    public static final String TILES_CACHE_WARM_UP_SUCCESS_MESSAGE =
+            "Tiles cache warm up completed: %d tiles cached, %d not found, %d failed";
+    public static final String TILES_CACHE_WARM_UP_FAILURE_MESSAGE = "Tiles cache warm up failed";
+    public static final String HANDLE_FAILURE_MESSAGE = "Failed to update job table status to FAILED after handler failure";
+}
@@ -0,0 +1,218 @@
+package ogc.rs.processes.tilesCacheWarmUp;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.pgclient.PgPool;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import ogc.rs.apiserver.util.TileMatrixSetGrid;
+import ogc.rs.processes.ProcessService;
+import ogc.rs.processes.util.Status;
+import ogc.rs.processes.util.UtilClass;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import static ogc.rs.common.Constants.TILE_CACHE_WARM_UP_ADDRESS;
+import static ogc.rs.processes.tilesCacheWarmUp.Constants.*;
+
+/**
+ * Process to warm up the tile cache of the API server for a tileset stored in S3, e.g. after a deploy, so that
+ * the first users of a map do not wait for S3 on every tile. The tiles of a range of tile matrices (zoom levels)
+ * that intersect a bounding box are sent in batches to the API server, which fetches them through its tile cache
+ * and shares them with its other verticle instances. A bounded number of batches is in flight at a time.
+ *
+ * <p>
+ * Expected input JSON:
+ * <pre>
+ * {
+ *   "resourceId": "&lt;collection ID&gt;",
+ *   "tileMatrixSet": "WebMercatorQuad",
+ *   "encoding": "MVT",
+ *   "minTileMatrix": 0,
+ *   "maxTileMatrix": 10,
+ *   "bbox": [minLongitude, minLatitude, maxLongitude, maxLatitude]
+ * }
+ * </pre>
+ * The API server instances of the JVM that receives the batches are warmed up.
+ */
+public class TilesCacheWarmUpProcess implements ProcessService {
+    private static final Logger LOGGER = LogManager.getLogger(TilesCacheWarmUpProcess.class);
+    private final Vertx vertx;
+    private final UtilClass utilClass;
+
+    public TilesCacheWarmUpProcess(PgPool pgPool, Vertx vertx) {
+        this.vertx = vertx;
+        this.utilClass = new UtilClass(pgPool);
+    }
+
+    @Override
+    public Future<JsonObject> execute(JsonObject requestInput) {
+        Promise<JsonObject> promise = Promise.promise();
+
+        utilClass.updateJobTableStatus(requestInput, Status.RUNNING, START_TILES_CACHE_WARM_UP_MESSAGE)
+                .compose(started -> listTiles(requestInput))
+                .compose(tiles -> warmUp(requestInput, tiles))
+                .compose(progress -> {
+                    String message = String.format(TILES_CACHE_WARM_UP_SUCCESS_MESSAGE, progress.cached,
+                            progress.notFound, progress.failed);
+                    LOGGER.info("{} for {}/{}", message, requestInput.getString("resourceId"),
+                            requestInput.getString("tileMatrixSet"));
+                    return utilClass.updateJobTableStatus(requestInput, Status.SUCCESSFUL, message);
+                })
+                .onSuccess(done -> promise.complete())
+                .onFailure(err -> {
+                    LOGGER.error(TILES_CACHE_WARM_UP_FAILURE_MESSAGE + ": " + err.getMessage());
+                    handleFailure(requestInput, err.getMessage(), promise);
+                });
+        return promise.future();
+    }
+
+    /**
+     * Lists the tiles to warm up, tile matrix by tile matrix, so that the tiles most requested (those of the lower
+     * tile matrices) are cached first.
+     *
+     * @param requestInput the process input
+     * @return Future of the tiles as {@code [tileMatrix, tileRow, tileCol]} arrays, failed if the input is invalid
+     *         or has too many tiles
+     */
+    private Future<List<JsonArray>> listTiles(JsonObject requestInput) {
+        Optional<TileMatrixSetGrid> grid = TileMatrixSetGrid.fromId(requestInput.getString("tileMatrixSet"));
+        if (grid.isEmpty()) {
+            return Future.failedFuture(UNSUPPORTED_TILE_MATRIX_SET_MESSAGE);
+        }
+        String encoding = requestInput.getString("encoding");
+        if (!"MVT".equalsIgnoreCase(encoding) && !"PNG".equalsIgnoreCase(encoding)) {
+            return Future.failedFuture(INVALID_INPUT_MESSAGE + ": encoding must be MVT or PNG");
+        }
+
+        int minTileMatrix;
+        int maxTileMatrix;
+        double[] bbox = new double[4];
+        try {
+            minTileMatrix = Integer.parseInt(requestInput.getValue("minTileMatrix").toString());
+            maxTileMatrix = Integer.parseInt(requestInput.getValue("maxTileMatrix").toString());
+            JsonArray bboxInput = requestInput.getJsonArray("bbox");
+            for (int i = 0; i < 4; i++) {
+                bbox[i] = Double.parseDouble(bboxInput.getValue(i).toString());
+            }
+        } catch (RuntimeException e) {
+            return Future.failedFuture(INVALID_INPUT_MESSAGE
+                    + ": minTileMatrix and maxTileMatrix must be integers and bbox an array of 4 numbers");
+        }
+        if (minTileMatrix < 0 || maxTileMatrix > TileMatrixSetGrid.MAX_TILE_MATRIX || minTileMatrix > maxTileMatrix
+                || bbox[0] > bbox[2] || bbox[1] > bbox[3]) {
+            return Future.failedFuture(INVALID_INPUT_MESSAGE + ": invalid tile matrix range or bbox");
+        }
+
+        List<long[]> ranges = new ArrayList<>();
+        long count = 0;
+        for (int tileMatrix = minTileMatrix; tileMatrix <= maxTileMatrix; tileMatrix++) {
+            long[] range = grid.get().getTileRange(tileMatrix, bbox);
+            count += (range[2] - range[0] + 1) * (range[3] - range[1] + 1);
+            if (count > MAX_TILES) {
+                return Future.failedFuture(TOO_MANY_TILES_MESSAGE);
+            }
+            ranges.add(range);
+        }
+
+        List<JsonArray> tiles = new ArrayList<>((int) count);
+        for (int i = 0; i < ranges.size(); i++) {
+            long[] range = ranges.get(i);
+            for (long row = range[1]; row <= range[3]; row++) {
+                for (long col = range[0]; col <= range[2]; col++) {
+                    tiles.add(new JsonArray().add(minTileMatrix + i).add(row).add(col));
+                }
+            }
+        }
+        return Future.succeededFuture(tiles);
+    }
+
+    /**
+     * Sends the tiles to the API server in batches, with at most {@value Constants#MAX_BATCHES_IN_FLIGHT} batches
+     * in flight, updating the progress of the job every 5 percent.
+     */
+    private Future<Progress> warmUp(JsonObject requestInput, List<JsonArray> tiles) {
+        Progress progress = new Progress(requestInput, tiles);
+        List<Future<Void>> senders = new ArrayList<>();
+        for (int i = 0; i < MAX_BATCHES_IN_FLIGHT; i++) {
+            senders.add(sendBatches(progress));
+        }
+        return Future.all(senders).map(progress);
+    }
+
+    private Future<Void> sendBatches(Progress progress) {
+        if (progress.next >= progress.tiles.size()) {
+            return Future.succeededFuture();
+        }
+        int from = progress.next;
+        int to = Math.min(from + TILES_PER_BATCH, progress.tiles.size());
+        progress.next = to;
+
+        JsonObject batch = new JsonObject()
+                .put("collectionId", progress.requestInput.getString("resourceId"))
+                .put("tileMatrixSetId", progress.requestInput.getString("tileMatrixSet"))
+                .put("encoding", progress.requestInput.getString("encoding"))
+                .put("tiles", new JsonArray(new ArrayList<>(progress.tiles.subList(from, to))));
+
+        return vertx.eventBus().<JsonObject>request(TILE_CACHE_WARM_UP_ADDRESS, batch,
+                        new DeliveryOptions().setSendTimeout(BATCH_TIMEOUT_MS))
+                .compose(reply -> {
+                    JsonObject result = reply.body();
+                    progress.cached += result.getLong("cached", 0L);
+                    progress.notFound += result.getLong("notFound", 0L);
+                    progress.failed += result.getLong("failed", 0L);
+                    return progress.update(to - from);
+                })
+                .compose(updated -> sendBatches(progress));
+    }
+
+    /**
+     * Handles failure scenarios by updating the job table status and failing the promise.
+     */
+    private void handleFailure(JsonObject requestInput, String errorMessage, Promise<JsonObject> promise) {
+        utilClass.updateJobTableStatus(requestInput, Status.FAILED, errorMessage)
+                .onSuccess(successHandler -> {
+                    LOGGER.error("Process failed: {}", errorMessage);
+                    promise.fail(errorMessage);
+                })
+                .onFailure(failureHandler -> {
+                    LOGGER.error(HANDLE_FAILURE_MESSAGE + ": " + failureHandler.getMessage());
+                    promise.fail(HANDLE_FAILURE_MESSAGE);
+                });
+    }
+
+    /**
+     * Tiles to warm up and the results so far. Only used on the context of the process, so not synchronized.
+     */
+    private final class Progress {
+        private final JsonObject requestInput;
+        private final List<JsonArray> tiles;
+        private int next;
+        private int done;
+        private int reportedPercent;
+        private long cached;
+        private long notFound;
+        private long failed;
+
+        private Progress(JsonObject requestInput, List<JsonArray> tiles) {
+            this.requestInput = requestInput;
+            this.tiles = tiles;
+        }
+
+        private Future<Void> update(int batchSize) {
+            done += batchSize;
+            int percent = (int) (100L * done / tiles.size());
+            if (percent < reportedPercent + 5 || done == tiles.size()) {
+                return Future.succeededFuture();
+            }
+            reportedPercent = percent;
+            return utilClass.updateJobTableProgress(requestInput.put("progress", percent)
+                    .put("message", String.format(TILES_CACHE_WARM_UP_PROGRESS_MESSAGE, done, tiles.size())));
+        }
+    }
+}
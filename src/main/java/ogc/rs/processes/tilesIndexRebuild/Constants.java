@@ -0,0 +1,25 @@
+package ogc.rs.processes.tilesIndexRebuild;
+
+public class Constants {
+    public static final String TILES_INDEX_REBUILD_TITLE = "TilesIndexRebuild"; // Process title for authorization
+
+    //Query Constants
+    public static final String GET_TILESET_QUERY =
+            "SELECT tmsr.id, s3_bucket_id, pmtiles_archive FROM tilematrixsets_relation AS tmsr JOIN tms_metadata AS tms_meta"
+                    + " ON tmsr.tms_id = tms_meta.id WHERE collection_id = $1::uuid AND tms_meta.title = $2::text";
+    public static final String UPDATE_TILE_INDEX_QUERY =
+            "UPDATE tilematrixsets_relation SET tile_index = $2 WHERE id = $1";
+
+    //Message Constants
+    public static final String START_TILES_INDEX_REBUILD_MESSAGE = "Starting tiles index rebuild process";
+    public static final String TILESET_NOT_FOUND_MESSAGE = "Tileset not found for the collection and tile matrix set";
+    public static final String BUCKET_MISMATCH_MESSAGE =
+            "The tileset is not stored in the S3 bucket given by s3BucketIdentifier";
+    public static final String PMTILES_TILESET_MESSAGE =
+            "The tileset is stored in a PMTiles archive, whose directory is its index";
+    public static final String TILES_INDEX_REBUILD_SUCCESS_MESSAGE = "Tiles index rebuilt with %d tiles";
+    public static final String TILES_INDEX_REMOVED_MESSAGE =
+            "No tiles listed, the tileset no longer has an index and every tile is looked up in S3";
+    public static final String TILES_INDEX_REBUILD_FAILURE_MESSAGE = "Tiles index rebuild failed";
+    public static final String HANDLE_FAILURE_MESSAGE = "Failed to update job table status to FAILED after handler failure";
+}
@@ -0,0 +1,121 @@
+package ogc.rs.processes.tilesIndexRebuild;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.pgclient.PgPool;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.Tuple;
+import ogc.rs.common.S3Config;
+import ogc.rs.common.TileExistenceIndex;
+import ogc.rs.processes.ProcessService;
+import ogc.rs.processes.tilesMetaDataOnboarding.TilesMetaDataOnboardingProcess;
+import ogc.rs.processes.util.Status;
+import ogc.rs.processes.util.UtilClass;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import static ogc.rs.processes.tilesIndexRebuild.Constants.*;
+
+/**
+ * Process to rebuild the {@link TileExistenceIndex} of a tileset stored as one object per tile in S3, after tiles
+ * were added to or removed from the tileset since it was onboarded. Tiles are looked up in the index before S3, so
+ * tiles added within the area and zoom levels the index covers are not served until the index is rebuilt. The
+ * tileset is listed in S3 again and its index replaced, which also changes the version of the tileset, so that the
+ * API servers load the new index and do not serve tiles cached before.
+ *
+ * <p>
+ * Expected input JSON:
+ * <pre>
+ * {
+ *   "resourceId": "&lt;collection ID&gt;",
+ *   "tileMatrixSet": "WebMercatorQuad",
+ *   "s3BucketIdentifier": "&lt;ID of the bucket of the tileset&gt;"
+ * }
+ * </pre>
+ */
+public class TilesIndexRebuildProcess implements ProcessService {
+    private static final Logger LOGGER = LogManager.getLogger(TilesIndexRebuildProcess.class);
+    private final PgPool pgPool;
+    private final UtilClass utilClass;
+    private final S3Config s3conf;
+    private final Vertx vertx;
+
+    public TilesIndexRebuildProcess(PgPool pgPool, S3Config s3conf, Vertx vertx) {
+        this.pgPool = pgPool;
+        this.utilClass = new UtilClass(pgPool);
+        this.s3conf = s3conf;
+        this.vertx = vertx;
+    }
+
+    @Override
+    public Future<JsonObject> execute(JsonObject requestInput) {
+        Promise<JsonObject> promise = Promise.promise();
+        String collectionId = requestInput.getString("resourceId");
+        String tileMatrixSet = requestInput.getString("tileMatrixSet");
+
+        utilClass.updateJobTableStatus(requestInput, Status.RUNNING, START_TILES_INDEX_REBUILD_MESSAGE)
+                .compose(started -> getTileset(requestInput))
+                .compose(tilesetId -> TilesMetaDataOnboardingProcess
+                        .listTileExistenceIndex(vertx, s3conf, collectionId, tileMatrixSet)
+                        .compose(index -> pgPool.preparedQuery(UPDATE_TILE_INDEX_QUERY)
+                                .execute(Tuple.of(tilesetId, index))
+                                .map(updated -> index)))
+                .compose(index -> {
+                    String message = index == null ? TILES_INDEX_REMOVED_MESSAGE
+                            : String.format(TILES_INDEX_REBUILD_SUCCESS_MESSAGE,
+                                    TileExistenceIndex.fromBuffer(index).size());
+                    LOGGER.info("{} for {}/{}", message, collectionId, tileMatrixSet);
+                    return utilClass.updateJobTableStatus(requestInput, Status.SUCCESSFUL, message);
+                })
+                .onSuccess(done -> promise.complete())
+                .onFailure(err -> {
+                    LOGGER.error(TILES_INDEX_REBUILD_FAILURE_MESSAGE + ": " + err.getMessage());
+                    handleFailure(requestInput, err.getMessage(), promise);
+                });
+        return promise.future();
+    }
+
+    /**
+     * Gets the tileset to rebuild the index of, checking that it is stored as one object per tile in the bucket
+     * given in the input.
+     *
+     * @param requestInput the process input
+     * @return Future of the ID of the tileset in tilematrixsets_relation
+     */
+    private Future<Object> getTileset(JsonObject requestInput) {
+        return pgPool.preparedQuery(GET_TILESET_QUERY)
+                .execute(Tuple.of(requestInput.getString("resourceId"), requestInput.getString("tileMatrixSet")))
+                .compose(rows -> {
+                    if (rows.rowCount() == 0) {
+                        return Future.failedFuture(TILESET_NOT_FOUND_MESSAGE);
+                    }
+                    Row tileset = rows.iterator().next();
+                    if (tileset.getString("pmtiles_archive") != null) {
+                        return Future.failedFuture(PMTILES_TILESET_MESSAGE);
+                    }
+                    if (s3conf == null || !requestInput.getString("s3BucketIdentifier")
+                            .equals(tileset.getString("s3_bucket_id"))) {
+                        return Future.failedFuture(BUCKET_MISMATCH_MESSAGE);
+                    }
+                    return Future.succeededFuture(tileset.getValue("id"));
+                });
+    }
+
+    /**
+     * Handles failure scenarios by updating the job table status and failing the promise.
+     */
+    private void handleFailure(JsonObject requestInput, String errorMessage, Promise<JsonObject> promise) {
+        utilClass.updateJobTableStatus(requestInput, Status.FAILED, errorMessage)
+                .onSuccess(successHandler -> {
+                    LOGGER.error("Process failed: {}", errorMessage);
+                    promise.fail(errorMessage);
+                })
+                .onFailure(failureHandler -> {
+                    LOGGER.error(HANDLE_FAILURE_MESSAGE + ": " + failureHandler.getMessage());
+                    promise.fail(HANDLE_FAILURE_MESSAGE);
+                });
+    }
+}
@@ -5,6 +5,15 @@ public class MessageConstants {
     public static final String S3_FILE_EXISTENCE_MESSAGE = "File exists in s3 bucket";
     public static final String S3_FILE_EXISTENCE_FAIL_MESSAGE = "File does not exist in S3";
     public static final String S3_EMPTY_FILE_MESSAGE = "File in S3 is empty!";
+    public static final String PMTILES_TILE_MATRIX_SET = "WebMercatorQuad";
+    public static final String PMTILES_ARCHIVE_VALID_MESSAGE = "PMTiles archive in S3 is valid";
+    public static final String PMTILES_INVALID_ARCHIVE_MESSAGE = "Invalid PMTiles archive";
+    public static final String PMTILES_INVALID_TILE_MATRIX_SET_MESSAGE =
+            "PMTiles archives can only be onboarded for the WebMercatorQuad tile matrix set";
+    public static final String PMTILES_ENCODING_MISMATCH_MESSAGE =
+            "Tile type of the PMTiles archive does not match the encoding";
+    public static final String PMTILES_TEST_TILE_NOT_FOUND_MESSAGE =
+            "Test tile not found in PMTiles archive";
     public static final String RESOURCE_OWNERSHIP_CHECK_MESSAGE =
             "Resource belongs to the user.";
     public static final String INVALID_ENCODING_FORMAT_MESSAGE =
@@ -3,6 +3,8 @@ package ogc.rs.processes.tilesMetaDataOnboarding;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
 import io.vertx.core.http.HttpClientOptions;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.json.JsonArray;
@@ -14,12 +16,16 @@ import io.vertx.sqlclient.Tuple;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import java.math.BigInteger;
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import ogc.rs.common.DataFromS3;
 import ogc.rs.common.S3Config;
+import ogc.rs.common.TileExistenceIndex;
+import ogc.rs.common.pmtiles.PMTilesArchive;
+import ogc.rs.common.pmtiles.PMTilesHeader;
 import ogc.rs.processes.ProcessService;
 import ogc.rs.processes.ProcessesRunnerImpl;
 import static ogc.rs.processes.tilesMetaDataOnboarding.MessageConstants.*;
@@ -28,6 +34,13 @@ import static ogc.rs.processes.tilesMetaDataOnboarding.SqlConstants.*;
 import ogc.rs.processes.featureCollectionOnboarding.FeatureCollectionOnboardingProcess;
 import ogc.rs.processes.util.Status;
 import ogc.rs.processes.util.UtilClass;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.S3Object;
 
 /**
  * Handles the onboarding process for tiles, including file existence checks,
@@ -41,6 +54,9 @@ public class TilesMetaDataOnboardingProcess implements ProcessService {
     private final UtilClass utilClass;
     private final FeatureCollectionOnboardingProcess collectionOnboarding;
     private final DataFromS3 dataFromS3;
+    private final HttpClient httpClient;
+    private final S3Config s3conf;
+    private final Vertx vertx;
 
     public enum EncodingFormatEnum {
         PNG,
@@ -60,8 +76,10 @@ public class TilesMetaDataOnboardingProcess implements ProcessService {
         this.pgPool = pgPool;
         this.utilClass = new UtilClass(pgPool);
         this.collectionOnboarding = new FeatureCollectionOnboardingProcess(pgPool, webClient, config, s3conf, vertx);
-        this.dataFromS3 = new DataFromS3(vertx.createHttpClient(new HttpClientOptions().setShared(true)), s3conf);
-
+        this.httpClient = vertx.createHttpClient(new HttpClientOptions().setShared(true));
+        this.dataFromS3 = new DataFromS3(httpClient, s3conf);
+        this.s3conf = s3conf;
+        this.vertx = vertx;
     }
     /**
      * Executes the tiles metadata onboarding process asynchronously.
@@ -101,9 +119,13 @@ public class TilesMetaDataOnboardingProcess implements ProcessService {
                 .compose(progressUpdateHandler -> collectionOnboarding.makeCatApiRequest(requestInput))
                 .compose(resourceOwnershipHandler -> utilClass.updateJobTableProgress(
                         requestInput.put("progress", calculateProgress(4)).put("message", RESOURCE_OWNERSHIP_CHECK_MESSAGE)))
-                .compose(progressUpdateHandler -> checkFileExistenceInS3(requestInput))
+                .compose(progressUpdateHandler -> requestInput.containsKey("pmtilesArchive")
+                        ? checkPMTilesArchive(requestInput)
+                        : checkFileExistenceInS3(requestInput))
                 .compose(s3FileExistenceHandler -> utilClass.updateJobTableProgress(
-                        requestInput.put("progress", calculateProgress(5)).put("message", S3_FILE_EXISTENCE_MESSAGE)))
+                        requestInput.put("progress", calculateProgress(5)).put("message",
+                                requestInput.containsKey("pmtilesArchive") ? PMTILES_ARCHIVE_VALID_MESSAGE
+                                        : S3_FILE_EXISTENCE_MESSAGE)))
                 .compose(progressUpdateHandler -> evaluateCollectionTileType(requestInput))
                 .compose(identifyPureTileCollectionHandler -> utilClass.updateJobTableProgress(
                         requestInput.put("progress", calculateProgress(6)).put("message", COLLECTION_EVALUATION_MESSAGE)))
@@ -262,6 +284,66 @@ public class TilesMetaDataOnboardingProcess implements ProcessService {
         return promise.future();
     }
 
+    /**
+     * Validates the PMTiles archive given in the optional {@code "pmtilesArchive"} input, which is the key of the
+     * archive in the S3 bucket. Used instead of {@link #checkFileExistenceInS3(JsonObject)} for tilesets stored as a
+     * single archive.
+     * <p>
+     * The archive must be a PMTiles version 3 archive with uncompressed or gzip compressed directories and tiles,
+     * hold tiles of the requested encoding, be onboarded for the {@code WebMercatorQuad} tile matrix set (the only
+     * tiling scheme of PMTiles) and have the tile given by {@code "testTileCoordinateIndexes"}.
+     * </p>
+     *
+     * @param requestInput A {@link JsonObject} containing the archive key, encoding, tile matrix set and test tile.
+     * @return A {@link Future<Boolean>} that will be completed with {@code true} if the archive is valid, or failed
+     *         with an appropriate error message.
+     */
+    private Future<Boolean> checkPMTilesArchive(JsonObject requestInput) {
+        String archiveKey = requestInput.getString("pmtilesArchive");
+        if (!PMTILES_TILE_MATRIX_SET.equals(requestInput.getString("tileMatrixSet"))) {
+            LOGGER.error(PMTILES_INVALID_TILE_MATRIX_SET_MESSAGE + ": " + requestInput.getString("tileMatrixSet"));
+            return Future.failedFuture(PMTILES_INVALID_TILE_MATRIX_SET_MESSAGE);
+        }
+
+        String[] testTile = requestInput.getString("testTileCoordinateIndexes").split("/");
+        int z;
+        long x;
+        long y;
+        try {
+            z = Integer.parseInt(testTile[0]);
+            x = Long.parseLong(testTile[1]);
+            y = Long.parseLong(testTile[2]);
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            return Future.failedFuture(PMTILES_TEST_TILE_NOT_FOUND_MESSAGE);
+        }
+        int tileType = "MVT".equalsIgnoreCase(requestInput.getString("encoding"))
+                ? PMTilesHeader.TILE_TYPE_MVT : PMTilesHeader.TILE_TYPE_PNG;
+
+        LOGGER.debug("Checking PMTiles archive: {}", archiveKey);
+        PMTilesArchive archive = new PMTilesArchive(DataFromS3.rangeReader(httpClient, s3conf, archiveKey), 1);
+        return archive.getHeader()
+                .recover(err -> {
+                    LOGGER.error("Failed to read PMTiles archive: {}", err.getMessage());
+                    return Future.failedFuture(err instanceof IllegalArgumentException
+                            ? PMTILES_INVALID_ARCHIVE_MESSAGE + ": " + err.getMessage()
+                            : S3_FILE_EXISTENCE_FAIL_MESSAGE);
+                })
+                .compose(header -> {
+                    if (header.getTileType() != tileType) {
+                        LOGGER.error(PMTILES_ENCODING_MISMATCH_MESSAGE + ": " + header.getTileType());
+                        return Future.failedFuture(PMTILES_ENCODING_MISMATCH_MESSAGE);
+                    }
+                    return archive.getTile(z, x, y);
+                })
+                .compose(tile -> {
+                    if (tile == null || tile.length() == 0) {
+                        LOGGER.error(PMTILES_TEST_TILE_NOT_FOUND_MESSAGE + ": " + requestInput.getString("testTileCoordinateIndexes"));
+                        return Future.failedFuture(PMTILES_TEST_TILE_NOT_FOUND_MESSAGE);
+                    }
+                    return Future.succeededFuture(true);
+                });
+    }
+
     /**
      * Checks the existence of the collection and determines if it is a pure tile collection
      * or a combination of feature and tile collection.
@@ -343,7 +425,10 @@ public class TilesMetaDataOnboardingProcess implements ProcessService {
      * @return A {@link Future<Void>} indicating the success or failure of the onboarding process.
      */
     public Future<Void> onboardTileMetadata(JsonObject requestInput) {
-        return pgPool.withTransaction(sqlClient -> {
+        Future<Buffer> tileIndex = requestInput.containsKey("pmtilesArchive")
+                ? Future.succeededFuture()
+                : buildTileExistenceIndex(requestInput);
+        return tileIndex.compose(tileIndexBuf -> pgPool.withTransaction(sqlClient -> {
             Promise<Void> promise = Promise.promise();
             LOGGER.debug("Starting the onboarding process for tile metadata.");
 
@@ -361,6 +446,7 @@ public class TilesMetaDataOnboardingProcess implements ProcessService {
             JsonArray pointOfOrigin = requestInput.getJsonArray("pointOfOrigin");
             String s3BucketId =
                 requestInput.getString(ProcessesRunnerImpl.S3_BUCKET_IDENTIFIER_PROCESS_INPUT_KEY);
+            String pmtilesArchive = requestInput.getString("pmtilesArchive");
 
             // Convert JsonArray to Double[] for bbox and pointOfOrigin
             Double[] bboxArray = (bbox != null) ? bbox.stream()
@@ -404,7 +490,8 @@ public class TilesMetaDataOnboardingProcess implements ProcessService {
                     .compose(v -> {
                         LOGGER.debug("Inserting tile matrix set relation for collectionId: {}", collectionId);
                         return sqlClient.preparedQuery(INSERT_TILE_MATRIX_SET_RELATION_QUERY)
-                                .execute(Tuple.of(collectionId, tmsId, pointOfOriginArray, s3BucketId))
+                                .execute(Tuple.of(collectionId, tmsId, pointOfOriginArray, s3BucketId, pmtilesArchive,
+                                        tileIndexBuf))
                                 .mapEmpty();
                     })
                     .onSuccess(v -> {
@@ -416,7 +503,65 @@ public class TilesMetaDataOnboardingProcess implements ProcessService {
                         promise.fail(throwable);
                     })
                     .mapEmpty();
-        });
+        }));
+    }
+
+    /**
+     * Builds the {@link TileExistenceIndex} of the tileset by listing its tiles in S3, so that requests for tiles
+     * the tileset does not have are answered without going to S3. The index is only an optimization, so if listing
+     * fails, or lists no tiles (e.g. if the S3 service does not support listing), the tileset is onboarded without one.
+     *
+     * @param requestInput JSON object containing the collection ID and tile matrix set of the tileset.
+     * @return A {@link Future<Buffer>} of the serialized index, or of {@code null} if there is none.
+     */
+    private Future<Buffer> buildTileExistenceIndex(JsonObject requestInput) {
+        String collectionId = requestInput.getString("resourceId");
+        String tileMatrixSet = requestInput.getString("tileMatrixSet");
+        return listTileExistenceIndex(vertx, s3conf, collectionId, tileMatrixSet)
+                .recover(err -> {
+                    LOGGER.warn("Failed to build tile index of tileset {}/{}, onboarding without it: {}", collectionId,
+                            tileMatrixSet, err.getMessage());
+                    return Future.succeededFuture();
+                });
+    }
+
+    /**
+     * Lists the tiles of a tileset stored as one object per tile in S3 and builds their {@link TileExistenceIndex}.
+     * Also used to rebuild the index of a tileset whose tiles changed after it was onboarded.
+     *
+     * @param vertx the Vert.x instance, to list the tiles on a worker thread.
+     * @param s3conf config of the bucket holding the tileset.
+     * @param collectionId the collection ID of the tileset.
+     * @param tileMatrixSet the tile matrix set of the tileset.
+     * @return A {@link Future<Buffer>} of the serialized index, or of {@code null} if no tiles were listed, failed if
+     *         listing fails.
+     */
+    public static Future<Buffer> listTileExistenceIndex(Vertx vertx, S3Config s3conf, String collectionId,
+                                                        String tileMatrixSet) {
+        String prefix = collectionId + "/" + tileMatrixSet + "/";
+        return vertx.executeBlocking(() -> {
+            TileExistenceIndex.Builder builder = TileExistenceIndex.builder();
+            long tiles = 0;
+            try (S3Client s3Client = S3Client.builder()
+                    .region(Region.of(s3conf.getRegion()))
+                    .endpointOverride(URI.create(s3conf.getEndpoint()))
+                    .credentialsProvider(StaticCredentialsProvider.create(
+                            AwsBasicCredentials.create(s3conf.getAccessKey(), s3conf.getSecretKey())))
+                    .serviceConfiguration(S3Configuration.builder()
+                            .pathStyleAccessEnabled(s3conf.isPathBasedAccess())
+                            .build())
+                    .build()) {
+                ListObjectsV2Request listRequest =
+                        ListObjectsV2Request.builder().bucket(s3conf.getBucket()).prefix(prefix).build();
+                for (S3Object object : s3Client.listObjectsV2Paginator(listRequest).contents()) {
+                    if (builder.addObjectKey(object.key().substring(prefix.length()))) {
+                        tiles++;
+                    }
+                }
+            }
+            LOGGER.debug("Listed {} tiles of tileset {}", tiles, prefix);
+            return tiles == 0 ? null : builder.build().toBuffer();
+        }, false);
     }
 
     /**
@@ -0,0 +1,38 @@
+-- Notify the 'collection_metadata_changed' channel with the collection ID whenever collection
+-- metadata cached by the server changes. The column holding the collection ID is passed as the
+-- trigger argument.
+
+CREATE OR REPLACE FUNCTION notify_collection_metadata_changed() RETURNS trigger
+  LANGUAGE plpgsql AS
+$$
+DECLARE
+  changed_row jsonb;
+BEGIN
+  IF TG_OP = 'DELETE' THEN
+    changed_row := to_jsonb(OLD);
+  ELSE
+    changed_row := to_jsonb(NEW);
+  END IF;
+
+  PERFORM pg_notify('collection_metadata_changed', COALESCE(changed_row ->> TG_ARGV[0], '*'));
+  RETURN NULL;
+END
+$$;
+
+ALTER FUNCTION notify_collection_metadata_changed() OWNER TO ${flyway:user};
+
+CREATE TRIGGER collections_details_metadata_changed
+  AFTER INSERT OR UPDATE OR DELETE ON collections_details
+  FOR EACH ROW EXECUTE FUNCTION notify_collection_metadata_changed('id');
+
+CREATE TRIGGER ri_details_metadata_changed
+  AFTER INSERT OR UPDATE OR DELETE ON ri_details
+  FOR EACH ROW EXECUTE FUNCTION notify_collection_metadata_changed('id');
+
+CREATE TRIGGER collection_supported_crs_metadata_changed
+  AFTER INSERT OR UPDATE OR DELETE ON collection_supported_crs
+  FOR EACH ROW EXECUTE FUNCTION notify_collection_metadata_changed('collection_id');
+
+CREATE TRIGGER tilematrixsets_relation_metadata_changed
+  AFTER INSERT OR UPDATE OR DELETE ON tilematrixsets_relation
+  FOR EACH ROW EXECUTE FUNCTION notify_collection_metadata_changed('collection_id');
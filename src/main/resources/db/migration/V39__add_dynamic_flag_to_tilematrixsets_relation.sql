@@ -0,0 +1,3 @@
+-- Tilesets marked dynamic are generated on request from the collection table as Mapbox Vector
+-- Tiles, instead of being fetched from S3. s3_bucket_id is ignored for such tilesets.
+ALTER TABLE tilematrixsets_relation ADD COLUMN is_dynamic boolean DEFAULT false NOT NULL;
@@ -0,0 +1,43 @@
+-- Feature collection tables whose geometry is not stored in EPSG:4326 can keep a copy of it in
+-- CRS84 in a 'geom_4326' column with its own spatial index, so that responses and bbox filters
+-- in CRS84 do not have to transform every row. The column is kept up to date by a trigger, so
+-- that rows written by ogr2ogr or by the appending process get it without listing it.
+
+CREATE OR REPLACE FUNCTION set_crs84_geometry() RETURNS trigger
+  LANGUAGE plpgsql AS
+$$
+BEGIN
+  NEW.geom_4326 := ST_Transform(NEW.geom, 4326);
+  RETURN NEW;
+END
+$$;
+
+ALTER FUNCTION set_crs84_geometry() OWNER TO ${flyway:user};
+
+-- Add the 'geom_4326' column, its index and trigger to a feature collection table. Does nothing
+-- and returns false if the 'geom' column of the table is already in EPSG:4326. Must be run by
+-- the owner of the table.
+CREATE OR REPLACE FUNCTION add_crs84_geometry(collection_table text) RETURNS boolean
+  LANGUAGE plpgsql AS
+$$
+BEGIN
+  IF Find_SRID('public', collection_table, 'geom') = 4326 THEN
+    RETURN false;
+  END IF;
+
+  EXECUTE format('ALTER TABLE %I ADD COLUMN IF NOT EXISTS geom_4326 geometry(Geometry, 4326)',
+    collection_table);
+  EXECUTE format('UPDATE %I SET geom_4326 = ST_Transform(geom, 4326)', collection_table);
+  EXECUTE format('CREATE INDEX IF NOT EXISTS %I ON %I USING gist (geom_4326)',
+    collection_table || '_geom_4326_idx', collection_table);
+  EXECUTE format('DROP TRIGGER IF EXISTS set_crs84_geometry ON %I', collection_table);
+  EXECUTE format('CREATE TRIGGER set_crs84_geometry BEFORE INSERT OR UPDATE OF geom ON %I'
+    ' FOR EACH ROW EXECUTE FUNCTION set_crs84_geometry()', collection_table);
+
+  -- the server caches whether a collection has the column
+  PERFORM pg_notify('collection_metadata_changed', collection_table);
+  RETURN true;
+END
+$$;
+
+ALTER FUNCTION add_crs84_geometry(text) OWNER TO ${flyway:user};
@@ -0,0 +1,4 @@
+-- Tilesets with a PMTiles archive are read from that single object in the S3 bucket with byte
+-- range requests, instead of from one object per tile. The column holds the key of the archive in
+-- the bucket.
+ALTER TABLE tilematrixsets_relation ADD COLUMN pmtiles_archive text;
@@ -0,0 +1,3 @@
+-- Tile requests are metered as one row per user, collection, tileset and minute, with the number
+-- of requests the row stands for. Rows written one per request count as one.
+ALTER TABLE metering ADD COLUMN request_count integer NOT NULL DEFAULT 1;
@@ -0,0 +1,4 @@
+-- Index of the tiles that exist in a tileset stored as one object per tile in S3, built when the
+-- tileset is onboarded (see ogc.rs.common.TileExistenceIndex). NULL if the tileset has no index,
+-- in which case every tile is looked up in S3.
+ALTER TABLE tilematrixsets_relation ADD COLUMN tile_index bytea;
@@ -0,0 +1,23 @@
+-- Adds the TilesCacheWarmUp process, which pre-populates the tile cache of the API server with the
+-- tiles of a tileset in a range of tile matrices that intersect a bounding box
+INSERT INTO processes_table (
+    description,
+    input,
+    output,
+    subscriber,
+    title,
+    version,
+    keywords,
+    mode,
+    response
+) VALUES (
+    'Process to warm up the tile cache of the server for a tileset stored in S3',
+    '{"inputs": {"resourceId": "resource-Id", "tileMatrixSet": "WebMercatorQuad", "encoding": "MVT", "minTileMatrix": 0, "maxTileMatrix": 10, "bbox": ["minLongitude", "minLatitude", "maxLongitude", "maxLatitude"]}}'::jsonb,
+    '{"type": "type of the job created", "jobId": "jobId once created", "status": "status of the job", "processId": "process id for which the job is created"}'::jsonb,
+    'TilesCacheWarmUp',
+    'TilesCacheWarmUp',
+    '1.0.0',
+    ARRAY['tiles', 'cache', 'warmup'],
+    ARRAY['async-execute']::execution_mode[],
+    ARRAY['value']::transmission_mode[]
+) ON CONFLICT (title) DO NOTHING;
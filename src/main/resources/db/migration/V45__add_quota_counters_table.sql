@@ -0,0 +1,17 @@
+-- Usage of token limits (apiHits, dataUsage) per user, collection, API path and policy, seeded
+-- from the metering table once and then incremented by the API servers, so that limit checks do
+-- not aggregate the metering table on every request
+
+CREATE TABLE IF NOT EXISTS quota_counters (
+    user_id UUID NOT NULL,
+    collection_id UUID NOT NULL,
+    api_path TEXT NOT NULL,
+    policy_issued_at BIGINT NOT NULL,
+    api_hits BIGINT NOT NULL DEFAULT 0,
+    data_usage BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT now(),
+    PRIMARY KEY (user_id, collection_id, api_path, policy_issued_at)
+);
+
+ALTER TABLE quota_counters OWNER TO ${flyway:user};
+GRANT SELECT,INSERT,UPDATE,DELETE ON TABLE quota_counters TO ${ogcUser};
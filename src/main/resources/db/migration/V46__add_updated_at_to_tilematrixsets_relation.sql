@@ -0,0 +1,19 @@
+-- Time a tileset was onboarded or last changed, used by the API server as the version of the
+-- tileset in the keys of its tile cache, so that tiles of a tileset that was onboarded again, or
+-- whose storage changed, are not served from the cache.
+ALTER TABLE tilematrixsets_relation ADD COLUMN updated_at TIMESTAMPTZ NOT NULL DEFAULT now();
+
+CREATE OR REPLACE FUNCTION set_tilematrixsets_relation_updated_at() RETURNS trigger
+  LANGUAGE plpgsql AS
+$$
+BEGIN
+  NEW.updated_at := now();
+  RETURN NEW;
+END
+$$;
+
+ALTER FUNCTION set_tilematrixsets_relation_updated_at() OWNER TO ${flyway:user};
+
+CREATE TRIGGER tilematrixsets_relation_set_updated_at
+  BEFORE UPDATE ON tilematrixsets_relation
+  FOR EACH ROW EXECUTE FUNCTION set_tilematrixsets_relation_updated_at();
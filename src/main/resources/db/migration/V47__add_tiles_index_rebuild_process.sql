@@ -0,0 +1,23 @@
+-- Adds the TilesIndexRebuild process, which lists a tileset stored in S3 again and replaces its
+-- tile index, after tiles were added to or removed from the tileset since it was onboarded
+INSERT INTO processes_table (
+    description,
+    input,
+    output,
+    subscriber,
+    title,
+    version,
+    keywords,
+    mode,
+    response
+) VALUES (
+    'Process to rebuild the index of the tiles of a tileset stored in S3',
+    '{"inputs": {"resourceId": "resource-Id", "tileMatrixSet": "WebMercatorQuad", "s3BucketIdentifier": "s3-bucket-identifier"}}'::jsonb,
+    '{"type": "type of the job created", "jobId": "jobId once created", "status": "status of the job", "processId": "process id for which the job is created"}'::jsonb,
+    'TilesIndexRebuild',
+    'TilesIndexRebuild',
+    '1.0.0',
+    ARRAY['tiles', 'index', 'rebuild'],
+    ARRAY['async-execute']::execution_mode[],
+    ARRAY['value']::transmission_mode[]
+) ON CONFLICT (title) DO NOTHING;
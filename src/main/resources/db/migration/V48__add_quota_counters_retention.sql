@@ -0,0 +1,7 @@
+-- Counters of quota_counters not updated for a day are deleted by the API servers, which update the
+-- counters of the policies they track regularly and seed them again from the metering table once
+-- deleted. Index updated_at for the deletion.
+
+CREATE INDEX IF NOT EXISTS quota_counters_updated_at_idx ON quota_counters (updated_at);
+
+COMMENT ON TABLE quota_counters IS 'Usage of token limits per user, collection, API path and policy, seeded from the metering table. Rows not updated for a day are deleted';
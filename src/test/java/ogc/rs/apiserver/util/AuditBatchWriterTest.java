@@ -0,0 +1,182 @@
+package ogc.rs.apiserver.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import ogc.rs.metering.MeteringService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+@ExtendWith(VertxExtension.class)
+public class AuditBatchWriterTest {
+
+  @TempDir
+  Path tempDir;
+
+  private static JsonObject record(int i) {
+    return new JsonObject().put("i", i);
+  }
+
+  private JsonObject config(int batchSize) {
+    return new JsonObject()
+        .put("auditBatchSize", batchSize)
+        .put("auditFlushIntervalMs", 20L)
+        .put("auditSpillFile", tempDir.resolve("audit-spill.jsonl").toString());
+  }
+
+  /** Nothing left unpublished, a new array each call as the writer may add to it. */
+  private static Future<JsonArray> allPublished() {
+    return Future.succeededFuture(new JsonArray());
+  }
+
+  private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "Timed out waiting for the writer");
+      Thread.sleep(10);
+    }
+  }
+
+  private static void await(Future<?> future) throws InterruptedException {
+    waitFor(future::isComplete);
+  }
+
+  @Test
+  @DisplayName("A batch whose insert fails is spilled and inserted again by the replay")
+  public void testFailedInsertReplayed(Vertx vertx) throws InterruptedException {
+    MeteringService meteringService = mock(MeteringService.class);
+    when(meteringService.insertMeteringBatch(any()))
+        .thenReturn(Future.failedFuture("database down"))
+        .thenAnswer(invocation -> allPublished());
+
+    AuditBatchWriter writer = AuditBatchWriter.shared(vertx, config(2), meteringService);
+    writer.add(record(1));
+    writer.add(record(2));
+
+    ArgumentCaptor<JsonArray> batches = ArgumentCaptor.forClass(JsonArray.class);
+    verify(meteringService, timeout(5000).times(2)).insertMeteringBatch(batches.capture());
+    assertEquals(new JsonArray().add(record(1)).add(record(2)), batches.getAllValues().get(1));
+    waitFor(() -> !Files.exists(tempDir.resolve("audit-spill.jsonl.replay")));
+    verify(meteringService, never()).publishMeteringBatch(any());
+    await(writer.close());
+  }
+
+  @Test
+  @DisplayName("Records inserted but not published are only published by the replay")
+  public void testUnpublishedReplayedToRmqOnly(Vertx vertx) throws InterruptedException {
+    MeteringService meteringService = mock(MeteringService.class);
+    when(meteringService.insertMeteringBatch(any()))
+        .thenReturn(Future.succeededFuture(new JsonArray().add(record(2))));
+    when(meteringService.publishMeteringBatch(any())).thenAnswer(invocation -> allPublished());
+
+    AuditBatchWriter writer = AuditBatchWriter.shared(vertx, config(2), meteringService);
+    writer.add(record(1));
+    writer.add(record(2));
+
+    verify(meteringService, timeout(5000)).publishMeteringBatch(new JsonArray().add(record(2)));
+    verify(meteringService).insertMeteringBatch(any());
+    waitFor(() -> !Files.exists(tempDir.resolve("audit-spill.jsonl.replay")));
+    await(writer.close());
+  }
+
+  @Test
+  @DisplayName("A replay resumes from its persisted offset after a failed chunk and a restart")
+  public void testReplayResumedFromOffset(Vertx vertx) throws Exception {
+    Path replayFile = tempDir.resolve("audit-spill.jsonl.replay");
+    Path offsetFile = tempDir.resolve("audit-spill.jsonl.replay.offset");
+    StringBuilder lines = new StringBuilder();
+    for (int i = 1; i <= 4; i++) {
+      lines.append(record(i).encode()).append('\n');
+    }
+    // a line torn by a crash, skipped by the replay
+    lines.append("{\"i\":");
+    Files.write(replayFile, lines.toString().getBytes(StandardCharsets.UTF_8));
+
+    MeteringService failing = mock(MeteringService.class);
+    when(failing.insertMeteringBatch(any()))
+        .thenAnswer(invocation -> allPublished())
+        .thenReturn(Future.failedFuture("database down"));
+    AuditBatchWriter writer = AuditBatchWriter.shared(vertx, config(2), failing);
+    verify(failing, timeout(5000).atLeast(2)).insertMeteringBatch(any());
+    await(writer.close());
+
+    long firstChunk = (record(1).encode() + '\n' + record(2).encode() + '\n').length();
+    assertEquals(Long.toString(firstChunk),
+        new String(Files.readAllBytes(offsetFile), StandardCharsets.UTF_8));
+
+    MeteringService restarted = mock(MeteringService.class);
+    when(restarted.insertMeteringBatch(any())).thenAnswer(invocation -> allPublished());
+    writer = AuditBatchWriter.shared(vertx, config(2), restarted);
+
+    ArgumentCaptor<JsonArray> batches = ArgumentCaptor.forClass(JsonArray.class);
+    waitFor(() -> !Files.exists(replayFile));
+    verify(restarted).insertMeteringBatch(batches.capture());
+    assertEquals(new JsonArray().add(record(3)).add(record(4)), batches.getValue());
+    assertFalse(Files.exists(offsetFile));
+    await(writer.close());
+  }
+
+  @Test
+  @DisplayName("When the owner closes the writer, the next holder flushes it")
+  public void testOwnerHandover(Vertx vertx) throws InterruptedException {
+    MeteringService meteringService = mock(MeteringService.class);
+    when(meteringService.insertMeteringBatch(any())).thenAnswer(invocation -> allPublished());
+    JsonObject config = config(1000);
+    AuditBatchWriter[] writers = new AuditBatchWriter[2];
+
+    class Holder extends AbstractVerticle {
+      private final int index;
+
+      private Holder(int index) {
+        this.index = index;
+      }
+
+      @Override
+      public void start() {
+        writers[index] = AuditBatchWriter.shared(vertx, config, meteringService);
+      }
+
+      @Override
+      public void stop(Promise<Void> stopPromise) {
+        writers[index].close().onComplete(stopPromise);
+      }
+    }
+
+    Future<String> owner = vertx.deployVerticle(new Holder(0));
+    await(owner);
+    Future<String> next = vertx.deployVerticle(new Holder(1));
+    await(next);
+    assertSame(writers[0], writers[1]);
+
+    await(vertx.undeploy(owner.result()));
+    writers[1].add(record(1));
+    verify(meteringService, timeout(5000)).insertMeteringBatch(new JsonArray().add(record(1)));
+
+    await(vertx.undeploy(next.result()));
+    assertTrue(vertx.sharedData().getLocalMap("AuditBatchWriter").isEmpty());
+    assertFalse(Files.exists(tempDir.resolve("audit-spill.jsonl")));
+  }
+}
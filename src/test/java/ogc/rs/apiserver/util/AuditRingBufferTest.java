@@ -0,0 +1,46 @@
+package ogc.rs.apiserver.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class AuditRingBufferTest {
+
+  private static JsonObject record(int i) {
+    return new JsonObject().put("i", i);
+  }
+
+  @Test
+  @DisplayName("Records are not added once the buffer is full")
+  public void testFull() {
+    AuditRingBuffer buffer = new AuditRingBuffer(2);
+    assertTrue(buffer.offer(record(1)));
+    assertTrue(buffer.offer(record(2)));
+    assertFalse(buffer.offer(record(3)));
+    assertEquals(2, buffer.size());
+
+    buffer.drain(1);
+    assertTrue(buffer.offer(record(3)));
+  }
+
+  @Test
+  @DisplayName("Records are drained oldest first, across the end of the array")
+  public void testDrainOrder() {
+    AuditRingBuffer buffer = new AuditRingBuffer(3);
+    buffer.offer(record(1));
+    buffer.offer(record(2));
+    assertEquals(new JsonArray().add(record(1)), buffer.drain(1));
+
+    buffer.offer(record(3));
+    buffer.offer(record(4));
+    assertEquals(new JsonArray().add(record(2)).add(record(3)).add(record(4)),
+        buffer.drain(10));
+    assertEquals(0, buffer.size());
+    assertTrue(buffer.drain(10).isEmpty());
+  }
+}
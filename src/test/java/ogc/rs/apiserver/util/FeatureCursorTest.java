@@ -0,0 +1,62 @@
+package ogc.rs.apiserver.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class FeatureCursorTest {
+
+  private final FeatureCursor cursor = new FeatureCursor("test-secret");
+
+  private Map<String, String> params() {
+    Map<String, String> params = new HashMap<>();
+    params.put("limit", "10");
+    params.put("bbox", "72.1,18.2,73.3,19.4");
+    params.put("crs", "http://www.opengis.net/def/crs/OGC/1.3/CRS84");
+    return params;
+  }
+
+  @Test
+  @DisplayName("Cursor round trip returns last id")
+  public void testRoundTrip() throws OgcException {
+    String token = cursor.encode(42L, params());
+    assertEquals(42L, cursor.decode(token, params()));
+  }
+
+  @Test
+  @DisplayName("Cursor is independent of limit, crs and parameter order")
+  public void testNonFilterParamsIgnored() throws OgcException {
+    String token = cursor.encode(7L, params());
+
+    Map<String, String> changed = new HashMap<>(params());
+    changed.put("limit", "500");
+    changed.put("crs", "http://www.opengis.net/def/crs/EPSG/0/3857");
+    changed.put("numberMatched", "exact");
+    assertEquals(7L, cursor.decode(token, changed));
+  }
+
+  @Test
+  @DisplayName("Cursor with different filters is rejected")
+  public void testDifferentFilterRejected() {
+    String token = cursor.encode(7L, params());
+
+    Map<String, String> changed = new HashMap<>(params());
+    changed.put("bbox", "0,0,1,1");
+    OgcException e = assertThrows(OgcException.class, () -> cursor.decode(token, changed));
+    assertEquals(400, e.getStatusCode());
+  }
+
+  @Test
+  @DisplayName("Tampered or foreign cursor is rejected")
+  public void testTamperedCursorRejected() {
+    String token = new FeatureCursor("another-secret").encode(7L, params());
+
+    assertThrows(OgcException.class, () -> cursor.decode(token, params()));
+    assertThrows(OgcException.class, () -> cursor.decode("not-a-cursor", params()));
+    assertThrows(OgcException.class, () -> cursor.decode("%%%", params()));
+  }
+}
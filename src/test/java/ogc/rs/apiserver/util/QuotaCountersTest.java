@@ -0,0 +1,71 @@
+package ogc.rs.apiserver.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class QuotaCountersTest {
+
+  private static final String USER = UUID.randomUUID().toString();
+  private static final String COLLECTION = UUID.randomUUID().toString();
+  private static final String API = "/collections/" + COLLECTION + "/items";
+
+  @Test
+  @DisplayName("Recorded usage counts until reconciled with the totals of all servers")
+  public void testRecordAndReconcile() {
+    QuotaCounters counters = new QuotaCounters(60000);
+    assertNull(counters.get(USER, COLLECTION, API, 100));
+    counters.record(USER, COLLECTION, API, 10);
+    assertEquals(5, counters.seed(USER, COLLECTION, API, 100, 5, 500).getApiHits());
+
+    counters.record(USER, COLLECTION, API, 10);
+    counters.record(USER, COLLECTION, API, 0);
+    counters.record(USER, COLLECTION, "/other", 10);
+    QuotaCounters.Usage usage = counters.get(USER, COLLECTION, API, 100);
+    assertEquals(6, usage.getApiHits());
+    assertEquals(510, usage.getDataUsage());
+
+    JsonArray drained = counters.drain();
+    assertEquals(1, drained.size());
+    JsonObject delta = drained.getJsonObject(0);
+    assertEquals(1, delta.getLong("apiHits"));
+    assertEquals(10, delta.getLong("dataUsage"));
+    assertEquals(100, delta.getLong("policyIssuedAt"));
+
+    // in flight usage still counts, also after a failed flush
+    counters.record(USER, COLLECTION, API, 20);
+    assertEquals(7, counters.get(USER, COLLECTION, API, 100).getApiHits());
+    counters.drainFailed();
+    assertEquals(7, counters.get(USER, COLLECTION, API, 100).getApiHits());
+    assertEquals(2, counters.drain().getJsonObject(0).getLong("apiHits"));
+
+    // another server added 3 hits
+    counters.record(USER, COLLECTION, API, 30);
+    counters.reconcile(new JsonArray().add(delta.copy().put("apiHits", 10).put("dataUsage", 600)));
+    usage = counters.get(USER, COLLECTION, API, 100);
+    assertEquals(11, usage.getApiHits());
+    assertEquals(630, usage.getDataUsage());
+  }
+
+  @Test
+  @DisplayName("Idle policies are no longer tracked once their usage is drained")
+  public void testIdlePolicies() {
+    AtomicLong now = new AtomicLong();
+    QuotaCounters counters = new QuotaCounters(60000, now::get);
+    counters.seed(USER, COLLECTION, API, 100, 0, 0);
+    counters.record(USER, COLLECTION, API, 10);
+
+    now.addAndGet(60001);
+    assertEquals(1, counters.drain().size());
+    counters.reconcile(new JsonArray());
+    assertTrue(counters.drain().isEmpty());
+    assertNull(counters.get(USER, COLLECTION, API, 100));
+  }
+}
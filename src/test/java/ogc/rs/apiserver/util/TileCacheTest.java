@@ -0,0 +1,109 @@
+package ogc.rs.apiserver.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class TileCacheTest {
+
+  @Test
+  @DisplayName("Concurrent requests for a tile share one fetch")
+  public void testSingleFetch() {
+    TileCache cache = new TileCache(1024, 60000);
+    Promise<Buffer> fetch = Promise.promise();
+    AtomicInteger fetches = new AtomicInteger();
+
+    Future<Buffer> first = cache.get("a", () -> {
+      fetches.incrementAndGet();
+      return fetch.future();
+    });
+    Future<Buffer> second = cache.get("a", () -> {
+      fetches.incrementAndGet();
+      return fetch.future();
+    });
+    assertSame(first, second);
+    assertNull(cache.getIfPresent("a"));
+
+    fetch.complete(Buffer.buffer("tile"));
+    assertEquals(1, fetches.get());
+    assertEquals("tile", first.result().toString());
+    assertNotNull(cache.getIfPresent("a"));
+  }
+
+  @Test
+  @DisplayName("Failed fetches are not cached")
+  public void testFailureNotCached() {
+    TileCache cache = new TileCache(1024, 60000);
+    cache.get("a", () -> Future.failedFuture(new OgcException(404, "Not Found", "File not found.")));
+    assertNull(cache.getIfPresent("a"));
+
+    Future<Buffer> retry = cache.get("a", () -> Future.succeededFuture(Buffer.buffer("tile")));
+    assertEquals("tile", retry.result().toString());
+  }
+
+  @Test
+  @DisplayName("Least recently used tiles are evicted past the size limit")
+  public void testEviction() {
+    TileCache cache = new TileCache(10, 60000);
+    cache.get("a", () -> Future.succeededFuture(Buffer.buffer("1234")));
+    cache.get("b", () -> Future.succeededFuture(Buffer.buffer("1234")));
+    cache.getIfPresent("a");
+    cache.get("c", () -> Future.succeededFuture(Buffer.buffer("1234")));
+    cache.get("d", () -> Future.succeededFuture(Buffer.buffer("12345678901")));
+
+    assertNotNull(cache.getIfPresent("a"));
+    assertNull(cache.getIfPresent("b"));
+    assertNotNull(cache.getIfPresent("c"));
+    assertNull(cache.getIfPresent("d"));
+  }
+
+  @Test
+  @DisplayName("Tiles are fetched again once their TTL has passed")
+  public void testTtl() {
+    AtomicLong now = new AtomicLong();
+    TileCache cache = new TileCache(1024, 1000, 0, null, null, 0, now::get);
+    cache.get("a", () -> Future.succeededFuture(Buffer.buffer("old")));
+
+    now.set(999);
+    assertEquals("old", cache.getIfPresent("a").toString());
+    now.set(1000);
+    assertNull(cache.getIfPresent("a"));
+    Future<Buffer> fetched = cache.get("a", () -> Future.succeededFuture(Buffer.buffer("new")));
+    assertEquals("new", fetched.result().toString());
+  }
+
+  @Test
+  @DisplayName("Missing tiles are remembered for the not found TTL, other failures are not")
+  public void testNotFoundCached() {
+    AtomicLong now = new AtomicLong();
+    AtomicInteger fetches = new AtomicInteger();
+    TileCache cache = new TileCache(1024, 60000, 100, null, null, 0, now::get);
+    cache.get("a", () -> {
+      fetches.incrementAndGet();
+      return Future.failedFuture(new OgcException(404, "Not Found", "Tile not found."));
+    });
+    cache.get("b", () -> Future.failedFuture(new OgcException(500, "Internal Server Error", "")));
+
+    Future<Buffer> missing = cache.get("a", () -> {
+      fetches.incrementAndGet();
+      return Future.succeededFuture(Buffer.buffer("tile"));
+    });
+    assertEquals(404, ((OgcException) missing.cause()).getStatusCode());
+    assertEquals(1, fetches.get());
+    assertEquals("tile",
+        cache.get("b", () -> Future.succeededFuture(Buffer.buffer("tile"))).result().toString());
+
+    now.set(100);
+    Future<Buffer> uploaded = cache.get("a", () -> Future.succeededFuture(Buffer.buffer("tile")));
+    assertEquals("tile", uploaded.result().toString());
+  }
+}
@@ -0,0 +1,61 @@
+package ogc.rs.apiserver.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class TileMatrixSetGridTest {
+
+  @Test
+  @DisplayName("Tile bounds are counted from the top left corner")
+  public void testTileBounds() {
+    TileMatrixSetGrid crs84 = TileMatrixSetGrid.fromId("WorldCRS84Quad").get();
+    assertArrayEquals(new double[] {-180, -90, 0, 90}, crs84.getTileBounds(0, 0, 0, 0), 1e-9);
+    assertArrayEquals(new double[] {90, -90, 180, 0}, crs84.getTileBounds(1, 1, 3, 0), 1e-9);
+
+    TileMatrixSetGrid webMercator = TileMatrixSetGrid.fromId("WebMercatorQuad").get();
+    double[] bounds = webMercator.getTileBounds(1, 0, 1, 0);
+    assertEquals(3857, webMercator.getSrid());
+    assertEquals(0, bounds[0], 1e-6);
+    assertEquals(0, bounds[1], 1e-6);
+    assertEquals(20037508.3427892, bounds[3], 1e-6);
+  }
+
+  @Test
+  @DisplayName("Tile ranges of a bounding box are clamped to the tile matrix")
+  public void testTileRange() {
+    TileMatrixSetGrid crs84 = TileMatrixSetGrid.fromId("WorldCRS84Quad").get();
+    assertArrayEquals(new long[] {0, 0, 3, 1}, crs84.getTileRange(1, new double[] {-180, -90, 180, 90}));
+    assertArrayEquals(new long[] {5, 1, 5, 1}, crs84.getTileRange(2, new double[] {46, 1, 89, 44}));
+
+    TileMatrixSetGrid webMercator = TileMatrixSetGrid.fromId("WebMercatorQuad").get();
+    assertArrayEquals(new long[] {0, 0, 3, 3},
+        webMercator.getTileRange(2, new double[] {-180, -90, 180, 90}));
+    // Bangalore
+    assertArrayEquals(new long[] {2930, 1899, 2930, 1899},
+        webMercator.getTileRange(12, new double[] {77.59, 12.97, 77.6, 12.98}));
+  }
+
+  @Test
+  @DisplayName("Margin grows the tile bounds on each side")
+  public void testMargin() {
+    TileMatrixSetGrid crs84 = TileMatrixSetGrid.fromId("WorldCRS84Quad").get();
+    assertArrayEquals(new double[] {-182.8125, -92.8125, 2.8125, 92.8125},
+        crs84.getTileBounds(0, 0, 0, 64.0 / 4096), 1e-9);
+  }
+
+  @Test
+  @DisplayName("Tiles outside the tile matrix set do not exist")
+  public void testOutOfRange() {
+    TileMatrixSetGrid webMercator = TileMatrixSetGrid.fromId("WebMercatorQuad").get();
+    OgcException e = assertThrows(OgcException.class, () -> webMercator.getTileBounds(2, 4, 0, 0));
+    assertEquals(404, e.getStatusCode());
+    assertThrows(OgcException.class, () -> webMercator.getTileBounds(-1, 0, 0, 0));
+    assertThrows(OgcException.class, () -> webMercator.getTileBounds(25, 0, 0, 0));
+    assertTrue(TileMatrixSetGrid.fromId("UTM43N").isEmpty());
+  }
+}
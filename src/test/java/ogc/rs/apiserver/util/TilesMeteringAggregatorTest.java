@@ -0,0 +1,66 @@
+package ogc.rs.apiserver.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.UUID;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class TilesMeteringAggregatorTest {
+
+  private static final String RESOURCE_ID = UUID.randomUUID().toString();
+
+  private static MeteringInfo info(String userId, String api, long size) {
+    AuthInfo authInfo = AuthInfo.createUser(new JsonObject().put("sub", userId)
+        .put("role", "consumer").put("iid", "ri:" + RESOURCE_ID));
+    return new MeteringInfo(authInfo, RESOURCE_ID, "provider", api, size, null);
+  }
+
+  @Test
+  @DisplayName("Requests are aggregated per user and tileset")
+  public void testAggregation() {
+    TilesMeteringAggregator aggregator = new TilesMeteringAggregator(10);
+    String user = UUID.randomUUID().toString();
+    String tileset = "/collections/" + RESOURCE_ID + "/map/tiles/WebMercatorQuad";
+
+    assertTrue(aggregator.add(info(user, tileset, 100)));
+    assertTrue(aggregator.add(info(user, tileset, 50)));
+    assertTrue(aggregator.add(info(user, tileset + "x", 10)));
+
+    JsonArray records = aggregator.drain();
+    // requests in a different minute may end up in their own record
+    long requests = 0;
+    long bytes = 0;
+    for (int i = 0; i < records.size(); i++) {
+      JsonObject record = records.getJsonObject(i);
+      if (record.getString("api").equals(tileset)) {
+        requests += record.getLong("request_count");
+        bytes += record.getLong("response_size");
+      }
+    }
+    assertEquals(2, requests);
+    assertEquals(150, bytes);
+    assertTrue(records.size() >= 2 && records.size() <= 3);
+    assertTrue(aggregator.drain().isEmpty());
+  }
+
+  @Test
+  @DisplayName("Requests needing a new aggregate are dropped and counted when full")
+  public void testDrop() {
+    TilesMeteringAggregator aggregator = new TilesMeteringAggregator(1);
+    String user = UUID.randomUUID().toString();
+
+    assertTrue(aggregator.add(info(user, "/a", 1)));
+    assertFalse(aggregator.add(info(UUID.randomUUID().toString(), "/a", 1)));
+    assertFalse(aggregator.add(info(user, "/b", 1)));
+    assertEquals(2, aggregator.getAndResetDropped());
+    assertEquals(0, aggregator.getAndResetDropped());
+
+    aggregator.drain();
+    assertTrue(aggregator.add(info(user, "/b", 1)));
+  }
+}
@@ -0,0 +1,91 @@
+package ogc.rs.apiserver.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.vertx.core.buffer.Buffer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class VectorTileOverzoomTest {
+
+  @Test
+  @DisplayName("Geometries are scaled and clipped to the child tile, properties are kept")
+  public void testOverzoom() throws IOException {
+    // polygon covering the whole tile, line across it at y = 1000, point at 100, 100
+    Buffer polygon = feature(1, 3, 9, 0, 0, 26, 8192, 0, 0, 8192, 8191, 0, 15);
+    Buffer line = feature(2, 2, 9, 0, 2000, 10, 8192, 0);
+    Buffer point = feature(3, 1, 9, 200, 200);
+    Buffer tile = tile(polygon, line, point);
+
+    // top right child: the polygon is clipped to the child and the buffer of 64 around it, the
+    // point is outside
+    Buffer expected = tile(feature(1, 3, 9, 127, 8320, 26, 0, 8319, 8320, 0, 0, 8320, 15),
+        feature(2, 2, 9, 127, 4000, 10, 8320, 0));
+    assertEquals(expected, VectorTileOverzoom.overzoom(tile, 1, 1, 0));
+    assertEquals(expected, VectorTileOverzoom.overzoom(gzip(tile), 1, 1, 0));
+    // the column and row are relative to the ancestor tile
+    assertEquals(expected, VectorTileOverzoom.overzoom(tile, 1, 7, 4));
+  }
+
+  @Test
+  @DisplayName("Tiles without features within the child tile are null")
+  public void testEmpty() {
+    Buffer tile = tile(feature(3, 1, 9, 200, 200));
+    assertNull(VectorTileOverzoom.overzoom(tile, 2, 3, 3));
+    assertThrows(IllegalArgumentException.class,
+        () -> VectorTileOverzoom.overzoom(tile.getBuffer(0, tile.length() - 2), 2, 3, 3));
+  }
+
+  private static Buffer tile(Buffer... features) {
+    Buffer layer = Buffer.buffer();
+    field(layer, 1, Buffer.buffer("l"));
+    for (Buffer feature : features) {
+      field(layer, 2, feature);
+    }
+    varint(layer, 5 << 3);
+    varint(layer, 4096);
+    varint(layer, 15 << 3);
+    varint(layer, 2);
+    return field(Buffer.buffer(), 3, layer);
+  }
+
+  private static Buffer feature(long id, long type, long... geometry) {
+    Buffer feature = Buffer.buffer();
+    varint(feature, 1 << 3);
+    varint(feature, id);
+    varint(feature, 3 << 3);
+    varint(feature, type);
+    Buffer commands = Buffer.buffer();
+    for (long value : geometry) {
+      varint(commands, value);
+    }
+    return field(feature, 4, commands);
+  }
+
+  private static Buffer field(Buffer buf, int field, Buffer value) {
+    varint(buf, field << 3 | 2);
+    varint(buf, value.length());
+    return buf.appendBuffer(value);
+  }
+
+  private static void varint(Buffer buf, long value) {
+    while (value >= 0x80) {
+      buf.appendByte((byte) (value & 0x7f | 0x80));
+      value >>>= 7;
+    }
+    buf.appendByte((byte) value);
+  }
+
+  private static Buffer gzip(Buffer buf) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(buf.getBytes());
+    }
+    return Buffer.buffer(out.toByteArray());
+  }
+}
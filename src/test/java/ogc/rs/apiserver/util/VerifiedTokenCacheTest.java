@@ -0,0 +1,66 @@
+package ogc.rs.apiserver.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import io.vertx.core.json.JsonObject;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class VerifiedTokenCacheTest {
+
+  private static AuthInfo user(long expirySeconds) {
+    return AuthInfo.createUser(new JsonObject().put("sub", UUID.randomUUID().toString())
+        .put("role", "consumer").put("iid", "rs:ogc.iudx.io").put("aud", "ogc.iudx.io")
+        .put("exp", expirySeconds));
+  }
+
+  @Test
+  @DisplayName("Tokens are cached until they expire, and at most the maximum TTL")
+  public void testExpiry() {
+    AtomicLong now = new AtomicLong(1_000_000_000L);
+    VerifiedTokenCache cache = new VerifiedTokenCache(10, now::get);
+    long nowSeconds = now.get() / 1000;
+
+    cache.put("short", user(nowSeconds + 10));
+    cache.put("long", user(nowSeconds + 3600));
+    cache.put("expired", user(nowSeconds));
+    assertNotNull(cache.get("short"));
+    assertNotNull(cache.get("long"));
+    assertNull(cache.get("expired"));
+    assertNull(cache.get("unknown"));
+
+    now.addAndGet(10_000);
+    assertNull(cache.get("short"));
+    assertNotNull(cache.get("long"));
+
+    now.addAndGet(VerifiedTokenCache.MAX_TTL_SECONDS * 1000);
+    assertNull(cache.get("long"));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  @DisplayName("The least recently used token is evicted and cached users are copies")
+  public void testEviction() {
+    VerifiedTokenCache cache = new VerifiedTokenCache(2);
+    long expiry = System.currentTimeMillis() / 1000 + 3600;
+    AuthInfo first = user(expiry);
+    cache.put("a", first);
+    cache.put("b", user(expiry));
+    cache.get("a");
+    cache.put("c", user(expiry));
+
+    assertNull(cache.get("b"));
+    AuthInfo cached = cache.get("a");
+    assertEquals(first.getUserId(), cached.getUserId());
+    assertNotSame(first, cached);
+    cached.setResourceId(UUID.randomUUID());
+    assertNull(cache.get("a").getResourceId());
+    assertNotNull(cache.get("c"));
+    assertNull(new VerifiedTokenCache(0).get("a"));
+  }
+}
@@ -0,0 +1,113 @@
+package ogc.rs.catalogue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class CatalogueItemCacheTest {
+
+  private final Vertx vertx = Vertx.vertx();
+  private final AtomicLong now = new AtomicLong(1_000_000L);
+  private final List<Promise<JsonObject>> calls = new ArrayList<>();
+  private final Supplier<Future<JsonObject>> loader = () -> {
+    Promise<JsonObject> call = Promise.promise();
+    calls.add(call);
+    return call.future();
+  };
+
+  @AfterEach
+  public void closeVertx() {
+    vertx.close();
+  }
+
+  @Test
+  @DisplayName("Concurrent lookups share a call, stale items are returned while refreshed")
+  public void testCoalescingAndStaleness() {
+    CatalogueItemCache cache = new CatalogueItemCache(vertx, 10, 60, 5, 600, 60_000, now::get);
+
+    Future<JsonObject> first = cache.get("a", loader);
+    Future<JsonObject> second = cache.get("a", loader);
+    assertEquals(1, calls.size());
+    calls.get(0).complete(new JsonObject().put("provider", "p1"));
+    assertEquals("p1", first.result().getString("provider"));
+    assertEquals("p1", second.result().getString("provider"));
+
+    // callers get copies
+    first.result().put("provider", "changed");
+    assertEquals("p1", cache.get("a", loader).result().getString("provider"));
+    assertEquals(1, calls.size());
+
+    // stale: the cached item is returned and refreshed once in the background
+    now.addAndGet(61_000);
+    assertEquals("p1", cache.get("a", loader).result().getString("provider"));
+    assertEquals("p1", cache.get("a", loader).result().getString("provider"));
+    assertEquals(2, calls.size());
+    calls.get(1).fail("catalogue down");
+    assertEquals("p1", cache.get("a", loader).result().getString("provider"));
+    assertEquals(3, calls.size());
+    calls.get(2).complete(new JsonObject().put("provider", "p2"));
+    assertEquals("p2", cache.get("a", loader).result().getString("provider"));
+
+    // past the maximum staleness the item is fetched again before returning
+    now.addAndGet(661_000);
+    Future<JsonObject> expired = cache.get("a", loader);
+    assertFalse(expired.isComplete());
+    assertEquals(4, calls.size());
+  }
+
+  @Test
+  @DisplayName("Missing items are cached for the negative TTL, failures are not cached")
+  public void testNegativeCaching() {
+    CatalogueItemCache cache = new CatalogueItemCache(vertx, 10, 60, 5, 600, 60_000, now::get);
+
+    Future<JsonObject> missing = cache.get("a", loader);
+    calls.get(0).complete(null);
+    assertTrue(missing.succeeded());
+    assertNull(missing.result());
+    assertNull(cache.get("a", loader).result());
+    assertEquals(1, calls.size());
+
+    now.addAndGet(5_000);
+    cache.get("a", loader);
+    assertEquals(2, calls.size());
+
+    Future<JsonObject> failed = cache.get("b", loader);
+    calls.get(2).fail("catalogue down");
+    assertTrue(failed.failed());
+    cache.get("b", loader);
+    assertEquals(4, calls.size());
+  }
+
+  @Test
+  @DisplayName("Calls that do not complete are failed after the load timeout")
+  public void testLoadTimeout() throws InterruptedException {
+    CatalogueItemCache cache = new CatalogueItemCache(vertx, 10, 60, 5, 600, 50, now::get);
+
+    CountDownLatch timedOut = new CountDownLatch(1);
+    Future<JsonObject> hung = cache.get("a", loader);
+    hung.onFailure(err -> timedOut.countDown());
+    assertTrue(timedOut.await(5, TimeUnit.SECONDS));
+
+    cache.get("a", loader);
+    assertEquals(2, calls.size());
+    // a late result of the call that timed out is still cached
+    calls.get(0).complete(new JsonObject().put("provider", "p1"));
+    assertEquals("p1", cache.get("a", loader).result().getString("provider"));
+    assertEquals(2, calls.size());
+  }
+}
@@ -0,0 +1,74 @@
+package ogc.rs.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class TileExistenceIndexTest {
+
+  @Test
+  @DisplayName("Tiles added are found, others are not, also after serializing")
+  public void testContains() {
+    TileExistenceIndex.Builder builder = TileExistenceIndex.builder();
+    // a run of 100 tiles in row 7 and a tile at the end of the previous row
+    for (long col = 199; col >= 100; col--) {
+      builder.add(10, col, 7);
+    }
+    builder.add(10, (1L << 31) - 1, 6).add(10, 150, 7).add(0, 0, 0);
+    assertTrue(builder.addObjectKey("12/3423/1763.pbf"));
+    assertFalse(builder.addObjectKey("metadata.json"));
+    assertFalse(builder.addObjectKey("12/3423/x.pbf"));
+    assertFalse(builder.addObjectKey("a/12/3423/1763.pbf"));
+
+    TileExistenceIndex built = builder.build();
+    TileExistenceIndex read = TileExistenceIndex.fromBuffer(built.toBuffer());
+    for (TileExistenceIndex index : new TileExistenceIndex[] {built, read}) {
+      assertEquals(103, index.size());
+      assertTrue(index.contains(0, 0, 0));
+      assertTrue(index.contains(10, 100, 7));
+      assertTrue(index.contains(10, 150, 7));
+      assertTrue(index.contains(10, 199, 7));
+      assertTrue(index.contains(10, (1L << 31) - 1, 6));
+      assertTrue(index.contains(12, 3423, 1763));
+      assertFalse(index.contains(10, 99, 7));
+      assertFalse(index.contains(10, 200, 7));
+      assertFalse(index.contains(10, 0, 8));
+      assertFalse(index.contains(10, 150, 6));
+      assertFalse(index.contains(10, -1, 7));
+      assertFalse(index.contains(11, 150, 7));
+      assertFalse(index.contains(12, 1763, 3423));
+    }
+  }
+
+  @Test
+  @DisplayName("Tiles are covered within the columns and rows of the tiles of their tile matrix")
+  public void testCovers() {
+    TileExistenceIndex index = TileExistenceIndex.fromBuffer(TileExistenceIndex.builder()
+        .add(5, 10, 3).add(5, 12, 4).add(5, 8, 6).build().toBuffer());
+    assertTrue(index.covers(5, 10, 3));
+    assertTrue(index.covers(5, 8, 3));
+    assertTrue(index.covers(5, 12, 6));
+    assertFalse(index.contains(5, 12, 6));
+    assertFalse(index.covers(5, 7, 4));
+    assertFalse(index.covers(5, 13, 4));
+    assertFalse(index.covers(5, 10, 2));
+    assertFalse(index.covers(5, 10, 7));
+    assertFalse(index.covers(4, 5, 1));
+    assertFalse(index.covers(6, 20, 6));
+  }
+
+  @Test
+  @DisplayName("Invalid serialized indexes are rejected")
+  public void testInvalidBuffer() {
+    Buffer buf = TileExistenceIndex.builder().add(3, 1, 2).build().toBuffer();
+    assertThrows(IllegalArgumentException.class,
+        () -> TileExistenceIndex.fromBuffer(buf.getBuffer(0, buf.length() - 1)));
+    assertThrows(IllegalArgumentException.class,
+        () -> TileExistenceIndex.fromBuffer(Buffer.buffer(new byte[] {9})));
+  }
+}
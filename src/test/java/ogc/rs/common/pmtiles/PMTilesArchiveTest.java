@@ -0,0 +1,102 @@
+package ogc.rs.common.pmtiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class PMTilesArchiveTest {
+
+  @Test
+  @DisplayName("Tile IDs follow the Hilbert curve of the PMTiles spec")
+  public void testTileId() {
+    assertEquals(0, PMTilesDirectory.tileId(0, 0, 0));
+    assertEquals(1, PMTilesDirectory.tileId(1, 0, 0));
+    assertEquals(2, PMTilesDirectory.tileId(1, 0, 1));
+    assertEquals(3, PMTilesDirectory.tileId(1, 1, 1));
+    assertEquals(4, PMTilesDirectory.tileId(1, 1, 0));
+    assertEquals(5, PMTilesDirectory.tileId(2, 0, 0));
+    assertEquals(19078479, PMTilesDirectory.tileId(12, 3423, 1763));
+  }
+
+  @Test
+  @DisplayName("Tiles are found in the root directory, in runs and in leaf directories")
+  public void testGetTile() {
+    // leaf: tile 6, i.e. 2/1/0
+    Buffer leaf = directory(new long[] {6}, new long[] {1}, new long[] {5}, new long[] {4});
+    // root: tile 0, tiles 1-2 (a run of the same data), leaf directory from tile 5
+    Buffer root = directory(new long[] {0, 1, 5}, new long[] {1, 2, 0}, new long[] {0, 2, 0},
+        new long[] {2, 3, leaf.length()});
+    Buffer tiles = Buffer.buffer("aabbbcccc");
+
+    Buffer archive = Buffer.buffer(new byte[PMTilesHeader.LENGTH]);
+    archive.setString(0, "PMTiles", StandardCharsets.US_ASCII.name());
+    archive.setByte(7, (byte) 3);
+    archive.setLongLE(8, PMTilesHeader.LENGTH);
+    archive.setLongLE(16, root.length());
+    archive.setLongLE(40, PMTilesHeader.LENGTH + root.length());
+    archive.setLongLE(56, PMTilesHeader.LENGTH + root.length() + leaf.length());
+    archive.setByte(97, (byte) PMTilesHeader.COMPRESSION_NONE);
+    archive.setByte(98, (byte) PMTilesHeader.COMPRESSION_NONE);
+    archive.setByte(99, (byte) PMTilesHeader.TILE_TYPE_MVT);
+    archive.appendBuffer(root).appendBuffer(leaf).appendBuffer(tiles);
+
+    List<Long> reads = new ArrayList<>();
+    PMTilesArchive pmtiles = new PMTilesArchive((offset, length) -> {
+      reads.add(offset);
+      int end = (int) Math.min(archive.length(), offset + length);
+      return Future.succeededFuture(archive.slice((int) offset, end));
+    }, 10);
+
+    assertEquals(PMTilesHeader.TILE_TYPE_MVT, pmtiles.getHeader().result().getTileType());
+    assertEquals("aa", pmtiles.getTile(0, 0, 0).result().toString());
+    assertEquals("bbb", pmtiles.getTile(1, 0, 1).result().toString());
+    assertEquals("bbb", pmtiles.getTile(1, 0, 0).result().toString());
+    assertNull(pmtiles.getTile(1, 1, 1).result());
+    assertNull(pmtiles.getTile(1, 1, 0).result());
+    assertEquals("cccc", pmtiles.getTile(2, 1, 0).result().toString());
+    assertNull(pmtiles.getTile(2, 0, 0).result());
+
+    // header and root directory are read once, the leaf directory once
+    assertEquals(1, reads.stream().filter(offset -> offset == 0).count());
+    assertEquals(1, reads.stream()
+        .filter(offset -> offset == PMTilesHeader.LENGTH + root.length()).count());
+    assertTrue(pmtiles.getTile(30, 0, 0).succeeded());
+  }
+
+  private static Buffer directory(long[] tileIds, long[] runLengths, long[] offsets,
+      long[] lengths) {
+    Buffer buf = Buffer.buffer();
+    varint(buf, tileIds.length);
+    long last = 0;
+    for (long tileId : tileIds) {
+      varint(buf, tileId - last);
+      last = tileId;
+    }
+    for (long runLength : runLengths) {
+      varint(buf, runLength);
+    }
+    for (long length : lengths) {
+      varint(buf, length);
+    }
+    for (long offset : offsets) {
+      varint(buf, offset + 1);
+    }
+    return buf;
+  }
+
+  private static void varint(Buffer buf, long value) {
+    while (value >= 0x80) {
+      buf.appendByte((byte) (value & 0x7f | 0x80));
+      value >>>= 7;
+    }
+    buf.appendByte((byte) value);
+  }
+}
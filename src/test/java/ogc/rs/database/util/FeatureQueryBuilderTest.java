@@ -0,0 +1,126 @@
+package ogc.rs.database.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.vertx.sqlclient.Tuple;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class FeatureQueryBuilderTest {
+
+  private FeatureQueryBuilder builder(String bbox, String datetime, String filterValue, int offset) {
+    FeatureQueryBuilder builder = new FeatureQueryBuilder("c2a4a1b8-4c0e-4b1e-9d2c-0f7a3c4e5d6f");
+    builder.setLimit(10);
+    builder.setOffset(offset);
+    builder.setBboxCrsSrid("4326");
+    builder.setFilter(Map.of("name", filterValue), Map.of("name", "character varying(50)"));
+    builder.setBbox(bbox, "4326");
+    builder.setDatetimeKey("date");
+    builder.setDatetime(datetime);
+    return builder;
+  }
+
+  @Test
+  @DisplayName("Queries with the same filters but different values have the same SQL")
+  public void testSameShapeSameSql() {
+    Tuple first = Tuple.tuple();
+    Tuple second = Tuple.tuple();
+    String firstSql = builder("72.1,18.2,73.3,19.4", "2020-01-01T00:00:00Z/..", "a'b", 1)
+        .buildSqlString(first);
+    String secondSql = builder("1,2,3,4", "2021-05-05T00:00:00Z/..", "other", 51)
+        .buildSqlString(second);
+
+    assertEquals(firstSql, secondSql);
+    assertFalse(firstSql.contains("a'b"));
+    assertFalse(firstSql.contains("72.1"));
+    assertEquals("other", second.getValue(0));
+  }
+
+  @Test
+  @DisplayName("Every placeholder has a bind value")
+  public void testParamsMatchPlaceholders() {
+    Tuple data = Tuple.tuple();
+    String sql = builder("72.1,18.2,73.3,19.4", "2020-01-01T00:00:00Z", "x", 1).buildSqlString(data);
+
+    // filter, 4 bbox coordinates, datetime, offset and limit
+    assertEquals(8, data.size());
+    assertEquals("x", data.getValue(0));
+    assertEquals(72.1, data.getValue(1));
+    assertEquals(0L, data.getValue(6));
+    assertEquals(10, data.getValue(7));
+    assertTrue(sql.contains("$8") && !sql.contains("$9"));
+
+    Tuple count = Tuple.tuple();
+    String countSql = builder("72.1,18.2,73.3,19.4", "2020-01-01T00:00:00Z", "x", 1)
+        .buildCountSqlString(count);
+    assertEquals(6, count.size());
+    assertTrue(countSql.contains("$6") && !countSql.contains("$7"));
+  }
+
+  @Test
+  @DisplayName("Capped count query counts up to one more than the limit")
+  public void testCappedCount() {
+    Tuple count = Tuple.tuple();
+    String countSql = builder("72.1,18.2,73.3,19.4", "2020-01-01T00:00:00Z", "x", 1)
+        .buildCountSqlString(count, 100000);
+
+    assertEquals(7, count.size());
+    assertEquals(100001, count.getValue(6));
+    assertTrue(countSql.startsWith("select count(*) from (select 1 from"));
+    assertTrue(countSql.endsWith(" limit $7) as matched"));
+  }
+
+  @Test
+  @DisplayName("Selected properties are built into the SQL instead of the whole row")
+  public void testPropertySelection() {
+    FeatureQueryBuilder builder = builder("72.1,18.2,73.3,19.4", "2020-01-01T00:00:00Z", "x", 1);
+    builder.setProperties(List.of("state", "geom", "district's \"name\""));
+    String sql = builder.buildSqlString(Tuple.tuple());
+
+    assertFalse(sql.contains("row_to_json"));
+    assertTrue(sql.contains("jsonb_build_object('district''s \"name\"', "
+        + "\"c2a4a1b8-4c0e-4b1e-9d2c-0f7a3c4e5d6f\".\"district's \"\"name\"\"\", "
+        + "'state', \"c2a4a1b8-4c0e-4b1e-9d2c-0f7a3c4e5d6f\".\"state\")) as properties"));
+  }
+
+  @Test
+  @DisplayName("Zoom level binds the simplification tolerance and precision after the filters")
+  public void testZoom() {
+    FeatureQueryBuilder builder = builder("72.1,18.2,73.3,19.4", "2020-01-01T00:00:00Z", "x", 1);
+    builder.setCrs("4326");
+    builder.setZoom(10);
+    Tuple data = Tuple.tuple();
+    String sql = builder.buildSqlString(data);
+
+    // filter, 4 bbox coordinates, datetime, tolerance, precision, offset and limit
+    assertEquals(10, data.size());
+    assertEquals(360.0 / 262144, data.getValue(6));
+    assertEquals(3, data.getValue(7));
+    assertTrue(sql.startsWith("select id, 'Feature' as type, cast(st_asgeojson("
+        + "ST_SimplifyPreserveTopology(st_transform(geom,4326), $7), $8::int, 0) as json)"));
+  }
+
+  @Test
+  @DisplayName("CRS84 geometry column is read instead of transforming the stored geometry")
+  public void testCrs84Geometry() {
+    FeatureQueryBuilder builder = new FeatureQueryBuilder("c2a4a1b8-4c0e-4b1e-9d2c-0f7a3c4e5d6f");
+    builder.setCrs84Geometry(true);
+    builder.setCrs("4326");
+    builder.setBboxCrsSrid("4326");
+    builder.setBbox("72.1,18.2,73.3,19.4", "32643");
+    String sql = builder.buildSqlString(Tuple.tuple());
+
+    assertFalse(sql.contains("st_transform"));
+    assertTrue(sql.startsWith(
+        "select id, 'Feature' as type, cast(st_asgeojson(geom_4326, 9,0) as json)"));
+    assertTrue(sql.contains("st_intersects(geom_4326, "));
+    assertTrue(sql.contains(" - 'geom_4326')"));
+
+    builder.setCrs("32643");
+    assertTrue(builder.buildSqlString(Tuple.tuple()).contains("st_transform(geom,32643)"));
+  }
+}
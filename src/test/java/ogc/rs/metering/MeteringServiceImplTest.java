@@ -52,6 +52,8 @@ public class MeteringServiceImplTest {
           .put("verticleInstances", 1)
           .put("catServerHost", "api.cat-test.iudx.io")
           .put("catServerPort", 443)
+          // each test mocks its own catalogue response
+          .put("catItemCacheSize", 0)
           .put(DATABASE_TABLE_NAME, "auditing_ogc");
   static JsonObject requestJson = new JsonObject().put(USER_ID, "123-1243-56546-13424");
   private static MeteringServiceImpl meteringService;
@@ -1529,4 +1531,28 @@ public class MeteringServiceImplTest {
               vertxTestContext.failNow(failure.getMessage());
             });
   }
+
+  @Test
+  @DisplayName("Invalid records of a metering batch are skipped, not inserted or published")
+  public void testInsertMeteringBatchSkipsInvalidRecords(VertxTestContext vertxTestContext) {
+    meteringDatabaseService = mock(PgPool.class);
+    ogcDatabaseService = mock(PgPool.class);
+    databroker = mock(DataBrokerService.class);
+    meteringService = new MeteringServiceImpl(vertxObj, meteringDatabaseService, ogcDatabaseService, config, databroker);
+
+    JsonArray records = new JsonArray()
+        .add(new JsonObject().put(DELEGATOR_ID, "not-a-uuid").put(ID, "15c7506f-c800-48d6-adeb-0542b03947c6")
+            .put(ISO_TIME, "2024-01-01T00:00:00+05:30"))
+        .add(new JsonObject().put(DELEGATOR_ID, "15c7506f-c800-48d6-adeb-0542b03947c6"));
+
+    meteringService
+        .insertMeteringBatch(records)
+        .onSuccess(
+            unpublished -> {
+              assertTrue(unpublished.isEmpty());
+              verifyNoInteractions(ogcDatabaseService, databroker);
+              vertxTestContext.completeNow();
+            })
+        .onFailure(vertxTestContext::failNow);
+  }
 }